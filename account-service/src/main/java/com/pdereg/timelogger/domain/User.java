@@ -25,6 +25,7 @@ public class User implements UserDetails {
     public static final int MIN_USERNAME_SIZE = 3;
     public static final int MAX_USERNAME_SIZE = 30;
     public static final int PASSWORD_SIZE = 60;
+    public static final int MAX_ENCODED_PASSWORD_SIZE = 256;
 
     @Id
     private String id;
@@ -37,7 +38,7 @@ public class User implements UserDetails {
 
     @JsonIgnore
     @NotNull
-    @Size(min = PASSWORD_SIZE, max = PASSWORD_SIZE)
+    @Size(min = PASSWORD_SIZE, max = MAX_ENCODED_PASSWORD_SIZE)
     private String password;
 
     @JsonIgnore
@@ -1,16 +1,18 @@
 package com.pdereg.timelogger.repository;
 
 import com.pdereg.timelogger.domain.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 /**
  * Provides a communication interface to MongoDB for {@link User} domain objects.
  */
 @Repository
-public interface UserRepository extends MongoRepository<User, String> {
+public interface UserRepository extends MongoRepository<User, String>, UserRepositoryCustom {
 
     /**
      * Finds and returns a {@link User} instance with given {@code username}.
@@ -19,4 +21,15 @@ public interface UserRepository extends MongoRepository<User, String> {
      * @return An optional {@link User} instance
      */
     Optional<User> findOneByUsername(String username);
+
+    /**
+     * Finds and returns {@link User} instances with usernames that follow provided {@code username}, sorted by their
+     * usernames. The query is served by the unique username index, so its cost does not depend on how many users
+     * precede provided {@code username}.
+     *
+     * @param username Username after which to start
+     * @param pageable Limit of users to return
+     * @return A list of {@link User} instances
+     */
+    List<User> findAllByUsernameGreaterThanOrderByUsernameAsc(String username, Pageable pageable);
 }
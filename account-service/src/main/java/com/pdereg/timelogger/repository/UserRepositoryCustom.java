@@ -0,0 +1,61 @@
+package com.pdereg.timelogger.repository;
+
+import com.pdereg.timelogger.domain.User;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * {@link User} operations that cannot be derived from repository method names.
+ */
+public interface UserRepositoryCustom {
+
+    /**
+     * Atomically replaces the password of a user with given {@code username}, provided that it has not been changed
+     * since it was read.
+     *
+     * @param username        Name of the user whose password to replace
+     * @param currentPassword Hashed password read earlier
+     * @param newPassword     New hashed password
+     * @return {@code true} if the password was replaced; {@code false} if the user does not exist or its password
+     * has been changed in the meantime
+     */
+    boolean updatePassword(String username, String currentPassword, String newPassword);
+
+    /**
+     * Streams usernames of all users, without reading any other field. The stream has to be closed once consumed.
+     *
+     * @return A stream of usernames
+     */
+    Stream<String> streamAllUsernames();
+
+    /**
+     * Streams usernames of users created at or after provided {@code since} time, as recorded in their identifiers.
+     * The stream has to be closed once consumed.
+     *
+     * @param since Time from which to stream usernames
+     * @return A stream of usernames
+     */
+    Stream<String> streamUsernamesCreatedSince(Date since);
+
+    /**
+     * Finds which of provided {@code usernames} belong to existing users, with a single query that reads usernames
+     * only.
+     *
+     * @param usernames Usernames to look for
+     * @return A set of usernames that are in use
+     */
+    Set<String> findExistingUsernames(Collection<String> usernames);
+
+    /**
+     * Inserts provided {@code users} with a single unordered bulk write, so that users that cannot be inserted (e.g.
+     * because their usernames are already in use) do not prevent the others from being inserted.
+     *
+     * @param users New {@link User} instances to insert
+     * @return Inserted {@link User} instances, in the same order as provided {@code users}
+     */
+    List<User> insertAllUnordered(List<User> users);
+}
@@ -0,0 +1,111 @@
+package com.pdereg.timelogger.repository;
+
+import com.mongodb.BulkWriteError;
+import com.pdereg.timelogger.domain.User;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.data.util.StreamUtils;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * MongoDB implementation of {@link UserRepositoryCustom}.
+ */
+public class UserRepositoryImpl implements UserRepositoryCustom {
+
+    private final MongoOperations mongoOperations;
+
+    @Autowired
+    public UserRepositoryImpl(MongoOperations mongoOperations) {
+        this.mongoOperations = mongoOperations;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean updatePassword(String username, String currentPassword, String newPassword) {
+        final Query query = new Query(Criteria
+                .where("username").is(username)
+                .and("password").is(currentPassword)
+        );
+
+        return mongoOperations.updateFirst(query, Update.update("password", newPassword), User.class).getN() > 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Stream<String> streamAllUsernames() {
+        return streamUsernames(new Query());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Stream<String> streamUsernamesCreatedSince(Date since) {
+        // Identifiers begin with their creation time, so the smallest one created at a given time has zeroes elsewhere
+        return streamUsernames(new Query(Criteria.where("_id").gte(new ObjectId(since))));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<String> findExistingUsernames(Collection<String> usernames) {
+        final Query query = new Query(Criteria.where("username").in(usernames));
+        query.fields().include("username");
+
+        return mongoOperations.find(query, User.class).stream()
+                .map(User::getUsername)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<User> insertAllUnordered(List<User> users) {
+        final BitSet failedIndices = new BitSet(users.size());
+
+        try {
+            mongoOperations.bulkOps(BulkOperations.BulkMode.UNORDERED, User.class).insert(users).execute();
+        } catch (BulkOperationException e) {
+            for (BulkWriteError error : e.getErrors()) {
+                failedIndices.set(error.getIndex());
+            }
+        }
+
+        final List<User> insertedUsers = new ArrayList<>(users.size());
+        for (int i = 0; i < users.size(); ++i) {
+            if (!failedIndices.get(i)) {
+                insertedUsers.add(users.get(i));
+            }
+        }
+
+        return insertedUsers;
+    }
+
+    private Stream<String> streamUsernames(Query query) {
+        query.fields().include("username");
+
+        final CloseableIterator<User> iterator = mongoOperations.stream(query, User.class);
+        return StreamUtils.createStreamFromIterator(iterator).map(User::getUsername);
+    }
+}
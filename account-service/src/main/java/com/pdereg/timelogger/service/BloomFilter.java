@@ -0,0 +1,125 @@
+package com.pdereg.timelogger.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A Bloom filter of strings that can be read and written concurrently without locking. It never reports an added
+ * string as missing, and reports a string that was never added as present with roughly the configured probability,
+ * as long as no more than the expected number of strings are added.
+ */
+final class BloomFilter {
+
+    private static final double LN_2 = Math.log(2.0);
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+    private final AtomicLong addedCount = new AtomicLong();
+
+    /**
+     * @param expectedSize      Number of strings the filter is sized for
+     * @param falsePositiveRate Probability of reporting a missing string as present once the filter holds
+     *                          {@code expectedSize} strings
+     */
+    BloomFilter(long expectedSize, double falsePositiveRate) {
+        final long size = Math.max(expectedSize, 1L);
+        final long bits = (long) Math.ceil(-size * Math.log(falsePositiveRate) / (LN_2 * LN_2));
+
+        this.words = new AtomicLongArray((int) ((bits + 63L) / 64L));
+        this.bitCount = words.length() * 64L;
+        this.hashCount = Math.max((int) Math.round((double) bitCount / size * LN_2), 1);
+    }
+
+    /**
+     * Adds provided {@code value} to the filter.
+     */
+    void put(String value) {
+        final long hash = hash(value);
+        final long first = hash >>> 32;
+        final long second = hash & 0xFFFFFFFFL;
+
+        boolean changed = false;
+        for (int i = 0; i < hashCount; ++i) {
+            changed |= setBit(index(first, second, i));
+        }
+
+        // Strings added before, and rare ones whose bits were all set by others, are not counted
+        if (changed) {
+            addedCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return {@code false} if provided {@code value} was definitely never added; {@code true} if it might have been
+     */
+    boolean mightContain(String value) {
+        final long hash = hash(value);
+        final long first = hash >>> 32;
+        final long second = hash & 0xFFFFFFFFL;
+
+        for (int i = 0; i < hashCount; ++i) {
+            if (!getBit(index(first, second, i))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @return Approximate number of distinct strings added so far
+     */
+    long getAddedCount() {
+        return addedCount.get();
+    }
+
+    /**
+     * @return Number of bits in the filter
+     */
+    long getBitCount() {
+        return bitCount;
+    }
+
+    private long index(long first, long second, int i) {
+        // Double hashing: the i-th index is derived from two independent halves of a single 64-bit hash
+        return ((first + i * second) & Long.MAX_VALUE) % bitCount;
+    }
+
+    private boolean setBit(long index) {
+        final int wordIndex = (int) (index >>> 6);
+        final long mask = 1L << index;
+
+        long word = words.get(wordIndex);
+        while ((word & mask) == 0L) {
+            if (words.compareAndSet(wordIndex, word, word | mask)) {
+                return true;
+            }
+
+            word = words.get(wordIndex);
+        }
+
+        return false;
+    }
+
+    private boolean getBit(long index) {
+        return (words.get((int) (index >>> 6)) & (1L << index)) != 0L;
+    }
+
+    private static long hash(String value) {
+        // 64-bit FNV-1a over UTF-16 code units, followed by MurmurHash3's finalizer to spread the bits
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < value.length(); ++i) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001B3L;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+
+        return hash;
+    }
+}
@@ -0,0 +1,210 @@
+package com.pdereg.timelogger.service;
+
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.core.env.Environment;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link PasswordEncoder} that hashes passwords with a {@link HashingAlgorithm} at a cost picked for the hardware the
+ * service runs on, and checks passwords hashed with any supported algorithm at any cost. Every hash is preceded by the
+ * identifier of its algorithm in braces (e.g. {@code {bcrypt}$2a$10$...}); hashes without one are BCrypt hashes
+ * written before algorithms became configurable.
+ * <p>
+ * The algorithm is selected with {@code time-logger.password-hashing.algorithm}. Unless a fixed {@code .cost} is set,
+ * the cost is calibrated at start-up: the highest cost whose hash does not take longer than {@code .target-time}
+ * (in milliseconds) is picked, within {@code .min-cost} and {@code .max-cost} bounds.
+ */
+public class CalibratedPasswordEncoder implements PasswordEncoder, PublicMetrics {
+
+    private static final String PROPERTY_PREFIX = "time-logger.password-hashing.";
+    private static final String METRIC_PREFIX = "password-hashing.";
+
+    private static final String DEFAULT_ALGORITHM = "bcrypt";
+    private static final long DEFAULT_TARGET_TIME = 250L;
+    private static final int CALIBRATION_RUNS = 2;
+    private static final String CALIBRATION_PASSWORD = "calibration";
+
+    private static final char PREFIX_START = '{';
+    private static final char PREFIX_END = '}';
+
+    private final HashingAlgorithm algorithm;
+    private final int cost;
+    private final double hashMillis;
+
+    public CalibratedPasswordEncoder(HashingAlgorithm algorithm, int cost) {
+        this(algorithm, cost, measure(algorithm, cost));
+    }
+
+    private CalibratedPasswordEncoder(HashingAlgorithm algorithm, int cost, long hashNanos) {
+        this.algorithm = algorithm;
+        this.cost = cost;
+        this.hashMillis = TimeUnit.NANOSECONDS.toMicros(hashNanos) / 1000.0;
+    }
+
+    /**
+     * Creates an encoder configured with provided {@code environment}, calibrating its cost if necessary.
+     *
+     * @param environment Environment holding {@code time-logger.password-hashing.*} properties
+     * @return {@link CalibratedPasswordEncoder} instance
+     */
+    public static CalibratedPasswordEncoder create(Environment environment) {
+        final HashingAlgorithm algorithm = HashingAlgorithm.fromId(
+                environment.getProperty(PROPERTY_PREFIX + "algorithm", DEFAULT_ALGORITHM)
+        );
+
+        final Integer fixedCost = environment.getProperty(PROPERTY_PREFIX + "cost", Integer.class);
+        if (fixedCost != null) {
+            return new CalibratedPasswordEncoder(algorithm, fixedCost);
+        }
+
+        final long targetTime = environment.getProperty(PROPERTY_PREFIX + "target-time", Long.class,
+                DEFAULT_TARGET_TIME);
+        final int minCost = environment.getProperty(PROPERTY_PREFIX + "min-cost", Integer.class,
+                algorithm.getDefaultMinCost());
+        final int maxCost = environment.getProperty(PROPERTY_PREFIX + "max-cost", Integer.class,
+                algorithm.getMaxCost());
+
+        return calibrate(algorithm, TimeUnit.MILLISECONDS.toNanos(targetTime), minCost, maxCost);
+    }
+
+    /**
+     * Creates an encoder that uses the highest cost of provided {@code algorithm} whose hash does not take longer than
+     * {@code targetNanos}. Since every step doubles the time, the next cost is measured only if the current one takes
+     * at most half of the target.
+     *
+     * @param algorithm   Algorithm to calibrate
+     * @param targetNanos Longest acceptable time of a single hash (in nanoseconds)
+     * @param minCost     Lowest cost to use, even if it takes longer than the target
+     * @param maxCost     Highest cost to use, even if it takes less than the target
+     * @return {@link CalibratedPasswordEncoder} instance
+     */
+    static CalibratedPasswordEncoder calibrate(HashingAlgorithm algorithm, long targetNanos, int minCost,
+                                               int maxCost) {
+
+        // The first hash pays for class loading and compilation, so it is not measured
+        algorithm.encode(CALIBRATION_PASSWORD, minCost);
+
+        int cost = minCost;
+        long hashNanos = measure(algorithm, cost);
+
+        while (cost < maxCost && 2 * hashNanos <= targetNanos) {
+            final long nextHashNanos = measure(algorithm, cost + 1);
+            if (nextHashNanos > targetNanos) {
+                break;
+            }
+
+            cost += 1;
+            hashNanos = nextHashNanos;
+        }
+
+        return new CalibratedPasswordEncoder(algorithm, cost, hashNanos);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return PREFIX_START + algorithm.getId() + PREFIX_END + algorithm.encode(rawPassword.toString(), cost);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        if (encodedPassword == null) {
+            return false;
+        }
+
+        try {
+            return getAlgorithm(encodedPassword).matches(rawPassword.toString(), stripPrefix(encodedPassword));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Checks whether provided {@code encodedPassword} was hashed with a different algorithm or at a different cost
+     * than passwords are hashed with now.
+     *
+     * @param encodedPassword Hashed password to check
+     * @return {@code true} if the password should be hashed again; {@code false} otherwise
+     */
+    public boolean needsRehash(String encodedPassword) {
+        try {
+            final HashingAlgorithm hashAlgorithm = getAlgorithm(encodedPassword);
+            return hashAlgorithm != algorithm || hashAlgorithm.readCost(stripPrefix(encodedPassword)) != cost;
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            return true;
+        }
+    }
+
+    /**
+     * @return Algorithm passwords are hashed with
+     */
+    public HashingAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * @return Cost passwords are hashed at
+     */
+    public int getCost() {
+        return cost;
+    }
+
+    /**
+     * @return Time a single hash took at start-up (in milliseconds), i.e. CPU time spent on every login
+     */
+    public double getHashMillis() {
+        return hashMillis;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<Metric<?>> metrics() {
+        final List<Metric<?>> metrics = new ArrayList<>();
+
+        metrics.add(new Metric<>(METRIC_PREFIX + algorithm.getId() + ".cost", cost));
+        metrics.add(new Metric<>(METRIC_PREFIX + "budget", hashMillis));
+
+        return metrics;
+    }
+
+    private static HashingAlgorithm getAlgorithm(String encodedPassword) {
+        if (encodedPassword.isEmpty() || encodedPassword.charAt(0) != PREFIX_START) {
+            return HashingAlgorithm.BCRYPT;
+        }
+
+        return HashingAlgorithm.fromId(encodedPassword.substring(1, encodedPassword.indexOf(PREFIX_END)));
+    }
+
+    private static String stripPrefix(String encodedPassword) {
+        if (encodedPassword.isEmpty() || encodedPassword.charAt(0) != PREFIX_START) {
+            return encodedPassword;
+        }
+
+        return encodedPassword.substring(encodedPassword.indexOf(PREFIX_END) + 1);
+    }
+
+    private static long measure(HashingAlgorithm algorithm, int cost) {
+        long bestNanos = Long.MAX_VALUE;
+
+        for (int i = 0; i < CALIBRATION_RUNS; ++i) {
+            final long startedAt = System.nanoTime();
+            algorithm.encode(CALIBRATION_PASSWORD, cost);
+            bestNanos = Math.min(bestNanos, System.nanoTime() - startedAt);
+        }
+
+        return bestNanos;
+    }
+}
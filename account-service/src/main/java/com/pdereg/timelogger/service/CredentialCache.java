@@ -0,0 +1,216 @@
+package com.pdereg.timelogger.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * An optional, bounded cache of recently verified credentials, so that clients that log in again and again do not pay
+ * for a password hash every time. Passwords are never kept: every entry holds an HMAC of the username and password,
+ * computed with a key that is generated at start-up and never leaves the process, and the authorities of the user.
+ * Only successful authentications are cached.
+ * <p>
+ * Entries are invalidated when passwords are changed or users are deleted through this instance. Other instances of
+ * the service keep serving their entries until they expire, so the TTL should stay short.
+ * <p>
+ * The cache is disabled unless {@code time-logger.credential-cache.enabled} is set. Limits can be overridden with
+ * {@code time-logger.credential-cache.max-size} and {@code .ttl} properties (the latter in milliseconds).
+ */
+@Component
+public class CredentialCache implements PublicMetrics {
+
+    private static final String PROPERTY_PREFIX = "time-logger.credential-cache.";
+    private static final String METRIC_PREFIX = "caches.credential.";
+
+    private static final int DEFAULT_MAX_SIZE = 10000;
+    private static final long DEFAULT_TTL = 5 * 60 * 1000L;
+
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+    private static final int MAC_KEY_SIZE = 32;
+
+    private final boolean enabled;
+    private final long ttl;
+    private final Clock clock;
+    private final SecretKeySpec macKey;
+
+    private final Map<String, Entry> entries;
+
+    private final AtomicLong invalidationCount = new AtomicLong();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    @Autowired
+    public CredentialCache(Environment environment) {
+        this(
+                environment.getProperty(PROPERTY_PREFIX + "enabled", Boolean.class, false),
+                environment.getProperty(PROPERTY_PREFIX + "max-size", Integer.class, DEFAULT_MAX_SIZE),
+                environment.getProperty(PROPERTY_PREFIX + "ttl", Long.class, DEFAULT_TTL),
+                Clock.systemUTC()
+        );
+    }
+
+    public CredentialCache(boolean enabled, int maxSize, long ttl, Clock clock) {
+        this.enabled = enabled;
+        this.ttl = ttl;
+        this.clock = clock;
+        this.macKey = new SecretKeySpec(generateMacKey(), MAC_ALGORITHM);
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns authorities of a user with provided {@code username} if provided {@code password} was verified recently,
+     * or verifies it with {@code authenticator} otherwise.
+     *
+     * @param username      Name of the user to authenticate
+     * @param password      Raw password of the user
+     * @param authenticator Verifies the credentials; completes with an empty {@link Optional} if they are invalid
+     * @return Optional set of user's authorities; empty if credentials are invalid
+     */
+    public CompletableFuture<Optional<Set<String>>> get(
+            String username, String password, Supplier<CompletableFuture<Optional<Set<String>>>> authenticator
+    ) {
+        if (!enabled) {
+            return authenticator.get();
+        }
+
+        final byte[] mac = computeMac(username, password);
+        final Entry entry;
+        synchronized (entries) {
+            entry = entries.get(username);
+        }
+
+        if (entry != null && clock.millis() < entry.expiresAt && MessageDigest.isEqual(entry.mac, mac)) {
+            hitCount.incrementAndGet();
+            return CompletableFuture.completedFuture(Optional.of(entry.authorities));
+        }
+
+        missCount.incrementAndGet();
+
+        // Credentials verified against a user that was changed in the meantime must not be cached
+        final long invalidationsBefore = invalidationCount.get();
+
+        return authenticator.get().thenApply(authorities -> {
+            authorities.ifPresent(verifiedAuthorities -> {
+                synchronized (entries) {
+                    if (invalidationCount.get() == invalidationsBefore) {
+                        entries.put(username, new Entry(mac, verifiedAuthorities, clock.millis() + ttl));
+                    }
+                }
+            });
+
+            return authorities;
+        });
+    }
+
+    /**
+     * Removes cached credentials of a user with provided {@code username}.
+     *
+     * @param username Name of the user whose credentials should be removed
+     */
+    public void invalidate(String username) {
+        synchronized (entries) {
+            invalidationCount.incrementAndGet();
+            entries.remove(username);
+        }
+    }
+
+    /**
+     * Removes all entries from the cache.
+     */
+    public void invalidateAll() {
+        synchronized (entries) {
+            invalidationCount.incrementAndGet();
+            entries.clear();
+        }
+    }
+
+    /**
+     * @return Number of authentications answered from the cache
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * @return Number of authentications that had to be verified
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<Metric<?>> metrics() {
+        final List<Metric<?>> metrics = new ArrayList<>();
+
+        synchronized (entries) {
+            metrics.add(new Metric<>(METRIC_PREFIX + "size", entries.size()));
+        }
+
+        metrics.add(new Metric<>(METRIC_PREFIX + "hits", hitCount.get()));
+        metrics.add(new Metric<>(METRIC_PREFIX + "misses", missCount.get()));
+
+        return metrics;
+    }
+
+    private byte[] computeMac(String username, String password) {
+        try {
+            final Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(macKey);
+            mac.update(username.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+
+            return mac.doFinal(password.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] generateMacKey() {
+        final byte[] key = new byte[MAC_KEY_SIZE];
+        new SecureRandom().nextBytes(key);
+
+        return key;
+    }
+
+    private static class Entry {
+
+        private final byte[] mac;
+        private final Set<String> authorities;
+        private final long expiresAt;
+
+        Entry(byte[] mac, Set<String> authorities, long expiresAt) {
+            this.mac = mac;
+            this.authorities = authorities;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
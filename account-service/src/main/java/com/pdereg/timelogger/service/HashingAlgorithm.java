@@ -0,0 +1,144 @@
+package com.pdereg.timelogger.service;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+import org.springframework.security.crypto.scrypt.SCryptPasswordEncoder;
+
+/**
+ * Password hashing algorithms supported by {@link CalibratedPasswordEncoder}. The cost of every algorithm is the
+ * binary logarithm of its work factor, so that raising it by one doubles the time it takes to hash a password.
+ */
+public enum HashingAlgorithm {
+
+    /**
+     * BCrypt, with cost being its number of log rounds.
+     */
+    BCRYPT("bcrypt", 10, 31) {
+        @Override
+        String encode(String password, int cost) {
+            return new BCryptPasswordEncoder(cost).encode(password);
+        }
+
+        @Override
+        boolean matches(String password, String hash) {
+            return new BCryptPasswordEncoder().matches(password, hash);
+        }
+
+        @Override
+        int readCost(String hash) {
+            // Hashes look like "$2a$10$...", with the number of log rounds between the second and third "$"
+            return Integer.parseInt(hash.substring(4, 6));
+        }
+    },
+
+    /**
+     * PBKDF2 with HMAC-SHA1, with cost being the binary logarithm of its number of iterations. The cost precedes the
+     * hash, as it is not a part of it.
+     */
+    PBKDF2("pbkdf2", 17, 30) {
+        @Override
+        String encode(String password, int cost) {
+            return cost + COST_SEPARATOR + createEncoder(cost).encode(password);
+        }
+
+        @Override
+        boolean matches(String password, String hash) {
+            final int separatorIndex = hash.indexOf(COST_SEPARATOR);
+            return createEncoder(readCost(hash)).matches(password, hash.substring(separatorIndex + 1));
+        }
+
+        @Override
+        int readCost(String hash) {
+            return Integer.parseInt(hash.substring(0, hash.indexOf(COST_SEPARATOR)));
+        }
+
+        private Pbkdf2PasswordEncoder createEncoder(int cost) {
+            return new Pbkdf2PasswordEncoder("", 1 << cost, PBKDF2_HASH_WIDTH);
+        }
+    },
+
+    /**
+     * SCrypt, with cost being the binary logarithm of its CPU/memory cost. Every hash takes {@code 2^(cost + 10)}
+     * bytes of memory.
+     */
+    SCRYPT("scrypt", 14, 24) {
+        @Override
+        String encode(String password, int cost) {
+            return new SCryptPasswordEncoder(1 << cost, SCRYPT_BLOCK_SIZE, 1, SCRYPT_KEY_LENGTH, SCRYPT_SALT_LENGTH)
+                    .encode(password);
+        }
+
+        @Override
+        boolean matches(String password, String hash) {
+            // Parameters are a part of the hash, so any encoder can check it
+            return new SCryptPasswordEncoder().matches(password, hash);
+        }
+
+        @Override
+        int readCost(String hash) {
+            // Hashes look like "$params$salt$key", with params holding the cost in the bits above the lowest 16
+            final long params = Long.parseLong(hash.substring(1, hash.indexOf('$', 1)), 16);
+            return (int) (params >> 16);
+        }
+    };
+
+    private static final String COST_SEPARATOR = "$";
+    private static final int PBKDF2_HASH_WIDTH = 256;
+    private static final int SCRYPT_BLOCK_SIZE = 8;
+    private static final int SCRYPT_KEY_LENGTH = 32;
+    private static final int SCRYPT_SALT_LENGTH = 16;
+
+    private final String id;
+    private final int defaultMinCost;
+    private final int maxCost;
+
+    HashingAlgorithm(String id, int defaultMinCost, int maxCost) {
+        this.id = id;
+        this.defaultMinCost = defaultMinCost;
+        this.maxCost = maxCost;
+    }
+
+    /**
+     * @return Identifier of the algorithm that precedes its hashes
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return Cost below which hashes are not considered safe, whatever the hardware
+     */
+    public int getDefaultMinCost() {
+        return defaultMinCost;
+    }
+
+    /**
+     * @return Highest cost supported by the algorithm
+     */
+    public int getMaxCost() {
+        return maxCost;
+    }
+
+    /**
+     * Finds an algorithm with provided {@code id}.
+     *
+     * @param id Identifier of the algorithm
+     * @return {@link HashingAlgorithm} instance
+     * @throws IllegalArgumentException If there is no algorithm with provided {@code id}
+     */
+    public static HashingAlgorithm fromId(String id) {
+        for (HashingAlgorithm algorithm : values()) {
+            if (algorithm.id.equals(id)) {
+                return algorithm;
+            }
+        }
+
+        throw new IllegalArgumentException("Unknown hashing algorithm: " + id);
+    }
+
+    abstract String encode(String password, int cost);
+
+    abstract boolean matches(String password, String hash);
+
+    abstract int readCost(String hash);
+}
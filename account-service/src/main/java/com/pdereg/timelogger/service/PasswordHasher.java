@@ -0,0 +1,201 @@
+package com.pdereg.timelogger.service;
+
+import com.pdereg.timelogger.concurrent.BulkheadFullException;
+import com.pdereg.timelogger.concurrent.BulkheadRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Runs {@link CalibratedPasswordEncoder} on the dedicated {@link BulkheadRegistry#BCRYPT} executor, so that bursts of
+ * logins cannot take the threads used by the rest of the service. The executor has a short queue, and hashes
+ * submitted once it is full fail with {@link BulkheadFullException} right away instead of waiting for a free core.
+ * <p>
+ * Batches of passwords are hashed by at most {@code time-logger.password-hashing.batch-parallelism} threads at a time
+ * (half of the cores by default), so that a large batch leaves the rest of the executor to logins.
+ * <p>
+ * Time spent hashing is reported as public metrics, next to queue wait and rejections reported by the executor
+ * itself.
+ */
+@Component
+public class PasswordHasher implements PublicMetrics {
+
+    private static final String PROPERTY_PREFIX = "time-logger.password-hashing.";
+    private static final String METRIC_PREFIX = "password-hashing.";
+
+    private final CalibratedPasswordEncoder passwordEncoder;
+    private final Executor executor;
+    private final int batchParallelism;
+
+    private final HashTimer encodeTimer = new HashTimer();
+    private final HashTimer matchesTimer = new HashTimer();
+    private final HashTimer rehashTimer = new HashTimer();
+
+    @Autowired
+    public PasswordHasher(CalibratedPasswordEncoder passwordEncoder, BulkheadRegistry bulkheadRegistry,
+                          Environment environment) {
+        this(
+                passwordEncoder,
+                bulkheadRegistry.executor(BulkheadRegistry.BCRYPT),
+                environment.getProperty(PROPERTY_PREFIX + "batch-parallelism", Integer.class,
+                        Math.max(Runtime.getRuntime().availableProcessors() / 2, 1))
+        );
+    }
+
+    public PasswordHasher(CalibratedPasswordEncoder passwordEncoder, Executor executor, int batchParallelism) {
+        this.passwordEncoder = passwordEncoder;
+        this.executor = executor;
+        this.batchParallelism = batchParallelism;
+    }
+
+    /**
+     * Hashes provided {@code password}.
+     *
+     * @param password Raw password to hash
+     * @return Hashed password
+     * @throws BulkheadFullException If there are too many hashes waiting already
+     */
+    public CompletableFuture<String> encode(String password) {
+        return CompletableFuture.supplyAsync(() -> encodeTimer.time(() -> passwordEncoder.encode(password)), executor);
+    }
+
+    /**
+     * Hashes all provided {@code passwords}, running a bounded number of hashes in parallel. Once a hash fails, the
+     * remaining passwords are not hashed.
+     *
+     * @param passwords Raw passwords to hash
+     * @return Hashed passwords, in the same order as provided {@code passwords}
+     * @throws BulkheadFullException If there are too many hashes waiting already
+     */
+    public CompletableFuture<List<String>> encodeAll(List<String> passwords) {
+        final String[] encodedPasswords = new String[passwords.size()];
+        final AtomicInteger nextIndex = new AtomicInteger();
+        final CompletableFuture<?>[] workers = new CompletableFuture<?>[Math.min(batchParallelism, passwords.size())];
+
+        for (int i = 0; i < workers.length; ++i) {
+            workers[i] = encodeRemaining(passwords, encodedPasswords, nextIndex);
+        }
+
+        return CompletableFuture.allOf(workers).thenApply(unit -> Arrays.asList(encodedPasswords));
+    }
+
+    /**
+     * Checks whether provided {@code password} matches a previously hashed one.
+     *
+     * @param password        Raw password to check
+     * @param encodedPassword Hashed password to check against
+     * @return {@code true} if passwords match; {@code false} otherwise
+     * @throws BulkheadFullException If there are too many hashes waiting already
+     */
+    public CompletableFuture<Boolean> matches(String password, String encodedPassword) {
+        return CompletableFuture.supplyAsync(
+                () -> matchesTimer.time(() -> passwordEncoder.matches(password, encodedPassword)),
+                executor
+        );
+    }
+
+    /**
+     * Checks whether provided {@code encodedPassword} should be hashed again, because the algorithm or cost passwords
+     * are hashed with has changed since.
+     *
+     * @param encodedPassword Hashed password to check
+     * @return {@code true} if the password should be hashed again; {@code false} otherwise
+     */
+    public boolean needsRehash(String encodedPassword) {
+        return passwordEncoder.needsRehash(encodedPassword);
+    }
+
+    /**
+     * Hashes provided {@code password} again, after it has been verified against a hash that
+     * {@link PasswordHasher#needsRehash(String) needs rehashing}.
+     *
+     * @param password Raw password to hash
+     * @return Hashed password
+     * @throws BulkheadFullException If there are too many hashes waiting already
+     */
+    public CompletableFuture<String> rehash(String password) {
+        return CompletableFuture.supplyAsync(() -> rehashTimer.time(() -> passwordEncoder.encode(password)), executor);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<Metric<?>> metrics() {
+        final List<Metric<?>> metrics = new ArrayList<>();
+
+        encodeTimer.addMetrics(METRIC_PREFIX + "encode.", metrics);
+        matchesTimer.addMetrics(METRIC_PREFIX + "matches.", metrics);
+        rehashTimer.addMetrics(METRIC_PREFIX + "rehash.", metrics);
+
+        return metrics;
+    }
+
+    private CompletableFuture<Void> encodeRemaining(List<String> passwords, String[] encodedPasswords,
+                                                    AtomicInteger nextIndex) {
+
+        // Every worker hashes one password at a time, so that the batch never holds more than its share of the executor
+        final int index = nextIndex.getAndIncrement();
+        if (index >= passwords.size()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return encode(passwords.get(index))
+                .whenComplete((encodedPassword, throwable) -> {
+                    if (throwable != null) {
+                        nextIndex.set(passwords.size());
+                    }
+                })
+                .thenCompose(encodedPassword -> {
+                    encodedPasswords[index] = encodedPassword;
+                    return encodeRemaining(passwords, encodedPasswords, nextIndex);
+                });
+    }
+
+    /**
+     * Collects the number and duration of hashes of a single kind.
+     */
+    private static class HashTimer {
+
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        <T> T time(Supplier<T> hash) {
+            final long startedAt = System.nanoTime();
+            try {
+                return hash.get();
+            } finally {
+                final long nanos = System.nanoTime() - startedAt;
+
+                count.incrementAndGet();
+                totalNanos.addAndGet(nanos);
+                maxNanos.accumulateAndGet(nanos, Math::max);
+            }
+        }
+
+        void addMetrics(String prefix, List<Metric<?>> metrics) {
+            final long hashCount = count.get();
+            final double meanMillis = hashCount > 0L
+                    ? TimeUnit.NANOSECONDS.toMicros(totalNanos.get()) / 1000.0 / hashCount
+                    : 0.0;
+
+            metrics.add(new Metric<>(prefix + "count", hashCount));
+            metrics.add(new Metric<>(prefix + "time.mean", meanMillis));
+            metrics.add(new Metric<>(prefix + "time.max", TimeUnit.NANOSECONDS.toMicros(maxNanos.get()) / 1000.0));
+        }
+    }
+}
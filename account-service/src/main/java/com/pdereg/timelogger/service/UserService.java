@@ -1,19 +1,31 @@
 package com.pdereg.timelogger.service;
 
+import com.pdereg.timelogger.concurrent.BulkheadRegistry;
 import com.pdereg.timelogger.domain.User;
+import com.pdereg.timelogger.pagination.ContinuationToken;
+import com.pdereg.timelogger.pagination.KeysetPage;
 import com.pdereg.timelogger.repository.UserRepository;
 import com.pdereg.timelogger.security.Authorities;
 import com.pdereg.timelogger.service.error.UserNotFoundException;
 import com.pdereg.timelogger.service.error.UsernameInUseException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
 
 /**
  * Provides an abstraction layer over {@link UserRepository}. Used for performing CRUD operations on {@link User}
@@ -22,13 +34,21 @@ import java.util.concurrent.CompletableFuture;
 @Service
 public class UserService {
 
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHasher passwordHasher;
+    private final CredentialCache credentialCache;
+    private final UsernameFilter usernameFilter;
     private final UserRepository userRepository;
+    private final Executor executor;
 
     @Autowired
-    public UserService(PasswordEncoder passwordEncoder, UserRepository userRepository) {
-        this.passwordEncoder = passwordEncoder;
+    public UserService(PasswordHasher passwordHasher, CredentialCache credentialCache, UsernameFilter usernameFilter,
+                       UserRepository userRepository, BulkheadRegistry bulkheadRegistry) {
+
+        this.passwordHasher = passwordHasher;
+        this.credentialCache = credentialCache;
+        this.usernameFilter = usernameFilter;
         this.userRepository = userRepository;
+        this.executor = bulkheadRegistry.executor(BulkheadRegistry.MONGO);
     }
 
     /**
@@ -37,13 +57,13 @@ public class UserService {
      * @param username Name of the user to create
      * @param password User's plain password. Note that it will be hashed first before saving.
      * @return New {@link User} instance
+     * @throws UsernameInUseException If a user with provided {@code username} already exists
      */
     public CompletableFuture<User> createUser(String username, String password) {
         final User user = new User();
         user.setUsername(username);
 
         addInitialAuthorities(user);
-        encodeAndSetPassword(user, password);
 
         return findOneByUsername(username)
                 .thenAccept(userOptional -> {
@@ -51,26 +71,106 @@ public class UserService {
                         throw new UsernameInUseException();
                     }
                 })
-                .thenComposeAsync(unit -> CompletableFuture.supplyAsync(() -> userRepository.save(user)));
+                .thenCompose(unit -> passwordHasher.encode(password))
+                .thenApplyAsync(encodedPassword -> {
+                    user.setPassword(encodedPassword);
+                    usernameFilter.add(username);
+
+                    // The unique username index settles creations of the same user that passed the check together
+                    try {
+                        return userRepository.save(user);
+                    } catch (DuplicateKeyException e) {
+                        throw new UsernameInUseException();
+                    }
+                }, executor);
     }
 
     /**
-     * Fetches and returns all {@link User} instances from repository.
+     * Creates many {@link User} instances at once. Passwords are hashed in parallel, and all users are inserted with a
+     * single unordered bulk write. Users whose usernames turn out to be in use by then are not created.
      *
-     * @return A list of all {@link User} instances
+     * @param passwords Users' plain passwords, by the names of users to create. Note that they will be hashed first
+     *                  before saving.
+     * @return Newly created {@link User} instances, in the same order as provided {@code passwords}
      */
-    public CompletableFuture<List<User>> findAll() {
-        return CompletableFuture.supplyAsync(userRepository::findAll);
+    public CompletableFuture<List<User>> createUsers(Map<String, String> passwords) {
+        if (passwords.isEmpty()) {
+            return CompletableFuture.completedFuture(Collections.emptyList());
+        }
+
+        final List<String> usernames = new ArrayList<>(passwords.keySet());
+
+        return passwordHasher
+                .encodeAll(new ArrayList<>(passwords.values()))
+                .thenApplyAsync(encodedPasswords -> {
+                    final List<User> users = new ArrayList<>(usernames.size());
+
+                    for (int i = 0; i < usernames.size(); ++i) {
+                        final User user = new User();
+                        user.setUsername(usernames.get(i));
+                        user.setPassword(encodedPasswords.get(i));
+                        addInitialAuthorities(user);
+
+                        usernameFilter.add(user.getUsername());
+                        users.add(user);
+                    }
+
+                    return userRepository.insertAllUnordered(users);
+                }, executor);
     }
 
     /**
-     * Fetches and returns a {@link User} instance with a given {@code username}.
+     * Finds which of provided {@code usernames} are in use, with a single query. Usernames that
+     * {@link UsernameFilter} knows not to exist are not looked up.
+     *
+     * @param usernames Usernames to check
+     * @return A set of usernames that are in use
+     */
+    public CompletableFuture<Set<String>> findExistingUsernames(Collection<String> usernames) {
+        final List<String> candidates = usernames.stream()
+                .filter(usernameFilter::mightExist)
+                .collect(Collectors.toList());
+
+        if (candidates.isEmpty()) {
+            return CompletableFuture.completedFuture(Collections.emptySet());
+        }
+
+        return CompletableFuture.supplyAsync(() -> userRepository.findExistingUsernames(candidates), executor);
+    }
+
+    /**
+     * Fetches and returns a page of {@link User} instances sorted by their usernames.
+     *
+     * @param continuationToken Token returned with the previous page, or {@code null} to fetch the first page
+     * @param pageSize          Maximum number of users to return
+     * @return A page of {@link User} instances
+     */
+    public CompletableFuture<KeysetPage<User>> findAll(String continuationToken, int pageSize) {
+        // Usernames are never empty, so an empty username precedes all of them
+        final String username = continuationToken != null ? ContinuationToken.decode(continuationToken, 1)[0] : "";
+        final Pageable pageable = new PageRequest(0, pageSize + 1);
+
+        return CompletableFuture
+                .supplyAsync(
+                        () -> userRepository.findAllByUsernameGreaterThanOrderByUsernameAsc(username, pageable),
+                        executor
+                )
+                .thenApply(users -> KeysetPage.of(users, pageSize, this::createContinuationToken));
+    }
+
+    /**
+     * Fetches and returns a {@link User} instance with a given {@code username}. Usernames that {@link UsernameFilter}
+     * knows not to exist are not looked up.
      *
      * @param username Name of the user to fetch
      * @return Optional {@link User} instance with a given {@code username}
      */
     public CompletableFuture<Optional<User>> findOneByUsername(String username) {
-        return CompletableFuture.supplyAsync(() -> userRepository.findOneByUsername(username));
+        if (!usernameFilter.mightExist(username)) {
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+
+        return CompletableFuture.supplyAsync(() -> userRepository.findOneByUsername(username), executor);
     }
 
     /**
@@ -81,13 +181,40 @@ public class UserService {
      */
     public CompletableFuture<Void> changePassword(String username, String password) {
         return findOneByUsername(username)
-                .thenAccept(userOptional -> userOptional.ifPresent(user -> {
-                            encodeAndSetPassword(user, password);
-                            userRepository.save(user);
-                        })
+                .thenCompose(userOptional -> userOptional
+                        .map(user -> passwordHasher
+                                .encode(password)
+                                .thenAcceptAsync(encodedPassword -> {
+                                    user.setPassword(encodedPassword);
+                                    userRepository.save(user);
+                                    credentialCache.invalidate(username);
+                                }, executor)
+                        )
+                        .orElseGet(() -> CompletableFuture.completedFuture(null))
                 );
     }
 
+    /**
+     * Authenticates a user with provided {@code username} and {@code password}. The user is read once, and its
+     * authorities are taken from the same document its password was checked against. Recently verified credentials
+     * may be answered from {@link CredentialCache} without checking the password again.
+     * <p>
+     * Passwords hashed with another algorithm or at another cost than the current ones are hashed again once verified.
+     *
+     * @param username Name of the user to authenticate
+     * @param password Raw password to check
+     * @return Optional set of user's authorities; empty if the user does not exist or the password is incorrect
+     */
+    public CompletableFuture<Optional<Set<String>>> authenticate(String username, String password) {
+        return credentialCache.get(username, password, () -> findOneByUsername(username)
+                .thenCompose(userOptional -> userOptional
+                        .map(user -> verifyPassword(user, password))
+                        .orElseGet(() -> CompletableFuture.completedFuture(Optional.empty()))
+                )
+                .thenApply(user -> user.map(this::getAuthorities))
+        );
+    }
+
     /**
      * Checks provided {@code password} for a given {@code username}.
      *
@@ -97,8 +224,9 @@ public class UserService {
      */
     public CompletableFuture<Boolean> checkPassword(String username, String password) {
         return findOneByUsername(username)
-                .thenApply(user -> user.filter(
-                        userOptional -> passwordEncoder.matches(password, userOptional.getPassword())).isPresent()
+                .thenCompose(userOptional -> userOptional
+                        .map(user -> passwordHasher.matches(password, user.getPassword()))
+                        .orElseGet(() -> CompletableFuture.completedFuture(false))
                 );
     }
 
@@ -110,16 +238,46 @@ public class UserService {
     public CompletableFuture<Void> deleteUser(String username) {
         return findOneByUsername(username)
                 .thenApply(user -> user.<UserNotFoundException>orElseThrow(UserNotFoundException::new))
-                .thenAccept(userRepository::delete);
+                .thenAccept(user -> {
+                    // The username stays in UsernameFilter until it is rebuilt, which only costs a lookup meanwhile
+                    userRepository.delete(user);
+                    credentialCache.invalidate(username);
+                });
+    }
+
+    private CompletableFuture<Optional<User>> verifyPassword(User user, String password) {
+        final String encodedPassword = user.getPassword();
+
+        return passwordHasher
+                .matches(password, encodedPassword)
+                .thenCompose(matches -> {
+                    if (!matches || !passwordHasher.needsRehash(encodedPassword)) {
+                        return CompletableFuture.completedFuture(Optional.of(user).filter(verified -> matches));
+                    }
+
+                    // Logins must not fail because of an upgrade, so a failed rehash is simply retried on the next one
+                    return CompletableFuture
+                            .completedFuture(password)
+                            .thenCompose(passwordHasher::rehash)
+                            .thenAcceptAsync(newPassword -> userRepository.updatePassword(
+                                    user.getUsername(), encodedPassword, newPassword
+                            ), executor)
+                            .handle((unit, throwable) -> Optional.of(user));
+                });
+    }
+
+    private String createContinuationToken(User user) {
+        return ContinuationToken.encode(user.getUsername());
+    }
+
+    private Set<String> getAuthorities(User user) {
+        return user.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .collect(Collectors.toSet());
     }
 
     private void addInitialAuthorities(User user) {
         final GrantedAuthority userAuthority = new SimpleGrantedAuthority(Authorities.USER);
         user.addAuthority(userAuthority);
     }
-
-    private void encodeAndSetPassword(User user, String password) {
-        final String encodedPassword = passwordEncoder.encode(password);
-        user.setPassword(encodedPassword);
-    }
 }
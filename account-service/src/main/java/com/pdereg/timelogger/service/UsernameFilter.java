@@ -0,0 +1,259 @@
+package com.pdereg.timelogger.service;
+
+import com.pdereg.timelogger.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * An optional, in-memory {@link BloomFilter} of existing usernames, so that lookups of usernames that do not exist
+ * (mistyped logins, credential stuffing, availability checks when creating users) are answered without reading the
+ * database. The filter never reports an existing username as missing; a small share of missing ones are reported as
+ * possibly existing, and are looked up as before.
+ * <p>
+ * The filter is built in the background at start-up, by streaming usernames only, and is rebuilt every
+ * {@code time-logger.username-filter.rebuild-interval} minutes (60 by default), so that it is resized as users are
+ * added and forgets deleted ones. Until it is built, every username is reported as possibly existing. Usernames created
+ * through this instance are added before they are saved; those created through other instances are picked up every
+ * {@code .refresh-interval} milliseconds (1000 by default), by reading usernames of recently created users. Other
+ * instances may therefore report a new username as missing for up to that interval.
+ * <p>
+ * The filter is disabled unless {@code time-logger.username-filter.enabled} is set. It is sized with
+ * {@code .expected-size} and {@code .false-positive-rate}, and always holds at least twice as many usernames as there
+ * were when it was built.
+ */
+@Component
+public class UsernameFilter implements PublicMetrics, InitializingBean, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(UsernameFilter.class);
+
+    private static final String PROPERTY_PREFIX = "time-logger.username-filter.";
+    private static final String METRIC_PREFIX = "username-filter.";
+
+    private static final long DEFAULT_EXPECTED_SIZE = 100000L;
+    private static final double DEFAULT_FALSE_POSITIVE_RATE = 0.01;
+    private static final long DEFAULT_REFRESH_INTERVAL = 1000L;
+    private static final long DEFAULT_REBUILD_INTERVAL = 60L;
+
+    // Identifiers of users are created by clients of the database, whose clocks may be slightly apart
+    private static final long CLOCK_SKEW_MARGIN = 5000L;
+
+    private final UserRepository userRepository;
+    private final boolean enabled;
+    private final long expectedSize;
+    private final double falsePositiveRate;
+    private final long refreshInterval;
+    private final long rebuildInterval;
+
+    private volatile BloomFilter filter;
+    private volatile BloomFilter pendingFilter;
+    private volatile long refreshedAt;
+    private volatile long rebuiltAt;
+
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong passedCount = new AtomicLong();
+    private final AtomicLong rebuildCount = new AtomicLong();
+
+    private Thread refresher;
+
+    @Autowired
+    public UsernameFilter(UserRepository userRepository, Environment environment) {
+        this(
+                userRepository,
+                environment.getProperty(PROPERTY_PREFIX + "enabled", Boolean.class, false),
+                environment.getProperty(PROPERTY_PREFIX + "expected-size", Long.class, DEFAULT_EXPECTED_SIZE),
+                environment.getProperty(PROPERTY_PREFIX + "false-positive-rate", Double.class,
+                        DEFAULT_FALSE_POSITIVE_RATE),
+                environment.getProperty(PROPERTY_PREFIX + "refresh-interval", Long.class, DEFAULT_REFRESH_INTERVAL),
+                environment.getProperty(PROPERTY_PREFIX + "rebuild-interval", Long.class, DEFAULT_REBUILD_INTERVAL)
+        );
+    }
+
+    public UsernameFilter(UserRepository userRepository, boolean enabled, long expectedSize, double falsePositiveRate,
+                          long refreshInterval, long rebuildInterval) {
+
+        this.userRepository = userRepository;
+        this.enabled = enabled;
+        this.expectedSize = expectedSize;
+        this.falsePositiveRate = falsePositiveRate;
+        this.refreshInterval = refreshInterval;
+        this.rebuildInterval = TimeUnit.MINUTES.toMillis(rebuildInterval);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void afterPropertiesSet() {
+        if (!enabled) {
+            return;
+        }
+
+        refresher = new Thread(this::runRefresher, "username-filter-refresher");
+        refresher.setDaemon(true);
+        refresher.start();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        if (refresher != null) {
+            refresher.interrupt();
+            refresher.join();
+        }
+    }
+
+    /**
+     * Checks whether a user with provided {@code username} might exist.
+     *
+     * @param username Name of the user to check
+     * @return {@code false} if the user definitely does not exist; {@code true} if it has to be looked up
+     */
+    public boolean mightExist(String username) {
+        final BloomFilter current = filter;
+        if (current == null) {
+            return true;
+        }
+
+        if (current.mightContain(username)) {
+            passedCount.incrementAndGet();
+            return true;
+        }
+
+        rejectedCount.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Adds provided {@code username} to the filter. Has to be called before a user with that username is saved, so
+     * that the user is never reported as missing.
+     *
+     * @param username Name of the user to add
+     */
+    public void add(String username) {
+        if (!enabled) {
+            return;
+        }
+
+        final BloomFilter current = filter;
+        if (current != null) {
+            current.put(username);
+        }
+
+        // A filter that is being built may have already streamed past the user
+        final BloomFilter pending = pendingFilter;
+        if (pending != null) {
+            pending.put(username);
+        }
+    }
+
+    /**
+     * Builds a new filter from usernames of all users and replaces the current one with it.
+     */
+    public void rebuild() {
+        final long startedAt = System.currentTimeMillis();
+        final long userCount = userRepository.count();
+        final BloomFilter rebuilt = new BloomFilter(Math.max(expectedSize, 2L * userCount), falsePositiveRate);
+
+        pendingFilter = rebuilt;
+        try {
+            try (Stream<String> usernames = userRepository.streamAllUsernames()) {
+                usernames.forEach(rebuilt::put);
+            }
+
+            // Users saved while usernames were streamed might have been missed by the stream
+            refresh(rebuilt, startedAt);
+
+            filter = rebuilt;
+            refreshedAt = startedAt;
+            rebuiltAt = startedAt;
+            rebuildCount.incrementAndGet();
+        } finally {
+            pendingFilter = null;
+        }
+
+        logger.info("Built username filter of {} users", rebuilt.getAddedCount());
+    }
+
+    /**
+     * Adds usernames of users created since the last refresh, including those created through other instances.
+     */
+    public void refresh() {
+        final BloomFilter current = filter;
+        if (current == null) {
+            return;
+        }
+
+        final long startedAt = System.currentTimeMillis();
+        refresh(current, refreshedAt);
+        refreshedAt = startedAt;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<Metric<?>> metrics() {
+        final List<Metric<?>> metrics = new ArrayList<>();
+        final BloomFilter current = filter;
+
+        metrics.add(new Metric<>(METRIC_PREFIX + "size", current != null ? current.getAddedCount() : 0L));
+        metrics.add(new Metric<>(METRIC_PREFIX + "bits", current != null ? current.getBitCount() : 0L));
+        metrics.add(new Metric<>(METRIC_PREFIX + "rejected", rejectedCount.get()));
+        metrics.add(new Metric<>(METRIC_PREFIX + "passed", passedCount.get()));
+        metrics.add(new Metric<>(METRIC_PREFIX + "rebuilds", rebuildCount.get()));
+
+        return metrics;
+    }
+
+    /**
+     * @return Number of usernames reported as missing since startup
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    private void refresh(BloomFilter target, long since) {
+        try (Stream<String> usernames = userRepository.streamUsernamesCreatedSince(
+                new Date(since - CLOCK_SKEW_MARGIN))) {
+
+            usernames.forEach(target::put);
+        }
+    }
+
+    private void runRefresher() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                if (filter == null || System.currentTimeMillis() - rebuiltAt >= rebuildInterval) {
+                    rebuild();
+                } else {
+                    refresh();
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Failed to update username filter", e);
+            }
+
+            try {
+                Thread.sleep(refreshInterval);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+}
@@ -1,25 +1,36 @@
 package com.pdereg.timelogger.web.rest;
 
 import com.pdereg.timelogger.domain.User;
+import com.pdereg.timelogger.idempotency.Idempotent;
+import com.pdereg.timelogger.pagination.KeysetPage;
+import com.pdereg.timelogger.pagination.PageSizeResolver;
+import com.pdereg.timelogger.routing.RoutedRead;
 import com.pdereg.timelogger.security.annotations.AdminOrAccountOwnerRequired;
 import com.pdereg.timelogger.security.annotations.AdminRequired;
 import com.pdereg.timelogger.security.annotations.GatewayRequired;
 import com.pdereg.timelogger.service.UserService;
 import com.pdereg.timelogger.service.error.UserNotFoundException;
 import com.pdereg.timelogger.web.rest.error.InvalidCredentialsException;
+import com.pdereg.timelogger.web.rest.model.BatchAccountResult;
+import com.pdereg.timelogger.web.rest.model.CreateAccountBatchRequest;
 import com.pdereg.timelogger.web.rest.model.CreateAccountRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.GrantedAuthority;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 
 import javax.validation.Valid;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -29,11 +40,16 @@ import java.util.stream.Collectors;
 @RequestMapping("/api")
 public class AccountResource {
 
+    private static final long BATCH_TIMEOUT = TimeUnit.MINUTES.toMillis(10L);
+    private static final String USERNAME_IN_USE = "Username already in use";
+
     private final UserService userService;
+    private final PageSizeResolver pageSizeResolver;
 
     @Autowired
-    public AccountResource(UserService userService) {
+    public AccountResource(UserService userService, PageSizeResolver pageSizeResolver) {
         this.userService = userService;
+        this.pageSizeResolver = pageSizeResolver;
     }
 
     /**
@@ -44,6 +60,7 @@ public class AccountResource {
      */
     @PostMapping("/accounts")
     @AdminRequired
+    @Idempotent("create-account")
     public CompletableFuture<HttpEntity<User>> createAccount(@RequestBody @Valid CreateAccountRequest request) {
         final String username = request.getUsername();
         final String password = request.getPassword();
@@ -54,14 +71,53 @@ public class AccountResource {
     }
 
     /**
-     * Fetches and returns all {@link User} instances.
+     * Creates many {@link User} accounts at once. Usernames in use are found with a single query, passwords are hashed
+     * in parallel, and all accepted accounts are inserted with a single bulk write. Since hashing a large batch takes
+     * a while, the request is allowed more time than others.
+     *
+     * @param request HTTP request body which contains data for creation of every account
+     * @return A list of per-account results, in the same order as the request accounts
+     */
+    @PostMapping("/accounts/batch")
+    @AdminRequired
+    public DeferredResult<List<BatchAccountResult>> createAccounts(
+            @RequestBody @Valid CreateAccountBatchRequest request) {
+
+        final List<CreateAccountRequest> accounts = request.getAccounts();
+        final Set<String> usernames = accounts.stream()
+                .map(CreateAccountRequest::getUsername)
+                .collect(Collectors.toSet());
+
+        final DeferredResult<List<BatchAccountResult>> result = new DeferredResult<>(BATCH_TIMEOUT);
+
+        userService
+                .findExistingUsernames(usernames)
+                .thenCompose(existingUsernames -> createAccounts(accounts, existingUsernames))
+                .whenComplete((results, throwable) -> {
+                    if (throwable != null) {
+                        result.setErrorResult(throwable);
+                    } else {
+                        result.setResult(results);
+                    }
+                });
+
+        return result;
+    }
+
+    /**
+     * Fetches and returns a page of {@link User} instances sorted by their usernames.
      *
-     * @return A list of all {@link User} instances
+     * @param continuation Token returned with the previous page, or {@code null} to fetch the first page
+     * @param size         Maximum number of users to return. Capped at the configured maximum page size
+     * @return A page of {@link User} instances
      */
     @GetMapping("/accounts")
     @AdminRequired
-    public CompletableFuture<List<User>> getAllAccounts() {
-        return userService.findAll();
+    @RoutedRead("account-listing")
+    public CompletableFuture<KeysetPage<User>> getAllAccounts(@RequestParam(required = false) String continuation,
+                                                              @RequestParam(required = false) Integer size) {
+
+        return userService.findAll(continuation, pageSizeResolver.resolve(size));
     }
 
     /**
@@ -89,17 +145,9 @@ public class AccountResource {
     @GatewayRequired
     public CompletableFuture<Set<String>> authenticate(@PathVariable String username, @RequestParam String password) {
         return userService
-                .checkPassword(username, password)
-                .thenAccept(result -> {
-                    if (!result) {
-                        throw new InvalidCredentialsException();
-                    }
-                })
-                .thenComposeAsync(unit -> userService.findOneByUsername(username))
-                .thenApply(user -> user.<InvalidCredentialsException>orElseThrow(InvalidCredentialsException::new))
-                .thenApply(user -> user.getAuthorities().stream()
-                        .map(GrantedAuthority::getAuthority)
-                        .collect(Collectors.toSet())
+                .authenticate(username, password)
+                .thenApply(authorities -> authorities
+                        .<InvalidCredentialsException>orElseThrow(InvalidCredentialsException::new)
                 );
     }
 
@@ -115,7 +163,46 @@ public class AccountResource {
                 .findOneByUsername(username)
                 .thenApply(user -> user.<UserNotFoundException>orElseThrow(UserNotFoundException::new))
                 .thenApply(User::getUsername)
-                .thenComposeAsync(userService::deleteUser);
+                .thenCompose(userService::deleteUser);
+    }
+
+    private CompletableFuture<List<BatchAccountResult>> createAccounts(List<CreateAccountRequest> accounts,
+                                                                     Set<String> existingUsernames) {
+
+        final BatchAccountResult[] results = new BatchAccountResult[accounts.size()];
+        final Map<String, String> acceptedPasswords = new LinkedHashMap<>();
+        final Map<String, Integer> acceptedIndices = new LinkedHashMap<>();
+
+        for (int i = 0; i < accounts.size(); ++i) {
+            final CreateAccountRequest account = accounts.get(i);
+            final String username = account.getUsername();
+
+            // Only the first of accounts with the same username is created
+            if (existingUsernames.contains(username) || acceptedIndices.containsKey(username)) {
+                results[i] = BatchAccountResult.failed(HttpStatus.BAD_REQUEST, USERNAME_IN_USE);
+                continue;
+            }
+
+            acceptedPasswords.put(username, account.getPassword());
+            acceptedIndices.put(username, i);
+        }
+
+        return userService
+                .createUsers(acceptedPasswords)
+                .thenApply(users -> {
+                    for (User user : users) {
+                        results[acceptedIndices.get(user.getUsername())] = BatchAccountResult.created(user);
+                    }
+
+                    // Accounts that were not inserted lost their usernames to concurrent creations
+                    for (int index : acceptedIndices.values()) {
+                        if (results[index] == null) {
+                            results[index] = BatchAccountResult.failed(HttpStatus.BAD_REQUEST, USERNAME_IN_USE);
+                        }
+                    }
+
+                    return Arrays.asList(results);
+                });
     }
 
     private ResponseEntity<User> createAccountResponse(User user) {
@@ -0,0 +1,62 @@
+package com.pdereg.timelogger.web.rest.model;
+
+import com.pdereg.timelogger.domain.User;
+import org.springframework.http.HttpStatus;
+
+/**
+ * An HTTP response body element describing the outcome of a single account of {@link CreateAccountBatchRequest}.
+ */
+public class BatchAccountResult {
+
+    private final int status;
+    private final User account;
+    private final String error;
+
+    private BatchAccountResult(int status, User account, String error) {
+        this.status = status;
+        this.account = account;
+        this.error = error;
+    }
+
+    /**
+     * Creates a result for an account that was created as provided {@code account}.
+     *
+     * @param account Newly created {@link User} instance
+     * @return {@link BatchAccountResult} instance
+     */
+    public static BatchAccountResult created(User account) {
+        return new BatchAccountResult(HttpStatus.CREATED.value(), account, null);
+    }
+
+    /**
+     * Creates a result for an account that was rejected.
+     *
+     * @param status HTTP status describing the reason of rejection
+     * @param error  Human readable reason of rejection
+     * @return {@link BatchAccountResult} instance
+     */
+    public static BatchAccountResult failed(HttpStatus status, String error) {
+        return new BatchAccountResult(status.value(), null, error);
+    }
+
+    /**
+     * @return HTTP status code of the account
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * @return Newly created {@link User} instance, or {@code null} if the account was rejected
+     */
+    public User getAccount() {
+        return account;
+    }
+
+    /**
+     * @return Reason of rejection, or {@code null} if the account was created
+     */
+    public String getError() {
+        return error;
+    }
+}
@@ -0,0 +1,27 @@
+package com.pdereg.timelogger.web.rest.model;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+/**
+ * An HTTP request body for batch user account creation.
+ */
+public class CreateAccountBatchRequest {
+
+    public static final int MAX_ACCOUNTS = 1000;
+
+    @NotNull
+    @Size(min = 1, max = MAX_ACCOUNTS)
+    @Valid
+    private List<CreateAccountRequest> accounts;
+
+    public List<CreateAccountRequest> getAccounts() {
+        return accounts;
+    }
+
+    public void setAccounts(List<CreateAccountRequest> accounts) {
+        this.accounts = accounts;
+    }
+}
@@ -80,7 +80,7 @@ public class UserTest {
 
     @Test
     public void setPassword_generatesConstraintViolationIfNewValueHasIncorrectSize() {
-        String password = generateRandomString(User.PASSWORD_SIZE + 1);
+        String password = generateRandomString(User.MAX_ENCODED_PASSWORD_SIZE + 1);
         user.setPassword(password);
 
         Set<ConstraintViolation<User>> violations = getConstraintViolations();
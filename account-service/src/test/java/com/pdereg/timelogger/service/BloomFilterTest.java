@@ -0,0 +1,53 @@
+package com.pdereg.timelogger.service;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BloomFilterTest {
+
+    private static final int SIZE = 10000;
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    @Test
+    public void mightContain_returnsTrueForAddedValues() {
+        BloomFilter bloomFilter = new BloomFilter(SIZE, FALSE_POSITIVE_RATE);
+
+        for (int i = 0; i < SIZE; ++i) {
+            bloomFilter.put("user" + i);
+        }
+
+        for (int i = 0; i < SIZE; ++i) {
+            assertTrue(bloomFilter.mightContain("user" + i));
+        }
+    }
+
+    @Test
+    public void mightContain_rarelyReturnsTrueForMissingValues() {
+        BloomFilter bloomFilter = new BloomFilter(SIZE, FALSE_POSITIVE_RATE);
+
+        for (int i = 0; i < SIZE; ++i) {
+            bloomFilter.put("user" + i);
+        }
+
+        int falsePositiveCount = 0;
+        for (int i = 0; i < SIZE; ++i) {
+            if (bloomFilter.mightContain("other" + i)) {
+                ++falsePositiveCount;
+            }
+        }
+
+        assertTrue(falsePositiveCount < SIZE * FALSE_POSITIVE_RATE * 2);
+    }
+
+    @Test
+    public void getAddedCount_doesNotCountRepeatedValues() {
+        BloomFilter bloomFilter = new BloomFilter(SIZE, FALSE_POSITIVE_RATE);
+
+        bloomFilter.put("user");
+        bloomFilter.put("user");
+        bloomFilter.put("other");
+
+        assertEquals(2L, bloomFilter.getAddedCount());
+    }
+}
@@ -0,0 +1,111 @@
+package com.pdereg.timelogger.service;
+
+import org.junit.Test;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class CalibratedPasswordEncoderTest {
+
+    private static final String PASSWORD = "password";
+
+    @Test
+    public void encode_prefixesHashWithAlgorithm() {
+        for (HashingAlgorithm algorithm : HashingAlgorithm.values()) {
+            CalibratedPasswordEncoder passwordEncoder = new CalibratedPasswordEncoder(algorithm, 4);
+
+            String encodedPassword = passwordEncoder.encode(PASSWORD);
+
+            assertTrue(encodedPassword.startsWith("{" + algorithm.getId() + "}"));
+            assertTrue(passwordEncoder.matches(PASSWORD, encodedPassword));
+            assertFalse(passwordEncoder.matches("other", encodedPassword));
+        }
+    }
+
+    @Test
+    public void matches_checksPasswordsHashedWithOtherAlgorithms() {
+        CalibratedPasswordEncoder passwordEncoder = new CalibratedPasswordEncoder(HashingAlgorithm.BCRYPT, 4);
+
+        String pbkdf2Password = new CalibratedPasswordEncoder(HashingAlgorithm.PBKDF2, 5).encode(PASSWORD);
+        String scryptPassword = new CalibratedPasswordEncoder(HashingAlgorithm.SCRYPT, 5).encode(PASSWORD);
+
+        assertTrue(passwordEncoder.matches(PASSWORD, pbkdf2Password));
+        assertTrue(passwordEncoder.matches(PASSWORD, scryptPassword));
+    }
+
+    @Test
+    public void matches_checksBCryptPasswordsWithoutPrefix() {
+        CalibratedPasswordEncoder passwordEncoder = new CalibratedPasswordEncoder(HashingAlgorithm.PBKDF2, 4);
+        String encodedPassword = new BCryptPasswordEncoder(4).encode(PASSWORD);
+
+        assertTrue(passwordEncoder.matches(PASSWORD, encodedPassword));
+    }
+
+    @Test
+    public void matches_returnsFalseForMalformedHash() {
+        CalibratedPasswordEncoder passwordEncoder = new CalibratedPasswordEncoder(HashingAlgorithm.BCRYPT, 4);
+
+        assertFalse(passwordEncoder.matches(PASSWORD, "{unknown}hash"));
+        assertFalse(passwordEncoder.matches(PASSWORD, "{pbkdf2}hash"));
+        assertFalse(passwordEncoder.matches(PASSWORD, null));
+    }
+
+    @Test
+    public void needsRehash_returnsTrueIfAlgorithmOrCostDiffers() {
+        CalibratedPasswordEncoder passwordEncoder = new CalibratedPasswordEncoder(HashingAlgorithm.PBKDF2, 5);
+
+        assertFalse(passwordEncoder.needsRehash(passwordEncoder.encode(PASSWORD)));
+        assertTrue(passwordEncoder.needsRehash(new CalibratedPasswordEncoder(HashingAlgorithm.PBKDF2, 4)
+                .encode(PASSWORD)));
+        assertTrue(passwordEncoder.needsRehash(new CalibratedPasswordEncoder(HashingAlgorithm.SCRYPT, 5)
+                .encode(PASSWORD)));
+        assertTrue(passwordEncoder.needsRehash(new BCryptPasswordEncoder(5).encode(PASSWORD)));
+    }
+
+    @Test
+    public void needsRehash_readsCostOfEveryAlgorithm() {
+        for (HashingAlgorithm algorithm : HashingAlgorithm.values()) {
+            CalibratedPasswordEncoder passwordEncoder = new CalibratedPasswordEncoder(algorithm, 6);
+
+            assertFalse(passwordEncoder.needsRehash(passwordEncoder.encode(PASSWORD)));
+        }
+    }
+
+    @Test
+    public void calibrate_usesMinCostIfItTakesLongerThanTarget() {
+        CalibratedPasswordEncoder passwordEncoder = CalibratedPasswordEncoder.calibrate(
+                HashingAlgorithm.BCRYPT, 0L, 5, 8
+        );
+
+        assertEquals(5, passwordEncoder.getCost());
+    }
+
+    @Test
+    public void calibrate_usesMaxCostIfItTakesLessThanTarget() {
+        CalibratedPasswordEncoder passwordEncoder = CalibratedPasswordEncoder.calibrate(
+                HashingAlgorithm.BCRYPT, TimeUnit.SECONDS.toNanos(10L), 4, 6
+        );
+
+        assertEquals(6, passwordEncoder.getCost());
+        assertTrue(passwordEncoder.getHashMillis() > 0.0);
+    }
+
+    @Test
+    public void metrics_returnsCostAndBudget() {
+        CalibratedPasswordEncoder passwordEncoder = new CalibratedPasswordEncoder(HashingAlgorithm.BCRYPT, 4);
+
+        assertEquals(4, getMetric(passwordEncoder, "password-hashing.bcrypt.cost"));
+        assertEquals(passwordEncoder.getHashMillis(), getMetric(passwordEncoder, "password-hashing.budget"));
+    }
+
+    private static Number getMetric(CalibratedPasswordEncoder passwordEncoder, String name) {
+        return passwordEncoder.metrics().stream()
+                .filter(metric -> metric.getName().equals(name))
+                .map(Metric::getValue)
+                .findFirst()
+                .orElseThrow(AssertionError::new);
+    }
+}
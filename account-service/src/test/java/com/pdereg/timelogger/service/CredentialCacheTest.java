@@ -0,0 +1,143 @@
+package com.pdereg.timelogger.service;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class CredentialCacheTest {
+
+    private static final String USERNAME = "user";
+    private static final String PASSWORD = "password";
+    private static final Set<String> AUTHORITIES = Collections.singleton("ROLE_USER");
+
+    private static final int MAX_SIZE = 2;
+    private static final long TTL = 1000L;
+
+    private MutableClock clock;
+    private CredentialCache credentialCache;
+    private AtomicInteger authenticationCount;
+
+    @Before
+    public void setUp() {
+        clock = new MutableClock();
+        credentialCache = new CredentialCache(true, MAX_SIZE, TTL, clock);
+        authenticationCount = new AtomicInteger();
+    }
+
+    @Test
+    public void get_returnsCachedAuthoritiesWithoutAuthenticating() throws Exception {
+        credentialCache.get(USERNAME, PASSWORD, () -> authenticate(AUTHORITIES)).get();
+        Optional<Set<String>> cached = credentialCache.get(USERNAME, PASSWORD, () -> authenticate(AUTHORITIES)).get();
+
+        assertEquals(Optional.of(AUTHORITIES), cached);
+        assertEquals(1, authenticationCount.get());
+        assertEquals(1L, credentialCache.getHitCount());
+        assertEquals(1L, credentialCache.getMissCount());
+    }
+
+    @Test
+    public void get_authenticatesIfPasswordIsDifferent() throws Exception {
+        credentialCache.get(USERNAME, PASSWORD, () -> authenticate(AUTHORITIES)).get();
+        Optional<Set<String>> result = credentialCache.get(USERNAME, "other", () -> authenticate(null)).get();
+
+        assertFalse(result.isPresent());
+        assertEquals(2, authenticationCount.get());
+    }
+
+    @Test
+    public void get_doesNotCacheInvalidCredentials() throws Exception {
+        credentialCache.get(USERNAME, PASSWORD, () -> authenticate(null)).get();
+        credentialCache.get(USERNAME, PASSWORD, () -> authenticate(null)).get();
+
+        assertEquals(2, authenticationCount.get());
+    }
+
+    @Test
+    public void get_authenticatesAgainOnceEntryExpires() throws Exception {
+        credentialCache.get(USERNAME, PASSWORD, () -> authenticate(AUTHORITIES)).get();
+
+        clock.advance(TTL);
+        credentialCache.get(USERNAME, PASSWORD, () -> authenticate(AUTHORITIES)).get();
+
+        assertEquals(2, authenticationCount.get());
+    }
+
+    @Test
+    public void get_alwaysAuthenticatesIfDisabled() throws Exception {
+        credentialCache = new CredentialCache(false, MAX_SIZE, TTL, clock);
+
+        credentialCache.get(USERNAME, PASSWORD, () -> authenticate(AUTHORITIES)).get();
+        credentialCache.get(USERNAME, PASSWORD, () -> authenticate(AUTHORITIES)).get();
+
+        assertEquals(2, authenticationCount.get());
+    }
+
+    @Test
+    public void invalidate_removesCachedCredentials() throws Exception {
+        credentialCache.get(USERNAME, PASSWORD, () -> authenticate(AUTHORITIES)).get();
+
+        credentialCache.invalidate(USERNAME);
+        credentialCache.get(USERNAME, PASSWORD, () -> authenticate(AUTHORITIES)).get();
+
+        assertEquals(2, authenticationCount.get());
+    }
+
+    @Test
+    public void invalidate_preventsCachingOfAuthenticationInProgress() throws Exception {
+        CompletableFuture<Optional<Set<String>>> authentication = new CompletableFuture<>();
+        CompletableFuture<Optional<Set<String>>> result = credentialCache.get(USERNAME, PASSWORD, () -> authentication);
+
+        credentialCache.invalidate(USERNAME);
+        authentication.complete(Optional.of(AUTHORITIES));
+        result.get();
+        credentialCache.get(USERNAME, PASSWORD, () -> authenticate(AUTHORITIES)).get();
+
+        assertEquals(1, authenticationCount.get());
+        assertEquals(0L, credentialCache.getHitCount());
+    }
+
+    private CompletableFuture<Optional<Set<String>>> authenticate(Set<String> authorities) {
+        authenticationCount.incrementAndGet();
+        return CompletableFuture.completedFuture(Optional.ofNullable(authorities));
+    }
+
+    private static class MutableClock extends Clock {
+
+        private long millis;
+
+        void advance(long millis) {
+            this.millis += millis;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+    }
+}
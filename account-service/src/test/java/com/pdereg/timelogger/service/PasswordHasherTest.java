@@ -0,0 +1,111 @@
+package com.pdereg.timelogger.service;
+
+import com.pdereg.timelogger.concurrent.BulkheadExecutor;
+import com.pdereg.timelogger.concurrent.BulkheadFullException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.actuate.metrics.Metric;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+public class PasswordHasherTest {
+
+    private static final String PASSWORD = "password";
+
+    private BulkheadExecutor executor;
+    private PasswordHasher passwordHasher;
+    private CountDownLatch release;
+
+    @Before
+    public void setUp() {
+        executor = new BulkheadExecutor("bcrypt", 1, 1);
+        passwordHasher = new PasswordHasher(new CalibratedPasswordEncoder(HashingAlgorithm.BCRYPT, 4), executor, 1);
+        release = new CountDownLatch(1);
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void encode_returnsPasswordThatMatches() throws Exception {
+        String encodedPassword = passwordHasher.encode(PASSWORD).get();
+
+        assertNotEquals(PASSWORD, encodedPassword);
+        assertTrue(passwordHasher.matches(PASSWORD, encodedPassword).get());
+        assertFalse(passwordHasher.matches("other", encodedPassword).get());
+    }
+
+    @Test
+    public void encodeAll_returnsPasswordsInOrder() throws Exception {
+        List<String> passwords = Arrays.asList("password1", "password2", "password3");
+
+        List<String> encodedPasswords = passwordHasher.encodeAll(passwords).get();
+
+        assertEquals(passwords.size(), encodedPasswords.size());
+        for (int i = 0; i < passwords.size(); ++i) {
+            assertTrue(passwordHasher.matches(passwords.get(i), encodedPasswords.get(i)).get());
+        }
+        assertEquals(3L, getMetric("password-hashing.encode.count"));
+    }
+
+    @Test(expected = BulkheadFullException.class)
+    public void encodeAll_throwsExceptionIfExecutorIsFull() {
+        executor.execute(this::awaitRelease);
+        executor.execute(this::awaitRelease);
+
+        passwordHasher.encodeAll(Arrays.asList(PASSWORD, PASSWORD));
+    }
+
+    @Test
+    public void needsRehash_returnsTrueForPasswordHashedAtDifferentCost() throws Exception {
+        PasswordHasher otherPasswordHasher = new PasswordHasher(
+                new CalibratedPasswordEncoder(HashingAlgorithm.BCRYPT, 5), executor, 1
+        );
+        String encodedPassword = otherPasswordHasher.encode(PASSWORD).get();
+
+        assertTrue(passwordHasher.needsRehash(encodedPassword));
+        assertFalse(passwordHasher.needsRehash(passwordHasher.rehash(PASSWORD).get()));
+    }
+
+    @Test(expected = BulkheadFullException.class)
+    public void matches_throwsExceptionIfExecutorIsFull() {
+        executor.execute(this::awaitRelease);
+        executor.execute(this::awaitRelease);
+
+        passwordHasher.matches(PASSWORD, PASSWORD);
+    }
+
+    @Test
+    public void metrics_returnsNumberOfHashes() throws Exception {
+        String encodedPassword = passwordHasher.encode(PASSWORD).get();
+        passwordHasher.matches(PASSWORD, encodedPassword).get();
+        passwordHasher.matches(PASSWORD, encodedPassword).get();
+
+        assertEquals(1L, getMetric("password-hashing.encode.count"));
+        assertEquals(2L, getMetric("password-hashing.matches.count"));
+    }
+
+    private Number getMetric(String name) {
+        return passwordHasher.metrics().stream()
+                .filter(metric -> metric.getName().equals(name))
+                .map(Metric::getValue)
+                .findFirst()
+                .orElseThrow(AssertionError::new);
+    }
+
+    private void awaitRelease() {
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,38 +1,56 @@
 package com.pdereg.timelogger.service;
 
 import com.pdereg.timelogger.Application;
+import com.pdereg.timelogger.concurrent.BulkheadRegistry;
 import com.pdereg.timelogger.config.CommonConfiguration;
 import com.pdereg.timelogger.domain.User;
+import com.pdereg.timelogger.pagination.KeysetPage;
 import com.pdereg.timelogger.repository.UserRepository;
+import com.pdereg.timelogger.security.Authorities;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
 import org.springframework.data.mongodb.core.MongoTemplate;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit4.SpringRunner;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 import static com.pdereg.timelogger.TestUtils.generateRandomPassword;
 import static com.pdereg.timelogger.TestUtils.generateRandomUsername;
 import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest(classes = Application.class)
-@TestPropertySource(properties = {CommonConfiguration.SECRET_ENV_KEY + "=test1234"})
+@TestPropertySource(properties = {
+        CommonConfiguration.SECRET_ENV_KEY + "=test1234",
+        "time-logger.credential-cache.enabled=true"
+})
 public class UserServiceIntTest {
 
     @Autowired
     private MongoTemplate mongoTemplate;
 
-    @Autowired
-    private PasswordEncoder passwordEncoder;
+    @SpyBean
+    private CalibratedPasswordEncoder passwordEncoder;
 
     @Autowired
     private UserRepository userRepository;
@@ -40,9 +58,13 @@ public class UserServiceIntTest {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private CredentialCache credentialCache;
+
     @Before
     public void setUp() {
         mongoTemplate.dropCollection(User.class);
+        credentialCache.invalidateAll();
     }
 
     @After
@@ -74,6 +96,19 @@ public class UserServiceIntTest {
         assertTrue(passwordEncoder.matches(password, savedPassword));
     }
 
+    @Test
+    public void createUser_hashesPasswordOnBcryptExecutor() throws Exception {
+        Set<String> threadNames = ConcurrentHashMap.newKeySet();
+        doAnswer(invocation -> {
+            threadNames.add(Thread.currentThread().getName());
+            return invocation.callRealMethod();
+        }).when(passwordEncoder).encode(any(CharSequence.class));
+
+        userService.createUser(generateRandomUsername(), generateRandomPassword()).get();
+
+        assertHashedOnBcryptExecutor(threadNames);
+    }
+
     @Test
     public void createUser_addsInitialAuthorities() throws Exception {
         String username = generateRandomUsername();
@@ -96,15 +131,58 @@ public class UserServiceIntTest {
     }
 
     @Test
-    public void findAll_returnsAllUsersFromRepository() throws Exception {
+    public void createUsers_savesUsersWithEncodedPasswords() throws Exception {
+        Map<String, String> passwords = new LinkedHashMap<>();
+        passwords.put(generateRandomUsername(), generateRandomPassword());
+        passwords.put(generateRandomUsername(), generateRandomPassword());
+
+        List<User> users = userService.createUsers(passwords).get();
+
+        assertEquals(new ArrayList<>(passwords.keySet()), users.stream()
+                .map(User::getUsername)
+                .collect(Collectors.toList()));
+
+        for (Map.Entry<String, String> entry : passwords.entrySet()) {
+            assertEquals(Optional.of(Collections.singleton(Authorities.USER)),
+                    userService.authenticate(entry.getKey(), entry.getValue()).get());
+        }
+    }
+
+    @Test
+    public void findExistingUsernames_returnsUsernamesInUse() throws Exception {
         String username = generateRandomUsername();
-        String password = generateRandomPassword();
-        userService.createUser(username, password).get();
+        userService.createUser(username, generateRandomPassword()).get();
 
-        List<User> users = userService.findAll().get();
-        List<User> fetchedUsers = userRepository.findAll();
+        Set<String> existingUsernames = userService
+                .findExistingUsernames(Arrays.asList(username, generateRandomUsername()))
+                .get();
 
-        assertEquals(fetchedUsers, users);
+        assertEquals(Collections.singleton(username), existingUsernames);
+    }
+
+    @Test
+    public void findAll_returnsFirstPageOfUsersSortedByUsername() throws Exception {
+        userService.createUser("user3", generateRandomPassword()).get();
+        userService.createUser("user1", generateRandomPassword()).get();
+        userService.createUser("user2", generateRandomPassword()).get();
+
+        KeysetPage<User> page = userService.findAll(null, 2).get();
+
+        assertEquals(Arrays.asList("user1", "user2"), getUsernames(page));
+        assertNotNull(page.getNext());
+    }
+
+    @Test
+    public void findAll_returnsNextPageForContinuationToken() throws Exception {
+        userService.createUser("user1", generateRandomPassword()).get();
+        userService.createUser("user2", generateRandomPassword()).get();
+        userService.createUser("user3", generateRandomPassword()).get();
+
+        KeysetPage<User> firstPage = userService.findAll(null, 2).get();
+        KeysetPage<User> secondPage = userService.findAll(firstPage.getNext(), 2).get();
+
+        assertEquals(Collections.singletonList("user3"), getUsernames(secondPage));
+        assertNull(secondPage.getNext());
     }
 
     @Test
@@ -171,6 +249,22 @@ public class UserServiceIntTest {
         assertFalse(userService.checkPassword(username, incorrectPassword).get());
     }
 
+    @Test
+    public void checkPassword_checksPasswordOnBcryptExecutor() throws Exception {
+        String username = generateRandomUsername();
+        String password = generateRandomPassword();
+        userService.createUser(username, password).get();
+
+        Set<String> threadNames = ConcurrentHashMap.newKeySet();
+        doAnswer(invocation -> {
+            threadNames.add(Thread.currentThread().getName());
+            return invocation.callRealMethod();
+        }).when(passwordEncoder).matches(any(CharSequence.class), anyString());
+
+        assertTrue(userService.checkPassword(username, password).get());
+        assertHashedOnBcryptExecutor(threadNames);
+    }
+
     @Test
     public void checkPassword_returnsFalseIfUserDoesNotExist() throws Exception {
         String username = generateRandomUsername();
@@ -179,6 +273,67 @@ public class UserServiceIntTest {
         assertFalse(userService.checkPassword(username, password).get());
     }
 
+    @Test
+    public void authenticate_returnsAuthoritiesIfProvidedPasswordIsCorrect() throws Exception {
+        String username = generateRandomUsername();
+        String password = generateRandomPassword();
+        userService.createUser(username, password).get();
+
+        Optional<Set<String>> authorities = userService.authenticate(username, password).get();
+
+        assertEquals(Optional.of(Collections.singleton(Authorities.USER)), authorities);
+    }
+
+    @Test
+    public void authenticate_returnsEmptyIfProvidedPasswordIsIncorrect() throws Exception {
+        String username = generateRandomUsername();
+        userService.createUser(username, generateRandomPassword()).get();
+
+        assertFalse(userService.authenticate(username, generateRandomPassword()).get().isPresent());
+    }
+
+    @Test
+    public void authenticate_rehashesPasswordHashedAtDifferentCost() throws Exception {
+        String username = generateRandomUsername();
+        String password = generateRandomPassword();
+        User user = new User();
+        user.setUsername(username);
+        user.setPassword(new BCryptPasswordEncoder(4).encode(password));
+        userRepository.save(user);
+
+        assertTrue(userService.authenticate(username, password).get().isPresent());
+
+        String rehashedPassword = userRepository.findOneByUsername(username).get().getPassword();
+        assertFalse(passwordEncoder.needsRehash(rehashedPassword));
+        assertTrue(passwordEncoder.matches(password, rehashedPassword));
+    }
+
+    @Test
+    public void authenticate_rejectsOldPasswordOnceChanged() throws Exception {
+        String username = generateRandomUsername();
+        String oldPassword = generateRandomPassword();
+        userService.createUser(username, oldPassword).get();
+        userService.authenticate(username, oldPassword).get();
+
+        String newPassword = generateRandomPassword();
+        userService.changePassword(username, newPassword).get();
+
+        assertFalse(userService.authenticate(username, oldPassword).get().isPresent());
+        assertTrue(userService.authenticate(username, newPassword).get().isPresent());
+    }
+
+    @Test
+    public void authenticate_rejectsDeletedUser() throws Exception {
+        String username = generateRandomUsername();
+        String password = generateRandomPassword();
+        userService.createUser(username, password).get();
+        userService.authenticate(username, password).get();
+
+        userService.deleteUser(username).get();
+
+        assertFalse(userService.authenticate(username, password).get().isPresent());
+    }
+
     @Test
     public void deleteUser_removesUserFromRepository() throws Exception {
         String username = generateRandomUsername();
@@ -196,4 +351,15 @@ public class UserServiceIntTest {
         String username = generateRandomUsername();
         userService.deleteUser(username).get();
     }
+
+    private List<String> getUsernames(KeysetPage<User> page) {
+        return page.getContent().stream()
+                .map(User::getUsername)
+                .collect(Collectors.toList());
+    }
+
+    private static void assertHashedOnBcryptExecutor(Set<String> threadNames) {
+        assertFalse(threadNames.isEmpty());
+        threadNames.forEach(name -> assertTrue(name, name.startsWith(BulkheadRegistry.BCRYPT + "-executor-")));
+    }
 }
@@ -0,0 +1,99 @@
+package com.pdereg.timelogger.service;
+
+import com.pdereg.timelogger.Application;
+import com.pdereg.timelogger.config.CommonConfiguration;
+import com.pdereg.timelogger.domain.User;
+import com.pdereg.timelogger.repository.UserRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static com.pdereg.timelogger.TestUtils.generateRandomPassword;
+import static com.pdereg.timelogger.TestUtils.generateRandomUsername;
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = Application.class)
+@TestPropertySource(properties = CommonConfiguration.SECRET_ENV_KEY + "=test1234")
+public class UsernameFilterIntTest {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private UsernameFilter usernameFilter;
+
+    @Before
+    public void setUp() {
+        mongoTemplate.dropCollection(User.class);
+        usernameFilter = new UsernameFilter(userRepository, true, 1000L, 0.01, 1000L, 60L);
+    }
+
+    @After
+    public void tearDown() {
+        mongoTemplate.dropCollection(User.class);
+    }
+
+    @Test
+    public void mightExist_returnsTrueUntilFilterIsBuilt() {
+        assertTrue(usernameFilter.mightExist(generateRandomUsername()));
+    }
+
+    @Test
+    public void rebuild_addsExistingUsers() {
+        String username = saveUser();
+
+        usernameFilter.rebuild();
+
+        assertTrue(usernameFilter.mightExist(username));
+        assertFalse(usernameFilter.mightExist(generateRandomUsername()));
+        assertEquals(1L, usernameFilter.getRejectedCount());
+    }
+
+    @Test
+    public void add_makesUserVisibleImmediately() {
+        usernameFilter.rebuild();
+        String username = generateRandomUsername();
+
+        usernameFilter.add(username);
+
+        assertTrue(usernameFilter.mightExist(username));
+    }
+
+    @Test
+    public void refresh_addsUsersCreatedElsewhere() {
+        usernameFilter.rebuild();
+        String username = saveUser();
+
+        usernameFilter.refresh();
+
+        assertTrue(usernameFilter.mightExist(username));
+    }
+
+    @Test
+    public void add_doesNothingIfDisabled() {
+        usernameFilter = new UsernameFilter(userRepository, false, 1000L, 0.01, 1000L, 60L);
+        String username = generateRandomUsername();
+
+        usernameFilter.add(username);
+
+        assertTrue(usernameFilter.mightExist(username));
+        assertTrue(usernameFilter.mightExist(generateRandomUsername()));
+        assertEquals(0L, usernameFilter.getRejectedCount());
+    }
+
+    private String saveUser() {
+        User user = new User();
+        user.setUsername(generateRandomUsername());
+        user.setPassword(generateRandomPassword());
+        return userRepository.save(user).getUsername();
+    }
+}
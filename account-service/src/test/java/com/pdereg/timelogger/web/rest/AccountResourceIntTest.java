@@ -1,15 +1,22 @@
 package com.pdereg.timelogger.web.rest;
 
+import com.jayway.jsonpath.JsonPath;
 import com.pdereg.timelogger.TestUtils;
 import com.pdereg.timelogger.config.CommonConfiguration;
+import com.pdereg.timelogger.domain.User;
+import com.pdereg.timelogger.idempotency.IdempotencyAspect;
+import com.pdereg.timelogger.idempotency.IdempotencyStore;
+import com.pdereg.timelogger.idempotency.IdempotentResponse;
 import com.pdereg.timelogger.security.Authorities;
 import com.pdereg.timelogger.service.UserService;
+import com.pdereg.timelogger.web.rest.model.CreateAccountBatchRequest;
 import com.pdereg.timelogger.web.rest.model.CreateAccountRequest;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
@@ -21,11 +28,15 @@ import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
 
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertTrue;
 import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -39,13 +50,22 @@ public class AccountResourceIntTest {
     @Autowired
     private WebApplicationContext webApplicationContext;
 
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+
     private MockMvc restAccountMockMvc;
 
     @Before
     public void setUp() {
+        mongoTemplate.dropCollection(User.class);
+        mongoTemplate.dropCollection(IdempotentResponse.class);
+        idempotencyStore.invalidateAll();
         initializeRestAccountMockMvc();
     }
 
@@ -119,6 +139,99 @@ public class AccountResourceIntTest {
                 .andExpect(status().isForbidden());
     }
 
+    @Test
+    @WithMockUser(authorities = {Authorities.USER, Authorities.ADMIN})
+    public void createAccount_replaysResponseForRepeatedIdempotencyKey() throws Exception {
+        String username = TestUtils.generateRandomUsername();
+        byte[] requestBody = createAccountRequest(username);
+        String idempotencyKey = TestUtils.generateRandomString(20);
+
+        for (int i = 0; i < 2; ++i) {
+            MvcResult result = restAccountMockMvc.perform(
+                    post("/api/accounts")
+                            .header(IdempotencyAspect.IDEMPOTENCY_KEY_HEADER, idempotencyKey)
+                            .accept(MediaType.APPLICATION_JSON)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(requestBody))
+                    .andReturn();
+
+            restAccountMockMvc.perform(asyncDispatch(result))
+                    .andExpect(status().isCreated())
+                    .andExpect(header().string(HttpHeaders.LOCATION, containsString(username)))
+                    .andExpect(jsonPath("$.username").value(equalTo(username)));
+        }
+    }
+
+    @Test
+    @WithMockUser(authorities = Authorities.USER)
+    public void createAccount_returnsClientErrorIfUserIsNotAdminWithIdempotencyKey() throws Exception {
+        byte[] requestBody = createAccountRequest(TestUtils.generateRandomUsername());
+
+        restAccountMockMvc.perform(
+                post("/api/accounts")
+                        .header(IdempotencyAspect.IDEMPOTENCY_KEY_HEADER, TestUtils.generateRandomString(20))
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(requestBody))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    @WithMockUser(authorities = {Authorities.USER, Authorities.ADMIN})
+    public void createAccounts_returnsResultPerAccount() throws Exception {
+        String existingUsername = TestUtils.generateRandomUsername();
+        String firstUsername = TestUtils.generateRandomUsername();
+        String secondUsername = TestUtils.generateRandomUsername();
+        createAccount(existingUsername);
+
+        byte[] requestBody = createAccountBatchRequest(existingUsername, firstUsername, secondUsername, firstUsername);
+        MvcResult result = restAccountMockMvc.perform(
+                post("/api/accounts/batch")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(requestBody))
+                .andReturn();
+
+        restAccountMockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(4)))
+                .andExpect(jsonPath("$[0].status").value(equalTo(400)))
+                .andExpect(jsonPath("$[1].status").value(equalTo(201)))
+                .andExpect(jsonPath("$[1].account.username").value(equalTo(firstUsername)))
+                .andExpect(jsonPath("$[2].status").value(equalTo(201)))
+                .andExpect(jsonPath("$[2].account.username").value(equalTo(secondUsername)))
+                .andExpect(jsonPath("$[3].status").value(equalTo(400)));
+
+        assertTrue(userService.findOneByUsername(secondUsername).get().isPresent());
+    }
+
+    @Test
+    @WithMockUser(authorities = {Authorities.USER, Authorities.ADMIN})
+    public void createAccounts_returnsClientErrorForEmptyBatch() throws Exception {
+        CreateAccountBatchRequest createAccountBatchRequest = new CreateAccountBatchRequest();
+        createAccountBatchRequest.setAccounts(Collections.emptyList());
+
+        restAccountMockMvc.perform(
+                post("/api/accounts/batch")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(TestUtils.toJson(createAccountBatchRequest)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser(authorities = Authorities.USER)
+    public void createAccounts_returnsClientErrorIfUserIsNotAdmin() throws Exception {
+        byte[] requestBody = createAccountBatchRequest(TestUtils.generateRandomUsername());
+
+        restAccountMockMvc.perform(
+                post("/api/accounts/batch")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(requestBody))
+                .andExpect(status().isForbidden());
+    }
+
     @Test
     @WithMockUser(authorities = {Authorities.USER, Authorities.ADMIN})
     public void getAllAccounts_returnsOkIfAllCorrect() throws Exception {
@@ -134,8 +247,57 @@ public class AccountResourceIntTest {
 
         restAccountMockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$", hasSize(2)))
-                .andExpect(jsonPath("$[*].username", containsInAnyOrder(username1, username2)));
+                .andExpect(jsonPath("$.content", hasSize(2)))
+                .andExpect(jsonPath("$.content[*].username", containsInAnyOrder(username1, username2)))
+                .andExpect(jsonPath("$.next", nullValue()));
+    }
+
+    @Test
+    @WithMockUser(authorities = {Authorities.USER, Authorities.ADMIN})
+    public void getAllAccounts_returnsPagesOfRequestedSize() throws Exception {
+        createAccount("user1");
+        createAccount("user2");
+        createAccount("user3");
+
+        MvcResult firstResult = restAccountMockMvc.perform(
+                get("/api/accounts")
+                        .param("size", "2"))
+                .andReturn();
+
+        String firstPage = restAccountMockMvc.perform(asyncDispatch(firstResult))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[*].username", contains("user1", "user2")))
+                .andExpect(jsonPath("$.next", notNullValue()))
+                .andReturn().getResponse().getContentAsString();
+
+        MvcResult secondResult = restAccountMockMvc.perform(
+                get("/api/accounts")
+                        .param("size", "2")
+                        .param("continuation", JsonPath.<String>read(firstPage, "$.next")))
+                .andReturn();
+
+        restAccountMockMvc.perform(asyncDispatch(secondResult))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[*].username", contains("user3")))
+                .andExpect(jsonPath("$.next", nullValue()));
+    }
+
+    @Test
+    @WithMockUser(authorities = {Authorities.USER, Authorities.ADMIN})
+    public void getAllAccounts_returnsClientErrorIfContinuationTokenIsMalformed() throws Exception {
+        restAccountMockMvc.perform(
+                get("/api/accounts")
+                        .param("continuation", "%%%"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser(authorities = {Authorities.USER, Authorities.ADMIN})
+    public void getAllAccounts_returnsClientErrorIfPageSizeIsNotPositive() throws Exception {
+        restAccountMockMvc.perform(
+                get("/api/accounts")
+                        .param("size", "0"))
+                .andExpect(status().isBadRequest());
     }
 
     @Test
@@ -286,6 +448,20 @@ public class AccountResourceIntTest {
         return TestUtils.toJson(createAccountRequest);
     }
 
+    private byte[] createAccountBatchRequest(String... usernames) {
+        CreateAccountBatchRequest createAccountBatchRequest = new CreateAccountBatchRequest();
+        createAccountBatchRequest.setAccounts(Arrays.stream(usernames)
+                .map(username -> {
+                    CreateAccountRequest createAccountRequest = new CreateAccountRequest();
+                    createAccountRequest.setUsername(username);
+                    createAccountRequest.setPassword(TestUtils.generateRandomPassword());
+                    return createAccountRequest;
+                })
+                .collect(Collectors.toList()));
+
+        return TestUtils.toJson(createAccountBatchRequest);
+    }
+
     private void createAccount(String username) {
         String password = TestUtils.generateRandomPassword();
         createAccount(username, password);
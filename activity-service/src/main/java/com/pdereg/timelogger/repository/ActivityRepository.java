@@ -1,6 +1,7 @@
 package com.pdereg.timelogger.repository;
 
 import com.pdereg.timelogger.domain.Activity;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
@@ -21,6 +22,18 @@ public interface ActivityRepository extends MongoRepository<Activity, String> {
      */
     List<Activity> findAllByAccountId(String accountId);
 
+    /**
+     * Finds and returns {@link Activity} instances with given {@code accountId} and names that follow provided
+     * {@code name}, sorted by their names. The query is served by the {@code (accountId, name)} index, so its cost
+     * does not depend on how many activities precede provided {@code name}.
+     *
+     * @param accountId ID of the user account associated with activities to return
+     * @param name      Activity name after which to start
+     * @param pageable  Limit of activities to return
+     * @return A list of {@link Activity} instances
+     */
+    List<Activity> findAllByAccountIdAndNameGreaterThanOrderByNameAsc(String accountId, String name, Pageable pageable);
+
     /**
      * Finds and returns an {@link Activity} instance with given {@code accountId} and {@code name}.
      *
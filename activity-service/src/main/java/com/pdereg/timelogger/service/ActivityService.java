@@ -1,15 +1,21 @@
 package com.pdereg.timelogger.service;
 
+import com.pdereg.timelogger.concurrent.BulkheadRegistry;
 import com.pdereg.timelogger.domain.Activity;
+import com.pdereg.timelogger.pagination.ContinuationToken;
+import com.pdereg.timelogger.pagination.KeysetPage;
 import com.pdereg.timelogger.repository.ActivityRepository;
 import com.pdereg.timelogger.service.error.ActivityNameInUseException;
 import com.pdereg.timelogger.service.error.ActivityNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * Provides an abstraction layer over {@link ActivityRepository}. Used for performing CRUD operations on
@@ -19,10 +25,12 @@ import java.util.concurrent.CompletableFuture;
 public class ActivityService {
 
     private final ActivityRepository activityRepository;
+    private final Executor executor;
 
     @Autowired
-    public ActivityService(ActivityRepository activityRepository) {
+    public ActivityService(ActivityRepository activityRepository, BulkheadRegistry bulkheadRegistry) {
         this.activityRepository = activityRepository;
+        this.executor = bulkheadRegistry.executor(BulkheadRegistry.MONGO);
     }
 
     /**
@@ -49,9 +57,7 @@ public class ActivityService {
                         throw new ActivityNameInUseException();
                     }
                 })
-                .thenComposeAsync(unit ->
-                        CompletableFuture.supplyAsync(() -> activityRepository.save(activity))
-                );
+                .thenApplyAsync(unit -> activityRepository.save(activity), executor);
     }
 
     /**
@@ -60,7 +66,7 @@ public class ActivityService {
      * @return A list of all {@link Activity} instances
      */
     public CompletableFuture<List<Activity>> findAll() {
-        return CompletableFuture.supplyAsync(activityRepository::findAll);
+        return CompletableFuture.supplyAsync(activityRepository::findAll, executor);
     }
 
     /**
@@ -70,7 +76,32 @@ public class ActivityService {
      * @return A list of all {@link Activity} instances associated with provided {@code accountId}
      */
     public CompletableFuture<List<Activity>> findAllByAccountId(String accountId) {
-        return CompletableFuture.supplyAsync(() -> activityRepository.findAllByAccountId(accountId));
+        return CompletableFuture.supplyAsync(() -> activityRepository.findAllByAccountId(accountId), executor);
+    }
+
+    /**
+     * Fetches and returns a page of {@link Activity} instances with a given {@code accountId}, sorted by their names.
+     *
+     * @param accountId         ID of the user account associated with the activities to return
+     * @param continuationToken Token returned with the previous page, or {@code null} to fetch the first page
+     * @param pageSize          Maximum number of activities to return
+     * @return A page of {@link Activity} instances associated with provided {@code accountId}
+     */
+    public CompletableFuture<KeysetPage<Activity>> findAllByAccountId(String accountId, String continuationToken,
+                                                                      int pageSize) {
+
+        // Activity names are never empty, so an empty name precedes all of them
+        final String name = continuationToken != null ? ContinuationToken.decode(continuationToken, 1)[0] : "";
+        final Pageable pageable = new PageRequest(0, pageSize + 1);
+
+        return CompletableFuture
+                .supplyAsync(
+                        () -> activityRepository.findAllByAccountIdAndNameGreaterThanOrderByNameAsc(
+                                accountId, name, pageable
+                        ),
+                        executor
+                )
+                .thenApply(activities -> KeysetPage.of(activities, pageSize, this::createContinuationToken));
     }
 
     /**
@@ -81,7 +112,9 @@ public class ActivityService {
      * @return Optional {@link Activity} instance for given {@code accountId} and {@code name}
      */
     public CompletableFuture<Optional<Activity>> findOneByAccountIdAndName(String accountId, String name) {
-        return CompletableFuture.supplyAsync(() -> activityRepository.findOneByAccountIdAndName(accountId, name));
+        return CompletableFuture.supplyAsync(
+                () -> activityRepository.findOneByAccountIdAndName(accountId, name), executor
+        );
     }
 
     /**
@@ -117,4 +150,8 @@ public class ActivityService {
                 .thenApply(activity -> activity.<ActivityNotFoundException>orElseThrow(ActivityNotFoundException::new))
                 .thenAccept(activityRepository::delete);
     }
+
+    private String createContinuationToken(Activity activity) {
+        return ContinuationToken.encode(activity.getName());
+    }
 }
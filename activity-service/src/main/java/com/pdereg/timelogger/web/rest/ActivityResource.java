@@ -1,6 +1,10 @@
 package com.pdereg.timelogger.web.rest;
 
 import com.pdereg.timelogger.domain.Activity;
+import com.pdereg.timelogger.idempotency.Idempotent;
+import com.pdereg.timelogger.pagination.KeysetPage;
+import com.pdereg.timelogger.pagination.PageSizeResolver;
+import com.pdereg.timelogger.routing.RoutedRead;
 import com.pdereg.timelogger.security.annotations.AdminOrAccountOwnerRequired;
 import com.pdereg.timelogger.service.ActivityService;
 import com.pdereg.timelogger.service.error.ActivityNotFoundException;
@@ -15,7 +19,6 @@ import javax.validation.Valid;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.security.Principal;
-import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
 /**
@@ -26,10 +29,12 @@ import java.util.concurrent.CompletableFuture;
 public class ActivityResource {
 
     private final ActivityService activityService;
+    private final PageSizeResolver pageSizeResolver;
 
     @Autowired
-    public ActivityResource(ActivityService activityService) {
+    public ActivityResource(ActivityService activityService, PageSizeResolver pageSizeResolver) {
         this.activityService = activityService;
+        this.pageSizeResolver = pageSizeResolver;
     }
 
     /**
@@ -40,6 +45,7 @@ public class ActivityResource {
      * @return Newly created {@link Activity} instance
      */
     @PostMapping("/activities")
+    @Idempotent("create-activity")
     public CompletableFuture<HttpEntity<Activity>> createActivity(@RequestBody @Valid CreateActivityRequest request,
                                                                   Principal principal) {
 
@@ -54,27 +60,41 @@ public class ActivityResource {
     }
 
     /**
-     * Fetches and returns all {@link Activity} instances for the current user.
+     * Fetches and returns a page of {@link Activity} instances for the current user, sorted by their names.
      *
-     * @param principal Currently logged in user
-     * @return A list of all {@link Activity} instances for the current user
+     * @param principal    Currently logged in user
+     * @param continuation Token returned with the previous page, or {@code null} to fetch the first page
+     * @param size         Maximum number of activities to return. Capped at the configured maximum page size
+     * @return A page of {@link Activity} instances for the current user
      */
     @GetMapping("/activities")
-    public CompletableFuture<List<Activity>> getAllActivities(Principal principal) {
+    @RoutedRead("activity-listing")
+    public CompletableFuture<KeysetPage<Activity>> getAllActivities(Principal principal,
+                                                                    @RequestParam(required = false) String continuation,
+                                                                    @RequestParam(required = false) Integer size) {
+
         final String accountId = principal.getName();
-        return activityService.findAllByAccountId(accountId);
+        return activityService.findAllByAccountId(accountId, continuation, pageSizeResolver.resolve(size));
     }
 
     /**
-     * Fetches and returns all {@link Activity} instances for an account with provided {@code username}.
+     * Fetches and returns a page of {@link Activity} instances for an account with provided {@code username}, sorted
+     * by their names.
      *
-     * @param username Name of the account associated with the activities to return
-     * @return A list of all {@link Activity} instances for an account with provided {@code username}
+     * @param username     Name of the account associated with the activities to return
+     * @param continuation Token returned with the previous page, or {@code null} to fetch the first page
+     * @param size         Maximum number of activities to return. Capped at the configured maximum page size
+     * @return A page of {@link Activity} instances for an account with provided {@code username}
      */
     @GetMapping("/activities/{username}")
     @AdminOrAccountOwnerRequired
-    public CompletableFuture<List<Activity>> getAllActivitiesForAccount(@PathVariable String username) {
-        return activityService.findAllByAccountId(username);
+    @RoutedRead("activity-listing")
+    public CompletableFuture<KeysetPage<Activity>> getAllActivitiesForAccount(
+            @PathVariable String username,
+            @RequestParam(required = false) String continuation,
+            @RequestParam(required = false) Integer size) {
+
+        return activityService.findAllByAccountId(username, continuation, pageSizeResolver.resolve(size));
     }
 
     /**
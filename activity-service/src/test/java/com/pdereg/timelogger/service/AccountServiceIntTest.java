@@ -3,6 +3,7 @@ package com.pdereg.timelogger.service;
 import com.pdereg.timelogger.Application;
 import com.pdereg.timelogger.config.CommonConfiguration;
 import com.pdereg.timelogger.domain.Activity;
+import com.pdereg.timelogger.pagination.KeysetPage;
 import com.pdereg.timelogger.repository.ActivityRepository;
 import org.junit.After;
 import org.junit.Before;
@@ -14,6 +15,8 @@ import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit4.SpringRunner;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
@@ -122,6 +125,24 @@ public class AccountServiceIntTest {
         assertEquals(fetchedActivities, activities);
     }
 
+    @Test
+    public void findAllByAccountId_returnsConsecutivePagesSortedByName() throws Exception {
+        String accountId = generateRandomString(10);
+        long requiredDuration = generateActivityDuration();
+        boolean[] weekdays = generateActivityWeekdays();
+
+        Activity activity3 = activityService.createActivity(accountId, "activity3", requiredDuration, weekdays).get();
+        Activity activity1 = activityService.createActivity(accountId, "activity1", requiredDuration, weekdays).get();
+        Activity activity2 = activityService.createActivity(accountId, "activity2", requiredDuration, weekdays).get();
+
+        KeysetPage<Activity> firstPage = activityService.findAllByAccountId(accountId, null, 2).get();
+        KeysetPage<Activity> secondPage = activityService.findAllByAccountId(accountId, firstPage.getNext(), 2).get();
+
+        assertEquals(Arrays.asList(activity1, activity2), firstPage.getContent());
+        assertEquals(Collections.singletonList(activity3), secondPage.getContent());
+        assertNull(secondPage.getNext());
+    }
+
     @Test
     public void findOneByAccountIdAndName_returnsCorrectActivityIfExists() throws Exception {
         String accountId = generateRandomString(10);
@@ -1,7 +1,11 @@
 package com.pdereg.timelogger.web.rest;
 
+import com.jayway.jsonpath.JsonPath;
 import com.pdereg.timelogger.config.CommonConfiguration;
 import com.pdereg.timelogger.domain.Activity;
+import com.pdereg.timelogger.idempotency.IdempotencyAspect;
+import com.pdereg.timelogger.idempotency.IdempotencyStore;
+import com.pdereg.timelogger.idempotency.IdempotentResponse;
 import com.pdereg.timelogger.security.Authorities;
 import com.pdereg.timelogger.service.ActivityService;
 import com.pdereg.timelogger.web.rest.model.CreateActivityRequest;
@@ -45,17 +49,23 @@ public class ActivityResourceIntTest {
     @Autowired
     private ActivityService activityService;
 
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+
     private MockMvc restActivityMockMvc;
 
     @Before
     public void setUp() {
         mongoTemplate.dropCollection(Activity.class);
+        mongoTemplate.dropCollection(IdempotentResponse.class);
+        idempotencyStore.invalidateAll();
         initializeMockMvc();
     }
 
     @After
     public void tearDown() {
         mongoTemplate.dropCollection(Activity.class);
+        mongoTemplate.dropCollection(IdempotentResponse.class);
     }
 
     private void initializeMockMvc() {
@@ -121,6 +131,44 @@ public class ActivityResourceIntTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    @WithMockUser(username = "user", authorities = Authorities.USER)
+    public void createActivity_replaysResponseForRepeatedIdempotencyKey() throws Exception {
+        String name = generateRandomActivityName();
+        byte[] requestBody = createActivityRequest(name, generateActivityDuration(), generateActivityWeekdays());
+        String idempotencyKey = generateRandomString(20);
+
+        for (int i = 0; i < 2; ++i) {
+            MvcResult result = restActivityMockMvc.perform(
+                    post("/api/activities")
+                            .header(IdempotencyAspect.IDEMPOTENCY_KEY_HEADER, idempotencyKey)
+                            .accept(MediaType.APPLICATION_JSON)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(requestBody))
+                    .andReturn();
+
+            restActivityMockMvc.perform(asyncDispatch(result))
+                    .andExpect(status().isCreated())
+                    .andExpect(header().string(HttpHeaders.LOCATION, containsString(name)))
+                    .andExpect(jsonPath("$.name").value(equalTo(name)));
+        }
+    }
+
+    @Test
+    @WithMockUser(authorities = Authorities.USER)
+    public void createActivity_returnsClientErrorForInvalidIdempotencyKey() throws Exception {
+        byte[] requestBody = createActivityRequest(generateRandomActivityName(), generateActivityDuration(),
+                generateActivityWeekdays());
+
+        restActivityMockMvc.perform(
+                post("/api/activities")
+                        .header(IdempotencyAspect.IDEMPOTENCY_KEY_HEADER, generateRandomString(256))
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(requestBody))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     @WithMockUser(username = "user", authorities = Authorities.USER)
     public void getAllActivities_returnsOkIfAllCorrect() throws Exception {
@@ -139,8 +187,9 @@ public class ActivityResourceIntTest {
 
         restActivityMockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$", hasSize(1)))
-                .andExpect(jsonPath("$[0].accountId", equalTo(accountId)));
+                .andExpect(jsonPath("$.content", hasSize(1)))
+                .andExpect(jsonPath("$.content[0].accountId", equalTo(accountId)))
+                .andExpect(jsonPath("$.next", nullValue()));
     }
 
     @Test
@@ -158,8 +207,52 @@ public class ActivityResourceIntTest {
 
         restActivityMockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$", hasSize(1)))
-                .andExpect(jsonPath("$[0].accountId", equalTo(accountId)));
+                .andExpect(jsonPath("$.content", hasSize(1)))
+                .andExpect(jsonPath("$.content[0].accountId", equalTo(accountId)))
+                .andExpect(jsonPath("$.next", nullValue()));
+    }
+
+    @Test
+    @WithMockUser(username = "user", authorities = Authorities.USER)
+    public void getAllActivitiesForAccount_returnsPagesOfRequestedSize() throws Exception {
+        String accountId = "user";
+        long requiredDuration = generateActivityDuration();
+        boolean[] weekdays = generateActivityWeekdays();
+
+        createActivity(accountId, "activity3", requiredDuration, weekdays);
+        createActivity(accountId, "activity1", requiredDuration, weekdays);
+        createActivity(accountId, "activity2", requiredDuration, weekdays);
+
+        MvcResult firstResult = restActivityMockMvc.perform(
+                get("/api/activities/{username}", accountId)
+                        .param("size", "2"))
+                .andReturn();
+
+        String firstPage = restActivityMockMvc.perform(asyncDispatch(firstResult))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[*].name", contains("activity1", "activity2")))
+                .andExpect(jsonPath("$.next", notNullValue()))
+                .andReturn().getResponse().getContentAsString();
+
+        MvcResult secondResult = restActivityMockMvc.perform(
+                get("/api/activities/{username}", accountId)
+                        .param("size", "2")
+                        .param("continuation", JsonPath.<String>read(firstPage, "$.next")))
+                .andReturn();
+
+        restActivityMockMvc.perform(asyncDispatch(secondResult))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[*].name", contains("activity3")))
+                .andExpect(jsonPath("$.next", nullValue()));
+    }
+
+    @Test
+    @WithMockUser(username = "user", authorities = Authorities.USER)
+    public void getAllActivitiesForAccount_returnsClientErrorIfContinuationTokenIsMalformed() throws Exception {
+        restActivityMockMvc.perform(
+                get("/api/activities/{username}", "user")
+                        .param("continuation", "%%%"))
+                .andExpect(status().isBadRequest());
     }
 
     @Test
@@ -1,5 +1,6 @@
 package com.pdereg.timelogger.service;
 
+import com.pdereg.timelogger.concurrent.BulkheadRegistry;
 import com.pdereg.timelogger.network.AccountClient;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -13,6 +14,7 @@ import org.springframework.stereotype.Service;
 import java.util.Collection;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 /**
@@ -23,11 +25,15 @@ public class AccountService {
 
     private final AccountClient accountClient;
     private final String gatewayAuthorizationHeader;
+    private final Executor executor;
 
     @Autowired
-    public AccountService(AccountClient accountClient, @Qualifier("authorization") String gatewayAuthorizationHeader) {
+    public AccountService(AccountClient accountClient, @Qualifier("authorization") String gatewayAuthorizationHeader,
+                          BulkheadRegistry bulkheadRegistry) {
+
         this.accountClient = accountClient;
         this.gatewayAuthorizationHeader = gatewayAuthorizationHeader;
+        this.executor = bulkheadRegistry.executor(BulkheadRegistry.FEIGN);
     }
 
     /**
@@ -39,7 +45,7 @@ public class AccountService {
      */
     public CompletableFuture<Authentication> authenticate(String username, String password) {
         return CompletableFuture
-                .supplyAsync(() -> accountClient.authenticate(gatewayAuthorizationHeader, username, password))
+                .supplyAsync(() -> accountClient.authenticate(gatewayAuthorizationHeader, username, password), executor)
                 .thenApply(authorities -> createAuthentication(username, authorities));
     }
 
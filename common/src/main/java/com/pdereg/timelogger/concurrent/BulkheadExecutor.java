@@ -0,0 +1,149 @@
+package com.pdereg.timelogger.concurrent;
+
+import com.pdereg.timelogger.routing.ReadRoute;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded thread pool dedicated to a single dependency (e.g. database or remote service). Tasks submitted to the
+ * executor carry the caller's security and request context, as well as its read route. Once both the pool and its
+ * queue are full, new tasks are rejected with {@link BulkheadFullException} instead of piling up.
+ */
+public class BulkheadExecutor extends ThreadPoolExecutor {
+
+    private final String name;
+
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong startedCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    public BulkheadExecutor(String name, int poolSize, int queueCapacity) {
+        super(poolSize, poolSize, 60L, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                new NamedThreadFactory(name));
+
+        this.name = name;
+        allowCoreThreadTimeOut(true);
+        setRejectedExecutionHandler((task, executor) -> {
+            rejectedCount.incrementAndGet();
+            throw new BulkheadFullException(name);
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void execute(Runnable command) {
+        super.execute(new ContextAwareTask(command));
+    }
+
+    /**
+     * @return Name of the dependency this executor is dedicated to
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return Number of tasks currently waiting in the queue
+     */
+    public int getQueueSize() {
+        return getQueue().size();
+    }
+
+    /**
+     * @return Number of tasks rejected because the executor was full
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * @return Mean time tasks spent in the queue before being started (in milliseconds)
+     */
+    public double getMeanWaitMillis() {
+        final long started = startedCount.get();
+        if (started == 0) {
+            return 0.0;
+        }
+
+        return TimeUnit.NANOSECONDS.toMicros(totalWaitNanos.get()) / 1000.0 / started;
+    }
+
+    /**
+     * @return Longest time a task spent in the queue before being started (in milliseconds)
+     */
+    public double getMaxWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMicros(maxWaitNanos.get()) / 1000.0;
+    }
+
+    private void recordWait(long waitNanos) {
+        startedCount.incrementAndGet();
+        totalWaitNanos.addAndGet(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    private class ContextAwareTask implements Runnable {
+
+        private final Runnable delegate;
+        private final SecurityContext securityContext;
+        private final RequestAttributes requestAttributes;
+        private final String readRoute;
+        private final long submittedAt;
+
+        ContextAwareTask(Runnable delegate) {
+            this.delegate = delegate;
+            this.securityContext = SecurityContextHolder.getContext();
+            this.requestAttributes = RequestContextHolder.getRequestAttributes();
+            this.readRoute = ReadRoute.get();
+            this.submittedAt = System.nanoTime();
+        }
+
+        @Override
+        public void run() {
+            recordWait(System.nanoTime() - submittedAt);
+
+            final SecurityContext previousSecurityContext = SecurityContextHolder.getContext();
+            final RequestAttributes previousRequestAttributes = RequestContextHolder.getRequestAttributes();
+
+            SecurityContextHolder.setContext(securityContext);
+            RequestContextHolder.setRequestAttributes(requestAttributes);
+            final String previousReadRoute = ReadRoute.set(readRoute);
+
+            try {
+                delegate.run();
+            } finally {
+                SecurityContextHolder.setContext(previousSecurityContext);
+                RequestContextHolder.setRequestAttributes(previousRequestAttributes);
+                ReadRoute.set(previousReadRoute);
+            }
+        }
+    }
+
+    private static class NamedThreadFactory implements ThreadFactory {
+
+        private final String prefix;
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        NamedThreadFactory(String name) {
+            this.prefix = name + "-executor-";
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            final Thread thread = new Thread(runnable, prefix + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
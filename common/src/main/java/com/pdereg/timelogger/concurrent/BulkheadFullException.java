@@ -0,0 +1,17 @@
+package com.pdereg.timelogger.concurrent;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Thrown when a task is submitted to a {@link BulkheadExecutor} whose pool and queue are both full.
+ */
+@ResponseStatus(code = HttpStatus.SERVICE_UNAVAILABLE, reason = "Service is overloaded")
+public class BulkheadFullException extends RejectedExecutionException {
+
+    public BulkheadFullException(String executorName) {
+        super("Executor '" + executorName + "' is full");
+    }
+}
@@ -0,0 +1,113 @@
+package com.pdereg.timelogger.concurrent;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Holds named {@link BulkheadExecutor} instances, one per blocking dependency, and reports their state as public
+ * metrics. Executors are created on first use, so a service only pays for the dependencies it actually calls.
+ * <p>
+ * Pool and queue sizes can be overridden with {@code time-logger.executors.<name>.pool-size} and
+ * {@code time-logger.executors.<name>.queue-capacity} properties.
+ */
+@Component
+public class BulkheadRegistry implements PublicMetrics, DisposableBean {
+
+    public static final String MONGO = "mongo";
+    public static final String FEIGN = "feign";
+    public static final String BCRYPT = "bcrypt";
+    public static final String STREAMING = "streaming";
+
+    private static final String PROPERTY_PREFIX = "time-logger.executors.";
+    private static final int DEFAULT_IO_POOL_SIZE = 32;
+    private static final int DEFAULT_QUEUE_CAPACITY = 1000;
+    private static final int BCRYPT_QUEUE_CAPACITY_PER_CORE = 4;
+
+    private final Environment environment;
+    private final Map<String, BulkheadExecutor> executors = new ConcurrentHashMap<>();
+
+    @Autowired
+    public BulkheadRegistry(Environment environment) {
+        this.environment = environment;
+    }
+
+    /**
+     * Returns the executor dedicated to a dependency with provided {@code name}, creating it if necessary.
+     *
+     * @param name Name of the dependency (e.g. {@link BulkheadRegistry#MONGO})
+     * @return {@link Executor} to run blocking calls to the dependency on
+     */
+    public Executor executor(String name) {
+        return executors.computeIfAbsent(name, this::createExecutor);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<Metric<?>> metrics() {
+        final List<Metric<?>> metrics = new ArrayList<>();
+
+        for (BulkheadExecutor executor : executors.values()) {
+            final String prefix = "executors." + executor.getName() + ".";
+
+            metrics.add(new Metric<>(prefix + "active", executor.getActiveCount()));
+            metrics.add(new Metric<>(prefix + "pool.size", executor.getPoolSize()));
+            metrics.add(new Metric<>(prefix + "queue.size", executor.getQueueSize()));
+            metrics.add(new Metric<>(prefix + "completed", executor.getCompletedTaskCount()));
+            metrics.add(new Metric<>(prefix + "rejected", executor.getRejectedCount()));
+            metrics.add(new Metric<>(prefix + "wait.mean", executor.getMeanWaitMillis()));
+            metrics.add(new Metric<>(prefix + "wait.max", executor.getMaxWaitMillis()));
+        }
+
+        return metrics;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void destroy() {
+        executors.values().forEach(BulkheadExecutor::shutdown);
+    }
+
+    private BulkheadExecutor createExecutor(String name) {
+        final int poolSize = environment.getProperty(
+                PROPERTY_PREFIX + name + ".pool-size", Integer.class, getDefaultPoolSize(name)
+        );
+        final int queueCapacity = environment.getProperty(
+                PROPERTY_PREFIX + name + ".queue-capacity", Integer.class, getDefaultQueueCapacity(name)
+        );
+
+        return new BulkheadExecutor(name, poolSize, queueCapacity);
+    }
+
+    private int getDefaultPoolSize(String name) {
+        // Password hashing is CPU-bound, so there is no point in running more hashes than there are cores
+        if (BCRYPT.equals(name)) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+
+        return DEFAULT_IO_POOL_SIZE;
+    }
+
+    private int getDefaultQueueCapacity(String name) {
+        // Every queued hash delays the ones behind it by a whole hash, so callers are better off rejected early
+        if (BCRYPT.equals(name)) {
+            return BCRYPT_QUEUE_CAPACITY_PER_CORE * Runtime.getRuntime().availableProcessors();
+        }
+
+        return DEFAULT_QUEUE_CAPACITY;
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Contains concurrency utilities shared across microservices.
+ */
+package com.pdereg.timelogger.concurrent;
\ No newline at end of file
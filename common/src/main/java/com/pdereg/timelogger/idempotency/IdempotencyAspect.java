@@ -0,0 +1,221 @@
+package com.pdereg.timelogger.idempotency;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pdereg.timelogger.concurrent.BulkheadRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.io.UncheckedIOException;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Handles the {@code Idempotency-Key} header of methods annotated with {@link Idempotent}. Keys are scoped by the
+ * operation and the current user, so that users cannot see responses of each other.
+ * <p>
+ * Requests without the header are processed as usual. Otherwise, the first response for the key is stored in
+ * {@link IdempotencyStore}, and repeated requests are answered with it. Repeats that arrive while the first request
+ * is still in progress wait for its result, or fail with {@link IdempotencyKeyInUseException} if it is processed by
+ * another instance of the service. If the first request fails, nothing is stored, so it can be retried with the same
+ * key.
+ */
+@Component
+@Aspect
+@ConditionalOnClass(name = "org.springframework.data.mongodb.core.MongoOperations")
+public class IdempotencyAspect {
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyStore idempotencyStore;
+    private final ObjectMapper objectMapper;
+    private final Executor executor;
+
+    private final ConcurrentMap<String, CompletableFuture<IdempotentResponse>> pendingRequests =
+            new ConcurrentHashMap<>();
+
+    @Autowired
+    public IdempotencyAspect(IdempotencyStore idempotencyStore, ObjectMapper objectMapper,
+                             BulkheadRegistry bulkheadRegistry) {
+
+        this(idempotencyStore, objectMapper, bulkheadRegistry.executor(BulkheadRegistry.MONGO));
+    }
+
+    public IdempotencyAspect(IdempotencyStore idempotencyStore, ObjectMapper objectMapper, Executor executor) {
+        this.idempotencyStore = idempotencyStore;
+        this.objectMapper = objectMapper;
+        this.executor = executor;
+    }
+
+    /**
+     * Answers a request to provided {@code joinPoint} with a stored response, or processes it and stores its response.
+     */
+    @Around("@annotation(idempotent)")
+    public Object handleIdempotencyKey(ProceedingJoinPoint joinPoint, Idempotent idempotent) throws Throwable {
+        final String idempotencyKey = getIdempotencyKey();
+        if (idempotencyKey == null) {
+            return joinPoint.proceed();
+        }
+
+        if (idempotencyKey.isEmpty() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new InvalidIdempotencyKeyException();
+        }
+
+        final String key = idempotent.value() + ':' + getUsername() + ':' + idempotencyKey;
+
+        final Optional<IdempotentResponse> cachedResponse = idempotencyStore.findCached(key);
+        if (cachedResponse.isPresent()) {
+            return CompletableFuture.completedFuture(replay(cachedResponse.get()));
+        }
+
+        final CompletableFuture<IdempotentResponse> request = new CompletableFuture<>();
+        final CompletableFuture<IdempotentResponse> pendingRequest = pendingRequests.putIfAbsent(key, request);
+        if (pendingRequest != null) {
+            return pendingRequest.thenApply(this::replay);
+        }
+
+        final CompletableFuture<Optional<IdempotentResponse>> claim;
+        try {
+            claim = CompletableFuture.supplyAsync(() -> claim(key), executor);
+        } catch (RuntimeException e) {
+            // Otherwise repeats of a request rejected by a full bulkhead would wait for it forever
+            pendingRequests.remove(key, request);
+            request.completeExceptionally(e);
+            throw e;
+        }
+
+        final CompletableFuture<HttpEntity<?>> response = claim
+                .thenCompose(storedResponse -> {
+                    if (storedResponse.isPresent()) {
+                        request.complete(storedResponse.get());
+                        return CompletableFuture.completedFuture(replay(storedResponse.get()));
+                    }
+
+                    return process(joinPoint, key, request);
+                });
+
+        response.whenComplete((entity, throwable) -> {
+            pendingRequests.remove(key, request);
+
+            if (throwable != null) {
+                request.completeExceptionally(throwable);
+            }
+        });
+
+        return response;
+    }
+
+    private Optional<IdempotentResponse> claim(String key) {
+        final Optional<IdempotentResponse> storedResponse = idempotencyStore.find(key);
+        if (storedResponse.isPresent()) {
+            if (!storedResponse.get().isCompleted()) {
+                throw new IdempotencyKeyInUseException();
+            }
+
+            return storedResponse;
+        }
+
+        if (!idempotencyStore.claim(key)) {
+            // Another instance has claimed the key in the meantime, and might have completed it already
+            return Optional.of(idempotencyStore.find(key)
+                    .filter(IdempotentResponse::isCompleted)
+                    .orElseThrow(IdempotencyKeyInUseException::new));
+        }
+
+        return Optional.empty();
+    }
+
+    @SuppressWarnings("unchecked")
+    private CompletableFuture<HttpEntity<?>> process(ProceedingJoinPoint joinPoint, String key,
+                                                     CompletableFuture<IdempotentResponse> request) {
+
+        final CompletableFuture<HttpEntity<?>> response;
+        try {
+            response = (CompletableFuture<HttpEntity<?>>) joinPoint.proceed();
+        } catch (Throwable throwable) {
+            idempotencyStore.release(key);
+            throw throwable instanceof RuntimeException ? (RuntimeException) throwable
+                    : new CompletionException(throwable);
+        }
+
+        final CompletableFuture<HttpEntity<?>> completion;
+        try {
+            completion = response.thenApplyAsync(entity -> {
+                request.complete(complete(key, entity));
+                return entity;
+            }, executor);
+        } catch (RuntimeException e) {
+            // An already completed response is stored right away, and a full bulkhead rejects it synchronously
+            idempotencyStore.release(key);
+            throw e;
+        }
+
+        return completion.whenComplete((entity, throwable) -> {
+            if (throwable != null) {
+                idempotencyStore.release(key);
+            }
+        });
+    }
+
+    private IdempotentResponse complete(String key, HttpEntity<?> entity) {
+        final int status = entity instanceof ResponseEntity
+                ? ((ResponseEntity<?>) entity).getStatusCodeValue()
+                : HttpStatus.OK.value();
+
+        try {
+            final String body = entity.getBody() != null ? objectMapper.writeValueAsString(entity.getBody()) : null;
+            return idempotencyStore.complete(key, status, entity.getHeaders(), body);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private HttpEntity<?> replay(IdempotentResponse response) {
+        final HttpHeaders headers = new HttpHeaders();
+        if (response.getHeaders() != null) {
+            headers.putAll(response.getHeaders());
+        }
+
+        headers.set(REPLAYED_HEADER, Boolean.TRUE.toString());
+        if (response.getBody() != null && headers.getContentType() == null) {
+            headers.setContentType(MediaType.APPLICATION_JSON_UTF8);
+        }
+
+        return new ResponseEntity<>(response.getBody(), headers, HttpStatus.valueOf(response.getStatus()));
+    }
+
+    private static String getIdempotencyKey() {
+        final RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        if (!(requestAttributes instanceof ServletRequestAttributes)) {
+            return null;
+        }
+
+        return ((ServletRequestAttributes) requestAttributes).getRequest().getHeader(IDEMPOTENCY_KEY_HEADER);
+    }
+
+    private static String getUsername() {
+        final Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null ? authentication.getName() : "";
+    }
+}
@@ -0,0 +1,12 @@
+package com.pdereg.timelogger.idempotency;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a request with the same idempotency key is still being processed by another instance of the service.
+ */
+@ResponseStatus(value = HttpStatus.CONFLICT, reason = "Request with this idempotency key is in progress")
+public class IdempotencyKeyInUseException extends RuntimeException {
+
+}
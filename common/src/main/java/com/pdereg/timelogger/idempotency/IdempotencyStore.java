@@ -0,0 +1,243 @@
+package com.pdereg.timelogger.idempotency;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.core.env.Environment;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps {@link IdempotentResponse} instances in a collection with a TTL index, fronted by a bounded in-memory cache of
+ * completed responses. Requests are claimed with a pending response, so that only one instance of a service processes
+ * each key.
+ * <p>
+ * Limits can be overridden with {@code time-logger.idempotency.ttl} (how long responses are kept, 24 hours by
+ * default), {@code .lock-timeout} (after which a claim of an instance that died is abandoned, 1 minute by default) and
+ * {@code .cache-size} properties (all times in milliseconds).
+ */
+@Component
+@ConditionalOnClass(name = "org.springframework.data.mongodb.core.MongoOperations")
+public class IdempotencyStore implements PublicMetrics, InitializingBean {
+
+    public static final String EXPIRE_AT_INDEX = "expire_at_index";
+
+    private static final String PROPERTY_PREFIX = "time-logger.idempotency.";
+    private static final String METRIC_PREFIX = "idempotency.";
+
+    private static final long DEFAULT_TTL = 24 * 60 * 60 * 1000L;
+    private static final long DEFAULT_LOCK_TIMEOUT = 60 * 1000L;
+    private static final int DEFAULT_CACHE_SIZE = 10000;
+
+    private final MongoOperations mongoOperations;
+    private final long ttl;
+    private final long lockTimeout;
+    private final Clock clock;
+    private final Map<String, IdempotentResponse> cache;
+
+    private final AtomicLong cacheHitCount = new AtomicLong();
+    private final AtomicLong storeHitCount = new AtomicLong();
+    private final AtomicLong claimCount = new AtomicLong();
+
+    @Autowired
+    public IdempotencyStore(MongoOperations mongoOperations, Environment environment) {
+        this(
+                mongoOperations,
+                environment.getProperty(PROPERTY_PREFIX + "ttl", Long.class, DEFAULT_TTL),
+                environment.getProperty(PROPERTY_PREFIX + "lock-timeout", Long.class, DEFAULT_LOCK_TIMEOUT),
+                environment.getProperty(PROPERTY_PREFIX + "cache-size", Integer.class, DEFAULT_CACHE_SIZE),
+                Clock.systemUTC()
+        );
+    }
+
+    public IdempotencyStore(MongoOperations mongoOperations, long ttl, long lockTimeout, int cacheSize, Clock clock) {
+        this.mongoOperations = mongoOperations;
+        this.ttl = ttl;
+        this.lockTimeout = lockTimeout;
+        this.clock = clock;
+        this.cache = new LinkedHashMap<String, IdempotentResponse>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, IdempotentResponse> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void afterPropertiesSet() {
+        mongoOperations.indexOps(IdempotentResponse.class).ensureIndex(new Index()
+                .on(IdempotentResponse.EXPIRE_AT_FIELD, Sort.Direction.ASC)
+                .expire(0L)
+                .named(EXPIRE_AT_INDEX)
+        );
+    }
+
+    /**
+     * Returns a completed response for provided {@code key} if it is cached in memory. Never touches the database.
+     *
+     * @param key Scoped idempotency key
+     * @return Optional completed response
+     */
+    public Optional<IdempotentResponse> findCached(String key) {
+        final IdempotentResponse response;
+        synchronized (cache) {
+            response = cache.get(key);
+        }
+
+        if (response == null || isExpired(response)) {
+            return Optional.empty();
+        }
+
+        cacheHitCount.incrementAndGet();
+        return Optional.of(response);
+    }
+
+    /**
+     * Returns a response for provided {@code key}, either completed or pending, unless it expired.
+     *
+     * @param key Scoped idempotency key
+     * @return Optional response
+     */
+    public Optional<IdempotentResponse> find(String key) {
+        final Optional<IdempotentResponse> cachedResponse = findCached(key);
+        if (cachedResponse.isPresent()) {
+            return cachedResponse;
+        }
+
+        final IdempotentResponse response = mongoOperations.findById(key, IdempotentResponse.class);
+        if (response == null || isExpired(response)) {
+            return Optional.empty();
+        }
+
+        if (response.isCompleted()) {
+            storeHitCount.incrementAndGet();
+            cache(response);
+        }
+
+        return Optional.of(response);
+    }
+
+    /**
+     * Claims a request with provided {@code key}, unless it was already claimed by a request that is still in progress
+     * or has completed. A claim whose lock timed out is taken over.
+     *
+     * @param key Scoped idempotency key
+     * @return {@code true} if the request was claimed, and should be processed
+     */
+    public boolean claim(String key) {
+        final Date lockedUntil = new Date(clock.millis() + lockTimeout);
+
+        try {
+            mongoOperations.insert(IdempotentResponse.pending(key, lockedUntil));
+            claimCount.incrementAndGet();
+            return true;
+        } catch (DuplicateKeyException e) {
+            final Query abandonedClaim = new Query(Criteria
+                    .where("_id").is(key)
+                    .and(IdempotentResponse.COMPLETED_FIELD).is(false)
+                    .and(IdempotentResponse.EXPIRE_AT_FIELD).lt(new Date(clock.millis()))
+            );
+
+            final Update takeover = Update.update(IdempotentResponse.EXPIRE_AT_FIELD, lockedUntil);
+            final boolean claimed = mongoOperations
+                    .updateFirst(abandonedClaim, takeover, IdempotentResponse.class)
+                    .getN() > 0;
+
+            if (claimed) {
+                claimCount.incrementAndGet();
+            }
+
+            return claimed;
+        }
+    }
+
+    /**
+     * Stores a completed response of a claimed request.
+     *
+     * @param key     Scoped idempotency key
+     * @param status  HTTP status code of the response
+     * @param headers HTTP headers of the response
+     * @param body    JSON body of the response, or {@code null} if it had no body
+     * @return Stored {@link IdempotentResponse} instance
+     */
+    public IdempotentResponse complete(String key, int status, Map<String, List<String>> headers, String body) {
+        final IdempotentResponse response = new IdempotentResponse(key, true, status, headers, body,
+                new Date(clock.millis() + ttl));
+
+        mongoOperations.save(response);
+        cache(response);
+
+        return response;
+    }
+
+    /**
+     * Releases a claim of a request that failed, so that it can be retried with the same key.
+     *
+     * @param key Scoped idempotency key
+     */
+    public void release(String key) {
+        mongoOperations.remove(new Query(Criteria
+                .where("_id").is(key)
+                .and(IdempotentResponse.COMPLETED_FIELD).is(false)
+        ), IdempotentResponse.class);
+    }
+
+    /**
+     * Removes all responses from the in-memory cache.
+     */
+    public void invalidateAll() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<Metric<?>> metrics() {
+        final List<Metric<?>> metrics = new ArrayList<>();
+
+        synchronized (cache) {
+            metrics.add(new Metric<>(METRIC_PREFIX + "cache.size", cache.size()));
+        }
+        metrics.add(new Metric<>(METRIC_PREFIX + "hits.cache", cacheHitCount.get()));
+        metrics.add(new Metric<>(METRIC_PREFIX + "hits.store", storeHitCount.get()));
+        metrics.add(new Metric<>(METRIC_PREFIX + "claims", claimCount.get()));
+
+        return metrics;
+    }
+
+    private void cache(IdempotentResponse response) {
+        synchronized (cache) {
+            cache.put(response.getKey(), response);
+        }
+    }
+
+    private boolean isExpired(IdempotentResponse response) {
+        // The TTL index deletes expired responses only once a minute
+        return response.getExpireAt().getTime() <= clock.millis();
+    }
+}
@@ -0,0 +1,25 @@
+package com.pdereg.timelogger.idempotency;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks handler methods that honor the {@code Idempotency-Key} header. The first response for every key of a user is
+ * stored, and repeated requests with the same key are answered with it without invoking the method again.
+ * <p>
+ * Annotated methods must return a {@link java.util.concurrent.CompletableFuture} of an
+ * {@link org.springframework.http.HttpEntity}.
+ *
+ * @see IdempotencyAspect
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Idempotent {
+
+    /**
+     * @return Name of the operation, so that the same key can be used with different operations
+     */
+    String value();
+}
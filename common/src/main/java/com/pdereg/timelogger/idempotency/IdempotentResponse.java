@@ -0,0 +1,98 @@
+package com.pdereg.timelogger.idempotency;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.PersistenceConstructor;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Response stored for an idempotency key. A response is stored as pending once a request with its key is claimed, and
+ * completed once the request is finished. Both expire at their {@code expireAt} date.
+ */
+@Document(collection = "idempotent_responses")
+public class IdempotentResponse {
+
+    public static final String EXPIRE_AT_FIELD = "expireAt";
+    public static final String COMPLETED_FIELD = "completed";
+
+    @Id
+    private final String key;
+
+    private final boolean completed;
+
+    private final int status;
+
+    private final Map<String, List<String>> headers;
+
+    private final String body;
+
+    private final Date expireAt;
+
+    @PersistenceConstructor
+    public IdempotentResponse(String key, boolean completed, int status, Map<String, List<String>> headers,
+                              String body, Date expireAt) {
+
+        this.key = key;
+        this.completed = completed;
+        this.status = status;
+        this.headers = headers;
+        this.body = body;
+        this.expireAt = expireAt;
+    }
+
+    /**
+     * Creates a pending response, which marks a request with provided {@code key} as claimed.
+     *
+     * @param key      Scoped idempotency key
+     * @param expireAt Time after which the claim is abandoned
+     * @return {@link IdempotentResponse} instance
+     */
+    public static IdempotentResponse pending(String key, Date expireAt) {
+        return new IdempotentResponse(key, false, 0, null, null, expireAt);
+    }
+
+    /**
+     * @return Scoped idempotency key
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return {@code true} if the request is finished, or {@code false} if it is still in progress
+     */
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    /**
+     * @return HTTP status code of the response
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * @return HTTP headers of the response
+     */
+    public Map<String, List<String>> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * @return JSON body of the response, or {@code null} if it had no body
+     */
+    public String getBody() {
+        return body;
+    }
+
+    /**
+     * @return Time after which the response is deleted
+     */
+    public Date getExpireAt() {
+        return expireAt;
+    }
+}
@@ -0,0 +1,12 @@
+package com.pdereg.timelogger.idempotency;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when an idempotency key provided by the client is empty or too long.
+ */
+@ResponseStatus(value = HttpStatus.BAD_REQUEST, reason = "Invalid idempotency key")
+public class InvalidIdempotencyKeyException extends RuntimeException {
+
+}
@@ -0,0 +1,4 @@
+/**
+ * Contains handling of idempotency keys of requests that create resources, shared across microservices.
+ */
+package com.pdereg.timelogger.idempotency;
@@ -0,0 +1,66 @@
+package com.pdereg.timelogger.pagination;
+
+import org.springframework.util.Base64Utils;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A simple utility for encoding and decoding opaque continuation tokens. A token holds the sort key values of the
+ * last element of a page, so that the next page can be fetched with a range query instead of skipping elements.
+ */
+public class ContinuationToken {
+
+    private static final String SEPARATOR = ".";
+
+    private ContinuationToken() {
+
+    }
+
+    /**
+     * Encodes provided sort key {@code values} as a URL-safe token.
+     *
+     * @param values Sort key values of the last element of a page
+     * @return Encoded continuation token
+     */
+    public static String encode(String... values) {
+        final StringBuilder builder = new StringBuilder();
+
+        for (String value : values) {
+            if (builder.length() > 0) {
+                builder.append(SEPARATOR);
+            }
+
+            // Each value is encoded separately, so that values may contain separators too
+            builder.append(Base64Utils.encodeToUrlSafeString(value.getBytes(StandardCharsets.UTF_8)));
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Decodes provided {@code token} into sort key values.
+     *
+     * @param token Continuation token to decode
+     * @param size  Expected number of sort key values
+     * @return An array of sort key values
+     * @throws InvalidContinuationTokenException If provided {@code token} is malformed
+     */
+    public static String[] decode(String token, int size) {
+        final String[] parts = token.split("\\" + SEPARATOR, -1);
+        if (parts.length != size) {
+            throw new InvalidContinuationTokenException();
+        }
+
+        final String[] values = new String[size];
+
+        try {
+            for (int i = 0; i < size; ++i) {
+                values[i] = new String(Base64Utils.decodeFromUrlSafeString(parts[i]), StandardCharsets.UTF_8);
+            }
+        } catch (IllegalArgumentException e) {
+            throw new InvalidContinuationTokenException();
+        }
+
+        return values;
+    }
+}
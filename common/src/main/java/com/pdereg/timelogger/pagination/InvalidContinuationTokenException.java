@@ -0,0 +1,12 @@
+package com.pdereg.timelogger.pagination;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a continuation token provided by the client could not be decoded.
+ */
+@ResponseStatus(value = HttpStatus.BAD_REQUEST, reason = "Invalid continuation token")
+public class InvalidContinuationTokenException extends RuntimeException {
+
+}
@@ -0,0 +1,12 @@
+package com.pdereg.timelogger.pagination;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a page size requested by the client is not a positive number.
+ */
+@ResponseStatus(value = HttpStatus.BAD_REQUEST, reason = "Invalid page size")
+public class InvalidPageSizeException extends RuntimeException {
+
+}
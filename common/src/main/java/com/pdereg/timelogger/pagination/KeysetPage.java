@@ -0,0 +1,56 @@
+package com.pdereg.timelogger.pagination;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A single page of elements fetched with keyset pagination.
+ *
+ * @param <T> Type of page elements
+ */
+public class KeysetPage<T> {
+
+    private final List<T> content;
+    private final String next;
+
+    public KeysetPage(List<T> content, String next) {
+        this.content = Collections.unmodifiableList(content);
+        this.next = next;
+    }
+
+    /**
+     * Creates a page out of {@code elements} fetched with a limit of {@code pageSize + 1}. The extra element is only
+     * used to tell whether there is a next page and is not included in the content.
+     *
+     * @param elements      Elements fetched from the repository, sorted by their keys
+     * @param pageSize      Maximum number of elements in the page
+     * @param tokenFunction Function creating a continuation token out of the last element of the page
+     * @param <T>           Type of page elements
+     * @return {@link KeysetPage} instance
+     */
+    public static <T> KeysetPage<T> of(List<T> elements, int pageSize, Function<T, String> tokenFunction) {
+        if (elements.size() <= pageSize) {
+            return new KeysetPage<>(elements, null);
+        }
+
+        final List<T> content = elements.subList(0, pageSize);
+        final String next = tokenFunction.apply(content.get(pageSize - 1));
+
+        return new KeysetPage<>(content, next);
+    }
+
+    /**
+     * @return Elements of this page
+     */
+    public List<T> getContent() {
+        return content;
+    }
+
+    /**
+     * @return Continuation token for fetching the next page, or {@code null} if this is the last page
+     */
+    public String getNext() {
+        return next;
+    }
+}
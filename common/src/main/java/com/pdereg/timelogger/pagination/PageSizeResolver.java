@@ -0,0 +1,49 @@
+package com.pdereg.timelogger.pagination;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/**
+ * Resolves page sizes requested by clients. Default and maximum page sizes can be overridden with
+ * {@code time-logger.pagination.default-page-size} and {@code time-logger.pagination.max-page-size} properties.
+ */
+@Component
+public class PageSizeResolver {
+
+    private static final String PROPERTY_PREFIX = "time-logger.pagination.";
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int DEFAULT_MAX_PAGE_SIZE = 1000;
+
+    private final int defaultPageSize;
+    private final int maxPageSize;
+
+    @Autowired
+    public PageSizeResolver(Environment environment) {
+        this.maxPageSize = environment.getProperty(
+                PROPERTY_PREFIX + "max-page-size", Integer.class, DEFAULT_MAX_PAGE_SIZE
+        );
+        this.defaultPageSize = Math.min(maxPageSize, environment.getProperty(
+                PROPERTY_PREFIX + "default-page-size", Integer.class, DEFAULT_PAGE_SIZE
+        ));
+    }
+
+    /**
+     * Returns the page size to use for provided {@code requestedSize}. Sizes larger than the maximum page size are
+     * capped.
+     *
+     * @param requestedSize Page size requested by the client, or {@code null} to use the default page size
+     * @return Page size to use
+     * @throws InvalidPageSizeException If {@code requestedSize} is not positive
+     */
+    public int resolve(Integer requestedSize) {
+        if (requestedSize == null) {
+            return defaultPageSize;
+        }
+        if (requestedSize < 1) {
+            throw new InvalidPageSizeException();
+        }
+
+        return Math.min(requestedSize, maxPageSize);
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Contains keyset (seek) pagination utilities shared across microservices.
+ */
+package com.pdereg.timelogger.pagination;
@@ -0,0 +1,68 @@
+package com.pdereg.timelogger.routing;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * Holds the name of the read route (see {@link RoutedRead}) that database reads of the current thread follow.
+ * <p>
+ * A route is either bound to the current thread, or to the HTTP request the thread works on, so that it also applies
+ * to parts of the request that are processed asynchronously once the handler method returns.
+ */
+public final class ReadRoute {
+
+    private static final String REQUEST_ATTRIBUTE = ReadRoute.class.getName();
+    private static final ThreadLocal<String> currentRoute = new ThreadLocal<>();
+
+    private ReadRoute() {
+    }
+
+    /**
+     * @return Name of the route of the current thread or request, or {@code null} if reads should go to the primary
+     */
+    public static String get() {
+        final String route = currentRoute.get();
+        if (route != null) {
+            return route;
+        }
+
+        // The request is no longer active for asynchronous parts, but its attributes are still available
+        final RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        if (requestAttributes instanceof ServletRequestAttributes) {
+            return (String) ((ServletRequestAttributes) requestAttributes).getRequest().getAttribute(REQUEST_ATTRIBUTE);
+        }
+
+        return null;
+    }
+
+    /**
+     * Binds provided {@code route} to the current thread.
+     *
+     * @param route Name of the route, or {@code null} to unbind the current one
+     * @return Name of the route that was bound to the current thread before, or {@code null} if there was none
+     */
+    public static String set(String route) {
+        final String previousRoute = currentRoute.get();
+
+        if (route == null) {
+            currentRoute.remove();
+        } else {
+            currentRoute.set(route);
+        }
+
+        return previousRoute;
+    }
+
+    /**
+     * Binds provided {@code route} to the HTTP request of the current thread, if there is one.
+     *
+     * @param route Name of the route
+     */
+    static void setForRequest(String route) {
+        final RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        if (requestAttributes instanceof ServletRequestAttributes) {
+            ((ServletRequestAttributes) requestAttributes).getRequest().setAttribute(REQUEST_ATTRIBUTE, route);
+        }
+    }
+}
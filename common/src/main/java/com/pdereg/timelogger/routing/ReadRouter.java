@@ -0,0 +1,133 @@
+package com.pdereg.timelogger.routing;
+
+import com.mongodb.ReadPreference;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.core.env.Environment;
+import org.springframework.data.mongodb.MongoDbFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Routes MongoDB reads according to read preferences of their routes (see {@link RoutedRead}), by wrapping the
+ * {@link MongoDbFactory} of the service with {@link ReadRoutingMongoDbFactory}. Reads with no route go to the primary.
+ * <p>
+ * The read preference of a route is configured with {@code time-logger.read-routing.<route>.read-preference} (e.g.
+ * {@code secondaryPreferred} or {@code nearest}). Reads that may go to secondaries are bounded to secondaries that lag
+ * behind the primary by at most {@code time-logger.read-routing.<route>.max-staleness} seconds, which defaults to
+ * {@code time-logger.read-routing.max-staleness} (90 by default, the lowest value accepted by MongoDB), or to
+ * {@code 0} for no bound.
+ * <p>
+ * Every database operation is counted in the public metrics of its read target.
+ */
+@Component
+@ConditionalOnClass(name = "org.springframework.data.mongodb.MongoDbFactory")
+public class ReadRouter implements BeanPostProcessor, PublicMetrics {
+
+    private static final String PROPERTY_PREFIX = "time-logger.read-routing.";
+    private static final String METRIC_PREFIX = "read-routing.";
+
+    private static final long DEFAULT_MAX_STALENESS = 90L;
+
+    private final Environment environment;
+    private final long defaultMaxStaleness;
+
+    private final Map<String, ReadPreference> readPreferences = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> operationCounts = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ReadRouter(Environment environment) {
+        this.environment = environment;
+        this.defaultMaxStaleness = environment.getProperty(PROPERTY_PREFIX + "max-staleness", Long.class,
+                DEFAULT_MAX_STALENESS);
+    }
+
+    /**
+     * Returns the read preference configured for a route with provided {@code route} name.
+     *
+     * @param route Name of the route, or {@code null} for reads with no route
+     * @return {@link ReadPreference} instance
+     * @throws IllegalArgumentException If the configured read preference is invalid
+     */
+    public ReadPreference getReadPreference(String route) {
+        if (route == null) {
+            return ReadPreference.primary();
+        }
+
+        return readPreferences.computeIfAbsent(route, this::resolveReadPreference);
+    }
+
+    /**
+     * Counts a database operation made with provided {@code readPreference}.
+     *
+     * @param readPreference Read preference of the operation
+     */
+    void recordOperation(ReadPreference readPreference) {
+        operationCounts.computeIfAbsent(readPreference.getName(), name -> new AtomicLong()).incrementAndGet();
+    }
+
+    /**
+     * @param readPreferenceName Name of a read preference (e.g. {@code primary})
+     * @return Number of database operations made with the read preference
+     */
+    public long getOperationCount(String readPreferenceName) {
+        final AtomicLong operationCount = operationCounts.get(readPreferenceName);
+        return operationCount != null ? operationCount.get() : 0L;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        return bean;
+    }
+
+    /**
+     * Wraps {@link MongoDbFactory} beans, so that templates and repositories built on them route their reads.
+     */
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof MongoDbFactory && !(bean instanceof ReadRoutingMongoDbFactory)) {
+            return new ReadRoutingMongoDbFactory((MongoDbFactory) bean, this);
+        }
+
+        return bean;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<Metric<?>> metrics() {
+        final List<Metric<?>> metrics = new ArrayList<>();
+        operationCounts.forEach((name, count) -> metrics.add(new Metric<>(METRIC_PREFIX + name, count.get())));
+
+        return metrics;
+    }
+
+    private ReadPreference resolveReadPreference(String route) {
+        final String name = environment.getProperty(PROPERTY_PREFIX + route + ".read-preference",
+                ReadPreference.primary().getName());
+        final long maxStaleness = environment.getProperty(PROPERTY_PREFIX + route + ".max-staleness", Long.class,
+                defaultMaxStaleness);
+
+        final ReadPreference readPreference = ReadPreference.valueOf(name);
+        if (readPreference.equals(ReadPreference.primary()) || maxStaleness <= 0L) {
+            return readPreference;
+        }
+
+        return ReadPreference.valueOf(name, Collections.emptyList(), maxStaleness, TimeUnit.SECONDS);
+    }
+}
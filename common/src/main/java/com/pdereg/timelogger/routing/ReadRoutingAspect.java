@@ -0,0 +1,30 @@
+package com.pdereg.timelogger.routing;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+/**
+ * Binds routes of methods annotated with {@link RoutedRead} for as long as they run, as well as to the HTTP requests
+ * they handle.
+ */
+@Component
+@Aspect
+public class ReadRoutingAspect {
+
+    /**
+     * Runs provided {@code joinPoint} with the route of provided {@code routedRead}.
+     */
+    @Around("@annotation(routedRead)")
+    public Object routeReads(ProceedingJoinPoint joinPoint, RoutedRead routedRead) throws Throwable {
+        final String previousRoute = ReadRoute.set(routedRead.value());
+        ReadRoute.setForRequest(routedRead.value());
+
+        try {
+            return joinPoint.proceed();
+        } finally {
+            ReadRoute.set(previousRoute);
+        }
+    }
+}
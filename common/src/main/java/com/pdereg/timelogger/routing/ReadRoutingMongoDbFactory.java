@@ -0,0 +1,71 @@
+package com.pdereg.timelogger.routing;
+
+import com.mongodb.DB;
+import com.mongodb.ReadPreference;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.support.PersistenceExceptionTranslator;
+import org.springframework.data.mongodb.MongoDbFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link MongoDbFactory} that returns a database whose read preference matches the read route of the current thread
+ * (see {@link ReadRoute}).
+ * <p>
+ * The driver caches databases and their collections, so changing their read preference would affect all threads.
+ * Instead, a separate database is created for every read preference other than primary, sharing the connection pool
+ * of the primary one.
+ */
+public class ReadRoutingMongoDbFactory implements MongoDbFactory {
+
+    private final MongoDbFactory mongoDbFactory;
+    private final ReadRouter readRouter;
+    private final Map<ReadPreference, DB> databases = new ConcurrentHashMap<>();
+
+    public ReadRoutingMongoDbFactory(MongoDbFactory mongoDbFactory, ReadRouter readRouter) {
+        this.mongoDbFactory = mongoDbFactory;
+        this.readRouter = readRouter;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public DB getDb() throws DataAccessException {
+        final ReadPreference readPreference = readRouter.getReadPreference(ReadRoute.get());
+        readRouter.recordOperation(readPreference);
+
+        if (readPreference.equals(ReadPreference.primary())) {
+            return mongoDbFactory.getDb();
+        }
+
+        return databases.computeIfAbsent(readPreference, this::createDb);
+    }
+
+    /**
+     * Returns a database with provided {@code dbName}, with the read preference of the client. Only the default
+     * database is routed.
+     */
+    @Override
+    public DB getDb(String dbName) throws DataAccessException {
+        return mongoDbFactory.getDb(dbName);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public PersistenceExceptionTranslator getExceptionTranslator() {
+        return mongoDbFactory.getExceptionTranslator();
+    }
+
+    private DB createDb(ReadPreference readPreference) {
+        final DB primaryDb = mongoDbFactory.getDb();
+
+        final DB db = new DB(primaryDb.getMongo(), primaryDb.getName());
+        db.setReadPreference(readPreference);
+
+        return db;
+    }
+}
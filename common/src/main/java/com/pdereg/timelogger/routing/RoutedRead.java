@@ -0,0 +1,25 @@
+package com.pdereg.timelogger.routing;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks methods whose database reads can be served by replica set members other than the primary. Reads made by the
+ * method, by tasks it submits to bulkhead executors and by the rest of the HTTP request it handles (e.g. a streamed
+ * response body) follow the read preference configured for the route with
+ * {@code time-logger.read-routing.<route>.read-preference} ({@code primary} by default).
+ * <p>
+ * Methods that must see their own writes, or writes that the client has just been told about (e.g. the
+ * {@code Location} of a created resource), should not be annotated.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RoutedRead {
+
+    /**
+     * @return Name of the route, used to configure its read preference
+     */
+    String value();
+}
@@ -0,0 +1,4 @@
+/**
+ * Contains routing of database reads to replica set members other than the primary, shared across microservices.
+ */
+package com.pdereg.timelogger.routing;
@@ -0,0 +1,112 @@
+package com.pdereg.timelogger.concurrent;
+
+import com.pdereg.timelogger.routing.ReadRoute;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class BulkheadExecutorTest {
+
+    private static final String TEST_NAME = "test";
+
+    private BulkheadExecutor executor;
+    private CountDownLatch release;
+
+    @Before
+    public void setUp() {
+        executor = new BulkheadExecutor(TEST_NAME, 1, 1);
+        release = new CountDownLatch(1);
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        executor.shutdownNow();
+        SecurityContextHolder.clearContext();
+        ReadRoute.set(null);
+    }
+
+    @Test
+    public void execute_propagatesSecurityContext() throws Exception {
+        Authentication authentication = new UsernamePasswordAuthenticationToken("user", "");
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+
+        Authentication result = CompletableFuture
+                .supplyAsync(() -> SecurityContextHolder.getContext().getAuthentication(), executor)
+                .get();
+
+        assertEquals(authentication, result);
+    }
+
+    @Test
+    public void execute_propagatesReadRoute() throws Exception {
+        ReadRoute.set("route");
+
+        String result = CompletableFuture.supplyAsync(ReadRoute::get, executor).get();
+        ReadRoute.set(null);
+        String nextResult = CompletableFuture.supplyAsync(ReadRoute::get, executor).get();
+
+        assertEquals("route", result);
+        assertNull(nextResult);
+    }
+
+    @Test
+    public void execute_runsTasksOnNamedThreads() throws Exception {
+        String threadName = CompletableFuture
+                .supplyAsync(() -> Thread.currentThread().getName(), executor)
+                .get();
+
+        assertTrue(threadName.startsWith(TEST_NAME));
+    }
+
+    @Test(expected = BulkheadFullException.class)
+    public void execute_throwsExceptionIfExecutorIsFull() {
+        executor.execute(this::awaitRelease);
+        executor.execute(this::awaitRelease);
+        executor.execute(this::awaitRelease);
+    }
+
+    @Test
+    public void getRejectedCount_returnsNumberOfRejectedTasks() {
+        executor.execute(this::awaitRelease);
+        executor.execute(this::awaitRelease);
+
+        try {
+            executor.execute(this::awaitRelease);
+        } catch (BulkheadFullException e) {
+            // expected
+        }
+
+        assertEquals(1L, executor.getRejectedCount());
+        assertEquals(1, executor.getQueueSize());
+    }
+
+    @Test
+    public void getMaxWaitMillis_returnsTimeSpentInQueue() throws Exception {
+        executor.execute(this::awaitRelease);
+        CompletableFuture<Void> queued = CompletableFuture.runAsync(() -> {}, executor);
+
+        Thread.sleep(50L);
+        release.countDown();
+        queued.get(1, TimeUnit.SECONDS);
+
+        assertTrue(executor.getMaxWaitMillis() >= 50.0);
+    }
+
+    private void awaitRelease() {
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.pdereg.timelogger.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pdereg.timelogger.concurrent.BulkheadExecutor;
+import com.pdereg.timelogger.concurrent.BulkheadFullException;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class IdempotencyAspectTest {
+
+    private static final String OPERATION = "operation";
+    private static final String IDEMPOTENCY_KEY = "key";
+    private static final String BODY = "body";
+
+    private BulkheadExecutor executor;
+    private IdempotencyStore idempotencyStore;
+    private IdempotencyAspect idempotencyAspect;
+    private Idempotent idempotent;
+    private CountDownLatch release;
+
+    @Before
+    public void setUp() {
+        executor = new BulkheadExecutor("mongo", 1, 1);
+        idempotencyStore = mock(IdempotencyStore.class);
+        idempotencyAspect = new IdempotencyAspect(idempotencyStore, new ObjectMapper(), executor);
+        idempotent = mock(Idempotent.class);
+        release = new CountDownLatch(1);
+
+        when(idempotent.value()).thenReturn(OPERATION);
+        when(idempotencyStore.findCached(anyString())).thenReturn(Optional.empty());
+        when(idempotencyStore.find(anyString())).thenReturn(Optional.empty());
+        when(idempotencyStore.claim(anyString())).thenReturn(true);
+        when(idempotencyStore.complete(anyString(), anyInt(), any(), anyString())).thenAnswer(invocation ->
+                new IdempotentResponse(invocation.getArgumentAt(0, String.class), true, 200, null, BODY, null)
+        );
+
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(IdempotencyAspect.IDEMPOTENCY_KEY_HEADER, IDEMPOTENCY_KEY);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        executor.shutdownNow();
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    public void handleIdempotencyKey_processesRetryOfRequestRejectedByFullBulkhead() throws Throwable {
+        executor.execute(this::awaitRelease);
+        executor.execute(this::awaitRelease);
+
+        try {
+            idempotencyAspect.handleIdempotencyKey(createJoinPoint(), idempotent);
+            fail();
+        } catch (BulkheadFullException e) {
+            // Expected
+        }
+
+        release.countDown();
+        awaitIdle();
+
+        Object response = idempotencyAspect.handleIdempotencyKey(createJoinPoint(), idempotent);
+        HttpEntity<?> entity = ((CompletableFuture<?>) response).thenApply(HttpEntity.class::cast)
+                .get(5, TimeUnit.SECONDS);
+
+        assertEquals(BODY, entity.getBody());
+    }
+
+    private ProceedingJoinPoint createJoinPoint() throws Throwable {
+        ProceedingJoinPoint joinPoint = mock(ProceedingJoinPoint.class);
+        when(joinPoint.proceed()).thenReturn(CompletableFuture.completedFuture(ResponseEntity.ok(BODY)));
+        return joinPoint;
+    }
+
+    private void awaitIdle() throws InterruptedException {
+        while (executor.getActiveCount() > 0 || executor.getQueueSize() > 0) {
+            Thread.sleep(10L);
+        }
+    }
+
+    private void awaitRelease() {
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
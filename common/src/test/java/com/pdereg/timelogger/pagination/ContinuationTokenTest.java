@@ -0,0 +1,44 @@
+package com.pdereg.timelogger.pagination;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+
+public class ContinuationTokenTest {
+
+    @Test
+    public void decode_returnsEncodedValues() {
+        String[] values = {"1487000000000", "58a1c3f0e4b0c6a1f2d3e4f5"};
+        String token = ContinuationToken.encode(values);
+
+        assertArrayEquals(values, ContinuationToken.decode(token, values.length));
+    }
+
+    @Test
+    public void decode_returnsValuesContainingSeparators() {
+        String[] values = {"a.b/c+d", "."};
+        String token = ContinuationToken.encode(values);
+
+        assertArrayEquals(values, ContinuationToken.decode(token, values.length));
+    }
+
+    @Test
+    public void encode_returnsUrlSafeToken() {
+        String token = ContinuationToken.encode("??>>", "~~~");
+
+        assertFalse(token.contains("/"));
+        assertFalse(token.contains("+"));
+    }
+
+    @Test(expected = InvalidContinuationTokenException.class)
+    public void decode_throwsExceptionIfNumberOfValuesIsIncorrect() {
+        String token = ContinuationToken.encode("value");
+        ContinuationToken.decode(token, 2);
+    }
+
+    @Test(expected = InvalidContinuationTokenException.class)
+    public void decode_throwsExceptionIfTokenIsMalformed() {
+        ContinuationToken.decode("%%%", 1);
+    }
+}
@@ -0,0 +1,93 @@
+package com.pdereg.timelogger.routing;
+
+import com.mongodb.DB;
+import com.mongodb.Mongo;
+import com.mongodb.ReadPreference;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.mongodb.MongoDbFactory;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ReadRouterTest {
+
+    private static final String DATABASE_NAME = "test";
+
+    private ReadRouter readRouter;
+    private DB primaryDb;
+    private MongoDbFactory mongoDbFactory;
+
+    @Before
+    public void setUp() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("time-logger.read-routing.listing.read-preference", "secondaryPreferred")
+                .withProperty("time-logger.read-routing.unbounded.read-preference", "nearest")
+                .withProperty("time-logger.read-routing.unbounded.max-staleness", "0")
+                .withProperty("time-logger.read-routing.primary.read-preference", "primary");
+
+        readRouter = new ReadRouter(environment);
+
+        Mongo mongo = mock(Mongo.class);
+        primaryDb = mock(DB.class);
+        when(primaryDb.getMongo()).thenReturn(mongo);
+        when(primaryDb.getName()).thenReturn(DATABASE_NAME);
+
+        MongoDbFactory primaryMongoDbFactory = mock(MongoDbFactory.class);
+        when(primaryMongoDbFactory.getDb()).thenReturn(primaryDb);
+
+        mongoDbFactory = (MongoDbFactory) readRouter.postProcessAfterInitialization(primaryMongoDbFactory, "");
+    }
+
+    @After
+    public void tearDown() {
+        ReadRoute.set(null);
+    }
+
+    @Test
+    public void getReadPreference_returnsPrimaryWithoutRoute() {
+        assertEquals(ReadPreference.primary(), readRouter.getReadPreference(null));
+        assertEquals(ReadPreference.primary(), readRouter.getReadPreference("unknown"));
+        assertEquals(ReadPreference.primary(), readRouter.getReadPreference("primary"));
+    }
+
+    @Test
+    public void getReadPreference_boundsStaleness() {
+        ReadPreference readPreference = readRouter.getReadPreference("listing");
+
+        assertEquals("secondaryPreferred", readPreference.getName());
+        assertEquals(ReadPreference.secondaryPreferred(90L, TimeUnit.SECONDS), readPreference);
+        assertEquals(ReadPreference.nearest(), readRouter.getReadPreference("unbounded"));
+    }
+
+    @Test
+    public void getDb_returnsPrimaryDbWithoutRoute() {
+        assertSame(primaryDb, mongoDbFactory.getDb());
+        assertEquals(1L, readRouter.getOperationCount("primary"));
+    }
+
+    @Test
+    public void getDb_returnsSeparateDbForRoute() {
+        ReadRoute.set("listing");
+
+        DB db = mongoDbFactory.getDb();
+
+        assertNotSame(primaryDb, db);
+        assertSame(db, mongoDbFactory.getDb());
+        assertEquals(DATABASE_NAME, db.getName());
+        assertEquals(readRouter.getReadPreference("listing"), db.getReadPreference());
+        assertEquals(2L, readRouter.getOperationCount("secondaryPreferred"));
+        assertEquals(0L, readRouter.getOperationCount("primary"));
+    }
+
+    @Test
+    public void postProcessAfterInitialization_wrapsFactoriesOnce() {
+        assertSame(mongoDbFactory, readRouter.postProcessAfterInitialization(mongoDbFactory, ""));
+        assertSame(this, readRouter.postProcessAfterInitialization(this, ""));
+    }
+}
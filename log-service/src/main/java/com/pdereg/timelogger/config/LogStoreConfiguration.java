@@ -0,0 +1,68 @@
+package com.pdereg.timelogger.config;
+
+import com.pdereg.timelogger.domain.DictionaryEntry;
+import com.pdereg.timelogger.domain.EncodedLog;
+import com.pdereg.timelogger.domain.LogBucket;
+import com.pdereg.timelogger.repository.LogArchive;
+import com.pdereg.timelogger.repository.LogStore;
+import com.pdereg.timelogger.repository.LogStoreRegistry;
+import com.pdereg.timelogger.repository.TieredLogStore;
+import org.springframework.boot.autoconfigure.domain.EntityScanner;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.annotation.Persistent;
+import org.springframework.data.mongodb.core.convert.CustomConversions;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Selects the {@link LogStore} used by services: the store of the layout in use (see {@link LogStoreRegistry}),
+ * combined with {@link LogArchive} if archiving is enabled. Documents and indexes of other layouts are left alone until
+ * their store is created.
+ */
+@Configuration
+public class LogStoreConfiguration {
+
+    /**
+     * Documents of log layouts other than the default one.
+     */
+    private static final List<Class<?>> LAYOUT_DOCUMENTS = Arrays.asList(
+            LogBucket.class,
+            EncodedLog.class,
+            DictionaryEntry.class
+    );
+
+    @Bean
+    @Primary
+    public LogStore logStore(LogStoreRegistry logStoreRegistry, LogArchive logArchive) {
+        final LogStore logStore = logStoreRegistry.getActive();
+        return logArchive.isEnabled() ? new TieredLogStore(logStore, logArchive) : logStore;
+    }
+
+    /**
+     * Replaces the mapping context of Spring Boot, which maps every document on startup and thus creates indexes of
+     * all log layouts. Documents of layouts other than the default one are mapped, and their indexes created, only
+     * once their store first uses them.
+     */
+    @Bean
+    public MongoMappingContext mongoMappingContext(ApplicationContext applicationContext,
+                                                   CustomConversions customConversions)
+            throws ClassNotFoundException {
+
+        final Set<Class<?>> documents = new HashSet<>(new EntityScanner(applicationContext)
+                .scan(Document.class, Persistent.class));
+        documents.removeAll(LAYOUT_DOCUMENTS);
+
+        final MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setInitialEntitySet(documents);
+        mappingContext.setSimpleTypeHolder(customConversions.getSimpleTypeHolder());
+        return mappingContext;
+    }
+}
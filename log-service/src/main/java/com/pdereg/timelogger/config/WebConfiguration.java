@@ -0,0 +1,36 @@
+package com.pdereg.timelogger.config;
+
+import com.pdereg.timelogger.concurrent.BulkheadRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ConcurrentTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+
+/**
+ * Provides web layer configuration.
+ */
+@Configuration
+public class WebConfiguration extends WebMvcConfigurerAdapter {
+
+    private final BulkheadRegistry bulkheadRegistry;
+
+    @Autowired
+    public WebConfiguration(BulkheadRegistry bulkheadRegistry) {
+        this.bulkheadRegistry = bulkheadRegistry;
+    }
+
+    /**
+     * Streamed responses are run on their own bounded executor instead of a new thread per request. A response holds
+     * its thread for as long as the client takes to read it, so it is kept apart from the database executor, which
+     * slow clients would otherwise starve.
+     */
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        final ConcurrentTaskExecutor taskExecutor = new ConcurrentTaskExecutor(
+                bulkheadRegistry.executor(BulkheadRegistry.STREAMING)
+        );
+
+        configurer.setTaskExecutor(taskExecutor);
+    }
+}
@@ -0,0 +1,128 @@
+package com.pdereg.timelogger.domain;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.PersistenceConstructor;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * Total time logged by an account for an activity on a single day. Rollups are kept up to date as logs are created
+ * and deleted, so that per-day totals can be read without summing individual logs.
+ * <p>
+ * A log is counted in the UTC day in which it started.
+ */
+@Document
+@CompoundIndex(name = "account_day_activity_index", def = "{'accountId': 1, 'day': 1, 'activityId': 1}", unique = true)
+public class DailyRollup {
+
+    public static final long MILLIS_IN_A_DAY = 1000L * 60 * 60 * 24;
+
+    @Id
+    private String id;
+
+    private final String accountId;
+
+    private final String activityId;
+
+    private final long day;
+
+    private final long totalDuration;
+
+    private final long logCount;
+
+    @PersistenceConstructor
+    public DailyRollup(String accountId, String activityId, long day, long totalDuration, long logCount) {
+        this.accountId = accountId;
+        this.activityId = activityId;
+        this.day = day;
+        this.totalDuration = totalDuration;
+        this.logCount = logCount;
+    }
+
+    /**
+     * Returns the start of the UTC day in which provided {@code timestamp} falls.
+     *
+     * @param timestamp UNIX timestamp in milliseconds
+     * @return Start of the day (as UNIX timestamp in milliseconds)
+     */
+    public static long dayOf(long timestamp) {
+        return Math.floorDiv(timestamp, MILLIS_IN_A_DAY) * MILLIS_IN_A_DAY;
+    }
+
+    /**
+     * @return Rollup's unique ID
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return ID of the user account associated with this {@link DailyRollup} instance
+     */
+    public String getAccountId() {
+        return accountId;
+    }
+
+    /**
+     * @return ID of the activity associated with this {@link DailyRollup} instance
+     */
+    public String getActivityId() {
+        return activityId;
+    }
+
+    /**
+     * @return Start of the day (as UNIX timestamp in milliseconds)
+     */
+    public long getDay() {
+        return day;
+    }
+
+    /**
+     * @return Total duration of logs started on this day (in milliseconds)
+     */
+    public long getTotalDuration() {
+        return totalDuration;
+    }
+
+    /**
+     * @return Number of logs started on this day
+     */
+    public long getLogCount() {
+        return logCount;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        DailyRollup that = (DailyRollup) o;
+
+        if (day != that.day) return false;
+        if (totalDuration != that.totalDuration) return false;
+        if (logCount != that.logCount) return false;
+        if (accountId != null ? !accountId.equals(that.accountId) : that.accountId != null) return false;
+        return activityId != null ? activityId.equals(that.activityId) : that.activityId == null;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = accountId != null ? accountId.hashCode() : 0;
+        result = 31 * result + (activityId != null ? activityId.hashCode() : 0);
+        result = 31 * result + (int) (day ^ (day >>> 32));
+        result = 31 * result + (int) (totalDuration ^ (totalDuration >>> 32));
+        result = 31 * result + (int) (logCount ^ (logCount >>> 32));
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "DailyRollup{" +
+                "accountId='" + accountId + '\'' +
+                ", activityId='" + activityId + '\'' +
+                ", day=" + day +
+                ", totalDuration=" + totalDuration +
+                ", logCount=" + logCount +
+                '}';
+    }
+}
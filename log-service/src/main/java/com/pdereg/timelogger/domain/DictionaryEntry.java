@@ -0,0 +1,39 @@
+package com.pdereg.timelogger.domain;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.PersistenceConstructor;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * Maps a string, such as an account or activity ID, to a compact integer code that is stored in its place.
+ */
+@Document
+public class DictionaryEntry {
+
+    @Id
+    private final int code;
+
+    @Indexed(name = "value_index", unique = true)
+    private final String value;
+
+    @PersistenceConstructor
+    public DictionaryEntry(int code, String value) {
+        this.code = code;
+        this.value = value;
+    }
+
+    /**
+     * @return Code assigned to the value
+     */
+    public int getCode() {
+        return code;
+    }
+
+    /**
+     * @return Encoded value
+     */
+    public String getValue() {
+        return value;
+    }
+}
@@ -0,0 +1,82 @@
+package com.pdereg.timelogger.domain;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.PersistenceConstructor;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * A {@link Log} stored with dictionary codes in place of its account and activity IDs. Indexes mirror those of
+ * {@link Log}, but hold 4-byte codes instead of strings.
+ *
+ * @see DictionaryEntry
+ */
+@Document
+@CompoundIndexes({
+        @CompoundIndex(
+                name = "account_start_time_index",
+                def = "{'accountId': 1, 'startTime': 1, '_id': 1, 'activityId': 1, 'duration': 1}"
+        ),
+        @CompoundIndex(
+                name = "account_activity_start_time_index",
+                def = "{'accountId': 1, 'activityId': 1, 'startTime': 1, '_id': 1}"
+        )
+})
+public class EncodedLog {
+
+    @Id
+    private String id;
+
+    private final int accountId;
+
+    private final int activityId;
+
+    private final long startTime;
+
+    private final long duration;
+
+    @PersistenceConstructor
+    public EncodedLog(String id, int accountId, int activityId, long startTime, long duration) {
+        this.id = id;
+        this.accountId = accountId;
+        this.activityId = activityId;
+        this.startTime = startTime;
+        this.duration = duration;
+    }
+
+    /**
+     * @return Log's unique ID
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return Code of the ID of the user account associated with the log
+     */
+    public int getAccountId() {
+        return accountId;
+    }
+
+    /**
+     * @return Code of the ID of the activity associated with the log
+     */
+    public int getActivityId() {
+        return activityId;
+    }
+
+    /**
+     * @return Time at which logging started (as UNIX timestamp in milliseconds)
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * @return Duration of the log (in milliseconds)
+     */
+    public long getDuration() {
+        return duration;
+    }
+}
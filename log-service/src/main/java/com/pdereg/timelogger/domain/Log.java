@@ -1,7 +1,9 @@
 package com.pdereg.timelogger.domain;
 
 import org.springframework.data.annotation.Id;
-import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.annotation.PersistenceConstructor;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import javax.validation.constraints.Min;
@@ -12,6 +14,16 @@ import java.util.Calendar;
  * Log domain object.
  */
 @Document
+@CompoundIndexes({
+        @CompoundIndex(
+                name = "account_start_time_index",
+                def = "{'accountId': 1, 'startTime': 1, '_id': 1, 'activityId': 1, 'duration': 1}"
+        ),
+        @CompoundIndex(
+                name = "account_activity_start_time_index",
+                def = "{'accountId': 1, 'activityId': 1, 'startTime': 1, '_id': 1}"
+        )
+})
 public class Log {
 
     public static final long MIN_START_TIME = 0L;
@@ -22,11 +34,9 @@ public class Log {
     @Id
     private String id;
 
-    @Indexed
     @NotNull
     private final String accountId;
 
-    @Indexed
     @NotNull
     private final String activityId;
 
@@ -36,6 +46,7 @@ public class Log {
     @Min(value = MIN_DURATION)
     private final long duration;
 
+    @PersistenceConstructor
     public Log(String accountId, String activityId, long startTime, long duration) {
         this.accountId = accountId;
         this.activityId = activityId;
@@ -47,6 +58,14 @@ public class Log {
         }
     }
 
+    /**
+     * Creates a log with a preassigned {@code id}, so that it can be referenced before it is saved.
+     */
+    public Log(String id, String accountId, String activityId, long startTime, long duration) {
+        this(accountId, activityId, startTime, duration);
+        this.id = id;
+    }
+
     /**
      * @return Log's unique ID
      */
@@ -0,0 +1,160 @@
+package com.pdereg.timelogger.domain;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import org.bson.types.ObjectId;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.PersistenceConstructor;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.util.List;
+
+/**
+ * All {@link Log} instances of an account that started on the same UTC day, stored as a single document. Logs are
+ * kept as compact entries of an embedded array, so that only buckets, rather than individual logs, are indexed.
+ * <p>
+ * Entries are appended in the order in which logs are saved, so they have to be sorted by start time when read.
+ */
+@Document
+@CompoundIndex(name = "account_day_index", def = "{'accountId': 1, 'day': 1}", unique = true)
+public class LogBucket {
+
+    public static final String ENTRIES = "entries";
+
+    @Id
+    private String id;
+
+    private final String accountId;
+
+    private final long day;
+
+    private final List<Entry> entries;
+
+    @PersistenceConstructor
+    public LogBucket(String accountId, long day, List<Entry> entries) {
+        this.accountId = accountId;
+        this.day = day;
+        this.entries = entries;
+    }
+
+    /**
+     * @return Bucket's unique ID
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return ID of the user account associated with this {@link LogBucket} instance
+     */
+    public String getAccountId() {
+        return accountId;
+    }
+
+    /**
+     * @return Start of the day (as UNIX timestamp in milliseconds)
+     * @see DailyRollup#dayOf(long)
+     */
+    public long getDay() {
+        return day;
+    }
+
+    /**
+     * @return Logs of this bucket, in the order in which they were saved
+     */
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * A single {@link Log} instance within a {@link LogBucket}. Field names are shortened, as they are repeated in
+     * every entry.
+     */
+    public static class Entry {
+
+        public static final String ID = "i";
+        public static final String ACTIVITY_ID = "a";
+        public static final String START_TIME = "s";
+        public static final String DURATION = "d";
+
+        @Field(ID)
+        private final ObjectId id;
+
+        @Field(ACTIVITY_ID)
+        private final String activityId;
+
+        @Field(START_TIME)
+        private final long startTime;
+
+        @Field(DURATION)
+        private final long duration;
+
+        @PersistenceConstructor
+        public Entry(ObjectId id, String activityId, long startTime, long duration) {
+            this.id = id;
+            this.activityId = activityId;
+            this.startTime = startTime;
+            this.duration = duration;
+        }
+
+        /**
+         * Creates an entry of provided {@code log}, which must have its ID assigned.
+         *
+         * @param log {@link Log} instance
+         * @return {@link Entry} instance
+         */
+        public static Entry of(Log log) {
+            return new Entry(new ObjectId(log.getId()), log.getActivityId(), log.getStartTime(), log.getDuration());
+        }
+
+        /**
+         * @return {@link Log} instance that belongs to an account with provided {@code accountId}
+         */
+        public Log toLog(String accountId) {
+            return new Log(id.toHexString(), accountId, activityId, startTime, duration);
+        }
+
+        /**
+         * Converts this entry to a document that can be used in updates. Fields are always written in the same order,
+         * so that equal entries are equal documents.
+         *
+         * @return {@link DBObject} instance
+         */
+        public DBObject toDbObject() {
+            return new BasicDBObject(ID, id)
+                    .append(ACTIVITY_ID, activityId)
+                    .append(START_TIME, startTime)
+                    .append(DURATION, duration);
+        }
+
+        /**
+         * @return ID of the log
+         */
+        public ObjectId getId() {
+            return id;
+        }
+
+        /**
+         * @return ID of the activity associated with the log
+         */
+        public String getActivityId() {
+            return activityId;
+        }
+
+        /**
+         * @return Time at which logging started (as UNIX timestamp in milliseconds)
+         */
+        public long getStartTime() {
+            return startTime;
+        }
+
+        /**
+         * @return Duration of the log (in milliseconds)
+         */
+        public long getDuration() {
+            return duration;
+        }
+    }
+}
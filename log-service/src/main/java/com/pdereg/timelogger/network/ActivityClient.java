@@ -1,12 +1,14 @@
 package com.pdereg.timelogger.network;
 
 import com.pdereg.timelogger.network.model.Activity;
+import com.pdereg.timelogger.network.model.ActivityPage;
 import org.springframework.cloud.netflix.feign.FeignClient;
 import org.springframework.stereotype.Component;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 
 /**
  * Network client for the activity-service.
@@ -27,4 +29,19 @@ public interface ActivityClient {
     Activity getActivity(@RequestHeader("Authorization") String authorizationHeader,
                          @PathVariable("accountId") String accountId,
                          @PathVariable("name") String name);
+
+    /**
+     * Retrieves a page of activities with provided {@code accountId}, sorted by their names.
+     *
+     * @param authorizationHeader HTTP authorization header for authenticating with activity-service
+     * @param accountId           ID of the user account associated with the activities
+     * @param continuation        Token returned with the previous page, or {@code null} to fetch the first page
+     * @param size                Maximum number of activities to return
+     * @return Fetched page of activities
+     */
+    @RequestMapping(method = RequestMethod.GET, value = "/api/activities/{accountId}")
+    ActivityPage getActivities(@RequestHeader("Authorization") String authorizationHeader,
+                               @PathVariable("accountId") String accountId,
+                               @RequestParam(value = "continuation", required = false) String continuation,
+                               @RequestParam("size") int size);
 }
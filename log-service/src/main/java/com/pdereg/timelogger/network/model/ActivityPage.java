@@ -0,0 +1,28 @@
+package com.pdereg.timelogger.network.model;
+
+import java.util.List;
+
+/**
+ * An HTTP response body for a page of activity domain objects.
+ */
+public class ActivityPage {
+
+    private List<Activity> content;
+    private String next;
+
+    public List<Activity> getContent() {
+        return content;
+    }
+
+    public void setContent(List<Activity> content) {
+        this.content = content;
+    }
+
+    public String getNext() {
+        return next;
+    }
+
+    public void setNext(String next) {
+        this.next = next;
+    }
+}
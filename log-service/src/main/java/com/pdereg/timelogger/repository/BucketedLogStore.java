@@ -0,0 +1,428 @@
+package com.pdereg.timelogger.repository;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import com.pdereg.timelogger.domain.DailyRollup;
+import com.pdereg.timelogger.domain.Log;
+import com.pdereg.timelogger.domain.LogBucket;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.data.util.StreamUtils;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * {@link LogStore} that keeps {@link Log} instances as entries of {@link LogBucket} documents, one per account and
+ * UTC day. New logs are appended to their buckets with {@code $push}, creating buckets as needed, so a batch of logs
+ * costs one update per bucket it touches.
+ * <p>
+ * Lookups by log ID alone are not served by any index and scan all buckets, while lookups by log ID within an account
+ * only scan buckets of that account.
+ */
+@Component
+@Lazy
+public class BucketedLogStore implements LogStore {
+
+    private final MongoOperations mongoOperations;
+
+    @Autowired
+    public BucketedLogStore(MongoOperations mongoOperations) {
+        this.mongoOperations = mongoOperations;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LogLayout getLayout() {
+        return LogLayout.BUCKETED;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Log save(Log log) {
+        final Log savedLog = assignId(log);
+
+        // A log without an ID cannot have been saved yet, so it is appended without checking the bucket for it
+        addToBuckets(Collections.singletonList(savedLog), log.getId() != null);
+        return savedLog;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Log> save(List<Log> logs) {
+        final List<Log> savedLogs = new ArrayList<>(logs.size());
+        final List<Log> newLogs = new ArrayList<>();
+        final List<Log> identifiedLogs = new ArrayList<>();
+
+        for (Log log : logs) {
+            final Log savedLog = assignId(log);
+            savedLogs.add(savedLog);
+            (log.getId() != null ? identifiedLogs : newLogs).add(savedLog);
+        }
+
+        addToBuckets(identifiedLogs, true);
+        addToBuckets(newLogs, false);
+        return savedLogs;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Log> insert(List<Log> logs) {
+        final List<Log> savedLogs = logs.stream().map(BucketedLogStore::assignId).collect(Collectors.toList());
+        addToBuckets(savedLogs, false);
+        return savedLogs;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Log> findOne(String id) {
+        if (!ObjectId.isValid(id)) {
+            return Optional.empty();
+        }
+
+        final Query query = new Query(Criteria.where(entryField(LogBucket.Entry.ID)).is(new ObjectId(id)));
+        return findEntry(mongoOperations.findOne(query, LogBucket.class), id);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Log> findOne(String id, String accountId, String activityId) {
+        if (!ObjectId.isValid(id)) {
+            return Optional.empty();
+        }
+
+        final LogBucket bucket = mongoOperations.findOne(toEntryQuery(id, accountId, activityId), LogBucket.class);
+        return findEntry(bucket, id);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Log> findAllByAccountId(String accountId) {
+        try (Stream<Log> logs = streamAllByAccountId(accountId, new LogFilter(), null, Integer.MAX_VALUE)) {
+            return logs.collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Log> findAllByAccountIdAndActivityId(String accountId, String activityId) {
+        final LogFilter filter = new LogFilter();
+        filter.setActivityIds(Collections.singleton(activityId));
+
+        try (Stream<Log> logs = streamAllByAccountId(accountId, filter, null, Integer.MAX_VALUE)) {
+            return logs.collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Stream<Log> streamAllByAccountId(String accountId, LogFilter filter, LogPosition position, int limit) {
+        final Query query = new Query(toBucketCriteria(accountId, filter, position))
+                .with(new Sort(Sort.Direction.ASC, "day"));
+
+        final Predicate<Log> afterPosition = position == null ? log -> true : position.toPredicate();
+
+        return streamBuckets(query)
+                .flatMap(bucket -> toLogs(bucket).filter(filter::matches).filter(afterPosition))
+                .limit(limit);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Stream<Log> streamAllOrderedByAccountId() {
+        final Query query = new Query().with(new Sort(Sort.Direction.ASC, "accountId", "day"));
+        return streamBuckets(query).flatMap(this::toLogs);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Stream<LogSummary> streamSummariesByAccountId(String accountId, LogFilter filter) {
+        return LogSummaries.aggregate(
+                mongoOperations,
+                LogBucket.class,
+                Aggregation.match(toBucketCriteria(accountId, filter, null)),
+                Aggregation.unwind(LogBucket.ENTRIES),
+                Aggregation.project("accountId")
+                        .and(entryField(LogBucket.Entry.ACTIVITY_ID)).as("activityId")
+                        .and(entryField(LogBucket.Entry.START_TIME)).as("startTime")
+                        .and(entryField(LogBucket.Entry.DURATION)).as("duration"),
+                Aggregation.match(filter.toCriteria(accountId))
+        );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Log> findAndRemove(String id, String accountId, String activityId) {
+        if (!ObjectId.isValid(id)) {
+            return Optional.empty();
+        }
+
+        final DBObject entry = new BasicDBObject(LogBucket.Entry.ID, new ObjectId(id));
+        final Update update = new Update().pull(LogBucket.ENTRIES, entry);
+        final LogBucket bucket = mongoOperations.findAndModify(
+                toEntryQuery(id, accountId, activityId), update, LogBucket.class
+        );
+
+        final Optional<Log> log = findEntry(bucket, id);
+        if (log.isPresent() && bucket.getEntries().size() == 1) {
+            // Removes the bucket only if no log was added to it in the meantime
+            mongoOperations.remove(new Query(Criteria
+                    .where("_id").is(bucket.getId())
+                    .and(LogBucket.ENTRIES).size(0)
+            ), LogBucket.class);
+        }
+
+        return log;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeAll(List<Log> logs) {
+        final Map<BucketKey, List<ObjectId>> ids = new LinkedHashMap<>();
+
+        for (Log log : logs) {
+            ids.computeIfAbsent(new BucketKey(log), key -> new ArrayList<>()).add(new ObjectId(log.getId()));
+        }
+
+        ids.forEach((key, bucketIds) -> {
+            final Criteria criteria = Criteria.where("accountId").is(key.accountId).and("day").is(key.day);
+            final DBObject entries = new BasicDBObject(LogBucket.Entry.ID, new BasicDBObject("$in", bucketIds));
+
+            mongoOperations.updateFirst(new Query(criteria), new Update().pull(LogBucket.ENTRIES, entries),
+                    LogBucket.class);
+            mongoOperations.remove(new Query(criteria.and(LogBucket.ENTRIES).size(0)), LogBucket.class);
+        });
+    }
+
+    /**
+     * Deletes whole buckets of the oldest days that ended before provided {@code before}, up to the day on which the
+     * number of their logs reaches {@code limit}. Once no such bucket is left, expired logs of the day that contains
+     * {@code before} are pulled from its bucket.
+     */
+    @Override
+    public long removeOldestByAccountId(String accountId, long before, int limit) {
+        final long beforeDay = DailyRollup.dayOf(before);
+        final Query query = new Query(Criteria.where("accountId").is(accountId).and("day").lt(beforeDay))
+                .with(new Sort(Sort.Direction.ASC, "day"));
+
+        long logCount = 0L;
+        Long lastDay = null;
+
+        try (Stream<LogBucket> buckets = streamBuckets(query)) {
+            final Iterator<LogBucket> iterator = buckets.iterator();
+
+            while (logCount < limit && iterator.hasNext()) {
+                final LogBucket bucket = iterator.next();
+                logCount += bucket.getEntries().size();
+                lastDay = bucket.getDay();
+            }
+        }
+
+        if (lastDay != null) {
+            mongoOperations.remove(new Query(Criteria.where("accountId").is(accountId).and("day").lte(lastDay)),
+                    LogBucket.class);
+            return logCount;
+        }
+
+        final Criteria criteria = Criteria.where("accountId").is(accountId).and("day").is(beforeDay);
+        final DBObject expired = new BasicDBObject(LogBucket.Entry.START_TIME, new BasicDBObject("$lt", before));
+        final LogBucket bucket = mongoOperations.findAndModify(
+                new Query(criteria), new Update().pull(LogBucket.ENTRIES, expired), LogBucket.class
+        );
+
+        if (bucket == null) {
+            return 0L;
+        }
+
+        mongoOperations.remove(new Query(criteria.and(LogBucket.ENTRIES).size(0)), LogBucket.class);
+        return bucket.getEntries().stream().filter(entry -> entry.getStartTime() < before).count();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<String> findAllAccountIds() {
+        final List<String> accountIds = mongoOperations
+                .getCollection(mongoOperations.getCollectionName(LogBucket.class))
+                .distinct("accountId");
+        accountIds.sort(Comparator.naturalOrder());
+
+        return accountIds;
+    }
+
+    private void addToBuckets(List<Log> logs, boolean idempotent) {
+        final Map<BucketKey, List<DBObject>> entries = new LinkedHashMap<>();
+
+        for (Log log : logs) {
+            entries
+                    .computeIfAbsent(new BucketKey(log), key -> new ArrayList<>())
+                    .add(LogBucket.Entry.of(log).toDbObject());
+        }
+
+        entries.forEach((key, bucketEntries) -> {
+            final Query query = new Query(Criteria.where("accountId").is(key.accountId).and("day").is(key.day));
+            final Object[] values = bucketEntries.toArray();
+
+            // Adding to a set skips entries that are already in the bucket, so that retried saves do not duplicate logs
+            final Update update = idempotent
+                    ? new Update().addToSet(LogBucket.ENTRIES).each(values)
+                    : new Update().push(LogBucket.ENTRIES).each(values);
+
+            try {
+                mongoOperations.upsert(query, update, LogBucket.class);
+            } catch (DuplicateKeyException e) {
+                // A concurrent upsert has just created the bucket, so this time the update will find it
+                mongoOperations.upsert(query, update, LogBucket.class);
+            }
+        });
+    }
+
+    private Stream<LogBucket> streamBuckets(Query query) {
+        final CloseableIterator<LogBucket> iterator = mongoOperations.stream(query, LogBucket.class);
+        return StreamUtils.createStreamFromIterator(iterator);
+    }
+
+    private Stream<Log> toLogs(LogBucket bucket) {
+        return bucket.getEntries().stream()
+                .map(entry -> entry.toLog(bucket.getAccountId()))
+                .sorted(LogPosition.ORDER);
+    }
+
+    private Query toEntryQuery(String id, String accountId, String activityId) {
+        return new Query(Criteria
+                .where("accountId").is(accountId)
+                .and(LogBucket.ENTRIES).elemMatch(Criteria
+                        .where(LogBucket.Entry.ID).is(new ObjectId(id))
+                        .and(LogBucket.Entry.ACTIVITY_ID).is(activityId)
+                )
+        );
+    }
+
+    private static Criteria toBucketCriteria(String accountId, LogFilter filter, LogPosition position) {
+        final Criteria criteria = Criteria.where("accountId").is(accountId);
+
+        Long fromDay = filter.getFrom() != null ? DailyRollup.dayOf(filter.getFrom()) : null;
+        if (position != null) {
+            final long positionDay = DailyRollup.dayOf(position.getStartTime());
+            fromDay = fromDay != null ? Math.max(fromDay, positionDay) : positionDay;
+        }
+
+        if (fromDay != null || filter.getTo() != null) {
+            final Criteria day = criteria.and("day");
+
+            if (fromDay != null) {
+                day.gte(fromDay);
+            }
+            if (filter.getTo() != null) {
+                day.lt(filter.getTo());
+            }
+        }
+
+        if (filter.getActivityIds() != null && !filter.getActivityIds().isEmpty()) {
+            criteria.and(entryField(LogBucket.Entry.ACTIVITY_ID)).in(filter.getActivityIds());
+        }
+
+        return criteria;
+    }
+
+    private static Optional<Log> findEntry(LogBucket bucket, String id) {
+        if (bucket == null) {
+            return Optional.empty();
+        }
+
+        final ObjectId objectId = new ObjectId(id);
+        return bucket.getEntries().stream()
+                .filter(entry -> entry.getId().equals(objectId))
+                .map(entry -> entry.toLog(bucket.getAccountId()))
+                .findFirst();
+    }
+
+    private static Log assignId(Log log) {
+        if (log.getId() != null) {
+            return log;
+        }
+
+        final String id = new ObjectId().toHexString();
+        return new Log(id, log.getAccountId(), log.getActivityId(), log.getStartTime(), log.getDuration());
+    }
+
+    private static String entryField(String field) {
+        return LogBucket.ENTRIES + '.' + field;
+    }
+
+    private static class BucketKey {
+
+        private final String accountId;
+        private final long day;
+
+        BucketKey(Log log) {
+            this.accountId = log.getAccountId();
+            this.day = DailyRollup.dayOf(log.getStartTime());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            BucketKey key = (BucketKey) o;
+
+            if (day != key.day) return false;
+            return accountId.equals(key.accountId);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = accountId.hashCode();
+            result = 31 * result + (int) (day ^ (day >>> 32));
+            return result;
+        }
+    }
+}
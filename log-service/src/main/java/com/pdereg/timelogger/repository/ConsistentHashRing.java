@@ -0,0 +1,57 @@
+package com.pdereg.timelogger.repository;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Maps keys to nodes with consistent hashing. Every node is placed on a ring of hashes at a number of points derived
+ * from its name, and a key belongs to the first node that follows the hash of the key. Adding or removing a node only
+ * moves keys of that node, rather than of almost all nodes as with a hash modulo the number of nodes.
+ *
+ * @param <T> Type of nodes
+ */
+class ConsistentHashRing<T> {
+
+    private final NavigableMap<Long, T> ring = new TreeMap<>();
+
+    /**
+     * @param names      Names of nodes, which decide where nodes are placed on the ring. Must be unique
+     * @param nodes      Nodes, in the same order as their names
+     * @param pointCount Number of points of every node on the ring. More points spread keys more evenly
+     */
+    ConsistentHashRing(List<String> names, List<T> nodes, int pointCount) {
+        if (names.isEmpty() || names.size() != nodes.size()) {
+            throw new IllegalArgumentException("Every node must have a name");
+        }
+
+        for (int node = 0; node < nodes.size(); ++node) {
+            for (int point = 0; point < pointCount; ++point) {
+                ring.put(hash(names.get(node) + '#' + point), nodes.get(node));
+            }
+        }
+    }
+
+    /**
+     * @param key Key to map
+     * @return Node to which provided {@code key} belongs
+     */
+    T get(String key) {
+        final Map.Entry<Long, T> entry = ring.ceilingEntry(hash(key));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    private static long hash(String value) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("MD5").digest(value.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
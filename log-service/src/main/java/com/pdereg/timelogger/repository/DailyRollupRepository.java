@@ -0,0 +1,12 @@
+package com.pdereg.timelogger.repository;
+
+import com.pdereg.timelogger.domain.DailyRollup;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Provides a communication interface to MongoDB for {@link DailyRollup} domain objects.
+ */
+@Repository
+public interface DailyRollupRepository extends MongoRepository<DailyRollup, String>, DailyRollupRepositoryCustom {
+}
@@ -0,0 +1,50 @@
+package com.pdereg.timelogger.repository;
+
+import com.pdereg.timelogger.domain.DailyRollup;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * {@link DailyRollup} operations that cannot be derived from repository method names.
+ */
+public interface DailyRollupRepositoryCustom {
+
+    /**
+     * Atomically adds provided deltas to a rollup with given {@code accountId}, {@code activityId} and {@code day},
+     * creating the rollup if it does not exist yet.
+     *
+     * @param accountId     ID of the user account associated with the rollup
+     * @param activityId    ID of the activity associated with the rollup
+     * @param day           Start of the day (as UNIX timestamp in milliseconds)
+     * @param durationDelta Duration to add (in milliseconds). Negative when logs are removed
+     * @param countDelta    Number of logs to add. Negative when logs are removed
+     */
+    void increment(String accountId, String activityId, long day, long durationDelta, long countDelta);
+
+    /**
+     * Finds and returns all {@link DailyRollup} instances with given {@code accountId} for days that overlap with
+     * provided time range.
+     *
+     * @param accountId  ID of the user account associated with rollups to return
+     * @param from       Lower bound (inclusive) of the time range (as UNIX timestamp in milliseconds)
+     * @param to         Upper bound (exclusive) of the time range (as UNIX timestamp in milliseconds)
+     * @param activityId ID of the activity associated with rollups to return, or {@code null} to return rollups of all
+     *                   activities
+     * @return A list of {@link DailyRollup} instances, sorted by their day and activity ID
+     */
+    List<DailyRollup> findAllByAccountId(String accountId, long from, long to, String activityId);
+
+    /**
+     * Replaces rollups of an account with given {@code accountId} for days starting at {@code replacedFrom} with
+     * provided {@code rollups}. Rollups of earlier days are kept, and provided ones are only added where missing.
+     * <p>
+     * Every rollup is overwritten with its own upsert, so concurrent increments cannot make the replacement fail.
+     * Rollups of replaced days that are not among provided ones are removed.
+     *
+     * @param accountId    ID of the user account associated with the rollups
+     * @param rollups      New {@link DailyRollup} instances
+     * @param replacedFrom Start of the first day (as UNIX timestamp in milliseconds) whose rollups are replaced
+     */
+    void replaceAllByAccountId(String accountId, Collection<DailyRollup> rollups, long replacedFrom);
+}
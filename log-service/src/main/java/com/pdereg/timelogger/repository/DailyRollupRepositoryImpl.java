@@ -0,0 +1,133 @@
+package com.pdereg.timelogger.repository;
+
+import com.pdereg.timelogger.domain.DailyRollup;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * MongoDB implementation of {@link DailyRollupRepositoryCustom}.
+ */
+public class DailyRollupRepositoryImpl implements DailyRollupRepositoryCustom {
+
+    private final MongoOperations mongoOperations;
+
+    @Autowired
+    public DailyRollupRepositoryImpl(MongoOperations mongoOperations) {
+        this.mongoOperations = mongoOperations;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void increment(String accountId, String activityId, long day, long durationDelta, long countDelta) {
+        final Query query = findRollup(accountId, activityId, day);
+        final Update update = new Update()
+                .inc("totalDuration", durationDelta)
+                .inc("logCount", countDelta);
+
+        try {
+            mongoOperations.upsert(query, update, DailyRollup.class);
+        } catch (DuplicateKeyException e) {
+            // A concurrent upsert has just created the rollup, so this time the update will find it
+            mongoOperations.upsert(query, update, DailyRollup.class);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<DailyRollup> findAllByAccountId(String accountId, long from, long to, String activityId) {
+        final Criteria criteria = Criteria
+                .where("accountId").is(accountId)
+                .and("day").gte(DailyRollup.dayOf(from)).lt(to);
+
+        if (activityId != null) {
+            criteria.and("activityId").is(activityId);
+        }
+
+        final Query query = new Query(criteria).with(new Sort(Sort.Direction.ASC, "day", "activityId"));
+        return mongoOperations.find(query, DailyRollup.class);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void replaceAllByAccountId(String accountId, Collection<DailyRollup> rollups, long replacedFrom) {
+        final Set<String> replacedKeys = new HashSet<>();
+
+        for (DailyRollup rollup : rollups) {
+            if (rollup.getDay() >= replacedFrom) {
+                replace(rollup);
+                replacedKeys.add(keyOf(rollup));
+            } else {
+                insertIfMissing(rollup);
+            }
+        }
+
+        // Rollups left without logs are removed by their IDs, so that rollups created meanwhile by new logs are kept
+        final List<String> staleIds = mongoOperations
+                .find(new Query(Criteria.where("accountId").is(accountId).and("day").gte(replacedFrom)),
+                        DailyRollup.class)
+                .stream()
+                .filter(rollup -> !replacedKeys.contains(keyOf(rollup)))
+                .map(DailyRollup::getId)
+                .collect(Collectors.toList());
+
+        if (!staleIds.isEmpty()) {
+            mongoOperations.remove(new Query(Criteria.where("_id").in(staleIds)), DailyRollup.class);
+        }
+    }
+
+    private void replace(DailyRollup rollup) {
+        final Query query = findRollup(rollup.getAccountId(), rollup.getActivityId(), rollup.getDay());
+        final Update update = new Update()
+                .set("totalDuration", rollup.getTotalDuration())
+                .set("logCount", rollup.getLogCount());
+
+        try {
+            mongoOperations.upsert(query, update, DailyRollup.class);
+        } catch (DuplicateKeyException e) {
+            // A concurrent upsert has just created the rollup, so this time the update will overwrite it
+            mongoOperations.upsert(query, update, DailyRollup.class);
+        }
+    }
+
+    private void insertIfMissing(DailyRollup rollup) {
+        final Query query = findRollup(rollup.getAccountId(), rollup.getActivityId(), rollup.getDay());
+        final Update update = new Update()
+                .setOnInsert("totalDuration", rollup.getTotalDuration())
+                .setOnInsert("logCount", rollup.getLogCount());
+
+        try {
+            mongoOperations.upsert(query, update, DailyRollup.class);
+        } catch (DuplicateKeyException e) {
+            // A concurrent upsert has just created the rollup, which is then kept as it is
+        }
+    }
+
+    private static Query findRollup(String accountId, String activityId, long day) {
+        return new Query(Criteria
+                .where("accountId").is(accountId)
+                .and("day").is(day)
+                .and("activityId").is(activityId)
+        );
+    }
+
+    private static String keyOf(DailyRollup rollup) {
+        return rollup.getActivityId() + '/' + rollup.getDay();
+    }
+}
@@ -0,0 +1,146 @@
+package com.pdereg.timelogger.repository;
+
+import com.pdereg.timelogger.domain.Log;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * {@link LogStore} that keeps every {@link Log} instance in a separate document, backed by {@link LogRepository}.
+ */
+@Component
+@Lazy
+public class DocumentLogStore implements LogStore {
+
+    private final LogRepository logRepository;
+
+    @Autowired
+    public DocumentLogStore(LogRepository logRepository) {
+        this.logRepository = logRepository;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LogLayout getLayout() {
+        return LogLayout.DOCUMENT;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Log save(Log log) {
+        return logRepository.save(log);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Log> save(List<Log> logs) {
+        return logRepository.save(logs);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Log> insert(List<Log> logs) {
+        return logRepository.insert(logs);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Log> findOne(String id) {
+        return Optional.ofNullable(logRepository.findOne(id));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Log> findOne(String id, String accountId, String activityId) {
+        return logRepository.findOneByIdAndAccountIdAndActivityId(id, accountId, activityId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Log> findAllByAccountId(String accountId) {
+        return logRepository.findAllByAccountId(accountId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Log> findAllByAccountIdAndActivityId(String accountId, String activityId) {
+        return logRepository.findAllByAccountIdAndActivityId(accountId, activityId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Stream<Log> streamAllByAccountId(String accountId, LogFilter filter, LogPosition position, int limit) {
+        return logRepository.streamAllByAccountId(accountId, filter, position, limit);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Stream<Log> streamAllOrderedByAccountId() {
+        return logRepository.streamAllOrderedByAccountId();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Stream<LogSummary> streamSummariesByAccountId(String accountId, LogFilter filter) {
+        return logRepository.streamSummariesByAccountId(accountId, filter);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Log> findAndRemove(String id, String accountId, String activityId) {
+        return logRepository.findAndRemove(id, accountId, activityId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeAll(List<Log> logs) {
+        logRepository.removeAll(logs.stream().map(Log::getId).collect(Collectors.toList()));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long removeOldestByAccountId(String accountId, long before, int limit) {
+        return logRepository.removeOldestByAccountId(accountId, before, limit);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<String> findAllAccountIds() {
+        return logRepository.findAllAccountIds();
+    }
+}
@@ -0,0 +1,274 @@
+package com.pdereg.timelogger.repository;
+
+import com.pdereg.timelogger.domain.EncodedLog;
+import com.pdereg.timelogger.domain.Log;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.data.util.StreamUtils;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * {@link LogStore} that keeps every {@link Log} instance in a separate {@link EncodedLog} document, with account and
+ * activity IDs replaced by codes from {@link LogDictionary}. Logs are encoded and decoded transparently, so callers
+ * only ever see account and activity IDs.
+ * <p>
+ * A query for an account or activity that has no code yet cannot match any log, so it is answered without reading
+ * logs.
+ */
+@Component
+@Lazy
+public class EncodedLogStore implements LogStore {
+
+    private final MongoOperations mongoOperations;
+    private final LogDictionary logDictionary;
+
+    @Autowired
+    public EncodedLogStore(MongoOperations mongoOperations, LogDictionary logDictionary) {
+        this.mongoOperations = mongoOperations;
+        this.logDictionary = logDictionary;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LogLayout getLayout() {
+        return LogLayout.ENCODED;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Log save(Log log) {
+        final EncodedLog encodedLog = encode(log);
+        mongoOperations.save(encodedLog);
+
+        return decode(encodedLog);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Log> save(List<Log> logs) {
+        return logs.stream().map(this::save).collect(Collectors.toList());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Log> insert(List<Log> logs) {
+        final List<EncodedLog> encodedLogs = logs.stream().map(this::encode).collect(Collectors.toList());
+        mongoOperations.insert(encodedLogs, EncodedLog.class);
+
+        return encodedLogs.stream().map(this::decode).collect(Collectors.toList());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Log> findOne(String id) {
+        return Optional.ofNullable(mongoOperations.findById(id, EncodedLog.class)).map(this::decode);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Log> findOne(String id, String accountId, String activityId) {
+        return toEntryQuery(id, accountId, activityId)
+                .map(query -> mongoOperations.findOne(query, EncodedLog.class))
+                .map(this::decode);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Log> findAllByAccountId(String accountId) {
+        try (Stream<Log> logs = streamAllByAccountId(accountId, new LogFilter(), null, Integer.MAX_VALUE)) {
+            return logs.collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Log> findAllByAccountIdAndActivityId(String accountId, String activityId) {
+        final LogFilter filter = new LogFilter();
+        filter.setActivityIds(Collections.singleton(activityId));
+
+        try (Stream<Log> logs = streamAllByAccountId(accountId, filter, null, Integer.MAX_VALUE)) {
+            return logs.collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Stream<Log> streamAllByAccountId(String accountId, LogFilter filter, LogPosition position, int limit) {
+        final Optional<Integer> accountCode = logDictionary.findCode(accountId);
+        final Optional<List<Integer>> activityCodes = findActivityCodes(filter);
+        if (!accountCode.isPresent() || !activityCodes.isPresent()) {
+            return Stream.empty();
+        }
+
+        final Query query = filter.toQuery(accountCode.get(), activityCodes.get(), position).limit(limit);
+        return stream(query);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Stream<Log> streamAllOrderedByAccountId() {
+        return stream(new Query().with(new Sort(Sort.Direction.ASC, "accountId", "startTime", "_id")));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Stream<LogSummary> streamSummariesByAccountId(String accountId, LogFilter filter) {
+        final Optional<Integer> accountCode = logDictionary.findCode(accountId);
+        final Optional<List<Integer>> activityCodes = findActivityCodes(filter);
+        if (!accountCode.isPresent() || !activityCodes.isPresent()) {
+            return Stream.empty();
+        }
+
+        final Criteria criteria = filter.toCriteria(accountCode.get(), activityCodes.get());
+        final Function<Object, String> activityIdDecoder = code -> logDictionary.decode(((Number) code).intValue());
+
+        // Summaries are sorted by activity codes, so they have to be sorted again once decoded
+        return LogSummaries
+                .aggregateEncoded(mongoOperations, EncodedLog.class, activityIdDecoder, Aggregation.match(criteria))
+                .sorted(Comparator.comparing(LogSummary::getActivityId));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Log> findAndRemove(String id, String accountId, String activityId) {
+        return toEntryQuery(id, accountId, activityId)
+                .map(query -> mongoOperations.findAndRemove(query, EncodedLog.class))
+                .map(this::decode);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeAll(List<Log> logs) {
+        final List<String> ids = logs.stream().map(Log::getId).collect(Collectors.toList());
+        mongoOperations.remove(new Query(Criteria.where("_id").in(ids)), EncodedLog.class);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long removeOldestByAccountId(String accountId, long before, int limit) {
+        return logDictionary.findCode(accountId)
+                .map(code -> LogRemovals.removeOldest(mongoOperations, EncodedLog.class, code, before, limit))
+                .orElse(0L);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<String> findAllAccountIds() {
+        final List<Number> accountCodes = mongoOperations
+                .getCollection(mongoOperations.getCollectionName(EncodedLog.class))
+                .distinct("accountId");
+
+        return accountCodes.stream()
+                .map(code -> logDictionary.decode(code.intValue()))
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return Metrics of {@link LogDictionary}
+     */
+    @Override
+    public Collection<Metric<?>> metrics() {
+        return logDictionary.metrics();
+    }
+
+    private Stream<Log> stream(Query query) {
+        final CloseableIterator<EncodedLog> iterator = mongoOperations.stream(query, EncodedLog.class);
+        return StreamUtils.createStreamFromIterator(iterator).map(this::decode);
+    }
+
+    private Optional<Query> toEntryQuery(String id, String accountId, String activityId) {
+        final Optional<Integer> accountCode = logDictionary.findCode(accountId);
+        final Optional<Integer> activityCode = logDictionary.findCode(activityId);
+        if (!accountCode.isPresent() || !activityCode.isPresent()) {
+            return Optional.empty();
+        }
+
+        return Optional.of(new Query(Criteria
+                .where("_id").is(id)
+                .and("accountId").is(accountCode.get())
+                .and("activityId").is(activityCode.get())
+        ));
+    }
+
+    private Optional<List<Integer>> findActivityCodes(LogFilter filter) {
+        final Collection<String> activityIds = filter.getActivityIds();
+        if (activityIds == null || activityIds.isEmpty()) {
+            return Optional.of(Collections.emptyList());
+        }
+
+        // None of the requested activities has any logs if none of them has a code
+        final List<Integer> activityCodes = logDictionary.findCodes(activityIds);
+        return activityCodes.isEmpty() ? Optional.empty() : Optional.of(activityCodes);
+    }
+
+    private EncodedLog encode(Log log) {
+        final String id = log.getId() != null ? log.getId() : new ObjectId().toHexString();
+
+        return new EncodedLog(
+                id,
+                logDictionary.encode(log.getAccountId()),
+                logDictionary.encode(log.getActivityId()),
+                log.getStartTime(),
+                log.getDuration()
+        );
+    }
+
+    private Log decode(EncodedLog encodedLog) {
+        return new Log(
+                encodedLog.getId(),
+                logDictionary.decode(encodedLog.getAccountId()),
+                logDictionary.decode(encodedLog.getActivityId()),
+                encodedLog.getStartTime(),
+                encodedLog.getDuration()
+        );
+    }
+}
@@ -0,0 +1,386 @@
+package com.pdereg.timelogger.repository;
+
+import com.pdereg.timelogger.domain.Log;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Cold storage of {@link Log} instances in {@link LogSegment} files on local disk, one directory per account. Each
+ * segment holds logs of a single account from a single calendar month (in UTC), and a month may have several segments
+ * if it was archived more than once.
+ * <p>
+ * Headers of all segments are read on startup, so that segments that cannot contain requested logs are skipped
+ * without being read. Segments are never modified, so archived logs are read-only.
+ * <p>
+ * The archive is disabled unless a directory is configured with {@code time-logger.log-archive.directory}.
+ */
+@Component
+public class LogArchive implements PublicMetrics, InitializingBean {
+
+    private static final String PROPERTY_PREFIX = "time-logger.log-archive.";
+    private static final String METRIC_PREFIX = "log-archive.";
+    private static final String SEGMENT_EXTENSION = ".seg";
+
+    private final Path directory;
+
+    private final Map<String, NavigableMap<Long, List<LogSegment>>> segments = new HashMap<>();
+
+    private final AtomicLong readCount = new AtomicLong();
+
+    @Autowired
+    public LogArchive(Environment environment) {
+        this(getDirectory(environment.getProperty(PROPERTY_PREFIX + "directory")));
+    }
+
+    public LogArchive(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        load();
+    }
+
+    /**
+     * @return {@code true} if a directory is configured and logs can be archived
+     */
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    /**
+     * Reads headers of all segments in the archive directory, replacing those read before. Leftovers of segments
+     * that were not completely written are deleted.
+     *
+     * @throws IOException If the directory could not be read
+     */
+    public synchronized void load() throws IOException {
+        segments.clear();
+
+        if (!isEnabled()) {
+            return;
+        }
+
+        Files.createDirectories(directory);
+
+        try (Stream<Path> paths = Files.walk(directory, 2)) {
+            for (Path path : paths.filter(Files::isRegularFile).collect(Collectors.toList())) {
+                final String fileName = path.getFileName().toString();
+
+                if (fileName.endsWith(SEGMENT_EXTENSION)) {
+                    register(LogSegment.open(path));
+                } else if (fileName.endsWith(SEGMENT_EXTENSION + ".tmp")) {
+                    Files.delete(path);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes provided {@code logs} to a new segment. All logs must belong to the same account and month.
+     *
+     * @param accountId ID of the user account associated with the logs
+     * @param logs      {@link Log} instances to archive
+     * @return Written {@link LogSegment} instance
+     * @throws IOException If the segment could not be written
+     */
+    public synchronized LogSegment write(String accountId, List<Log> logs) throws IOException {
+        final long month = monthOf(logs.get(0).getStartTime());
+        final Path accountDirectory = directory.resolve(URLEncoder.encode(accountId, "UTF-8").replace(".", "%2E"));
+        final String monthName = YearMonth.from(Instant.ofEpochMilli(month).atZone(ZoneOffset.UTC)).toString();
+
+        Files.createDirectories(accountDirectory);
+
+        // Segments of the month may have been deleted once they expired, so earlier names may be taken or free
+        int index = findSegments(accountId).getOrDefault(month, new ArrayList<>()).size();
+        while (Files.exists(accountDirectory.resolve(monthName + "-" + index + SEGMENT_EXTENSION))) {
+            ++index;
+        }
+
+        final LogSegment segment = LogSegment.write(
+                accountDirectory.resolve(monthName + "-" + index + SEGMENT_EXTENSION), accountId, logs
+        );
+        register(segment);
+
+        return segment;
+    }
+
+    /**
+     * Deletes all segments of an account with provided {@code accountId} that hold only logs that started before
+     * provided {@code before}.
+     *
+     * @param accountId ID of the user account
+     * @param before    Upper bound (exclusive) of log's start time (as UNIX timestamp in milliseconds)
+     * @return Number of deleted logs
+     * @throws IOException If a segment could not be deleted
+     */
+    public synchronized long removeBefore(String accountId, long before) throws IOException {
+        final NavigableMap<Long, List<LogSegment>> accountSegments = segments.get(accountId);
+        if (accountSegments == null) {
+            return 0L;
+        }
+
+        long logCount = 0L;
+
+        for (List<LogSegment> monthSegments : accountSegments.headMap(before, false).values()) {
+            final Iterator<LogSegment> iterator = monthSegments.iterator();
+
+            while (iterator.hasNext()) {
+                final LogSegment segment = iterator.next();
+                if (segment.getLastStartTime() < before) {
+                    Files.deleteIfExists(segment.getPath());
+                    iterator.remove();
+                    logCount += segment.getLogCount();
+                }
+            }
+        }
+
+        accountSegments.values().removeIf(List::isEmpty);
+        if (accountSegments.isEmpty()) {
+            segments.remove(accountId);
+        }
+
+        return logCount;
+    }
+
+    /**
+     * Returns the end of the latest month archived for an account with provided {@code accountId}. Logs that started
+     * later are never archived.
+     *
+     * @param accountId ID of the user account
+     * @return Start of the month that follows the latest archived month (as UNIX timestamp in milliseconds), or
+     * {@link Long#MIN_VALUE} if no logs of the account are archived
+     */
+    public synchronized long getArchivedUntil(String accountId) {
+        final NavigableMap<Long, List<LogSegment>> accountSegments = segments.get(accountId);
+        if (accountSegments == null) {
+            return Long.MIN_VALUE;
+        }
+
+        return nextMonthOf(accountSegments.lastKey());
+    }
+
+    /**
+     * @return IDs of all accounts with archived logs
+     */
+    public synchronized Set<String> getAccountIds() {
+        return new HashSet<>(segments.keySet());
+    }
+
+    /**
+     * Reads archived {@link Log} instances with given {@code accountId} that match provided {@code filter} and follow
+     * provided {@code position}. Segments are read lazily, one month at a time.
+     *
+     * @param accountId ID of the user account associated with logs to return
+     * @param filter    Additional criteria that logs must match
+     * @param position  Position after which to start, or {@code null} to start from the first log
+     * @return A lazily populated stream of {@link Log} instances, sorted by their start time and ID
+     */
+    public Stream<Log> stream(String accountId, LogFilter filter, LogPosition position) {
+        final Long from = position != null && (filter.getFrom() == null || filter.getFrom() < position.getStartTime())
+                ? (Long) position.getStartTime()
+                : filter.getFrom();
+        final Predicate<Log> afterPosition = position == null ? log -> true : position.toPredicate();
+
+        final List<List<LogSegment>> months = findSegments(accountId).values().stream()
+                .map(monthSegments -> monthSegments.stream()
+                        .filter(segment -> segment.overlaps(from, filter.getTo()))
+                        .collect(Collectors.toList()))
+                .filter(monthSegments -> !monthSegments.isEmpty())
+                .collect(Collectors.toList());
+
+        return months.stream()
+                .flatMap(monthSegments -> readAll(monthSegments).stream())
+                .filter(filter::matches)
+                .filter(afterPosition);
+    }
+
+    /**
+     * Finds an archived {@link Log} instance with given {@code id}. Only segments whose ID range covers {@code id} are
+     * read, in every account.
+     *
+     * @param id ID of the log to return
+     * @return An optional {@link Log} instance
+     */
+    public Optional<Log> findOne(String id) {
+        if (!ObjectId.isValid(id)) {
+            return Optional.empty();
+        }
+
+        for (String accountId : getAccountIds()) {
+            final Optional<Log> log = findOne(id, accountId);
+            if (log.isPresent()) {
+                return log;
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    /**
+     * Finds an archived {@link Log} instance with given {@code id} and {@code accountId}. Only segments of the account
+     * whose ID range covers {@code id} are read, which is usually a single one, since IDs grow with creation time.
+     *
+     * @param id        ID of the log to return
+     * @param accountId ID of the user account associated with the log
+     * @return An optional {@link Log} instance
+     */
+    public Optional<Log> findOne(String id, String accountId) {
+        if (!ObjectId.isValid(id)) {
+            return Optional.empty();
+        }
+
+        final ObjectId objectId = new ObjectId(id);
+
+        for (List<LogSegment> monthSegments : findSegments(accountId).values()) {
+            final List<LogSegment> candidates = monthSegments.stream()
+                    .filter(segment -> segment.mayContain(objectId))
+                    .collect(Collectors.toList());
+
+            if (candidates.isEmpty()) {
+                continue;
+            }
+
+            final Optional<Log> log = readAll(candidates).stream()
+                    .filter(archivedLog -> archivedLog.getId().equals(id))
+                    .findFirst();
+
+            if (log.isPresent()) {
+                return log;
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<Metric<?>> metrics() {
+        final List<Metric<?>> metrics = new ArrayList<>();
+        long segmentCount = 0L;
+        long logCount = 0L;
+
+        synchronized (this) {
+            for (NavigableMap<Long, List<LogSegment>> accountSegments : segments.values()) {
+                for (List<LogSegment> monthSegments : accountSegments.values()) {
+                    segmentCount += monthSegments.size();
+                    logCount += monthSegments.stream().mapToLong(LogSegment::getLogCount).sum();
+                }
+            }
+        }
+
+        metrics.add(new Metric<>(METRIC_PREFIX + "segments", segmentCount));
+        metrics.add(new Metric<>(METRIC_PREFIX + "logs", logCount));
+        metrics.add(new Metric<>(METRIC_PREFIX + "reads", readCount.get()));
+
+        return metrics;
+    }
+
+    /**
+     * @return Number of segments read since startup
+     */
+    public long getReadCount() {
+        return readCount.get();
+    }
+
+    /**
+     * Returns the start of the month (in UTC) that contains provided {@code timestamp}.
+     *
+     * @param timestamp UNIX timestamp in milliseconds
+     * @return Start of the month (as UNIX timestamp in milliseconds)
+     */
+    public static long monthOf(long timestamp) {
+        return YearMonth.from(Instant.ofEpochMilli(timestamp).atZone(ZoneOffset.UTC))
+                .atDay(1)
+                .atStartOfDay(ZoneOffset.UTC)
+                .toInstant()
+                .toEpochMilli();
+    }
+
+    private static long nextMonthOf(long month) {
+        return Instant.ofEpochMilli(month).atZone(ZoneOffset.UTC).plusMonths(1).toInstant().toEpochMilli();
+    }
+
+    private synchronized NavigableMap<Long, List<LogSegment>> findSegments(String accountId) {
+        final NavigableMap<Long, List<LogSegment>> accountSegments = segments.get(accountId);
+        if (accountSegments == null) {
+            return new TreeMap<>();
+        }
+
+        // Copies the lists, so that they can be read without holding the lock
+        final NavigableMap<Long, List<LogSegment>> copy = new TreeMap<>();
+        accountSegments.forEach((month, monthSegments) -> copy.put(month, new ArrayList<>(monthSegments)));
+
+        return copy;
+    }
+
+    private synchronized void register(LogSegment segment) {
+        segments
+                .computeIfAbsent(segment.getAccountId(), accountId -> new TreeMap<>())
+                .computeIfAbsent(monthOf(segment.getFirstStartTime()), month -> new ArrayList<>())
+                .add(segment);
+    }
+
+    private List<Log> readAll(List<LogSegment> monthSegments) {
+        final List<Log> logs = new ArrayList<>();
+
+        for (LogSegment segment : monthSegments) {
+            try {
+                logs.addAll(segment.readAll());
+                readCount.incrementAndGet();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        if (monthSegments.size() == 1) {
+            return logs;
+        }
+
+        // Segments of the same month may overlap, and a log archived again after a failed removal is kept only once
+        final Set<String> ids = new HashSet<>();
+        return logs.stream()
+                .sorted(LogPosition.ORDER)
+                .filter(log -> ids.add(log.getId()))
+                .collect(Collectors.toList());
+    }
+
+    private static Path getDirectory(String directory) {
+        return directory == null || directory.isEmpty() ? null : Paths.get(directory);
+    }
+}
@@ -0,0 +1,223 @@
+package com.pdereg.timelogger.repository;
+
+import com.pdereg.timelogger.domain.DictionaryEntry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.core.env.Environment;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Assigns compact integer codes to strings, such as account and activity IDs, and translates between the two. Codes
+ * are stored as {@link DictionaryEntry} documents, assigned on first use and never changed, so both directions are
+ * cached in memory without expiry.
+ * <p>
+ * Size of each cache can be limited with {@code time-logger.log-dictionary.max-size}.
+ */
+@Component
+@Lazy
+public class LogDictionary {
+
+    private static final String PROPERTY_PREFIX = "time-logger.log-dictionary.";
+    private static final String METRIC_PREFIX = "caches.log-dictionary.";
+
+    private static final int DEFAULT_MAX_SIZE = 100000;
+
+    private final MongoOperations mongoOperations;
+    private final Map<String, Integer> codes;
+    private final Map<Integer, String> values;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    @Autowired
+    public LogDictionary(MongoOperations mongoOperations, Environment environment) {
+        this(mongoOperations, environment.getProperty(PROPERTY_PREFIX + "max-size", Integer.class, DEFAULT_MAX_SIZE));
+    }
+
+    public LogDictionary(MongoOperations mongoOperations, int maxSize) {
+        this.mongoOperations = mongoOperations;
+        this.codes = createCache(maxSize);
+        this.values = createCache(maxSize);
+    }
+
+    /**
+     * Returns the code of provided {@code value}, assigning a new one if the value has none yet.
+     *
+     * @param value String to encode
+     * @return Code of {@code value}
+     */
+    public int encode(String value) {
+        final Optional<Integer> existingCode = findCode(value);
+        if (existingCode.isPresent()) {
+            return existingCode.get();
+        }
+
+        while (true) {
+            final int code = getNextCode();
+
+            try {
+                mongoOperations.insert(new DictionaryEntry(code, value));
+                cache(code, value);
+                return code;
+            } catch (DuplicateKeyException e) {
+                // Either the value or the code has just been taken concurrently, so the value is looked up again
+                final Optional<Integer> concurrentCode = findCode(value);
+                if (concurrentCode.isPresent()) {
+                    return concurrentCode.get();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the code of provided {@code value}, without assigning a new one. Meant for queries, where a value
+     * without a code cannot match anything.
+     *
+     * @param value String to encode
+     * @return Code of {@code value}, or an empty {@link Optional} if the value has no code
+     */
+    public Optional<Integer> findCode(String value) {
+        synchronized (codes) {
+            final Integer code = codes.get(value);
+            if (code != null) {
+                hitCount.incrementAndGet();
+                return Optional.of(code);
+            }
+        }
+
+        missCount.incrementAndGet();
+
+        final Query query = new Query(Criteria.where("value").is(value));
+        final DictionaryEntry entry = mongoOperations.findOne(query, DictionaryEntry.class);
+        if (entry == null) {
+            return Optional.empty();
+        }
+
+        cache(entry.getCode(), value);
+        return Optional.of(entry.getCode());
+    }
+
+    /**
+     * Returns codes of those of provided {@code values} that have one, without assigning new ones.
+     *
+     * @param values Strings to encode
+     * @return A list of codes
+     */
+    public List<Integer> findCodes(Collection<String> values) {
+        final List<Integer> foundCodes = new ArrayList<>(values.size());
+        values.forEach(value -> findCode(value).ifPresent(foundCodes::add));
+
+        return foundCodes;
+    }
+
+    /**
+     * Returns the value with provided {@code code}.
+     *
+     * @param code Code assigned with {@link LogDictionary#encode(String)}
+     * @return Decoded string
+     * @throws IllegalStateException If no value has provided {@code code}
+     */
+    public String decode(int code) {
+        synchronized (values) {
+            final String value = values.get(code);
+            if (value != null) {
+                hitCount.incrementAndGet();
+                return value;
+            }
+        }
+
+        missCount.incrementAndGet();
+
+        final DictionaryEntry entry = mongoOperations.findById(code, DictionaryEntry.class);
+        if (entry == null) {
+            throw new IllegalStateException("Unknown dictionary code: " + code);
+        }
+
+        cache(code, entry.getValue());
+        return entry.getValue();
+    }
+
+    /**
+     * Removes all entries from the in-memory caches. Stored codes are not affected.
+     */
+    public void invalidateAll() {
+        synchronized (codes) {
+            codes.clear();
+        }
+        synchronized (values) {
+            values.clear();
+        }
+    }
+
+    /**
+     * @return Sizes of both caches, and numbers of translations served from memory and from the database
+     */
+    public Collection<Metric<?>> metrics() {
+        final List<Metric<?>> metrics = new ArrayList<>();
+
+        synchronized (codes) {
+            metrics.add(new Metric<>(METRIC_PREFIX + "codes.size", codes.size()));
+        }
+        synchronized (values) {
+            metrics.add(new Metric<>(METRIC_PREFIX + "values.size", values.size()));
+        }
+        metrics.add(new Metric<>(METRIC_PREFIX + "hits", hitCount.get()));
+        metrics.add(new Metric<>(METRIC_PREFIX + "misses", missCount.get()));
+
+        return metrics;
+    }
+
+    /**
+     * @return Number of translations served from memory
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * @return Number of translations that had to read the database
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    private int getNextCode() {
+        final Query query = new Query().with(new Sort(Sort.Direction.DESC, "_id")).limit(1);
+        final DictionaryEntry lastEntry = mongoOperations.findOne(query, DictionaryEntry.class);
+
+        return lastEntry != null ? lastEntry.getCode() + 1 : 1;
+    }
+
+    private void cache(int code, String value) {
+        synchronized (codes) {
+            codes.put(value, code);
+        }
+        synchronized (values) {
+            values.put(code, value);
+        }
+    }
+
+    private static <K, V> Map<K, V> createCache(int maxSize) {
+        return new LinkedHashMap<K, V>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+}
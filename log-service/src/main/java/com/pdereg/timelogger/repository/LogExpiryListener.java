@@ -0,0 +1,74 @@
+package com.pdereg.timelogger.repository;
+
+import com.pdereg.timelogger.domain.Log;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.BeforeSaveEvent;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+
+/**
+ * Lets the database expire {@link Log} instances when {@link LogRetentionPolicy} is in {@code ttl} mode. Every saved
+ * log gets an {@code expireAt} date, and a TTL index on that field deletes the log once the date has passed.
+ * <p>
+ * Only logs saved while the mode is enabled get the date, and changes to the retention age apply only to logs saved
+ * afterwards. Logs kept in other layouts or archived in {@link LogArchive} are not expired, so the mode can only be
+ * used with the {@code document} layout.
+ */
+@Component
+public class LogExpiryListener extends AbstractMongoEventListener<Log> implements InitializingBean {
+
+    public static final String EXPIRE_AT_FIELD = "expireAt";
+    public static final String EXPIRE_AT_INDEX = "expire_at_index";
+
+    private final MongoOperations mongoOperations;
+    private final LogRetentionPolicy logRetentionPolicy;
+    private final LogStoreRegistry logStoreRegistry;
+
+    @Autowired
+    public LogExpiryListener(MongoOperations mongoOperations, LogRetentionPolicy logRetentionPolicy,
+                             LogStoreRegistry logStoreRegistry) {
+
+        this.mongoOperations = mongoOperations;
+        this.logRetentionPolicy = logRetentionPolicy;
+        this.logStoreRegistry = logStoreRegistry;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void afterPropertiesSet() {
+        if (logRetentionPolicy.getMode() != LogRetentionPolicy.Mode.TTL) {
+            return;
+        }
+
+        if (logStoreRegistry.getActive().getLayout() != LogLayout.DOCUMENT) {
+            throw new IllegalStateException("Log retention with a TTL index requires the document layout");
+        }
+
+        mongoOperations.indexOps(Log.class).ensureIndex(new Index()
+                .on(EXPIRE_AT_FIELD, Sort.Direction.ASC)
+                .expire(0L)
+                .named(EXPIRE_AT_INDEX)
+        );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onBeforeSave(BeforeSaveEvent<Log> event) {
+        if (logRetentionPolicy.getMode() != LogRetentionPolicy.Mode.TTL) {
+            return;
+        }
+
+        logRetentionPolicy.getExpiryTime(event.getSource())
+                .ifPresent(expiryTime -> event.getDBObject().put(EXPIRE_AT_FIELD, new Date(expiryTime)));
+    }
+}
@@ -0,0 +1,223 @@
+package com.pdereg.timelogger.repository;
+
+import com.pdereg.timelogger.domain.Log;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import javax.validation.constraints.Min;
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Optional criteria for narrowing down a list of {@link Log} instances. Each criterion that is not set matches all
+ * logs.
+ */
+public class LogFilter {
+
+    @Min(Log.MIN_START_TIME)
+    private Long from;
+
+    @Min(Log.MIN_START_TIME)
+    private Long to;
+
+    private Set<String> activityIds;
+
+    @Min(Log.MIN_DURATION)
+    private Long minDuration;
+
+    @Min(Log.MIN_DURATION)
+    private Long maxDuration;
+
+    /**
+     * @return Lower bound (inclusive) of log's start time (as UNIX timestamp in milliseconds)
+     */
+    public Long getFrom() {
+        return from;
+    }
+
+    public void setFrom(Long from) {
+        this.from = from;
+    }
+
+    /**
+     * @return Upper bound (exclusive) of log's start time (as UNIX timestamp in milliseconds)
+     */
+    public Long getTo() {
+        return to;
+    }
+
+    public void setTo(Long to) {
+        this.to = to;
+    }
+
+    /**
+     * @return IDs of activities of which logs should be included
+     */
+    public Set<String> getActivityIds() {
+        return activityIds;
+    }
+
+    public void setActivityIds(Set<String> activityIds) {
+        this.activityIds = activityIds;
+    }
+
+    /**
+     * @return Lower bound (inclusive) of log's duration (in milliseconds)
+     */
+    public Long getMinDuration() {
+        return minDuration;
+    }
+
+    public void setMinDuration(Long minDuration) {
+        this.minDuration = minDuration;
+    }
+
+    /**
+     * @return Upper bound (inclusive) of log's duration (in milliseconds)
+     */
+    public Long getMaxDuration() {
+        return maxDuration;
+    }
+
+    public void setMaxDuration(Long maxDuration) {
+        this.maxDuration = maxDuration;
+    }
+
+    /**
+     * Creates a query for logs of an account with provided {@code accountId} that match this filter. Logs are sorted by
+     * their start time and ID, so that the query can be served by the {@code (accountId, startTime, _id)} index.
+     *
+     * @param accountId ID of the user account associated with the logs
+     * @return {@link Query} instance
+     */
+    public Query toQuery(String accountId) {
+        return toQuery(accountId, null);
+    }
+
+    /**
+     * Creates a query for logs of an account with provided {@code accountId} that match this filter and follow
+     * provided {@code position}. Instead of skipping preceding logs, the query seeks straight to {@code position} in
+     * the index, so its cost does not depend on how many logs precede it.
+     *
+     * @param accountId ID of the user account associated with the logs
+     * @param position  Position after which to start, or {@code null} to start from the first log
+     * @return {@link Query} instance
+     */
+    public Query toQuery(String accountId, LogPosition position) {
+        return toQuery(accountId, activityIds, position);
+    }
+
+    /**
+     * Creates a query like {@link LogFilter#toQuery(String, LogPosition)}, for logs that store other values (e.g.
+     * dictionary codes) in place of their account and activity IDs.
+     *
+     * @param accountId   Stored value of the account ID
+     * @param activityIds Stored values of IDs of activities of which logs should be included, or {@code null} to
+     *                    include all activities
+     * @param position    Position after which to start, or {@code null} to start from the first log
+     * @return {@link Query} instance
+     */
+    public Query toQuery(Object accountId, Collection<?> activityIds, LogPosition position) {
+        final Criteria criteria = toCriteria(accountId, activityIds);
+
+        if (position != null) {
+            criteria.orOperator(
+                    Criteria.where("startTime").gt(position.getStartTime()),
+                    Criteria.where("startTime").is(position.getStartTime())
+                            .and("_id").gt(new ObjectId(position.getId()))
+            );
+        }
+
+        return new Query(criteria).with(new Sort(Sort.Direction.ASC, "startTime", "_id"));
+    }
+
+    /**
+     * Creates criteria matching logs of an account with provided {@code accountId} that match this filter. The
+     * criteria always start with an equality on {@code accountId}, followed by a range on {@code startTime}, so that
+     * they can be served by the {@code (accountId, startTime)} index.
+     *
+     * @param accountId ID of the user account associated with the logs
+     * @return {@link Criteria} instance
+     */
+    public Criteria toCriteria(String accountId) {
+        return toCriteria(accountId, activityIds);
+    }
+
+    /**
+     * Creates criteria like {@link LogFilter#toCriteria(String)}, for logs that store other values (e.g. dictionary
+     * codes) in place of their account and activity IDs.
+     *
+     * @param accountId   Stored value of the account ID
+     * @param activityIds Stored values of IDs of activities of which logs should be included, or {@code null} to
+     *                    include all activities
+     * @return {@link Criteria} instance
+     */
+    public Criteria toCriteria(Object accountId, Collection<?> activityIds) {
+        final Criteria criteria = Criteria.where("accountId").is(accountId);
+
+        if (from != null || to != null) {
+            final Criteria startTime = criteria.and("startTime");
+
+            if (from != null) {
+                startTime.gte(from);
+            }
+            if (to != null) {
+                startTime.lt(to);
+            }
+        }
+
+        if (activityIds != null && !activityIds.isEmpty()) {
+            criteria.and("activityId").in(activityIds);
+        }
+
+        if (minDuration != null || maxDuration != null) {
+            final Criteria duration = criteria.and("duration");
+
+            if (minDuration != null) {
+                duration.gte(minDuration);
+            }
+            if (maxDuration != null) {
+                duration.lte(maxDuration);
+            }
+        }
+
+        return criteria;
+    }
+
+    /**
+     * Creates a copy of this filter with the start time range narrowed down to provided bounds.
+     *
+     * @param from Lower bound (inclusive) of log's start time, or {@code null} to keep the current bound
+     * @param to   Upper bound (exclusive) of log's start time, or {@code null} to keep the current bound
+     * @return {@link LogFilter} instance
+     */
+    LogFilter narrow(Long from, Long to) {
+        final LogFilter filter = new LogFilter();
+        filter.from = this.from == null || from != null && from > this.from ? from : this.from;
+        filter.to = this.to == null || to != null && to < this.to ? to : this.to;
+        filter.activityIds = activityIds;
+        filter.minDuration = minDuration;
+        filter.maxDuration = maxDuration;
+
+        return filter;
+    }
+
+    /**
+     * Checks whether provided {@code log} matches this filter. Meant for logs that cannot be filtered by the database.
+     *
+     * @param log {@link Log} instance
+     * @return {@code true} if {@code log} matches all criteria of this filter
+     */
+    public boolean matches(Log log) {
+        final long startTime = log.getStartTime();
+        final long duration = log.getDuration();
+
+        return (from == null || startTime >= from)
+                && (to == null || startTime < to)
+                && (activityIds == null || activityIds.isEmpty() || activityIds.contains(log.getActivityId()))
+                && (minDuration == null || duration >= minDuration)
+                && (maxDuration == null || duration <= maxDuration);
+    }
+}
@@ -0,0 +1,39 @@
+package com.pdereg.timelogger.repository;
+
+import com.pdereg.timelogger.domain.Log;
+import com.pdereg.timelogger.domain.LogBucket;
+
+/**
+ * Ways in which {@link Log} instances can be laid out in storage.
+ */
+public enum LogLayout {
+
+    /**
+     * Every log is a separate document, indexed by its account, activity and start time.
+     */
+    DOCUMENT,
+
+    /**
+     * Logs of an account that started on the same UTC day are entries of a single {@link LogBucket} document, so
+     * that only buckets are indexed.
+     */
+    BUCKETED,
+
+    /**
+     * Every log is a separate document, like in {@link LogLayout#DOCUMENT}, but account and activity IDs are replaced
+     * with dictionary codes, both in documents and in indexes.
+     */
+    ENCODED,
+
+    /**
+     * Logs are kept outside of the database, as fixed-width records in memory-mapped files on local disk (see
+     * {@link MappedLogStore}).
+     */
+    MAPPED,
+
+    /**
+     * Logs are laid out like in {@link LogLayout#DOCUMENT}, but spread over several MongoDB hosts by their account ID
+     * (see {@link ShardedLogStore}).
+     */
+    SHARDED
+}
@@ -0,0 +1,95 @@
+package com.pdereg.timelogger.repository;
+
+import com.pdereg.timelogger.domain.Log;
+import com.pdereg.timelogger.pagination.ContinuationToken;
+import com.pdereg.timelogger.pagination.InvalidContinuationTokenException;
+import org.bson.types.ObjectId;
+
+import java.util.Comparator;
+import java.util.function.Predicate;
+
+/**
+ * Position of a {@link Log} instance in a list sorted by start time. Logs that start at the same time are ordered by
+ * their IDs, so that every position is unique.
+ */
+public class LogPosition {
+
+    /**
+     * Order of logs by their positions.
+     */
+    public static final Comparator<Log> ORDER = Comparator
+            .comparingLong(Log::getStartTime)
+            .thenComparing(Log::getId);
+
+    private final long startTime;
+    private final String id;
+
+    public LogPosition(long startTime, String id) {
+        this.startTime = startTime;
+        this.id = id;
+    }
+
+    /**
+     * Returns position of provided {@code log}.
+     *
+     * @param log {@link Log} instance
+     * @return {@link LogPosition} instance
+     */
+    public static LogPosition of(Log log) {
+        return new LogPosition(log.getStartTime(), log.getId());
+    }
+
+    /**
+     * Decodes a position from provided continuation {@code token}.
+     *
+     * @param token Continuation token created with {@link LogPosition#toToken()}
+     * @return {@link LogPosition} instance
+     * @throws InvalidContinuationTokenException If provided {@code token} is malformed
+     */
+    public static LogPosition fromToken(String token) {
+        final String[] values = ContinuationToken.decode(token, 2);
+        if (!ObjectId.isValid(values[1])) {
+            throw new InvalidContinuationTokenException();
+        }
+
+        try {
+            return new LogPosition(Long.parseLong(values[0]), values[1]);
+        } catch (NumberFormatException e) {
+            throw new InvalidContinuationTokenException();
+        }
+    }
+
+    /**
+     * Creates a predicate matching logs that follow this position. Meant for logs that cannot be filtered by the
+     * database.
+     *
+     * @return {@link Predicate} instance
+     */
+    public Predicate<Log> toPredicate() {
+        final String positionId = new ObjectId(id).toHexString();
+
+        return log -> log.getStartTime() > startTime
+                || log.getStartTime() == startTime && log.getId().compareTo(positionId) > 0;
+    }
+
+    /**
+     * @return Continuation token for fetching logs that follow this position
+     */
+    public String toToken() {
+        return ContinuationToken.encode(String.valueOf(startTime), id);
+    }
+
+    /**
+     * @return Start time of the log (as UNIX timestamp in milliseconds)
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * @return ID of the log
+     */
+    public String getId() {
+        return id;
+    }
+}
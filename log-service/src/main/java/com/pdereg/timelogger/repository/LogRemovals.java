@@ -0,0 +1,51 @@
+package com.pdereg.timelogger.repository;
+
+import com.mongodb.DBObject;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+/**
+ * Deletes the oldest logs of an account with range deletes, regardless of how account IDs are stored.
+ */
+final class LogRemovals {
+
+    private LogRemovals() {
+    }
+
+    /**
+     * Deletes the oldest logs of an account that started before provided {@code before}, with a single delete of a
+     * start time range. The range ends at the start time of the {@code limit}-th oldest log, so it can be served by
+     * the {@code (accountId, startTime)} index. Logs that start at the same time as that log are deleted as well, so
+     * slightly more than {@code limit} logs may be deleted.
+     *
+     * @param mongoOperations {@link MongoOperations} instance
+     * @param entityClass     Class of documents that hold logs, with {@code accountId} and {@code startTime} fields
+     * @param accountId       Stored value of the account ID
+     * @param before          Upper bound (exclusive) of log's start time (as UNIX timestamp in milliseconds)
+     * @param limit           Number of logs to delete
+     * @return Number of deleted logs
+     */
+    static long removeOldest(MongoOperations mongoOperations, Class<?> entityClass, Object accountId, long before,
+                             int limit) {
+
+        final Query boundaryQuery = new Query(Criteria.where("accountId").is(accountId).and("startTime").lt(before))
+                .with(new Sort(Sort.Direction.ASC, "startTime"))
+                .skip(limit - 1)
+                .limit(1);
+        boundaryQuery.fields().include("startTime");
+
+        final String collectionName = mongoOperations.getCollectionName(entityClass);
+        final DBObject boundary = mongoOperations.findOne(boundaryQuery, DBObject.class, collectionName);
+
+        final Criteria startTime = Criteria.where("accountId").is(accountId).and("startTime");
+        if (boundary == null) {
+            startTime.lt(before);
+        } else {
+            startTime.lte(((Number) boundary.get("startTime")).longValue());
+        }
+
+        return mongoOperations.remove(new Query(startTime), collectionName).getN();
+    }
+}
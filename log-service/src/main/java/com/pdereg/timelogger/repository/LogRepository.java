@@ -5,12 +5,13 @@ import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Provides a communication interface to MongoDB for {@link Log} domain objects.
  */
 @Repository
-public interface LogRepository extends MongoRepository<Log, String> {
+public interface LogRepository extends MongoRepository<Log, String>, LogRepositoryCustom {
 
     /**
      * Finds and returns all {@link Log} instances with given {@code accountId}.
@@ -28,4 +29,15 @@ public interface LogRepository extends MongoRepository<Log, String> {
      * @return A list of {@link Log} instances
      */
     List<Log> findAllByAccountIdAndActivityId(String accountId, String activityId);
+
+    /**
+     * Finds and returns a {@link Log} instance with given {@code id}, {@code accountId} and {@code activityId}. The
+     * query is served by the {@code _id} index, so its cost does not depend on the number of logs.
+     *
+     * @param id         ID of the log to return
+     * @param accountId  ID of the user account associated with the log
+     * @param activityId ID of the activity associated with the log
+     * @return An optional {@link Log} instance
+     */
+    Optional<Log> findOneByIdAndAccountIdAndActivityId(String id, String accountId, String activityId);
 }
@@ -0,0 +1,80 @@
+package com.pdereg.timelogger.repository;
+
+import com.pdereg.timelogger.domain.Log;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * {@link Log} queries that cannot be derived from repository method names.
+ */
+public interface LogRepositoryCustom {
+
+    /**
+     * Opens a cursor over {@link Log} instances with given {@code accountId} that match provided {@code filter} and
+     * follow provided {@code position}. Logs are sorted by their start time and fetched lazily in batches, so the
+     * returned stream must be closed once consumed.
+     *
+     * @param accountId ID of the user account associated with logs to return
+     * @param filter    Additional criteria that logs must match
+     * @param position  Position after which to start, or {@code null} to start from the first log
+     * @param limit     Maximum number of logs to return
+     * @return A lazily populated stream of {@link Log} instances
+     */
+    Stream<Log> streamAllByAccountId(String accountId, LogFilter filter, LogPosition position, int limit);
+
+    /**
+     * Opens a cursor over all {@link Log} instances, grouped by their account ID and sorted by their start time within
+     * each account. The returned stream must be closed once consumed.
+     *
+     * @return A lazily populated stream of all {@link Log} instances
+     */
+    Stream<Log> streamAllOrderedByAccountId();
+
+    /**
+     * Atomically finds and deletes a {@link Log} instance with given {@code id}, {@code accountId} and
+     * {@code activityId}.
+     *
+     * @param id         ID of the log to delete
+     * @param accountId  ID of the user account associated with the log
+     * @param activityId ID of the activity associated with the log
+     * @return Deleted {@link Log} instance, or an empty {@link Optional} if no log matched
+     */
+    Optional<Log> findAndRemove(String id, String accountId, String activityId);
+
+    /**
+     * Deletes all {@link Log} instances with provided {@code ids} with a single query.
+     *
+     * @param ids IDs of logs to delete
+     */
+    void removeAll(Collection<String> ids);
+
+    /**
+     * Deletes a batch of the oldest {@link Log} instances with given {@code accountId} that started before provided
+     * {@code before}.
+     *
+     * @param accountId ID of the user account associated with logs to delete
+     * @param before    Upper bound (exclusive) of log's start time (as UNIX timestamp in milliseconds)
+     * @param limit     Number of logs to delete
+     * @return Number of deleted logs
+     */
+    long removeOldestByAccountId(String accountId, long before, int limit);
+
+    /**
+     * @return IDs of all accounts that have any logs, sorted
+     */
+    List<String> findAllAccountIds();
+
+    /**
+     * Summarizes {@link Log} instances with given {@code accountId} that match provided {@code filter}, per activity.
+     * Logs are grouped by the database, and only the groups are read, as they are needed. The returned stream must be
+     * closed once consumed.
+     *
+     * @param accountId ID of the user account associated with logs to summarize
+     * @param filter    Additional criteria that logs must match
+     * @return A lazily populated stream of {@link LogSummary} instances, sorted by their activity ID
+     */
+    Stream<LogSummary> streamSummariesByAccountId(String accountId, LogFilter filter);
+}
@@ -0,0 +1,103 @@
+package com.pdereg.timelogger.repository;
+
+import com.pdereg.timelogger.domain.Log;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.data.util.StreamUtils;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * MongoDB implementation of {@link LogRepositoryCustom}.
+ */
+public class LogRepositoryImpl implements LogRepositoryCustom {
+
+    private final MongoOperations mongoOperations;
+
+    @Autowired
+    public LogRepositoryImpl(MongoOperations mongoOperations) {
+        this.mongoOperations = mongoOperations;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Stream<Log> streamAllByAccountId(String accountId, LogFilter filter, LogPosition position, int limit) {
+        final Query query = filter.toQuery(accountId, position).limit(limit);
+        final CloseableIterator<Log> iterator = mongoOperations.stream(query, Log.class);
+
+        return StreamUtils.createStreamFromIterator(iterator);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Stream<Log> streamAllOrderedByAccountId() {
+        final Query query = new Query().with(new Sort(Sort.Direction.ASC, "accountId", "startTime", "_id"));
+        final CloseableIterator<Log> iterator = mongoOperations.stream(query, Log.class);
+
+        return StreamUtils.createStreamFromIterator(iterator);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Log> findAndRemove(String id, String accountId, String activityId) {
+        final Query query = new Query(Criteria
+                .where("_id").is(id)
+                .and("accountId").is(accountId)
+                .and("activityId").is(activityId)
+        );
+
+        return Optional.ofNullable(mongoOperations.findAndRemove(query, Log.class));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeAll(Collection<String> ids) {
+        mongoOperations.remove(new Query(Criteria.where("_id").in(ids)), Log.class);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long removeOldestByAccountId(String accountId, long before, int limit) {
+        return LogRemovals.removeOldest(mongoOperations, Log.class, accountId, before, limit);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<String> findAllAccountIds() {
+        final List<String> accountIds = mongoOperations.getCollection(mongoOperations.getCollectionName(Log.class))
+                .distinct("accountId");
+        accountIds.sort(Comparator.naturalOrder());
+
+        return accountIds;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Stream<LogSummary> streamSummariesByAccountId(String accountId, LogFilter filter) {
+        return LogSummaries.aggregate(mongoOperations, Log.class, Aggregation.match(filter.toCriteria(accountId)));
+    }
+}
@@ -0,0 +1,122 @@
+package com.pdereg.timelogger.repository;
+
+import com.pdereg.timelogger.domain.DailyRollup;
+import com.pdereg.timelogger.domain.Log;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Decides how long {@link Log} instances are kept, and how expired logs are deleted.
+ * <p>
+ * Retention is configured with {@code time-logger.log-retention.mode}: {@code none} (default) keeps all logs,
+ * {@code purge} deletes expired logs with a background purger, and {@code ttl} lets the database expire them with a
+ * TTL index. The age after which logs expire is configured in days with {@code .max-age}, and can be overridden for
+ * individual accounts with {@code .account-max-age} as a list of {@code accountId:days} pairs. An age of {@code 0}
+ * keeps logs forever.
+ */
+@Component
+public class LogRetentionPolicy {
+
+    private static final String PROPERTY_PREFIX = "time-logger.log-retention.";
+
+    /**
+     * The way expired logs are deleted.
+     */
+    public enum Mode {
+        NONE, PURGE, TTL
+    }
+
+    private final Mode mode;
+    private final long maxAge;
+    private final Map<String, Long> accountMaxAges;
+
+    @Autowired
+    public LogRetentionPolicy(Environment environment) {
+        this(
+                Mode.valueOf(environment.getProperty(PROPERTY_PREFIX + "mode", Mode.NONE.name())
+                        .toUpperCase(Locale.ROOT)),
+                environment.getProperty(PROPERTY_PREFIX + "max-age", Long.class, 0L),
+                parseAccountMaxAges(environment.getProperty(PROPERTY_PREFIX + "account-max-age", String[].class))
+        );
+    }
+
+    /**
+     * @param mode           The way expired logs are deleted
+     * @param maxAge         Age (in days) after which logs expire, or {@code 0} to keep them forever
+     * @param accountMaxAges Ages (in days) that override {@code maxAge} for accounts with given IDs
+     */
+    public LogRetentionPolicy(Mode mode, long maxAge, Map<String, Long> accountMaxAges) {
+        if (maxAge < 0L || accountMaxAges.values().stream().anyMatch(age -> age < 0L)) {
+            throw new IllegalArgumentException("Log retention age cannot be negative");
+        }
+
+        this.mode = mode;
+        this.maxAge = maxAge;
+        this.accountMaxAges = Collections.unmodifiableMap(new HashMap<>(accountMaxAges));
+    }
+
+    /**
+     * @return The way expired logs are deleted
+     */
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * @return {@code true} if logs of any account ever expire
+     */
+    public boolean isEnabled() {
+        return mode != Mode.NONE && (maxAge > 0L || accountMaxAges.values().stream().anyMatch(age -> age > 0L));
+    }
+
+    /**
+     * Returns the age after which logs of an account with provided {@code accountId} expire.
+     *
+     * @param accountId ID of the user account
+     * @return Age in milliseconds, or an empty optional if logs of the account are kept forever
+     */
+    public Optional<Long> getMaxAge(String accountId) {
+        if (mode == Mode.NONE) {
+            return Optional.empty();
+        }
+
+        final long days = accountMaxAges.getOrDefault(accountId, maxAge);
+        return days > 0L ? Optional.of(days * DailyRollup.MILLIS_IN_A_DAY) : Optional.empty();
+    }
+
+    /**
+     * Returns the time at which provided {@code log} expires.
+     *
+     * @param log {@link Log} instance
+     * @return Expiry time (as UNIX timestamp in milliseconds), or an empty optional if the log is kept forever
+     */
+    public Optional<Long> getExpiryTime(Log log) {
+        return getMaxAge(log.getAccountId()).map(age -> log.getStartTime() + age);
+    }
+
+    private static Map<String, Long> parseAccountMaxAges(String[] values) {
+        final Map<String, Long> accountMaxAges = new HashMap<>();
+        if (values == null) {
+            return accountMaxAges;
+        }
+
+        for (String value : values) {
+            final int separator = value.lastIndexOf(':');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Malformed account log retention age: " + value);
+            }
+
+            final String accountId = value.substring(0, separator).trim();
+            accountMaxAges.put(accountId, Long.parseLong(value.substring(separator + 1).trim()));
+        }
+
+        return accountMaxAges;
+    }
+}
@@ -0,0 +1,367 @@
+package com.pdereg.timelogger.repository;
+
+import com.pdereg.timelogger.domain.Log;
+import org.bson.types.ObjectId;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * An immutable file of archived {@link Log} instances of a single account, sorted by their start time and ID.
+ * <p>
+ * A segment starts with an uncompressed header (account ID, number of logs, start time range and ID range), so that
+ * it can be skipped without being decompressed. The header is followed by compressed columns: distinct activity IDs,
+ * start times (as deltas, which are small since they are sorted), durations, activity indexes and log IDs. Numbers
+ * are written as variable-length integers.
+ * <p>
+ * Segments of the first version have no ID range in their header. They are still read, and might contain any ID.
+ */
+public class LogSegment {
+
+    private static final int MAGIC = 0x544C5347;
+    private static final int VERSION = 2;
+    private static final int ID_RANGE_VERSION = 2;
+    private static final int ID_SIZE = 12;
+
+    private final Path path;
+    private final String accountId;
+    private final int logCount;
+    private final long firstStartTime;
+    private final long lastStartTime;
+    private final ObjectId minId;
+    private final ObjectId maxId;
+
+    private LogSegment(Path path, String accountId, int logCount, long firstStartTime, long lastStartTime,
+                       ObjectId minId, ObjectId maxId) {
+        this.path = path;
+        this.accountId = accountId;
+        this.logCount = logCount;
+        this.firstStartTime = firstStartTime;
+        this.lastStartTime = lastStartTime;
+        this.minId = minId;
+        this.maxId = maxId;
+    }
+
+    /**
+     * Writes provided {@code logs} to a new segment file at provided {@code path}. The file is written under a
+     * temporary name, forced to disk and then renamed, so that a segment is either complete or absent.
+     *
+     * @param path      Path of the segment file to create
+     * @param accountId ID of the user account associated with the logs
+     * @param logs      {@link Log} instances to write. Must not be empty and must have IDs assigned
+     * @return Written {@link LogSegment} instance
+     * @throws IOException If the segment could not be written
+     */
+    public static LogSegment write(Path path, String accountId, List<Log> logs) throws IOException {
+        final List<Log> sortedLogs = new ArrayList<>(logs);
+        sortedLogs.sort(LogPosition.ORDER);
+
+        final long firstStartTime = sortedLogs.get(0).getStartTime();
+        final long lastStartTime = sortedLogs.get(sortedLogs.size() - 1).getStartTime();
+        final ObjectId minId = sortedLogs.stream().map(log -> new ObjectId(log.getId())).min(ObjectId::compareTo).get();
+        final ObjectId maxId = sortedLogs.stream().map(log -> new ObjectId(log.getId())).max(ObjectId::compareTo).get();
+        final Path temporaryPath = path.resolveSibling(path.getFileName() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(temporaryPath, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+
+            final OutputStream output = new BufferedOutputStream(Channels.newOutputStream(channel));
+            final DataOutputStream header = new DataOutputStream(output);
+            header.writeInt(MAGIC);
+            header.writeInt(VERSION);
+            header.writeUTF(accountId);
+            header.writeInt(sortedLogs.size());
+            header.writeLong(firstStartTime);
+            header.writeLong(lastStartTime);
+            header.write(minId.toByteArray());
+            header.write(maxId.toByteArray());
+            header.flush();
+
+            final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+            try {
+                final DeflaterOutputStream compressed = new DeflaterOutputStream(output, deflater);
+                writeColumns(new DataOutputStream(compressed), sortedLogs);
+                compressed.finish();
+                output.flush();
+            } finally {
+                deflater.end();
+            }
+
+            channel.force(true);
+        }
+
+        Files.move(temporaryPath, path, StandardCopyOption.ATOMIC_MOVE);
+        return new LogSegment(path, accountId, sortedLogs.size(), firstStartTime, lastStartTime, minId, maxId);
+    }
+
+    /**
+     * Opens an existing segment file, reading only its header.
+     *
+     * @param path Path of the segment file
+     * @return {@link LogSegment} instance
+     * @throws IOException If the file could not be read or is not a segment
+     */
+    public static LogSegment open(Path path) throws IOException {
+        try (DataInputStream header = new DataInputStream(new ByteBufferInputStream(map(path)))) {
+            final int version = readVersion(header);
+
+            final String accountId = header.readUTF();
+            final int logCount = header.readInt();
+            final long firstStartTime = header.readLong();
+            final long lastStartTime = header.readLong();
+            final ObjectId minId = version >= ID_RANGE_VERSION ? readId(header) : null;
+            final ObjectId maxId = version >= ID_RANGE_VERSION ? readId(header) : null;
+
+            return new LogSegment(path, accountId, logCount, firstStartTime, lastStartTime, minId, maxId);
+        }
+    }
+
+    /**
+     * Reads all logs from this segment. The file is memory-mapped and decompressed straight from the mapping, without
+     * copying it to the heap first.
+     *
+     * @return A list of {@link Log} instances, sorted by their start time and ID
+     * @throws IOException If the segment could not be read
+     */
+    public List<Log> readAll() throws IOException {
+        final InputStream mapped = new ByteBufferInputStream(map(path));
+        final DataInputStream header = new DataInputStream(mapped);
+
+        final int version = readVersion(header);
+        header.readUTF();
+        header.readInt();
+        header.readLong();
+        header.readLong();
+        if (version >= ID_RANGE_VERSION) {
+            header.readFully(new byte[2 * ID_SIZE]);
+        }
+
+        try (DataInputStream columns = new DataInputStream(new InflaterInputStream(mapped))) {
+            return readColumns(columns);
+        }
+    }
+
+    /**
+     * Checks whether this segment might contain logs that started in provided time range.
+     *
+     * @param from Lower bound (inclusive) of log's start time, or {@code null} for no bound
+     * @param to   Upper bound (exclusive) of log's start time, or {@code null} for no bound
+     * @return {@code true} if the time range overlaps with the start times of logs in this segment
+     */
+    public boolean overlaps(Long from, Long to) {
+        return (from == null || lastStartTime >= from) && (to == null || firstStartTime < to);
+    }
+
+    /**
+     * Checks whether this segment might contain a log with provided {@code id}, by comparing it with the lowest and
+     * highest ID in this segment.
+     *
+     * @param id ID of the log
+     * @return {@code false} if no log in this segment has provided {@code id}
+     */
+    public boolean mayContain(ObjectId id) {
+        return minId == null || (minId.compareTo(id) <= 0 && maxId.compareTo(id) >= 0);
+    }
+
+    /**
+     * @return Path of the segment file
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return ID of the user account associated with the logs
+     */
+    public String getAccountId() {
+        return accountId;
+    }
+
+    /**
+     * @return Number of logs in the segment
+     */
+    public int getLogCount() {
+        return logCount;
+    }
+
+    /**
+     * @return Start time of the earliest log in the segment (as UNIX timestamp in milliseconds)
+     */
+    public long getFirstStartTime() {
+        return firstStartTime;
+    }
+
+    /**
+     * @return Start time of the latest log in the segment (as UNIX timestamp in milliseconds)
+     */
+    public long getLastStartTime() {
+        return lastStartTime;
+    }
+
+    private static void writeColumns(DataOutputStream output, List<Log> logs) throws IOException {
+        final Map<String, Integer> activityIndexes = new LinkedHashMap<>();
+        logs.forEach(log -> activityIndexes.putIfAbsent(log.getActivityId(), activityIndexes.size()));
+
+        writeVarLong(output, activityIndexes.size());
+        for (String activityId : activityIndexes.keySet()) {
+            output.writeUTF(activityId);
+        }
+
+        long previousStartTime = 0L;
+        for (Log log : logs) {
+            writeVarLong(output, log.getStartTime() - previousStartTime);
+            previousStartTime = log.getStartTime();
+        }
+
+        for (Log log : logs) {
+            writeVarLong(output, log.getDuration());
+        }
+
+        for (Log log : logs) {
+            writeVarLong(output, activityIndexes.get(log.getActivityId()));
+        }
+
+        for (Log log : logs) {
+            output.write(new ObjectId(log.getId()).toByteArray());
+        }
+
+        output.flush();
+    }
+
+    private List<Log> readColumns(DataInputStream input) throws IOException {
+        final String[] activityIds = new String[(int) readVarLong(input)];
+        for (int i = 0; i < activityIds.length; ++i) {
+            activityIds[i] = input.readUTF();
+        }
+
+        final long[] startTimes = new long[logCount];
+        long startTime = 0L;
+        for (int i = 0; i < logCount; ++i) {
+            startTime += readVarLong(input);
+            startTimes[i] = startTime;
+        }
+
+        final long[] durations = new long[logCount];
+        for (int i = 0; i < logCount; ++i) {
+            durations[i] = readVarLong(input);
+        }
+
+        final int[] activityIndexes = new int[logCount];
+        for (int i = 0; i < logCount; ++i) {
+            activityIndexes[i] = (int) readVarLong(input);
+        }
+
+        final List<Log> logs = new ArrayList<>(logCount);
+        final byte[] id = new byte[ID_SIZE];
+
+        for (int i = 0; i < logCount; ++i) {
+            input.readFully(id);
+            logs.add(new Log(
+                    new ObjectId(id).toHexString(), accountId, activityIds[activityIndexes[i]], startTimes[i],
+                    durations[i]
+            ));
+        }
+
+        return Collections.unmodifiableList(logs);
+    }
+
+    private static MappedByteBuffer map(Path path) throws IOException {
+        // The mapping stays valid after the channel is closed
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    private static int readVersion(DataInputStream input) throws IOException {
+        if (input.readInt() != MAGIC) {
+            throw new IOException("Not a log segment");
+        }
+
+        final int version = input.readInt();
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Unsupported log segment version " + version);
+        }
+
+        return version;
+    }
+
+    private static ObjectId readId(DataInputStream input) throws IOException {
+        final byte[] id = new byte[ID_SIZE];
+        input.readFully(id);
+        return new ObjectId(id);
+    }
+
+    private static void writeVarLong(DataOutputStream output, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            output.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+
+        output.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream input) throws IOException {
+        long value = 0L;
+
+        for (int shift = 0; shift < 64; shift += 7) {
+            final byte b = input.readByte();
+            value |= (long) (b & 0x7F) << shift;
+
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+
+        throw new IOException("Malformed variable-length integer");
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+
+            final int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
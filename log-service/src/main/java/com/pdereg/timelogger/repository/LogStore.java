@@ -0,0 +1,151 @@
+package com.pdereg.timelogger.repository;
+
+import com.pdereg.timelogger.domain.Log;
+import org.springframework.boot.actuate.metrics.Metric;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Storage of {@link Log} instances, independent of how they are laid out in the database. Services should depend on
+ * this interface rather than on {@link LogRepository}, so that the layout can be changed with
+ * {@code time-logger.log-storage.layout}.
+ *
+ * @see LogLayout
+ */
+public interface LogStore {
+
+    /**
+     * @return Layout in which this store keeps logs
+     */
+    LogLayout getLayout();
+
+    /**
+     * Saves provided {@code log}, assigning it an ID if it does not have one yet. Saving a log that is already saved
+     * has no effect.
+     *
+     * @param log {@link Log} instance to save
+     * @return Saved {@link Log} instance
+     */
+    Log save(Log log);
+
+    /**
+     * Saves all provided {@code logs}, assigning IDs to those that do not have one yet. Saving logs that are already
+     * saved has no effect, so this can be used to retry a write that might have partially succeeded.
+     *
+     * @param logs {@link Log} instances to save
+     * @return A list of saved {@link Log} instances, in the same order as provided {@code logs}
+     */
+    List<Log> save(List<Log> logs);
+
+    /**
+     * Saves all provided {@code logs} with as few round trips as possible, assigning IDs to those that do not have one
+     * yet. Unlike {@link LogStore#save(List)}, the logs must not be saved already.
+     *
+     * @param logs New {@link Log} instances to save
+     * @return A list of saved {@link Log} instances, in the same order as provided {@code logs}
+     */
+    List<Log> insert(List<Log> logs);
+
+    /**
+     * Finds and returns a {@link Log} instance with given {@code id}.
+     *
+     * @param id ID of the log to return
+     * @return An optional {@link Log} instance
+     */
+    Optional<Log> findOne(String id);
+
+    /**
+     * Finds and returns a {@link Log} instance with given {@code id}, {@code accountId} and {@code activityId}.
+     *
+     * @param id         ID of the log to return
+     * @param accountId  ID of the user account associated with the log
+     * @param activityId ID of the activity associated with the log
+     * @return An optional {@link Log} instance
+     */
+    Optional<Log> findOne(String id, String accountId, String activityId);
+
+    /**
+     * Finds and returns all {@link Log} instances with given {@code accountId}.
+     *
+     * @param accountId ID of the user account associated with logs to return
+     * @return A list of {@link Log} instances
+     */
+    List<Log> findAllByAccountId(String accountId);
+
+    /**
+     * Finds and returns all {@link Log} instances with given {@code accountId} and {@code activityId}.
+     *
+     * @param accountId  ID of the user account associated with logs to return
+     * @param activityId ID of the activity associated with the logs to return
+     * @return A list of {@link Log} instances
+     */
+    List<Log> findAllByAccountIdAndActivityId(String accountId, String activityId);
+
+    /**
+     * Opens a cursor over {@link Log} instances with given {@code accountId} that match provided {@code filter} and
+     * follow provided {@code position}, sorted by their start time and ID. The returned stream must be closed once
+     * consumed.
+     *
+     * @see LogRepositoryCustom#streamAllByAccountId(String, LogFilter, LogPosition, int)
+     */
+    Stream<Log> streamAllByAccountId(String accountId, LogFilter filter, LogPosition position, int limit);
+
+    /**
+     * Opens a cursor over all {@link Log} instances, grouped by their account ID and sorted by their start time within
+     * each account. The returned stream must be closed once consumed.
+     *
+     * @see LogRepositoryCustom#streamAllOrderedByAccountId()
+     */
+    Stream<Log> streamAllOrderedByAccountId();
+
+    /**
+     * Summarizes {@link Log} instances with given {@code accountId} that match provided {@code filter}, per activity.
+     * The returned stream must be closed once consumed.
+     *
+     * @see LogRepositoryCustom#streamSummariesByAccountId(String, LogFilter)
+     */
+    Stream<LogSummary> streamSummariesByAccountId(String accountId, LogFilter filter);
+
+    /**
+     * Atomically finds and deletes a {@link Log} instance with given {@code id}, {@code accountId} and
+     * {@code activityId}.
+     *
+     * @see LogRepositoryCustom#findAndRemove(String, String, String)
+     */
+    Optional<Log> findAndRemove(String id, String accountId, String activityId);
+
+    /**
+     * Deletes all provided {@code logs} with as few round trips as possible. Logs that are not saved are ignored.
+     *
+     * @param logs Saved {@link Log} instances to delete
+     */
+    void removeAll(List<Log> logs);
+
+    /**
+     * Deletes a batch of the oldest {@link Log} instances with given {@code accountId} that started before provided
+     * {@code before}, with as few range deletes as possible. Slightly more or fewer than {@code limit} logs may be
+     * deleted, but at least one is deleted if any log started before {@code before}.
+     *
+     * @param accountId ID of the user account associated with logs to delete
+     * @param before    Upper bound (exclusive) of log's start time (as UNIX timestamp in milliseconds)
+     * @param limit     Number of logs to delete
+     * @return Number of deleted logs
+     */
+    long removeOldestByAccountId(String accountId, long before, int limit);
+
+    /**
+     * @return IDs of all accounts that have any logs, sorted
+     */
+    List<String> findAllAccountIds();
+
+    /**
+     * @return Metrics of this store, published by {@link LogStoreRegistry} once the store is created. None by default
+     */
+    default Collection<Metric<?>> metrics() {
+        return Collections.emptyList();
+    }
+}
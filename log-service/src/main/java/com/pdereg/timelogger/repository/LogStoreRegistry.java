@@ -0,0 +1,101 @@
+package com.pdereg.timelogger.repository;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Provides a {@link LogStore} for every {@link LogLayout}. The layout in use is selected with
+ * {@code time-logger.log-storage.layout} ({@code document} by default, {@code bucketed}, {@code encoded},
+ * {@code mapped} or {@code sharded}).
+ * <p>
+ * Stores are created on first use, so only the store of the layout in use exists unless logs are migrated to or from
+ * another layout. Metrics of created stores are published by the registry.
+ */
+@Component
+public class LogStoreRegistry implements PublicMetrics {
+
+    public static final String LAYOUT_PROPERTY = "time-logger.log-storage.layout";
+
+    private final Map<LogLayout, ObjectProvider<? extends LogStore>> logStoreProviders = new EnumMap<>(LogLayout.class);
+    private final Map<LogLayout, LogStore> logStores = new EnumMap<>(LogLayout.class);
+    private final LogLayout activeLayout;
+
+    @Autowired
+    public LogStoreRegistry(ObjectProvider<DocumentLogStore> documentLogStore,
+                            ObjectProvider<BucketedLogStore> bucketedLogStore,
+                            ObjectProvider<EncodedLogStore> encodedLogStore,
+                            ObjectProvider<MappedLogStore> mappedLogStore,
+                            ObjectProvider<ShardedLogStore> shardedLogStore,
+                            Environment environment) {
+
+        logStoreProviders.put(LogLayout.DOCUMENT, documentLogStore);
+        logStoreProviders.put(LogLayout.BUCKETED, bucketedLogStore);
+        logStoreProviders.put(LogLayout.ENCODED, encodedLogStore);
+        logStoreProviders.put(LogLayout.MAPPED, mappedLogStore);
+        logStoreProviders.put(LogLayout.SHARDED, shardedLogStore);
+
+        final String layout = environment.getProperty(LAYOUT_PROPERTY, LogLayout.DOCUMENT.name());
+        activeLayout = LogLayout.valueOf(layout.toUpperCase(Locale.ROOT));
+
+        if (activeLayout == LogLayout.MAPPED && !isEnabled(activeLayout)) {
+            throw new IllegalStateException("Mapped log storage requires a directory");
+        }
+        if (activeLayout == LogLayout.SHARDED && !isEnabled(activeLayout)) {
+            throw new IllegalStateException("Sharded log storage requires hosts");
+        }
+    }
+
+    /**
+     * @param layout Layout of logs
+     * @return {@code true} if logs can be kept in provided {@code layout}. Mapped and sharded layouts have to be
+     * configured first
+     */
+    public boolean isEnabled(LogLayout layout) {
+        switch (layout) {
+            case MAPPED:
+                return ((MappedLogStore) get(layout)).isEnabled();
+            case SHARDED:
+                return ((ShardedLogStore) get(layout)).isEnabled();
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Returns the store of provided {@code layout}, creating it if it is not in use yet.
+     *
+     * @param layout Layout of logs
+     * @return {@link LogStore} that keeps logs in provided {@code layout}
+     */
+    public synchronized LogStore get(LogLayout layout) {
+        return logStores.computeIfAbsent(layout, key -> logStoreProviders.get(key).getObject());
+    }
+
+    /**
+     * @return {@link LogStore} that keeps logs in the layout in use
+     */
+    public LogStore getActive() {
+        return get(activeLayout);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized Collection<Metric<?>> metrics() {
+        final List<Metric<?>> metrics = new ArrayList<>();
+        logStores.values().forEach(logStore -> metrics.addAll(logStore.metrics()));
+        return metrics;
+    }
+}
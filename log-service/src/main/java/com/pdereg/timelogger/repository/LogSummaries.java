@@ -0,0 +1,96 @@
+package com.pdereg.timelogger.repository;
+
+import com.mongodb.AggregationOptions;
+import com.mongodb.Cursor;
+import com.mongodb.DBObject;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Computes {@link LogSummary} instances with an aggregation, regardless of how logs are laid out.
+ */
+final class LogSummaries {
+
+    private LogSummaries() {
+    }
+
+    /**
+     * Runs an aggregation over a collection of provided {@code entityClass} and opens a cursor over its results.
+     * Provided {@code operations} must turn documents of the collection into logs with {@code activityId},
+     * {@code startTime} and {@code duration} fields, which are then grouped by their activity.
+     *
+     * @param mongoOperations {@link MongoOperations} instance
+     * @param entityClass     Class of documents to aggregate
+     * @param operations      Operations that select and reshape logs to summarize
+     * @return A lazily populated stream of {@link LogSummary} instances, sorted by their activity ID
+     */
+    static Stream<LogSummary> aggregate(MongoOperations mongoOperations, Class<?> entityClass,
+                                        AggregationOperation... operations) {
+
+        return aggregateEncoded(mongoOperations, entityClass, String.class::cast, operations);
+    }
+
+    /**
+     * Runs an aggregation like {@link LogSummaries#aggregate(MongoOperations, Class, AggregationOperation...)}, for
+     * logs that store other values (e.g. dictionary codes) in place of their activity IDs. Summaries are sorted by the
+     * stored values.
+     *
+     * @param mongoOperations   {@link MongoOperations} instance
+     * @param entityClass       Class of documents to aggregate
+     * @param activityIdDecoder Translates a stored value to its activity ID
+     * @param operations        Operations that select and reshape logs to summarize
+     * @return A lazily populated stream of {@link LogSummary} instances
+     */
+    @SuppressWarnings("unchecked")
+    static Stream<LogSummary> aggregateEncoded(MongoOperations mongoOperations, Class<?> entityClass,
+                                               Function<Object, String> activityIdDecoder,
+                                               AggregationOperation... operations) {
+
+        final List<AggregationOperation> pipeline = new ArrayList<>(Arrays.asList(operations));
+        pipeline.add(Aggregation.group("activityId")
+                .sum("duration").as("totalDuration")
+                .count().as("logCount")
+                .min("startTime").as("firstStartTime")
+                .max("startTime").as("lastStartTime"));
+        pipeline.add(Aggregation.sort(Sort.Direction.ASC, "_id"));
+
+        final String collectionName = mongoOperations.getCollectionName(entityClass);
+        final DBObject command = Aggregation
+                .newAggregation(pipeline)
+                .toDbObject(collectionName, Aggregation.DEFAULT_CONTEXT);
+        final List<DBObject> stages = (List<DBObject>) command.get("pipeline");
+        final AggregationOptions options = AggregationOptions.builder()
+                .outputMode(AggregationOptions.OutputMode.CURSOR)
+                .build();
+
+        final Cursor cursor = mongoOperations.execute(
+                collectionName, collection -> collection.aggregate(stages, options)
+        );
+
+        return StreamSupport
+                .stream(Spliterators.spliteratorUnknownSize(cursor, Spliterator.ORDERED), false)
+                .map(group -> toLogSummary(group, activityIdDecoder))
+                .onClose(cursor::close);
+    }
+
+    private static LogSummary toLogSummary(DBObject group, Function<Object, String> activityIdDecoder) {
+        return new LogSummary(
+                activityIdDecoder.apply(group.get("_id")),
+                ((Number) group.get("totalDuration")).longValue(),
+                ((Number) group.get("logCount")).longValue(),
+                ((Number) group.get("firstStartTime")).longValue(),
+                ((Number) group.get("lastStartTime")).longValue()
+        );
+    }
+}
@@ -0,0 +1,58 @@
+package com.pdereg.timelogger.repository;
+
+import com.pdereg.timelogger.domain.Log;
+
+/**
+ * Aggregated statistics of {@link Log} instances of a single activity.
+ */
+public class LogSummary {
+
+    private final String activityId;
+    private final long totalDuration;
+    private final long logCount;
+    private final long firstStartTime;
+    private final long lastStartTime;
+
+    public LogSummary(String activityId, long totalDuration, long logCount, long firstStartTime, long lastStartTime) {
+        this.activityId = activityId;
+        this.totalDuration = totalDuration;
+        this.logCount = logCount;
+        this.firstStartTime = firstStartTime;
+        this.lastStartTime = lastStartTime;
+    }
+
+    /**
+     * @return ID of the activity associated with the summarized logs
+     */
+    public String getActivityId() {
+        return activityId;
+    }
+
+    /**
+     * @return Total duration of the summarized logs (in milliseconds)
+     */
+    public long getTotalDuration() {
+        return totalDuration;
+    }
+
+    /**
+     * @return Number of the summarized logs
+     */
+    public long getLogCount() {
+        return logCount;
+    }
+
+    /**
+     * @return Start time of the earliest summarized log (as UNIX timestamp in milliseconds)
+     */
+    public long getFirstStartTime() {
+        return firstStartTime;
+    }
+
+    /**
+     * @return Start time of the latest summarized log (as UNIX timestamp in milliseconds)
+     */
+    public long getLastStartTime() {
+        return lastStartTime;
+    }
+}
@@ -0,0 +1,30 @@
+package com.pdereg.timelogger.repository;
+
+/**
+ * Accumulates a {@link LogSummary} of a single activity from logs or partial summaries, for stores that cannot
+ * summarize logs in the database.
+ */
+class LogSummaryBuilder {
+
+    private final String activityId;
+
+    private long totalDuration;
+    private long logCount;
+    private long firstStartTime = Long.MAX_VALUE;
+    private long lastStartTime = Long.MIN_VALUE;
+
+    LogSummaryBuilder(String activityId) {
+        this.activityId = activityId;
+    }
+
+    void add(long duration, long count, long first, long last) {
+        totalDuration += duration;
+        logCount += count;
+        firstStartTime = Math.min(firstStartTime, first);
+        lastStartTime = Math.max(lastStartTime, last);
+    }
+
+    LogSummary build() {
+        return new LogSummary(activityId, totalDuration, logCount, firstStartTime, lastStartTime);
+    }
+}
@@ -0,0 +1,57 @@
+package com.pdereg.timelogger.repository;
+
+import com.pdereg.timelogger.domain.Log;
+
+/**
+ * Total duration and number of {@link Log} instances in a time range.
+ */
+public class LogTotal {
+
+    private final long totalDuration;
+    private final long logCount;
+
+    public LogTotal(long totalDuration, long logCount) {
+        this.totalDuration = totalDuration;
+        this.logCount = logCount;
+    }
+
+    /**
+     * @return Total duration of the logs (in milliseconds)
+     */
+    public long getTotalDuration() {
+        return totalDuration;
+    }
+
+    /**
+     * @return Number of the logs
+     */
+    public long getLogCount() {
+        return logCount;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        LogTotal logTotal = (LogTotal) o;
+
+        if (totalDuration != logTotal.totalDuration) return false;
+        return logCount == logTotal.logCount;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = (int) (totalDuration ^ (totalDuration >>> 32));
+        result = 31 * result + (int) (logCount ^ (logCount >>> 32));
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "LogTotal{" +
+                "totalDuration=" + totalDuration +
+                ", logCount=" + logCount +
+                '}';
+    }
+}
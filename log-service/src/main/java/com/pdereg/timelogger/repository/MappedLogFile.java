@@ -0,0 +1,269 @@
+package com.pdereg.timelogger.repository;
+
+import org.bson.types.ObjectId;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only file of fixed-width log records, memory-mapped as a whole. The file is extended ahead of writes, so
+ * that records are appended by writing to the mapping rather than with system calls, and can be read at any offset
+ * without locking.
+ * <p>
+ * Every record holds a log ID, account and activity codes, start time, duration and a checksum. A record with a
+ * duration of {@code 0} marks removal of a log written earlier. Records are never modified.
+ */
+final class MappedLogFile implements Closeable {
+
+    static final int RECORD_SIZE = 40;
+
+    private static final int MAGIC = 0x544C4D46;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int CHECKSUM_OFFSET = RECORD_SIZE - 4;
+    private static final long INITIAL_CAPACITY = 1L << 20;
+
+    private final FileChannel channel;
+    private final boolean sync;
+
+    private volatile MappedByteBuffer buffer;
+    private long size;
+
+    private MappedLogFile(FileChannel channel, boolean sync) {
+        this.channel = channel;
+        this.sync = sync;
+    }
+
+    /**
+     * Opens a file at provided {@code path}, creating it if it does not exist, and passes all its records to provided
+     * {@code visitor} in the order in which they were written. Records after the first one that is incomplete or
+     * corrupt (e.g. because the process died while writing it) are discarded and overwritten by later appends.
+     *
+     * @param path    Path of the file
+     * @param sync    {@code true} if appended records should be forced to disk before appends return
+     * @param visitor Receives offsets and records of the file
+     * @return {@link MappedLogFile} instance
+     * @throws IOException If the file could not be opened or is not a log file
+     */
+    static MappedLogFile open(Path path, boolean sync, Visitor visitor) throws IOException {
+        final FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        final MappedLogFile file = new MappedLogFile(channel, sync);
+
+        try {
+            file.recover(visitor);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+
+        return file;
+    }
+
+    /**
+     * Appends provided {@code records} to the end of the file.
+     *
+     * @param records Records to append
+     * @return Offset of the first appended record. The others follow it, {@link MappedLogFile#RECORD_SIZE} bytes apart
+     * @throws IOException If the file could not be extended
+     */
+    synchronized long append(List<Record> records) throws IOException {
+        final long offset = size;
+        final long end = offset + (long) records.size() * RECORD_SIZE;
+
+        if (end > buffer.capacity()) {
+            remap(Math.max(end, 2L * buffer.capacity()));
+        }
+
+        final ByteBuffer target = buffer.duplicate();
+        target.position((int) offset);
+        records.forEach(record -> record.writeTo(target));
+
+        if (sync) {
+            buffer.force();
+        }
+
+        size = end;
+        return offset;
+    }
+
+    /**
+     * Reads a record at provided {@code offset}, which must have been returned by an earlier append or recovery.
+     *
+     * @param offset Offset of the record in the file
+     * @return {@link Record} instance
+     */
+    Record read(long offset) {
+        return Record.readFrom(buffer, (int) offset);
+    }
+
+    /**
+     * @return Number of bytes taken by records
+     */
+    synchronized long getSize() {
+        return size - HEADER_SIZE;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    private void recover(Visitor visitor) throws IOException {
+        final boolean created = channel.size() == 0L;
+        remap(Math.max(channel.size(), INITIAL_CAPACITY));
+
+        if (created) {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.force();
+        } else if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not a log file");
+        }
+
+        long offset = HEADER_SIZE;
+        while (offset + RECORD_SIZE <= buffer.capacity() && Record.isValid(buffer, (int) offset)) {
+            visitor.visit(offset, Record.readFrom(buffer, (int) offset));
+            offset += RECORD_SIZE;
+        }
+
+        size = offset;
+
+        // Records written after a torn one might have reached the disk, and must not come back once it is overwritten
+        while (offset + RECORD_SIZE <= buffer.capacity() && !Record.isEmpty(buffer, (int) offset)) {
+            for (int i = 0; i < RECORD_SIZE; ++i) {
+                buffer.put((int) offset + i, (byte) 0);
+            }
+
+            offset += RECORD_SIZE;
+        }
+    }
+
+    private void remap(long capacity) throws IOException {
+        if (capacity > Integer.MAX_VALUE) {
+            throw new IOException("Log file cannot grow beyond " + Integer.MAX_VALUE + " bytes");
+        }
+
+        // Mapping a larger region extends the file, and earlier mappings stay valid for concurrent reads
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0L, capacity);
+    }
+
+    /**
+     * Receives records read while a file is opened.
+     */
+    @FunctionalInterface
+    interface Visitor {
+
+        void visit(long offset, Record record);
+    }
+
+    /**
+     * A single fixed-width record.
+     */
+    static final class Record {
+
+        private final String id;
+        private final int accountCode;
+        private final int activityCode;
+        private final long startTime;
+        private final long duration;
+
+        Record(String id, int accountCode, int activityCode, long startTime, long duration) {
+            this.id = id;
+            this.accountCode = accountCode;
+            this.activityCode = activityCode;
+            this.startTime = startTime;
+            this.duration = duration;
+        }
+
+        boolean isRemoval() {
+            return duration == 0L;
+        }
+
+        String getId() {
+            return id;
+        }
+
+        int getAccountCode() {
+            return accountCode;
+        }
+
+        int getActivityCode() {
+            return activityCode;
+        }
+
+        long getStartTime() {
+            return startTime;
+        }
+
+        long getDuration() {
+            return duration;
+        }
+
+        private void writeTo(ByteBuffer target) {
+            final byte[] bytes = new byte[RECORD_SIZE];
+            final ByteBuffer record = ByteBuffer.wrap(bytes);
+
+            record.put(new ObjectId(id).toByteArray());
+            record.putInt(accountCode);
+            record.putInt(activityCode);
+            record.putLong(startTime);
+            record.putLong(duration);
+            record.putInt(checksum(bytes));
+
+            target.put(bytes);
+        }
+
+        private static Record readFrom(ByteBuffer buffer, int offset) {
+            final byte[] id = new byte[12];
+            for (int i = 0; i < id.length; ++i) {
+                id[i] = buffer.get(offset + i);
+            }
+
+            return new Record(
+                    new ObjectId(id).toHexString(),
+                    buffer.getInt(offset + 12),
+                    buffer.getInt(offset + 16),
+                    buffer.getLong(offset + 20),
+                    buffer.getLong(offset + 28)
+            );
+        }
+
+        private static boolean isValid(ByteBuffer buffer, int offset) {
+            final byte[] bytes = new byte[RECORD_SIZE];
+            for (int i = 0; i < RECORD_SIZE; ++i) {
+                bytes[i] = buffer.get(offset + i);
+            }
+
+            return !isEmpty(buffer, offset) && ByteBuffer.wrap(bytes).getInt(CHECKSUM_OFFSET) == checksum(bytes);
+        }
+
+        private static boolean isEmpty(ByteBuffer buffer, int offset) {
+            for (int i = 0; i < RECORD_SIZE; ++i) {
+                if (buffer.get(offset + i) != 0) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        private static int checksum(byte[] bytes) {
+            final CRC32 crc = new CRC32();
+            crc.update(bytes, 0, CHECKSUM_OFFSET);
+
+            return (int) crc.getValue();
+        }
+    }
+}
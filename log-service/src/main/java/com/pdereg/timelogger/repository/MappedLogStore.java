@@ -0,0 +1,559 @@
+package com.pdereg.timelogger.repository;
+
+import com.pdereg.timelogger.domain.Log;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * {@link LogStore} that keeps logs in {@link MappedLogFile} files on local disk instead of the database. Accounts are
+ * spread over a fixed number of shard files, and every log is a fixed-width record appended to the shard of its
+ * account. Account and activity IDs are replaced with codes, kept in a separate append-only file of strings.
+ * <p>
+ * All files are scanned on startup to build an in-memory index of record offsets, per account and sorted by log
+ * position, so reads only touch records of logs they return. Removed logs are marked with removal records and their
+ * space is not reclaimed.
+ * <p>
+ * The store is disabled unless a directory is configured with {@code time-logger.log-storage.mapped.directory}. The
+ * number of shards can be changed with {@code .shards} (16 by default), and with {@code .sync} set to {@code false}
+ * writes return before they are forced to disk.
+ */
+@Component
+@Lazy
+public class MappedLogStore implements LogStore, InitializingBean, DisposableBean {
+
+    private static final String PROPERTY_PREFIX = "time-logger.log-storage.mapped.";
+    private static final String SHARD_FILE_PREFIX = "shard-";
+    private static final String SHARD_FILE_EXTENSION = ".log";
+    private static final String STRINGS_FILE_NAME = "strings.dat";
+
+    private static final int DEFAULT_SHARD_COUNT = 16;
+    private static final int OFFSET_BITS = 32;
+
+    private static final Comparator<LogPosition> POSITION_ORDER = Comparator
+            .comparingLong(LogPosition::getStartTime)
+            .thenComparing(LogPosition::getId);
+
+    private final Path directory;
+    private final int shardCount;
+    private final boolean sync;
+
+    private final List<MappedLogFile> shards = new ArrayList<>();
+    private final ConcurrentMap<String, NavigableMap<LogPosition, Long>> accounts = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Long> locations = new ConcurrentHashMap<>();
+
+    private final List<String> strings = new ArrayList<>();
+    private final Map<String, Integer> codes = new HashMap<>();
+    private FileChannel stringsChannel;
+
+    private volatile boolean open;
+
+    @Autowired
+    public MappedLogStore(Environment environment) {
+        this(
+                getDirectory(environment.getProperty(PROPERTY_PREFIX + "directory")),
+                environment.getProperty(PROPERTY_PREFIX + "shards", Integer.class, DEFAULT_SHARD_COUNT),
+                environment.getProperty(PROPERTY_PREFIX + "sync", Boolean.class, true)
+        );
+    }
+
+    public MappedLogStore(Path directory, int shardCount, boolean sync) {
+        this.directory = directory;
+        this.shardCount = shardCount;
+        this.sync = sync;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        if (isEnabled()) {
+            open();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void destroy() throws IOException {
+        close();
+    }
+
+    /**
+     * @return {@code true} if a directory is configured and logs can be stored
+     */
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    /**
+     * Opens all files in the configured directory and builds the index from their records. Files written with a
+     * different number of shards are still read, and new logs are written to shards of the current number.
+     *
+     * @throws IOException If the files could not be read
+     */
+    public synchronized void open() throws IOException {
+        if (open) {
+            return;
+        }
+
+        Files.createDirectories(directory);
+        openStrings();
+
+        final int fileCount = Math.max(shardCount, countShardFiles());
+        for (int shard = 0; shard < fileCount; ++shard) {
+            final long shardBits = (long) shard << OFFSET_BITS;
+            final Path path = directory.resolve(SHARD_FILE_PREFIX + shard + SHARD_FILE_EXTENSION);
+
+            shards.add(MappedLogFile.open(path, sync, (offset, record) -> index(record, shardBits | offset)));
+        }
+
+        open = true;
+    }
+
+    /**
+     * Closes all files and clears the index. Once closed, the store can be opened again.
+     *
+     * @throws IOException If a file could not be closed
+     */
+    public synchronized void close() throws IOException {
+        open = false;
+
+        for (MappedLogFile shard : shards) {
+            shard.close();
+        }
+        if (stringsChannel != null) {
+            stringsChannel.close();
+        }
+
+        shards.clear();
+        accounts.clear();
+        locations.clear();
+        synchronized (strings) {
+            strings.clear();
+            codes.clear();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LogLayout getLayout() {
+        return LogLayout.MAPPED;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Log save(Log log) {
+        return save(Collections.singletonList(log)).get(0);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Log> save(List<Log> logs) {
+        return write(logs);
+    }
+
+    /**
+     * Saves all provided {@code logs} with a single append per shard, assigning IDs to those that do not have one yet.
+     * Logs that are already saved are skipped, so unlike in other layouts they do not cause an error.
+     */
+    @Override
+    public List<Log> insert(List<Log> logs) {
+        return write(logs);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Log> findOne(String id) {
+        return findLocation(id).map(this::read);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Log> findOne(String id, String accountId, String activityId) {
+        return findOne(id).filter(log -> log.getAccountId().equals(accountId)
+                && log.getActivityId().equals(activityId));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Log> findAllByAccountId(String accountId) {
+        try (Stream<Log> logs = streamAllByAccountId(accountId, new LogFilter(), null, Integer.MAX_VALUE)) {
+            return logs.collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Log> findAllByAccountIdAndActivityId(String accountId, String activityId) {
+        final LogFilter filter = new LogFilter();
+        filter.setActivityIds(Collections.singleton(activityId));
+
+        try (Stream<Log> logs = streamAllByAccountId(accountId, filter, null, Integer.MAX_VALUE)) {
+            return logs.collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Streams {@link Log} instances with given {@code accountId} that match provided {@code filter} and follow provided
+     * {@code position}. The time range is resolved with the index, so only records in the range are read.
+     */
+    @Override
+    public Stream<Log> streamAllByAccountId(String accountId, LogFilter filter, LogPosition position, int limit) {
+        checkOpen();
+
+        NavigableMap<LogPosition, Long> offsets = accounts.get(accountId);
+        if (offsets == null) {
+            return Stream.empty();
+        }
+
+        // IDs are never empty, so an empty ID comes before any log that starts at the same time
+        if (filter.getFrom() != null) {
+            offsets = offsets.tailMap(new LogPosition(filter.getFrom(), ""), true);
+        }
+        if (filter.getTo() != null) {
+            offsets = offsets.headMap(new LogPosition(filter.getTo(), ""), false);
+        }
+        if (position != null) {
+            offsets = offsets.tailMap(position, false);
+        }
+
+        return offsets.values().stream()
+                .map(this::read)
+                .filter(filter::matches)
+                .limit(limit);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Stream<Log> streamAllOrderedByAccountId() {
+        return findAllAccountIds().stream()
+                .flatMap(accountId -> streamAllByAccountId(accountId, new LogFilter(), null, Integer.MAX_VALUE));
+    }
+
+    /**
+     * Summarizes {@link Log} instances with given {@code accountId} that match provided {@code filter}, per activity.
+     * Logs are summarized in memory, as they are read.
+     */
+    @Override
+    public Stream<LogSummary> streamSummariesByAccountId(String accountId, LogFilter filter) {
+        final Map<String, LogSummaryBuilder> summaries = new TreeMap<>();
+
+        try (Stream<Log> logs = streamAllByAccountId(accountId, filter, null, Integer.MAX_VALUE)) {
+            logs.forEach(log -> summaries
+                    .computeIfAbsent(log.getActivityId(), LogSummaryBuilder::new)
+                    .add(log.getDuration(), 1L, log.getStartTime(), log.getStartTime())
+            );
+        }
+
+        return summaries.values().stream().map(LogSummaryBuilder::build);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Log> findAndRemove(String id, String accountId, String activityId) {
+        checkOpen();
+
+        final Optional<Long> location = findLocation(id);
+        if (!location.isPresent()) {
+            return Optional.empty();
+        }
+
+        final int shardIndex = shardOf(location.get());
+        synchronized (shards.get(shardIndex)) {
+            // The log might have been removed concurrently, before the shard was locked
+            final Optional<Log> log = findOne(id, accountId, activityId);
+            if (log.isPresent()) {
+                remove(shardIndex, Collections.singletonList(log.get()));
+            }
+
+            return log;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeAll(List<Log> logs) {
+        checkOpen();
+
+        final Map<Integer, List<Log>> shardLogs = new TreeMap<>();
+        for (Log log : logs) {
+            findLocation(log.getId()).ifPresent(location -> shardLogs
+                    .computeIfAbsent(shardOf(location), shard -> new ArrayList<>())
+                    .add(log));
+        }
+
+        shardLogs.forEach((shardIndex, removedLogs) -> {
+            synchronized (shards.get(shardIndex)) {
+                remove(shardIndex, removedLogs.stream()
+                        .map(log -> findOne(log.getId()))
+                        .filter(Optional::isPresent)
+                        .map(Optional::get)
+                        .collect(Collectors.toList()));
+            }
+        });
+    }
+
+    /**
+     * Deletes exactly {@code limit} of the oldest logs that started before provided {@code before}, or all of them if
+     * there are fewer.
+     */
+    @Override
+    public long removeOldestByAccountId(String accountId, long before, int limit) {
+        final List<Log> logs;
+
+        try (Stream<Log> expiredLogs = streamAllByAccountId(accountId, new LogFilter().narrow(null, before), null,
+                limit)) {
+            logs = expiredLogs.collect(Collectors.toList());
+        }
+
+        removeAll(logs);
+        return logs.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<String> findAllAccountIds() {
+        checkOpen();
+
+        return accounts.entrySet().stream()
+                .filter(account -> !account.getValue().isEmpty())
+                .map(Map.Entry::getKey)
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return Number of bytes taken by log records in all shards
+     */
+    public long getSize() {
+        checkOpen();
+        return shards.stream().mapToLong(MappedLogFile::getSize).sum();
+    }
+
+    private List<Log> write(List<Log> logs) {
+        checkOpen();
+
+        final List<Log> savedLogs = logs.stream()
+                .map(log -> log.getId() != null ? log : new Log(new ObjectId().toHexString(), log.getAccountId(),
+                        log.getActivityId(), log.getStartTime(), log.getDuration()))
+                .collect(Collectors.toList());
+
+        final Map<Integer, List<Log>> shardLogs = savedLogs.stream()
+                .collect(Collectors.groupingBy(log -> Math.floorMod(log.getAccountId().hashCode(), shardCount),
+                        TreeMap::new, Collectors.toList()));
+
+        shardLogs.forEach((shardIndex, newLogs) -> {
+            final List<MappedLogFile.Record> records = new ArrayList<>(newLogs.size());
+            for (Log log : newLogs) {
+                records.add(new MappedLogFile.Record(log.getId(), encode(log.getAccountId()),
+                        encode(log.getActivityId()), log.getStartTime(), log.getDuration()));
+            }
+
+            final MappedLogFile shard = shards.get(shardIndex);
+            synchronized (shard) {
+                final Set<String> ids = new HashSet<>();
+                append(shardIndex, records.stream()
+                        .filter(record -> !locations.containsKey(record.getId()) && ids.add(record.getId()))
+                        .collect(Collectors.toList()));
+            }
+        });
+
+        return savedLogs;
+    }
+
+    private void remove(int shardIndex, List<Log> logs) {
+        final List<MappedLogFile.Record> removals = logs.stream()
+                .map(log -> new MappedLogFile.Record(log.getId(), encode(log.getAccountId()),
+                        encode(log.getActivityId()), log.getStartTime(), 0L))
+                .collect(Collectors.toList());
+
+        append(shardIndex, removals);
+    }
+
+    private void append(int shardIndex, List<MappedLogFile.Record> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+
+        final long offset;
+        try {
+            offset = shards.get(shardIndex).append(records);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        final long shardBits = (long) shardIndex << OFFSET_BITS;
+        for (int i = 0; i < records.size(); ++i) {
+            index(records.get(i), shardBits | offset + (long) i * MappedLogFile.RECORD_SIZE);
+        }
+    }
+
+    private void index(MappedLogFile.Record record, long location) {
+        final String accountId = decode(record.getAccountCode());
+        final LogPosition position = new LogPosition(record.getStartTime(), record.getId());
+
+        if (record.isRemoval()) {
+            locations.remove(record.getId());
+            accounts.computeIfAbsent(accountId, account -> new ConcurrentSkipListMap<>(POSITION_ORDER))
+                    .remove(position);
+        } else {
+            // Locations are published after positions, so that a log found by its ID can be found by its position
+            accounts.computeIfAbsent(accountId, account -> new ConcurrentSkipListMap<>(POSITION_ORDER))
+                    .put(position, location);
+            locations.put(record.getId(), location);
+        }
+    }
+
+    private Log read(long location) {
+        final MappedLogFile.Record record = shards.get(shardOf(location)).read(location & (1L << OFFSET_BITS) - 1);
+
+        return new Log(record.getId(), decode(record.getAccountCode()), decode(record.getActivityCode()),
+                record.getStartTime(), record.getDuration());
+    }
+
+    private Optional<Long> findLocation(String id) {
+        checkOpen();
+
+        if (id == null || !ObjectId.isValid(id)) {
+            return Optional.empty();
+        }
+
+        return Optional.ofNullable(locations.get(new ObjectId(id).toHexString()));
+    }
+
+    private int encode(String value) {
+        synchronized (strings) {
+            final Integer existingCode = codes.get(value);
+            if (existingCode != null) {
+                return existingCode;
+            }
+
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try {
+                new DataOutputStream(bytes).writeUTF(value);
+                stringsChannel.write(ByteBuffer.wrap(bytes.toByteArray()), stringsChannel.size());
+                if (sync) {
+                    stringsChannel.force(false);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            final int code = strings.size();
+            strings.add(value);
+            codes.put(value, code);
+
+            return code;
+        }
+    }
+
+    private String decode(int code) {
+        synchronized (strings) {
+            return strings.get(code);
+        }
+    }
+
+    private void openStrings() throws IOException {
+        stringsChannel = FileChannel.open(directory.resolve(STRINGS_FILE_NAME), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        final DataInputStream input = new DataInputStream(Channels.newInputStream(stringsChannel.position(0L)));
+        long validSize = 0L;
+
+        while (validSize < stringsChannel.size()) {
+            try {
+                final String value = input.readUTF();
+                codes.put(value, strings.size());
+                strings.add(value);
+                validSize = stringsChannel.position();
+            } catch (EOFException e) {
+                break;
+            }
+        }
+
+        // A string that was not completely written cannot be referenced by any record
+        stringsChannel.truncate(validSize);
+    }
+
+    private int countShardFiles() throws IOException {
+        try (Stream<Path> paths = Files.list(directory)) {
+            return (int) paths
+                    .map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SHARD_FILE_PREFIX) && name.endsWith(SHARD_FILE_EXTENSION))
+                    .count();
+        }
+    }
+
+    private void checkOpen() {
+        if (!open) {
+            throw new IllegalStateException("Mapped log storage is not open");
+        }
+    }
+
+    private static int shardOf(long location) {
+        return (int) (location >>> OFFSET_BITS);
+    }
+
+    private static Path getDirectory(String directory) {
+        return directory == null || directory.isEmpty() ? null : Paths.get(directory);
+    }
+}
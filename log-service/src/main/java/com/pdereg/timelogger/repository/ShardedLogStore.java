@@ -0,0 +1,378 @@
+package com.pdereg.timelogger.repository;
+
+import com.mongodb.MongoClient;
+import com.mongodb.MongoClientOptions;
+import com.mongodb.ServerAddress;
+import com.pdereg.timelogger.concurrent.BulkheadRegistry;
+import com.pdereg.timelogger.domain.Log;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.SimpleMongoDbFactory;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * {@link LogStore} that spreads logs over several MongoDB hosts, each with its own connection pool. Logs are kept in
+ * the {@code document} layout, and every account belongs to a single shard, chosen by consistent hashing of its ID.
+ * Queries of a single account go only to its shard, while queries of logs of unknown accounts are sent to all shards
+ * in parallel and their results merged.
+ * <p>
+ * Sharding is disabled unless hosts are configured with {@code time-logger.log-sharding.hosts}, as a list of
+ * {@code host:port} addresses. Logs are kept in the database configured with {@code spring.data.mongodb.database} on
+ * every host. The size of each connection pool can be changed with {@code .connections-per-host} (100 by default).
+ * Hosts are identified by their addresses, so a host can be added with only accounts of about one shard moving to it,
+ * but not renamed.
+ */
+@Component
+@Lazy
+public class ShardedLogStore implements LogStore, InitializingBean, DisposableBean {
+
+    private static final String PROPERTY_PREFIX = "time-logger.log-sharding.";
+    private static final String METRIC_PREFIX = "log-sharding.";
+    private static final String BULKHEAD_NAME = "log-shards";
+
+    private static final String DEFAULT_DATABASE = "test";
+    private static final int DEFAULT_CONNECTIONS_PER_HOST = 100;
+    private static final int POINTS_PER_SHARD = 128;
+
+    private final List<String> hosts;
+    private final String database;
+    private final int connectionsPerHost;
+    private final MongoTemplate mongoTemplate;
+    private final ApplicationContext applicationContext;
+    private final Executor executor;
+
+    private final List<MongoClient> clients = new ArrayList<>();
+    private final Map<String, LogStore> shards = new LinkedHashMap<>();
+    private ConsistentHashRing<LogStore> ring;
+
+    private final AtomicLong routedCount = new AtomicLong();
+    private final AtomicLong scatteredCount = new AtomicLong();
+
+    @Autowired
+    public ShardedLogStore(MongoTemplate mongoTemplate, ApplicationContext applicationContext, Environment environment,
+                           BulkheadRegistry bulkheadRegistry) {
+
+        this.hosts = Arrays.asList(environment.getProperty(PROPERTY_PREFIX + "hosts", String[].class, new String[0]));
+        this.database = environment.getProperty("spring.data.mongodb.database", DEFAULT_DATABASE);
+        this.connectionsPerHost = environment.getProperty(PROPERTY_PREFIX + "connections-per-host", Integer.class,
+                DEFAULT_CONNECTIONS_PER_HOST);
+        this.mongoTemplate = mongoTemplate;
+        this.applicationContext = applicationContext;
+
+        // Shards are queried from tasks of the Mongo bulkhead, which must not wait for tasks queued behind them
+        this.executor = bulkheadRegistry.executor(BULKHEAD_NAME);
+    }
+
+    /**
+     * @param shards   {@link LogStore} instances of shards, by their unique names
+     * @param executor {@link Executor} to query shards in parallel on
+     */
+    public ShardedLogStore(Map<String, LogStore> shards, Executor executor) {
+        this.hosts = Collections.emptyList();
+        this.database = null;
+        this.connectionsPerHost = 0;
+        this.mongoTemplate = null;
+        this.applicationContext = null;
+        this.executor = executor;
+
+        this.shards.putAll(shards);
+        this.ring = new ConsistentHashRing<>(new ArrayList<>(shards.keySet()), new ArrayList<>(shards.values()),
+                POINTS_PER_SHARD);
+    }
+
+    /**
+     * Creates a {@link LogStore} that keeps logs in the {@code document} layout with provided {@code mongoTemplate},
+     * rather than with the one of the application.
+     *
+     * @param mongoTemplate {@link MongoTemplate} of a shard
+     * @return {@link DocumentLogStore} instance
+     */
+    public static LogStore createShard(MongoTemplate mongoTemplate) {
+        final LogRepository logRepository = new MongoRepositoryFactory(mongoTemplate)
+                .getRepository(LogRepository.class, new LogRepositoryImpl(mongoTemplate));
+
+        return new DocumentLogStore(logRepository);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void afterPropertiesSet() {
+        if (hosts.isEmpty()) {
+            return;
+        }
+
+        final MongoClientOptions options = MongoClientOptions.builder()
+                .connectionsPerHost(connectionsPerHost)
+                .build();
+
+        for (String host : hosts) {
+            final MongoClient client = new MongoClient(new ServerAddress(host.trim()), options);
+            clients.add(client);
+
+            // Shards share the mapping of the application, and publish its events (e.g. validation) as well
+            final MongoTemplate shardTemplate = new MongoTemplate(new SimpleMongoDbFactory(client, database),
+                    mongoTemplate.getConverter());
+            shardTemplate.setApplicationContext(applicationContext);
+
+            shards.put(host.trim(), createShard(shardTemplate));
+        }
+
+        ring = new ConsistentHashRing<>(new ArrayList<>(shards.keySet()), new ArrayList<>(shards.values()),
+                POINTS_PER_SHARD);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void destroy() {
+        clients.forEach(MongoClient::close);
+    }
+
+    /**
+     * @return {@code true} if hosts are configured and logs can be stored
+     */
+    public boolean isEnabled() {
+        return ring != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LogLayout getLayout() {
+        return LogLayout.SHARDED;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Log save(Log log) {
+        return shardOf(log.getAccountId()).save(log);
+    }
+
+    /**
+     * Saves all provided {@code logs}, with a single request per shard. Logs keep their order in the returned list.
+     */
+    @Override
+    public List<Log> save(List<Log> logs) {
+        return writeToShards(logs, LogStore::save);
+    }
+
+    /**
+     * Saves all provided {@code logs} with as few round trips as possible, with a single bulk insert per shard. Logs
+     * keep their order in the returned list.
+     */
+    @Override
+    public List<Log> insert(List<Log> logs) {
+        return writeToShards(logs, LogStore::insert);
+    }
+
+    /**
+     * Finds a {@link Log} instance with given {@code id}. The account of the log is unknown, so all shards are
+     * queried in parallel.
+     */
+    @Override
+    public Optional<Log> findOne(String id) {
+        return scatter(shard -> shard.findOne(id)).stream()
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .findFirst();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Log> findOne(String id, String accountId, String activityId) {
+        return shardOf(accountId).findOne(id, accountId, activityId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Log> findAllByAccountId(String accountId) {
+        return shardOf(accountId).findAllByAccountId(accountId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Log> findAllByAccountIdAndActivityId(String accountId, String activityId) {
+        return shardOf(accountId).findAllByAccountIdAndActivityId(accountId, activityId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Stream<Log> streamAllByAccountId(String accountId, LogFilter filter, LogPosition position, int limit) {
+        return shardOf(accountId).streamAllByAccountId(accountId, filter, position, limit);
+    }
+
+    /**
+     * Opens a cursor over all {@link Log} instances, grouped by their account ID and sorted by their start time within
+     * each account. Every account belongs to a single shard, so shards are read one after another, each with its own
+     * cursor. The returned stream must be closed once consumed.
+     */
+    @Override
+    public Stream<Log> streamAllOrderedByAccountId() {
+        scatteredCount.incrementAndGet();
+
+        return shards.values().stream().flatMap(LogStore::streamAllOrderedByAccountId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Stream<LogSummary> streamSummariesByAccountId(String accountId, LogFilter filter) {
+        return shardOf(accountId).streamSummariesByAccountId(accountId, filter);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Log> findAndRemove(String id, String accountId, String activityId) {
+        return shardOf(accountId).findAndRemove(id, accountId, activityId);
+    }
+
+    /**
+     * Deletes all provided {@code logs}, with a single request per shard.
+     */
+    @Override
+    public void removeAll(List<Log> logs) {
+        groupByShard(logs).forEach(LogStore::removeAll);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long removeOldestByAccountId(String accountId, long before, int limit) {
+        return shardOf(accountId).removeOldestByAccountId(accountId, before, limit);
+    }
+
+    /**
+     * Returns IDs of all accounts that have any logs, collected from all shards in parallel.
+     */
+    @Override
+    public List<String> findAllAccountIds() {
+        final TreeSet<String> accountIds = new TreeSet<>();
+        scatter(LogStore::findAllAccountIds).forEach(accountIds::addAll);
+
+        return new ArrayList<>(accountIds);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<Metric<?>> metrics() {
+        final List<Metric<?>> metrics = new ArrayList<>();
+
+        metrics.add(new Metric<>(METRIC_PREFIX + "shards", shards.size()));
+        metrics.add(new Metric<>(METRIC_PREFIX + "routed", routedCount.get()));
+        metrics.add(new Metric<>(METRIC_PREFIX + "scattered", scatteredCount.get()));
+
+        return metrics;
+    }
+
+    /**
+     * @param accountId ID of the user account
+     * @return Name of the shard that keeps logs of the account
+     */
+    public String getShardName(String accountId) {
+        final LogStore shard = shardOf(accountId);
+
+        return shards.entrySet().stream()
+                .filter(entry -> entry.getValue() == shard)
+                .map(Map.Entry::getKey)
+                .findFirst()
+                .orElseThrow(IllegalStateException::new);
+    }
+
+    private LogStore shardOf(String accountId) {
+        if (ring == null) {
+            throw new IllegalStateException("Log sharding is not configured");
+        }
+
+        routedCount.incrementAndGet();
+        return ring.get(accountId);
+    }
+
+    private List<Log> writeToShards(List<Log> logs, ShardWrite write) {
+        // IDs are assigned up front, so that logs can be returned in their order regardless of how they were split
+        final List<Log> identifiedLogs = logs.stream()
+                .map(log -> log.getId() != null ? log : new Log(new ObjectId().toHexString(), log.getAccountId(),
+                        log.getActivityId(), log.getStartTime(), log.getDuration()))
+                .collect(Collectors.toList());
+
+        groupByShard(identifiedLogs).forEach(write::write);
+        return identifiedLogs;
+    }
+
+    private Map<LogStore, List<Log>> groupByShard(List<Log> logs) {
+        final Map<LogStore, List<Log>> shardLogs = new LinkedHashMap<>();
+        logs.forEach(log -> shardLogs
+                .computeIfAbsent(shardOf(log.getAccountId()), shard -> new ArrayList<>())
+                .add(log));
+
+        return shardLogs;
+    }
+
+    private <T> List<T> scatter(Function<LogStore, T> query) {
+        if (ring == null) {
+            throw new IllegalStateException("Log sharding is not configured");
+        }
+
+        scatteredCount.incrementAndGet();
+
+        final List<CompletableFuture<T>> futures = shards.values().stream()
+                .map(shard -> CompletableFuture.supplyAsync(() -> query.apply(shard), executor))
+                .collect(Collectors.toList());
+
+        try {
+            return futures.stream().map(CompletableFuture::join).collect(Collectors.toList());
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+    }
+
+    @FunctionalInterface
+    private interface ShardWrite {
+
+        void write(LogStore shard, List<Log> logs);
+    }
+}
@@ -0,0 +1,403 @@
+package com.pdereg.timelogger.repository;
+
+import com.pdereg.timelogger.domain.Log;
+import org.springframework.data.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * {@link LogStore} that keeps recent logs in another {@link LogStore} and reads old logs from {@link LogArchive} as
+ * well. Reads of time ranges that do not reach into archived months only query the database.
+ * <p>
+ * Logs written to archived months after they were archived stay in the database until they are archived too, so
+ * reads of archived months merge both tiers. Archived logs are read-only, so they can only be deleted by whole segments
+ * once they expire.
+ */
+public class TieredLogStore implements LogStore {
+
+    private final LogStore logStore;
+    private final LogArchive logArchive;
+
+    public TieredLogStore(LogStore logStore, LogArchive logArchive) {
+        this.logStore = logStore;
+        this.logArchive = logArchive;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LogLayout getLayout() {
+        return logStore.getLayout();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Log save(Log log) {
+        return logStore.save(log);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Log> save(List<Log> logs) {
+        return logStore.save(logs);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Log> insert(List<Log> logs) {
+        return logStore.insert(logs);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Log> findOne(String id) {
+        final Optional<Log> log = logStore.findOne(id);
+        return log.isPresent() ? log : logArchive.findOne(id);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<Log> findOne(String id, String accountId, String activityId) {
+        final Optional<Log> log = logStore.findOne(id, accountId, activityId);
+        if (log.isPresent()) {
+            return log;
+        }
+
+        return logArchive.findOne(id, accountId).filter(archivedLog -> archivedLog.getActivityId().equals(activityId));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Log> findAllByAccountId(String accountId) {
+        try (Stream<Log> logs = streamAllByAccountId(accountId, new LogFilter(), null, Integer.MAX_VALUE)) {
+            return logs.collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Log> findAllByAccountIdAndActivityId(String accountId, String activityId) {
+        final LogFilter filter = new LogFilter();
+        filter.setActivityIds(Collections.singleton(activityId));
+
+        try (Stream<Log> logs = streamAllByAccountId(accountId, filter, null, Integer.MAX_VALUE)) {
+            return logs.collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Stream<Log> streamAllByAccountId(String accountId, LogFilter filter, LogPosition position, int limit) {
+        final long archivedUntil = logArchive.getArchivedUntil(accountId);
+        if (!reachesArchive(filter, position, archivedUntil)) {
+            return logStore.streamAllByAccountId(accountId, filter, position, limit);
+        }
+
+        final LogFilter archivedFilter = filter.narrow(null, archivedUntil);
+        final Stream<Log> archivedLogs = merge(
+                logArchive.stream(accountId, archivedFilter, position),
+                logStore.streamAllByAccountId(accountId, archivedFilter, position, limit)
+        );
+
+        if (filter.getTo() != null && filter.getTo() <= archivedUntil) {
+            return archivedLogs.limit(limit);
+        }
+
+        // Recent logs are queried only once all archived logs are read
+        final LogFilter recentFilter = filter.narrow(archivedUntil, null);
+        final Stream<Log> recentLogs = Stream
+                .of(recentFilter)
+                .flatMap(recent -> logStore.streamAllByAccountId(accountId, recent, position, limit));
+
+        return Stream.concat(archivedLogs, recentLogs).limit(limit);
+    }
+
+    /**
+     * Opens a cursor over all {@link Log} instances, grouped by their account ID and sorted by their start time within
+     * each account. Archived logs of each account are merged with recent ones as the account is reached, and accounts
+     * with only archived logs follow all others. The returned stream must be closed once consumed.
+     */
+    @Override
+    public Stream<Log> streamAllOrderedByAccountId() {
+        final Stream<Log> recentLogs = logStore.streamAllOrderedByAccountId();
+        final Iterator<Log> logs = new AccountMergingIterator(recentLogs.iterator());
+
+        return StreamUtils.createStreamFromIterator(logs).onClose(recentLogs::close);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Stream<LogSummary> streamSummariesByAccountId(String accountId, LogFilter filter) {
+        final long archivedUntil = logArchive.getArchivedUntil(accountId);
+        if (!reachesArchive(filter, null, archivedUntil)) {
+            return logStore.streamSummariesByAccountId(accountId, filter);
+        }
+
+        // Archived months are summarized in memory, while recent ones are still summarized by the database
+        final Map<String, LogSummaryBuilder> summaries = new TreeMap<>();
+
+        try (Stream<Log> archivedLogs = streamAllByAccountId(accountId, filter.narrow(null, archivedUntil), null,
+                Integer.MAX_VALUE)) {
+
+            archivedLogs.forEach(log -> summaries
+                    .computeIfAbsent(log.getActivityId(), LogSummaryBuilder::new)
+                    .add(log.getDuration(), 1L, log.getStartTime(), log.getStartTime())
+            );
+        }
+
+        if (filter.getTo() == null || filter.getTo() > archivedUntil) {
+            try (Stream<LogSummary> recentSummaries = logStore.streamSummariesByAccountId(
+                    accountId, filter.narrow(archivedUntil, null)
+            )) {
+                recentSummaries.forEach(summary -> summaries
+                        .computeIfAbsent(summary.getActivityId(), LogSummaryBuilder::new)
+                        .add(summary.getTotalDuration(), summary.getLogCount(), summary.getFirstStartTime(),
+                                summary.getLastStartTime())
+                );
+            }
+        }
+
+        return summaries.values().stream().map(LogSummaryBuilder::build);
+    }
+
+    /**
+     * Atomically finds and deletes a {@link Log} instance with given {@code id}, {@code accountId} and
+     * {@code activityId}. Archived logs are never deleted.
+     */
+    @Override
+    public Optional<Log> findAndRemove(String id, String accountId, String activityId) {
+        return logStore.findAndRemove(id, accountId, activityId);
+    }
+
+    /**
+     * Deletes all provided {@code logs} with as few round trips as possible. Archived logs are never deleted.
+     */
+    @Override
+    public void removeAll(List<Log> logs) {
+        logStore.removeAll(logs);
+    }
+
+    /**
+     * Deletes a batch of the oldest {@link Log} instances with given {@code accountId} that started before provided
+     * {@code before}. Archived segments that hold only such logs are deleted first, whatever their size, as segments
+     * cannot be modified. Archived logs that share a segment with later logs are kept until the whole segment
+     * expires.
+     */
+    @Override
+    public long removeOldestByAccountId(String accountId, long before, int limit) {
+        final long archivedLogCount;
+        try {
+            archivedLogCount = logArchive.removeBefore(accountId, before);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return archivedLogCount > 0L ? archivedLogCount : logStore.removeOldestByAccountId(accountId, before, limit);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<String> findAllAccountIds() {
+        final Set<String> accountIds = new TreeSet<>(logStore.findAllAccountIds());
+        accountIds.addAll(logArchive.getAccountIds());
+
+        return new ArrayList<>(accountIds);
+    }
+
+    private static boolean reachesArchive(LogFilter filter, LogPosition position, long archivedUntil) {
+        return archivedUntil != Long.MIN_VALUE
+                && (filter.getFrom() == null || filter.getFrom() < archivedUntil)
+                && (position == null || position.getStartTime() < archivedUntil);
+    }
+
+    private static Stream<Log> merge(Stream<Log> first, Stream<Log> second) {
+        final Iterator<Log> logs = new MergingIterator(first.iterator(), second.iterator());
+
+        return StreamUtils.createStreamFromIterator(logs).onClose(() -> {
+            try {
+                first.close();
+            } finally {
+                second.close();
+            }
+        });
+    }
+
+    /**
+     * Merges two iterators over logs sorted by their positions. A log that is present in both (e.g. because it was
+     * archived, but the process died before it was deleted from the database) is returned once.
+     */
+    private static class MergingIterator implements Iterator<Log> {
+
+        private final Iterator<Log> first;
+        private final Iterator<Log> second;
+
+        private Log nextFirst;
+        private Log nextSecond;
+
+        MergingIterator(Iterator<Log> first, Iterator<Log> second) {
+            this.first = first;
+            this.second = second;
+            this.nextFirst = advance(first);
+            this.nextSecond = advance(second);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextFirst != null || nextSecond != null;
+        }
+
+        @Override
+        public Log next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            final int comparison = nextFirst == null ? 1
+                    : nextSecond == null ? -1
+                    : LogPosition.ORDER.compare(nextFirst, nextSecond);
+
+            if (comparison > 0) {
+                final Log log = nextSecond;
+                nextSecond = advance(second);
+                return log;
+            }
+
+            final Log log = nextFirst;
+            nextFirst = advance(first);
+            if (comparison == 0) {
+                nextSecond = advance(second);
+            }
+
+            return log;
+        }
+
+        private static Log advance(Iterator<Log> logs) {
+            return logs.hasNext() ? logs.next() : null;
+        }
+    }
+
+    /**
+     * Merges recent logs, grouped by their account ID, with archived logs of each account.
+     */
+    private class AccountMergingIterator implements Iterator<Log> {
+
+        private final Iterator<Log> recentLogs;
+        private final Set<String> visitedAccountIds = new HashSet<>();
+
+        private Log nextRecent;
+        private Iterator<Log> accountLogs = Collections.emptyIterator();
+        private Iterator<String> archivedAccountIds;
+
+        AccountMergingIterator(Iterator<Log> recentLogs) {
+            this.recentLogs = recentLogs;
+            this.nextRecent = recentLogs.hasNext() ? recentLogs.next() : null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!accountLogs.hasNext()) {
+                if (!nextAccount()) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        @Override
+        public Log next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            return accountLogs.next();
+        }
+
+        private boolean nextAccount() {
+            if (nextRecent != null) {
+                final String accountId = nextRecent.getAccountId();
+                visitedAccountIds.add(accountId);
+
+                final Iterator<Log> archivedLogs = logArchive.stream(accountId, new LogFilter(), null).iterator();
+                accountLogs = new MergingIterator(archivedLogs, new RecentAccountIterator(accountId));
+                return true;
+            }
+
+            if (archivedAccountIds == null) {
+                final Set<String> accountIds = logArchive.getAccountIds();
+                accountIds.removeAll(visitedAccountIds);
+                archivedAccountIds = accountIds.iterator();
+            }
+
+            if (archivedAccountIds.hasNext()) {
+                accountLogs = logArchive.stream(archivedAccountIds.next(), new LogFilter(), null).iterator();
+                return true;
+            }
+
+            return false;
+        }
+
+        /**
+         * Iterates over recent logs for as long as they belong to the same account.
+         */
+        private class RecentAccountIterator implements Iterator<Log> {
+
+            private final String accountId;
+
+            RecentAccountIterator(String accountId) {
+                this.accountId = accountId;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return nextRecent != null && nextRecent.getAccountId().equals(accountId);
+            }
+
+            @Override
+            public Log next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                final Log log = nextRecent;
+                nextRecent = recentLogs.hasNext() ? recentLogs.next() : null;
+                return log;
+            }
+        }
+    }
+}
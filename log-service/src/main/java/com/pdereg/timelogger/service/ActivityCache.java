@@ -0,0 +1,297 @@
+package com.pdereg.timelogger.service;
+
+import com.pdereg.timelogger.network.model.Activity;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * A bounded cache of activity lookups keyed by account ID and activity name. Both existing and missing activities are
+ * cached, the latter for a shorter time.
+ * <p>
+ * Once an existing activity expires, it is still served for a while as stale, while a fresh copy is fetched in the
+ * background. If fetching a fresh copy fails, the stale copy keeps being served, so that a short outage of
+ * activity-service does not fail log writes.
+ * <p>
+ * Limits can be overridden with {@code time-logger.activity-cache.max-size}, {@code .ttl}, {@code .negative-ttl} and
+ * {@code .stale-ttl} properties (all times in milliseconds).
+ */
+@Component
+public class ActivityCache implements PublicMetrics {
+
+    private static final String PROPERTY_PREFIX = "time-logger.activity-cache.";
+    private static final String METRIC_PREFIX = "caches.activity.";
+
+    private static final int DEFAULT_MAX_SIZE = 10000;
+    private static final long DEFAULT_TTL = 60 * 1000L;
+    private static final long DEFAULT_NEGATIVE_TTL = 5 * 1000L;
+    private static final long DEFAULT_STALE_TTL = 10 * 60 * 1000L;
+
+    private final long ttl;
+    private final long negativeTtl;
+    private final long staleTtl;
+    private final Clock clock;
+
+    private final Map<Key, Entry> entries;
+    private final ConcurrentMap<Key, CompletableFuture<Optional<Activity>>> pendingLoads = new ConcurrentHashMap<>();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong staleHitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+    private final AtomicLong loadFailureCount = new AtomicLong();
+
+    @Autowired
+    public ActivityCache(Environment environment) {
+        this(
+                environment.getProperty(PROPERTY_PREFIX + "max-size", Integer.class, DEFAULT_MAX_SIZE),
+                environment.getProperty(PROPERTY_PREFIX + "ttl", Long.class, DEFAULT_TTL),
+                environment.getProperty(PROPERTY_PREFIX + "negative-ttl", Long.class, DEFAULT_NEGATIVE_TTL),
+                environment.getProperty(PROPERTY_PREFIX + "stale-ttl", Long.class, DEFAULT_STALE_TTL),
+                Clock.systemUTC()
+        );
+    }
+
+    public ActivityCache(int maxSize, long ttl, long negativeTtl, long staleTtl, Clock clock) {
+        this.ttl = ttl;
+        this.negativeTtl = negativeTtl;
+        this.staleTtl = staleTtl;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > maxSize) {
+                    evictionCount.incrementAndGet();
+                    return true;
+                }
+
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns a cached activity with provided {@code accountId} and {@code name}, fetching it with {@code loader} if
+     * necessary. Concurrent fetches of the same activity are coalesced into one.
+     *
+     * @param accountId ID of the user account associated with the activity
+     * @param name      Name of the activity
+     * @param loader    Fetches the activity; completes with an empty {@link Optional} if the activity does not exist
+     * @return Optional activity
+     */
+    public CompletableFuture<Optional<Activity>> get(String accountId, String name,
+                                                     Supplier<CompletableFuture<Optional<Activity>>> loader) {
+
+        final Key key = new Key(accountId, name);
+        final Entry entry = getEntry(key);
+        final long now = clock.millis();
+
+        if (entry != null && now < entry.expiresAt) {
+            hitCount.incrementAndGet();
+            return CompletableFuture.completedFuture(entry.activity);
+        }
+
+        if (entry != null && now < entry.staleUntil) {
+            staleHitCount.incrementAndGet();
+            load(key, loader);
+            return CompletableFuture.completedFuture(entry.activity);
+        }
+
+        missCount.incrementAndGet();
+
+        return load(key, loader).handle((activity, throwable) -> {
+            if (throwable == null) {
+                return activity;
+            }
+            if (entry != null) {
+                return entry.activity;
+            }
+
+            throw throwable instanceof CompletionException
+                    ? (CompletionException) throwable
+                    : new CompletionException(throwable);
+        });
+    }
+
+    /**
+     * Removes all entries from the cache.
+     */
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<Metric<?>> metrics() {
+        final List<Metric<?>> metrics = new ArrayList<>();
+
+        metrics.add(new Metric<>(METRIC_PREFIX + "size", getSize()));
+        metrics.add(new Metric<>(METRIC_PREFIX + "hits", hitCount.get()));
+        metrics.add(new Metric<>(METRIC_PREFIX + "hits.stale", staleHitCount.get()));
+        metrics.add(new Metric<>(METRIC_PREFIX + "misses", missCount.get()));
+        metrics.add(new Metric<>(METRIC_PREFIX + "evictions", evictionCount.get()));
+        metrics.add(new Metric<>(METRIC_PREFIX + "load.failures", loadFailureCount.get()));
+
+        return metrics;
+    }
+
+    /**
+     * @return Number of cached activities
+     */
+    public int getSize() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * @return Number of lookups served from a fresh entry
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * @return Number of lookups served from a stale entry while it was being refreshed
+     */
+    public long getStaleHitCount() {
+        return staleHitCount.get();
+    }
+
+    /**
+     * @return Number of lookups that had to wait for the activity to be fetched
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * @return Number of entries evicted because the cache was full
+     */
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    private CompletableFuture<Optional<Activity>> load(Key key,
+                                                       Supplier<CompletableFuture<Optional<Activity>>> loader) {
+
+        final CompletableFuture<Optional<Activity>> pendingLoad = pendingLoads.get(key);
+        if (pendingLoad != null) {
+            return pendingLoad;
+        }
+
+        final CompletableFuture<Optional<Activity>> load = new CompletableFuture<>();
+        final CompletableFuture<Optional<Activity>> concurrentLoad = pendingLoads.putIfAbsent(key, load);
+        if (concurrentLoad != null) {
+            return concurrentLoad;
+        }
+
+        // The loader is only started once the pending load is registered, so that it may complete synchronously
+        final CompletableFuture<Optional<Activity>> loaded;
+        try {
+            loaded = loader.get();
+        } catch (RuntimeException e) {
+            // A loader rejected right away (e.g. by a full bulkhead) fails this load only, not the ones that follow
+            failLoad(key, load, e);
+            return load;
+        }
+
+        loaded.whenComplete((activity, throwable) -> {
+            if (throwable == null) {
+                pendingLoads.remove(key, load);
+                putEntry(key, activity);
+                load.complete(activity);
+            } else {
+                failLoad(key, load, throwable);
+            }
+        });
+
+        return load;
+    }
+
+    private void failLoad(Key key, CompletableFuture<Optional<Activity>> load, Throwable throwable) {
+        pendingLoads.remove(key, load);
+        loadFailureCount.incrementAndGet();
+        load.completeExceptionally(throwable);
+    }
+
+    private Entry getEntry(Key key) {
+        synchronized (entries) {
+            return entries.get(key);
+        }
+    }
+
+    private void putEntry(Key key, Optional<Activity> activity) {
+        final long now = clock.millis();
+        final Entry entry = activity.isPresent()
+                ? new Entry(activity, now + ttl, now + ttl + staleTtl)
+                : new Entry(activity, now + negativeTtl, now + negativeTtl);
+
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+    }
+
+    private static class Key {
+
+        private final String accountId;
+        private final String name;
+
+        Key(String accountId, String name) {
+            this.accountId = accountId;
+            this.name = name;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            Key key = (Key) o;
+
+            if (!accountId.equals(key.accountId)) return false;
+            return name.equals(key.name);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = accountId.hashCode();
+            result = 31 * result + name.hashCode();
+            return result;
+        }
+    }
+
+    private static class Entry {
+
+        private final Optional<Activity> activity;
+        private final long expiresAt;
+        private final long staleUntil;
+
+        Entry(Optional<Activity> activity, long expiresAt, long staleUntil) {
+            this.activity = activity;
+            this.expiresAt = expiresAt;
+            this.staleUntil = staleUntil;
+        }
+    }
+}
@@ -1,14 +1,23 @@
 package com.pdereg.timelogger.service;
 
+import com.pdereg.timelogger.concurrent.BulkheadRegistry;
 import com.pdereg.timelogger.network.ActivityClient;
 import com.pdereg.timelogger.network.model.Activity;
+import com.pdereg.timelogger.network.model.ActivityPage;
 import com.pdereg.timelogger.service.error.ActivityNotFoundException;
 import feign.FeignException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
 
 /**
  * Provides an abstraction layer over {@link ActivityClient}. Used for retrieving activities.
@@ -16,15 +25,24 @@ import java.util.concurrent.CompletableFuture;
 @Service
 public class ActivityService {
 
+    private static final int ACTIVITY_PAGE_SIZE = 1000;
+
     private final ActivityClient activityClient;
+    private final ActivityCache activityCache;
+    private final Executor executor;
 
     @Autowired
-    public ActivityService(ActivityClient activityClient) {
+    public ActivityService(ActivityClient activityClient, ActivityCache activityCache,
+                           BulkheadRegistry bulkheadRegistry) {
+
         this.activityClient = activityClient;
+        this.activityCache = activityCache;
+        this.executor = bulkheadRegistry.executor(BulkheadRegistry.FEIGN);
     }
 
     /**
-     * Retrieves activity with provided {@code accountId} and {@code name}.
+     * Retrieves activity with provided {@code accountId} and {@code name}. Activities are served from
+     * {@link ActivityCache} when possible.
      *
      * @param authorizationHeader HTTP authorization header for authenticating with activity-service
      * @param accountId           ID of the user account associated with the activity
@@ -32,18 +50,91 @@ public class ActivityService {
      * @return Fetched activity
      */
     public CompletableFuture<Activity> getActivity(String authorizationHeader, String accountId, String name) {
-        return CompletableFuture.supplyAsync(() -> activityClient.getActivity(authorizationHeader, accountId, name))
+        return activityCache
+                .get(accountId, name, () -> fetchActivity(authorizationHeader, accountId, name))
+                .thenApply(activity -> activity.<ActivityNotFoundException>orElseThrow(ActivityNotFoundException::new));
+    }
+
+    /**
+     * Checks which of provided activity {@code names} exist for an account with provided {@code accountId}. Each
+     * activity is looked up once, and all lookups run concurrently.
+     *
+     * @param authorizationHeader HTTP authorization header for authenticating with activity-service
+     * @param accountId           ID of the user account associated with the activities
+     * @param names               Names of the activities to look up
+     * @return A set of names of the activities that exist
+     */
+    public CompletableFuture<Set<String>> findExistingActivityNames(String authorizationHeader, String accountId,
+                                                                    Set<String> names) {
+
+        final List<CompletableFuture<Optional<String>>> lookups = names.stream()
+                .map(name -> getActivity(authorizationHeader, accountId, name)
+                        .thenApply(activity -> Optional.of(name))
+                        .exceptionally(this::ignoreMissingActivity)
+                )
+                .collect(Collectors.toList());
+
+        return CompletableFuture
+                .allOf(lookups.toArray(new CompletableFuture<?>[lookups.size()]))
+                .thenApply(unit -> lookups.stream()
+                        .map(CompletableFuture::join)
+                        .filter(Optional::isPresent)
+                        .map(Optional::get)
+                        .collect(Collectors.toSet())
+                );
+    }
+
+    /**
+     * Retrieves all activities with provided {@code accountId}, fetching as many pages as necessary. Activities are
+     * not cached, as their schedules and required durations may change at any time.
+     *
+     * @param authorizationHeader HTTP authorization header for authenticating with activity-service
+     * @param accountId           ID of the user account associated with the activities
+     * @return A list of fetched activities, sorted by their names
+     */
+    public CompletableFuture<List<Activity>> findAllByAccountId(String authorizationHeader, String accountId) {
+        return CompletableFuture.supplyAsync(() -> {
+            final List<Activity> activities = new ArrayList<>();
+            String continuation = null;
+
+            do {
+                final ActivityPage page = activityClient.getActivities(
+                        authorizationHeader, accountId, continuation, ACTIVITY_PAGE_SIZE
+                );
+
+                activities.addAll(page.getContent());
+                continuation = page.getNext();
+            } while (continuation != null);
+
+            return activities;
+        }, executor);
+    }
+
+    private Optional<String> ignoreMissingActivity(Throwable throwable) {
+        if (findCausingThrowable(throwable) instanceof ActivityNotFoundException) {
+            return Optional.empty();
+        }
+
+        throw new CompletionException(throwable);
+    }
+
+    private CompletableFuture<Optional<Activity>> fetchActivity(String authorizationHeader, String accountId,
+                                                                String name) {
+
+        return CompletableFuture
+                .supplyAsync(() -> activityClient.getActivity(authorizationHeader, accountId, name), executor)
+                .thenApply(Optional::of)
                 .exceptionally(this::rethrowCorrectError);
     }
 
-    private Activity rethrowCorrectError(Throwable throwable) {
+    private Optional<Activity> rethrowCorrectError(Throwable throwable) {
         final Throwable cause = findCausingThrowable(throwable);
 
         if (cause instanceof FeignException) {
             final int status = ((FeignException) cause).status();
 
             if (status == HttpStatus.NOT_FOUND.value()) {
-                throw new ActivityNotFoundException();
+                return Optional.empty();
             }
         }
 
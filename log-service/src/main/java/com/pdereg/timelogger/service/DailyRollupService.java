@@ -0,0 +1,181 @@
+package com.pdereg.timelogger.service;
+
+import com.pdereg.timelogger.concurrent.BulkheadRegistry;
+import com.pdereg.timelogger.domain.DailyRollup;
+import com.pdereg.timelogger.domain.Log;
+import com.pdereg.timelogger.repository.DailyRollupRepository;
+import com.pdereg.timelogger.repository.LogRetentionPolicy;
+import com.pdereg.timelogger.repository.LogStore;
+import com.pdereg.timelogger.service.error.InvalidTimeRangeException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Provides read access to {@link DailyRollup} instances and rebuilds them from existing logs. Rollups themselves are
+ * kept up to date by {@link LogService}.
+ */
+@Service
+public class DailyRollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DailyRollupService.class);
+
+    private final LogStore logStore;
+    private final DailyRollupRepository dailyRollupRepository;
+    private final LogRetentionPolicy logRetentionPolicy;
+    private final Executor executor;
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    @Autowired
+    public DailyRollupService(LogStore logStore, DailyRollupRepository dailyRollupRepository,
+                              LogRetentionPolicy logRetentionPolicy, BulkheadRegistry bulkheadRegistry) {
+
+        this.logStore = logStore;
+        this.dailyRollupRepository = dailyRollupRepository;
+        this.logRetentionPolicy = logRetentionPolicy;
+        this.executor = bulkheadRegistry.executor(BulkheadRegistry.MONGO);
+    }
+
+    /**
+     * Fetches and returns {@link DailyRollup} instances of an account with given {@code accountId} for days that
+     * overlap with provided time range. Only days on which anything was logged are returned.
+     *
+     * @param accountId  ID of the user account associated with the rollups to return
+     * @param from       Lower bound (inclusive) of the time range (as UNIX timestamp in milliseconds)
+     * @param to         Upper bound (exclusive) of the time range (as UNIX timestamp in milliseconds)
+     * @param activityId ID of the activity associated with the rollups to return, or {@code null} to return rollups of
+     *                   all activities
+     * @return A list of {@link DailyRollup} instances, sorted by their day and activity ID
+     * @throws InvalidTimeRangeException If {@code from} is after {@code to}
+     */
+    public CompletableFuture<List<DailyRollup>> findAllByAccountId(String accountId, long from, long to,
+                                                                   String activityId) {
+        if (from > to) {
+            throw new InvalidTimeRangeException();
+        }
+
+        return CompletableFuture.supplyAsync(
+                () -> dailyRollupRepository.findAllByAccountId(accountId, from, to, activityId), executor
+        );
+    }
+
+    /**
+     * Recomputes rollups of all accounts from their logs. Accounts are processed one at a time, so memory use depends
+     * only on the number of days and activities of a single account. Logs written while an account is being processed
+     * may be missed, so this is meant to backfill rollups for logs written before they were introduced.
+     * <p>
+     * Rollups are kept for logs deleted by {@link LogRetentionService} or a TTL index, so rollups of days that may have
+     * lost logs to retention (up to and including the day on which logs currently expire) are never replaced, only
+     * added where missing. Rollups of accounts without any logs are left as they are.
+     *
+     * @return {@code true} once rollups are rebuilt, or {@code false} if a rebuild was already in progress
+     */
+    public CompletableFuture<Boolean> rebuildAll() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return CompletableFuture.completedFuture(false);
+        }
+
+        return CompletableFuture
+                .supplyAsync(() -> {
+                    try (Stream<Log> logs = logStore.streamAllOrderedByAccountId()) {
+                        final int accountCount = rebuildAll(logs.iterator());
+                        logger.info("Rebuilt daily rollups of {} accounts", accountCount);
+                    }
+
+                    return true;
+                }, executor)
+                .whenComplete((result, throwable) -> {
+                    if (throwable != null) {
+                        logger.warn("Failed to rebuild daily rollups", throwable);
+                    }
+
+                    rebuilding.set(false);
+                });
+    }
+
+    private int rebuildAll(Iterator<Log> logs) {
+        final Map<String, DailyRollupBuilder> rollups = new LinkedHashMap<>();
+        final long now = System.currentTimeMillis();
+        String accountId = null;
+        int accountCount = 0;
+
+        while (logs.hasNext()) {
+            final Log log = logs.next();
+
+            if (!log.getAccountId().equals(accountId)) {
+                if (accountId != null) {
+                    replaceAll(accountId, rollups, now);
+                    ++accountCount;
+                }
+
+                accountId = log.getAccountId();
+                rollups.clear();
+            }
+
+            final long day = DailyRollup.dayOf(log.getStartTime());
+            rollups
+                    .computeIfAbsent(log.getActivityId() + '/' + day, key -> new DailyRollupBuilder(log, day))
+                    .add(log);
+        }
+
+        if (accountId != null) {
+            replaceAll(accountId, rollups, now);
+            ++accountCount;
+        }
+
+        return accountCount;
+    }
+
+    private void replaceAll(String accountId, Map<String, DailyRollupBuilder> builders, long now) {
+        final List<DailyRollup> rollups = new ArrayList<>(builders.size());
+        builders.values().forEach(builder -> rollups.add(builder.build()));
+
+        dailyRollupRepository.replaceAllByAccountId(accountId, rollups, getReplacedFrom(accountId, now));
+    }
+
+    private long getReplacedFrom(String accountId, long now) {
+        final Optional<Long> maxAge = logRetentionPolicy.getMaxAge(accountId);
+        if (!maxAge.isPresent()) {
+            return Long.MIN_VALUE;
+        }
+
+        // The day on which logs currently expire may have been purged only in part
+        return DailyRollup.dayOf(now - maxAge.get()) + DailyRollup.MILLIS_IN_A_DAY;
+    }
+
+    private static class DailyRollupBuilder {
+
+        private final String accountId;
+        private final String activityId;
+        private final long day;
+        private long totalDuration;
+        private long logCount;
+
+        DailyRollupBuilder(Log log, long day) {
+            this.accountId = log.getAccountId();
+            this.activityId = log.getActivityId();
+            this.day = day;
+        }
+
+        void add(Log log) {
+            totalDuration += log.getDuration();
+            ++logCount;
+        }
+
+        DailyRollup build() {
+            return new DailyRollup(accountId, activityId, day, totalDuration, logCount);
+        }
+    }
+}
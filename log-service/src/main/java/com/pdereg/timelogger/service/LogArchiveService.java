@@ -0,0 +1,144 @@
+package com.pdereg.timelogger.service;
+
+import com.pdereg.timelogger.concurrent.BulkheadRegistry;
+import com.pdereg.timelogger.domain.DailyRollup;
+import com.pdereg.timelogger.domain.Log;
+import com.pdereg.timelogger.repository.LogArchive;
+import com.pdereg.timelogger.repository.LogFilter;
+import com.pdereg.timelogger.repository.LogStore;
+import com.pdereg.timelogger.repository.LogStoreRegistry;
+import com.pdereg.timelogger.service.error.LogArchiveDisabledException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Moves {@link Log} instances of closed months that are older than a configured age from the database to
+ * {@link LogArchive}, to keep the working set of the database small. Archived logs are still returned by
+ * {@link LogService}, as the archive is part of the {@link LogStore} it uses.
+ * <p>
+ * The age is configured in days with {@code time-logger.log-archive.max-age} (365 by default). A month is archived
+ * once it ended more than that many days ago.
+ */
+@Service
+public class LogArchiveService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LogArchiveService.class);
+
+    private static final String PROPERTY_PREFIX = "time-logger.log-archive.";
+
+    private static final long DEFAULT_MAX_AGE = 365L;
+
+    private final LogStore logStore;
+    private final LogArchive logArchive;
+    private final long maxAge;
+    private final Executor executor;
+    private final AtomicBoolean archiving = new AtomicBoolean();
+
+    @Autowired
+    public LogArchiveService(LogStoreRegistry logStoreRegistry, LogArchive logArchive, Environment environment,
+                             BulkheadRegistry bulkheadRegistry) {
+
+        // Reads only from the database, so that archived logs are not archived again
+        this.logStore = logStoreRegistry.getActive();
+        this.logArchive = logArchive;
+        this.maxAge = environment.getProperty(PROPERTY_PREFIX + "max-age", Long.class, DEFAULT_MAX_AGE)
+                * DailyRollup.MILLIS_IN_A_DAY;
+        this.executor = bulkheadRegistry.executor(BulkheadRegistry.MONGO);
+    }
+
+    /**
+     * Archives logs of all months that ended more than the configured age ago, one account and month at a time. Only
+     * logs of those months are read, with a query per account. Each month is written to a new segment, and its logs
+     * are deleted from the database only once the segment is on disk.
+     *
+     * @return Number of archived logs once archiving is finished, or {@code -1} if archiving was already in progress
+     * @throws LogArchiveDisabledException If no archive directory is configured
+     */
+    public CompletableFuture<Long> archive() {
+        if (!logArchive.isEnabled()) {
+            throw new LogArchiveDisabledException();
+        }
+        if (!archiving.compareAndSet(false, true)) {
+            return CompletableFuture.completedFuture(-1L);
+        }
+
+        final long archiveBefore = LogArchive.monthOf(System.currentTimeMillis() - maxAge);
+
+        return CompletableFuture
+                .supplyAsync(() -> {
+                    long logCount = 0L;
+                    for (String accountId : logStore.findAllAccountIds()) {
+                        logCount += archive(accountId, archiveBefore);
+                    }
+
+                    logger.info("Archived {} logs that started before {}", logCount, archiveBefore);
+                    return logCount;
+                }, executor)
+                .whenComplete((result, throwable) -> {
+                    if (throwable != null) {
+                        logger.warn("Failed to archive logs", throwable);
+                    }
+
+                    archiving.set(false);
+                });
+    }
+
+    private long archive(String accountId, long archiveBefore) {
+        final LogFilter filter = new LogFilter();
+        filter.setTo(archiveBefore);
+
+        try (Stream<Log> logs = logStore.streamAllByAccountId(accountId, filter, null, Integer.MAX_VALUE)) {
+            return archive(logs.iterator());
+        }
+    }
+
+    private long archive(Iterator<Log> logs) {
+        final List<Log> month = new ArrayList<>();
+        long logCount = 0L;
+
+        while (logs.hasNext()) {
+            final Log log = logs.next();
+
+            if (!month.isEmpty() && !isSameMonth(month.get(0), log)) {
+                logCount += archive(month);
+                month.clear();
+            }
+
+            month.add(log);
+        }
+
+        if (!month.isEmpty()) {
+            logCount += archive(month);
+        }
+
+        return logCount;
+    }
+
+    private long archive(List<Log> month) {
+        try {
+            logArchive.write(month.get(0).getAccountId(), month);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        logStore.removeAll(month);
+        return month.size();
+    }
+
+    private static boolean isSameMonth(Log first, Log second) {
+        return LogArchive.monthOf(first.getStartTime()) == LogArchive.monthOf(second.getStartTime());
+    }
+}
@@ -0,0 +1,224 @@
+package com.pdereg.timelogger.service;
+
+import com.pdereg.timelogger.domain.Log;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only file of {@link Log} instances that have been acknowledged but might not have been saved to the
+ * database yet. Every append is forced to disk before it returns, so that acknowledged logs survive a crash and can be
+ * replayed on the next start.
+ * <p>
+ * Every append is written as a single frame: the length and CRC32 checksum of its payload, followed by the payload. A
+ * frame that is incomplete or corrupt (e.g. because the process died while writing it) has never been acknowledged,
+ * so it is discarded on replay together with everything after it, and overwritten by later appends.
+ * <p>
+ * Besides frames of logs, the journal holds frames that mark logs as applied, i.e. saved and passed on to everything
+ * derived from them. Such logs are not returned on replay, so replay does not depend on whether logs can be found in
+ * the database.
+ */
+public class LogJournal implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(LogJournal.class);
+
+    private static final int FRAME_HEADER_SIZE = 8;
+    private static final byte LOGS_FRAME = 1;
+    private static final byte APPLIED_FRAME = 2;
+
+    private final FileChannel channel;
+
+    public LogJournal(Path path) throws IOException {
+        this.channel = FileChannel.open(
+                path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE
+        );
+        this.channel.position(channel.size());
+    }
+
+    /**
+     * Appends provided {@code logs} to the journal and forces them to disk. All logs must have their IDs assigned.
+     *
+     * @param logs {@link Log} instances to append
+     * @throws IOException If the logs could not be written
+     */
+    public synchronized void append(List<Log> logs) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(logs.size() * 64);
+        final DataOutputStream output = new DataOutputStream(bytes);
+
+        output.writeByte(LOGS_FRAME);
+        for (Log log : logs) {
+            output.writeUTF(log.getId());
+            output.writeUTF(log.getAccountId());
+            output.writeUTF(log.getActivityId());
+            output.writeLong(log.getStartTime());
+            output.writeLong(log.getDuration());
+        }
+
+        write(bytes.toByteArray());
+        channel.force(false);
+    }
+
+    /**
+     * Marks provided {@code logs}, appended before, as applied, so that they are no longer returned by
+     * {@link #readAll()}. The mark is written, but not forced to disk, so it survives the process dying, but might not
+     * survive the machine losing power.
+     *
+     * @param logs Journaled {@link Log} instances that are saved and applied
+     * @throws IOException If the mark could not be written
+     */
+    public synchronized void markApplied(List<Log> logs) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(logs.size() * 32);
+        final DataOutputStream output = new DataOutputStream(bytes);
+
+        output.writeByte(APPLIED_FRAME);
+        for (Log log : logs) {
+            output.writeUTF(log.getId());
+        }
+
+        write(bytes.toByteArray());
+    }
+
+    /**
+     * Reads all logs from the journal that are not marked as applied, up to the first frame that is incomplete or
+     * corrupt. That frame and all frames after it are removed from the journal.
+     *
+     * @return A list of journaled {@link Log} instances, in the order they were appended
+     * @throws IOException If the journal could not be read
+     */
+    public synchronized List<Log> readAll() throws IOException {
+        final List<Log> logs = new ArrayList<>();
+        final Set<String> appliedIds = new HashSet<>();
+        final long size = channel.size();
+        final ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER_SIZE);
+        long position = 0;
+
+        while (size - position >= FRAME_HEADER_SIZE) {
+            header.clear();
+            read(header, position);
+            header.flip();
+
+            final int length = header.getInt();
+            final int checksum = header.getInt();
+            if (length < 0 || length > size - position - FRAME_HEADER_SIZE) {
+                break;
+            }
+
+            final byte[] payload = new byte[length];
+            read(ByteBuffer.wrap(payload), position + FRAME_HEADER_SIZE);
+
+            if (checksum(payload) != checksum || !readFrame(payload, logs, appliedIds)) {
+                break;
+            }
+
+            position += FRAME_HEADER_SIZE + length;
+        }
+
+        if (position < size) {
+            logger.warn("Discarding {} bytes of log journal after an incomplete or corrupt frame at {}",
+                    size - position, position);
+            channel.truncate(position);
+            channel.force(true);
+        }
+
+        channel.position(position);
+        logs.removeIf(log -> appliedIds.contains(log.getId()));
+        return logs;
+    }
+
+    /**
+     * Removes all records from the journal. Should only be called once all journaled logs are saved and applied.
+     *
+     * @throws IOException If the journal could not be truncated
+     */
+    public synchronized void truncate() throws IOException {
+        channel.truncate(0);
+        channel.position(0);
+        channel.force(true);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    private void write(byte[] payload) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(FRAME_HEADER_SIZE + payload.length);
+        buffer.putInt(payload.length).putInt(checksum(payload)).put(payload).flip();
+
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private void read(ByteBuffer buffer, long position) throws IOException {
+        long offset = position;
+
+        while (buffer.hasRemaining()) {
+            final int count = channel.read(buffer, offset);
+            if (count < 0) {
+                throw new EOFException();
+            }
+
+            offset += count;
+        }
+    }
+
+    private static boolean readFrame(byte[] payload, List<Log> logs, Set<String> appliedIds) {
+        final List<Log> frameLogs = new ArrayList<>();
+        final List<String> frameAppliedIds = new ArrayList<>();
+        final DataInputStream data = new DataInputStream(new ByteArrayInputStream(payload));
+
+        try {
+            final byte type = data.readByte();
+
+            while (data.available() > 0) {
+                if (type == LOGS_FRAME) {
+                    final String id = data.readUTF();
+                    final String accountId = data.readUTF();
+                    final String activityId = data.readUTF();
+                    final long startTime = data.readLong();
+                    final long duration = data.readLong();
+
+                    frameLogs.add(new Log(id, accountId, activityId, startTime, duration));
+                } else if (type == APPLIED_FRAME) {
+                    frameAppliedIds.add(data.readUTF());
+                } else {
+                    return false;
+                }
+            }
+        } catch (IOException e) {
+            // A frame with a matching checksum but malformed payload was not written by this journal
+            return false;
+        }
+
+        logs.addAll(frameLogs);
+        appliedIds.addAll(frameAppliedIds);
+        return true;
+    }
+
+    private static int checksum(byte[] bytes) {
+        final CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length);
+
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,105 @@
+package com.pdereg.timelogger.service;
+
+import com.pdereg.timelogger.concurrent.BulkheadRegistry;
+import com.pdereg.timelogger.domain.Log;
+import com.pdereg.timelogger.repository.LogLayout;
+import com.pdereg.timelogger.repository.LogStore;
+import com.pdereg.timelogger.repository.LogStoreRegistry;
+import com.pdereg.timelogger.service.error.InvalidMigrationException;
+import com.pdereg.timelogger.service.error.LogLayoutDisabledException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Copies {@link Log} instances between layouts, so that {@code time-logger.log-storage.layout} can be switched without
+ * losing logs.
+ * <p>
+ * Logs are copied with idempotent saves and are not removed from the source layout, so a migration can be repeated
+ * after switching layouts, to copy logs written in the meantime, and the switch can be reverted.
+ */
+@Service
+public class LogMigrationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LogMigrationService.class);
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final LogStoreRegistry logStoreRegistry;
+    private final Executor executor;
+    private final AtomicBoolean migrating = new AtomicBoolean();
+
+    @Autowired
+    public LogMigrationService(LogStoreRegistry logStoreRegistry, BulkheadRegistry bulkheadRegistry) {
+        this.logStoreRegistry = logStoreRegistry;
+        this.executor = bulkheadRegistry.executor(BulkheadRegistry.MONGO);
+    }
+
+    /**
+     * Copies all logs from provided {@code source} layout to provided {@code target} layout, in batches. Logs that are
+     * already present in {@code target} are left as they are.
+     *
+     * @param source Layout to copy logs from
+     * @param target Layout to copy logs to
+     * @return Number of copied logs once the migration is finished, or {@code -1} if a migration was already in
+     * progress
+     * @throws InvalidMigrationException  If {@code source} and {@code target} are the same
+     * @throws LogLayoutDisabledException If {@code source} or {@code target} is not configured
+     */
+    public CompletableFuture<Long> migrate(LogLayout source, LogLayout target) {
+        if (source == target) {
+            throw new InvalidMigrationException();
+        }
+        if (!logStoreRegistry.isEnabled(source) || !logStoreRegistry.isEnabled(target)) {
+            throw new LogLayoutDisabledException();
+        }
+        if (!migrating.compareAndSet(false, true)) {
+            return CompletableFuture.completedFuture(-1L);
+        }
+
+        final LogStore origin = logStoreRegistry.get(source);
+        final LogStore destination = logStoreRegistry.get(target);
+
+        return CompletableFuture
+                .supplyAsync(() -> {
+                    try (Stream<Log> logs = origin.streamAllOrderedByAccountId()) {
+                        final long logCount = copy(logs.iterator(), destination);
+                        logger.info("Migrated {} logs from {} to {} layout", logCount, source, target);
+                        return logCount;
+                    }
+                }, executor)
+                .whenComplete((result, throwable) -> {
+                    if (throwable != null) {
+                        logger.warn("Failed to migrate logs from {} to {} layout", source, target, throwable);
+                    }
+
+                    migrating.set(false);
+                });
+    }
+
+    private long copy(Iterator<Log> logs, LogStore destination) {
+        final List<Log> batch = new ArrayList<>(BATCH_SIZE);
+        long logCount = 0L;
+
+        while (logs.hasNext()) {
+            batch.add(logs.next());
+
+            if (batch.size() == BATCH_SIZE || !logs.hasNext()) {
+                destination.save(batch);
+                logCount += batch.size();
+                batch.clear();
+            }
+        }
+
+        return logCount;
+    }
+}
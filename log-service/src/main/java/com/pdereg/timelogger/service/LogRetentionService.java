@@ -0,0 +1,253 @@
+package com.pdereg.timelogger.service;
+
+import com.pdereg.timelogger.domain.Log;
+import com.pdereg.timelogger.repository.LogRetentionPolicy;
+import com.pdereg.timelogger.repository.LogStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deletes {@link Log} instances that expired according to {@link LogRetentionPolicy}. Expired logs of each account are
+ * deleted oldest first, in batches of start time ranges, and batches are paced to a configured number of logs per
+ * second, so that purging does not compete with regular traffic for the database.
+ * <p>
+ * In {@code purge} mode, a background purger runs every {@code time-logger.log-retention.interval} minutes (60 by
+ * default). Batches can be tuned with {@code .batch-size} and {@code .rate} (in logs per second, {@code 0} for no
+ * pacing). Daily rollups of purged logs are kept, so past totals stay available.
+ * <p>
+ * Purged logs are dropped from {@link LogTimeIndex}, but logs deleted by a TTL index are not, so {@code ttl} mode
+ * cannot be used while the time index is enabled.
+ */
+@Service
+public class LogRetentionService implements PublicMetrics, InitializingBean, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(LogRetentionService.class);
+
+    private static final String PROPERTY_PREFIX = "time-logger.log-retention.";
+    private static final String METRIC_PREFIX = "log-retention.";
+
+    private static final long DEFAULT_INTERVAL = 60L;
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+    private static final long DEFAULT_RATE = 1000L;
+
+    private final LogStore logStore;
+    private final LogRetentionPolicy logRetentionPolicy;
+    private final LogTimeIndex logTimeIndex;
+    private final long interval;
+    private final int batchSize;
+    private final long rate;
+
+    private final AtomicBoolean purging = new AtomicBoolean();
+    private final AtomicLong runCount = new AtomicLong();
+    private final AtomicLong purgedLogCount = new AtomicLong();
+    private final AtomicLong accountCount = new AtomicLong();
+    private final AtomicLong purgedAccountCount = new AtomicLong();
+    private final AtomicLong lastRate = new AtomicLong();
+
+    private Thread purger;
+
+    @Autowired
+    public LogRetentionService(LogStore logStore, LogRetentionPolicy logRetentionPolicy, LogTimeIndex logTimeIndex,
+                               Environment environment) {
+        this(
+                logStore,
+                logRetentionPolicy,
+                logTimeIndex,
+                environment.getProperty(PROPERTY_PREFIX + "interval", Long.class, DEFAULT_INTERVAL),
+                environment.getProperty(PROPERTY_PREFIX + "batch-size", Integer.class, DEFAULT_BATCH_SIZE),
+                environment.getProperty(PROPERTY_PREFIX + "rate", Long.class, DEFAULT_RATE)
+        );
+    }
+
+    public LogRetentionService(LogStore logStore, LogRetentionPolicy logRetentionPolicy, LogTimeIndex logTimeIndex,
+                               long interval, int batchSize, long rate) {
+
+        this.logStore = logStore;
+        this.logRetentionPolicy = logRetentionPolicy;
+        this.logTimeIndex = logTimeIndex;
+        this.interval = TimeUnit.MINUTES.toMillis(interval);
+        this.batchSize = batchSize;
+        this.rate = rate;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void afterPropertiesSet() {
+        // Logs deleted by a TTL index are never removed from the time index, which would keep counting them
+        if (logRetentionPolicy.getMode() == LogRetentionPolicy.Mode.TTL && logRetentionPolicy.isEnabled()
+                && logTimeIndex.isEnabled()) {
+            throw new IllegalStateException("Log retention with a TTL index cannot be used with the log time index");
+        }
+
+        if (logRetentionPolicy.getMode() != LogRetentionPolicy.Mode.PURGE || !logRetentionPolicy.isEnabled()
+                || interval <= 0L) {
+            return;
+        }
+
+        purger = new Thread(this::runPurger, "log-retention-purger");
+        purger.setDaemon(true);
+        purger.start();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        if (purger != null) {
+            purger.interrupt();
+            purger.join();
+        }
+    }
+
+    /**
+     * Deletes expired logs of all accounts. Besides being run by the background purger, it can be used in {@code ttl}
+     * mode to delete logs that were saved before the mode was enabled. Purging stops early if the calling thread is
+     * interrupted.
+     *
+     * @return Number of deleted logs, or {@code -1} if purging was already in progress
+     */
+    public long purge() {
+        if (!purging.compareAndSet(false, true)) {
+            return -1L;
+        }
+
+        try {
+            final List<String> accountIds = logStore.findAllAccountIds();
+            final long now = System.currentTimeMillis();
+            final long startNanos = System.nanoTime();
+            long logCount = 0L;
+
+            accountCount.set(accountIds.size());
+            purgedAccountCount.set(0L);
+
+            for (String accountId : accountIds) {
+                if (Thread.currentThread().isInterrupted()) {
+                    break;
+                }
+
+                final Optional<Long> maxAge = logRetentionPolicy.getMaxAge(accountId);
+                if (maxAge.isPresent()) {
+                    final long accountLogCount = purge(accountId, now - maxAge.get());
+
+                    // The account may be indexed with purged logs, and is loaded again on next use
+                    if (accountLogCount > 0L) {
+                        logTimeIndex.invalidate(accountId);
+                    }
+
+                    logCount += accountLogCount;
+                }
+
+                purgedAccountCount.incrementAndGet();
+            }
+
+            final long elapsedMillis = Math.max(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos), 1L);
+            lastRate.set(logCount * 1000L / elapsedMillis);
+            runCount.incrementAndGet();
+
+            logger.info("Purged {} expired logs of {} accounts", logCount, purgedAccountCount.get());
+            return logCount;
+        } finally {
+            purging.set(false);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<Metric<?>> metrics() {
+        final List<Metric<?>> metrics = new ArrayList<>();
+
+        metrics.add(new Metric<>(METRIC_PREFIX + "runs", runCount.get()));
+        metrics.add(new Metric<>(METRIC_PREFIX + "logs", purgedLogCount.get()));
+        metrics.add(new Metric<>(METRIC_PREFIX + "accounts", accountCount.get()));
+        metrics.add(new Metric<>(METRIC_PREFIX + "accounts.purged", purgedAccountCount.get()));
+        metrics.add(new Metric<>(METRIC_PREFIX + "rate", lastRate.get()));
+
+        return metrics;
+    }
+
+    /**
+     * @return Number of logs deleted since startup
+     */
+    public long getPurgedLogCount() {
+        return purgedLogCount.get();
+    }
+
+    /**
+     * @return Number of finished purges since startup
+     */
+    public long getRunCount() {
+        return runCount.get();
+    }
+
+    private long purge(String accountId, long before) {
+        long logCount = 0L;
+
+        while (!Thread.currentThread().isInterrupted()) {
+            final long startNanos = System.nanoTime();
+            final long batchLogCount = logStore.removeOldestByAccountId(accountId, before, batchSize);
+
+            if (batchLogCount == 0L) {
+                break;
+            }
+
+            logCount += batchLogCount;
+            purgedLogCount.addAndGet(batchLogCount);
+            pace(batchLogCount, System.nanoTime() - startNanos);
+        }
+
+        return logCount;
+    }
+
+    private void pace(long logCount, long elapsedNanos) {
+        if (rate <= 0L) {
+            return;
+        }
+
+        final long remainingNanos = TimeUnit.SECONDS.toNanos(logCount) / rate - elapsedNanos;
+        if (remainingNanos <= 0L) {
+            return;
+        }
+
+        try {
+            TimeUnit.NANOSECONDS.sleep(remainingNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runPurger() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                Thread.sleep(interval);
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            try {
+                purge();
+            } catch (RuntimeException e) {
+                logger.warn("Failed to purge expired logs", e);
+            }
+        }
+    }
+}
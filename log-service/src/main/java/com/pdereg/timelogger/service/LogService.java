@@ -1,32 +1,68 @@
 package com.pdereg.timelogger.service;
 
+import com.pdereg.timelogger.concurrent.BulkheadRegistry;
+import com.pdereg.timelogger.domain.DailyRollup;
 import com.pdereg.timelogger.domain.Log;
-import com.pdereg.timelogger.repository.LogRepository;
+import com.pdereg.timelogger.repository.DailyRollupRepository;
+import com.pdereg.timelogger.repository.LogFilter;
+import com.pdereg.timelogger.repository.LogPosition;
+import com.pdereg.timelogger.repository.LogStore;
+import com.pdereg.timelogger.repository.LogSummary;
+import com.pdereg.timelogger.repository.LogTotal;
+import com.pdereg.timelogger.service.error.InvalidTimeRangeException;
 import com.pdereg.timelogger.service.error.LogNotFoundException;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.Calendar;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
 
 /**
- * Provides an abstraction layer over {@link LogRepository}. used for performing CRUD operations on {@link Long}
- * instances.
+ * Provides an abstraction layer over {@link LogStore}. used for performing CRUD operations on {@link Long}
+ * instances. Every change to logs is also applied to {@link DailyRollup} instances of affected days and to
+ * {@link LogTimeIndex}.
  */
 @Service
-public class LogService {
+public class LogService implements InitializingBean {
 
-    private final LogRepository logRepository;
+    private final LogStore logStore;
+    private final DailyRollupRepository dailyRollupRepository;
+    private final LogWriteBuffer logWriteBuffer;
+    private final LogTimeIndex logTimeIndex;
+    private final Executor executor;
 
     @Autowired
-    public LogService(LogRepository logRepository) {
-        this.logRepository = logRepository;
+    public LogService(LogStore logStore, DailyRollupRepository dailyRollupRepository,
+                      LogWriteBuffer logWriteBuffer, LogTimeIndex logTimeIndex, BulkheadRegistry bulkheadRegistry) {
+
+        this.logStore = logStore;
+        this.dailyRollupRepository = dailyRollupRepository;
+        this.logWriteBuffer = logWriteBuffer;
+        this.logTimeIndex = logTimeIndex;
+        this.executor = bulkheadRegistry.executor(BulkheadRegistry.MONGO);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void afterPropertiesSet() {
+        // Logs saved by the buffer, including those replayed from its journal, are applied once they are saved
+        logWriteBuffer.setSavedLogsListener(this::onCreated);
     }
 
     /**
-     * Creates and returns a new {@link Log} instance.
+     * Creates and returns a new {@link Log} instance. If group commit is enabled, the log is saved together with other
+     * logs created around the same time. With a journal, the log is returned before it is saved, so its daily rollup
+     * and {@link LogTimeIndex} are updated shortly after.
      *
      * @param accountId  ID of the user account associated with the log
      * @param activityId ID of the activity associated with the log
@@ -38,7 +74,25 @@ public class LogService {
         final long startTime = getStartTime(duration);
         final Log log = new Log(accountId, activityId, startTime, duration);
 
-        return CompletableFuture.supplyAsync(() -> logRepository.save(log));
+        if (logWriteBuffer.isEnabled()) {
+            return logWriteBuffer.submit(log);
+        }
+
+        return CompletableFuture.supplyAsync(() -> onCreated(logStore.save(log)), executor);
+    }
+
+    /**
+     * Saves all provided {@code logs} with a single bulk insert.
+     *
+     * @param logs New {@link Log} instances to save
+     * @return A list of saved {@link Log} instances, in the same order as provided {@code logs}
+     */
+    public CompletableFuture<List<Log>> createLogs(List<Log> logs) {
+        if (logs.isEmpty()) {
+            return CompletableFuture.completedFuture(Collections.emptyList());
+        }
+
+        return CompletableFuture.supplyAsync(() -> onCreated(logStore.insert(logs)), executor);
     }
 
     /**
@@ -48,7 +102,7 @@ public class LogService {
      * @return A list of all {@link Log} instances for provided {@code accountId}
      */
     public CompletableFuture<List<Log>> findAllByAccountId(String accountId) {
-        return CompletableFuture.supplyAsync(() -> logRepository.findAllByAccountId(accountId));
+        return CompletableFuture.supplyAsync(() -> logStore.findAllByAccountId(accountId), executor);
     }
 
     /**
@@ -60,10 +114,81 @@ public class LogService {
      */
     public CompletableFuture<List<Log>> findAllByAccountIdAndActivityId(String accountId, String activityId) {
         return CompletableFuture.supplyAsync(
-                () -> logRepository.findAllByAccountIdAndActivityId(accountId, activityId)
+                () -> logStore.findAllByAccountIdAndActivityId(accountId, activityId), executor
         );
     }
 
+    /**
+     * Opens a cursor over {@link Log} instances with a given {@code accountId} that match provided {@code filter} and
+     * follow provided {@code position}. Note that this method blocks the calling thread and the returned stream must
+     * be closed once consumed.
+     *
+     * @param accountId ID of the user account associated with the logs to return
+     * @param filter    Additional criteria that logs must match
+     * @param position  Position after which to start, or {@code null} to start from the first log
+     * @param limit     Maximum number of logs to return
+     * @return A lazily populated stream of matching {@link Log} instances, sorted by their start time
+     */
+    public Stream<Log> streamAllByAccountId(String accountId, LogFilter filter, LogPosition position, int limit) {
+        return logStore.streamAllByAccountId(accountId, filter, position, limit);
+    }
+
+    /**
+     * Opens a cursor over per-activity summaries of {@link Log} instances with a given {@code accountId} that match
+     * provided {@code filter}. Logs are summarized by the database. Note that this method blocks the calling thread and
+     * the returned stream must be closed once consumed.
+     *
+     * @param accountId ID of the user account associated with the logs to summarize
+     * @param filter    Additional criteria that logs must match
+     * @return A lazily populated stream of {@link LogSummary} instances, sorted by their activity ID
+     */
+    public Stream<LogSummary> streamSummariesByAccountId(String accountId, LogFilter filter) {
+        return logStore.streamSummariesByAccountId(accountId, filter);
+    }
+
+    /**
+     * Computes the total duration and number of {@link Log} instances with a given {@code accountId} that started in
+     * provided time range. Totals are served by {@link LogTimeIndex} if it is enabled, and aggregated by the database
+     * otherwise.
+     *
+     * @param accountId  ID of the user account associated with the logs
+     * @param activityId ID of the activity associated with the logs, or {@code null} to include all activities
+     * @param from       Lower bound (inclusive) of log's start time (as UNIX timestamp in milliseconds)
+     * @param to         Upper bound (exclusive) of log's start time (as UNIX timestamp in milliseconds)
+     * @return {@link LogTotal} instance
+     * @throws InvalidTimeRangeException If {@code from} is after {@code to}
+     */
+    public CompletableFuture<LogTotal> getTotal(String accountId, String activityId, long from, long to) {
+        if (from > to) {
+            throw new InvalidTimeRangeException();
+        }
+
+        if (logTimeIndex.isEnabled()) {
+            return CompletableFuture.supplyAsync(
+                    () -> logTimeIndex.getTotal(accountId, activityId, from, to), executor
+            );
+        }
+
+        final LogFilter filter = new LogFilter();
+        filter.setFrom(from);
+        filter.setTo(to);
+
+        if (activityId != null) {
+            filter.setActivityIds(Collections.singleton(activityId));
+        }
+
+        return CompletableFuture.supplyAsync(() -> {
+            try (Stream<LogSummary> summaries = logStore.streamSummariesByAccountId(accountId, filter)) {
+                return summaries
+                        .map(summary -> new LogTotal(summary.getTotalDuration(), summary.getLogCount()))
+                        .reduce(new LogTotal(0L, 0L), (first, second) -> new LogTotal(
+                                first.getTotalDuration() + second.getTotalDuration(),
+                                first.getLogCount() + second.getLogCount()
+                        ));
+            }
+        }, executor);
+    }
+
     /**
      * Fetches and return a {@link Log} instance with a given {@code id}.
      *
@@ -71,7 +196,22 @@ public class LogService {
      * @return Optional {@link Log} instance with a given {@code id}
      */
     public CompletableFuture<Optional<Log>> findOneById(String id) {
-        return CompletableFuture.supplyAsync(() -> Optional.ofNullable(logRepository.findOne(id)));
+        return CompletableFuture.supplyAsync(() -> logStore.findOne(id), executor);
+    }
+
+    /**
+     * Fetches and returns a {@link Log} instance with a given {@code id} that belongs to an account with provided
+     * {@code accountId} and an activity with provided {@code activityId}.
+     *
+     * @param id         ID of the log to return
+     * @param accountId  ID of the user account associated with the log
+     * @param activityId ID of the activity associated with the log
+     * @return Optional {@link Log} instance with a given {@code id}, {@code accountId} and {@code activityId}
+     */
+    public CompletableFuture<Optional<Log>> findOneById(String id, String accountId, String activityId) {
+        return CompletableFuture.supplyAsync(
+                () -> logStore.findOne(id, accountId, activityId), executor
+        );
     }
 
     /**
@@ -82,11 +222,93 @@ public class LogService {
     public CompletableFuture<Void> deleteLog(String id) {
         return findOneById(id)
                 .thenApply(log -> log.<LogNotFoundException>orElseThrow(LogNotFoundException::new))
-                .thenAccept(logRepository::delete);
+                .thenAccept(log -> logStore
+                        .findAndRemove(log.getId(), log.getAccountId(), log.getActivityId())
+                        .ifPresent(this::onDeleted));
+    }
+
+    /**
+     * Deletes an existing log with provided {@code id} that belongs to an account with provided {@code accountId} and
+     * an activity with provided {@code activityId}.
+     *
+     * @param id         ID of the log to delete
+     * @param accountId  ID of the user account associated with the log
+     * @param activityId ID of the activity associated with the log
+     */
+    public CompletableFuture<Void> deleteLog(String id, String accountId, String activityId) {
+        return CompletableFuture.runAsync(() -> {
+            final Log log = logStore
+                    .findAndRemove(id, accountId, activityId)
+                    .<LogNotFoundException>orElseThrow(LogNotFoundException::new);
+
+            onDeleted(log);
+        }, executor);
+    }
+
+    private Log onCreated(Log log) {
+        onCreated(Collections.singletonList(log));
+        return log;
+    }
+
+    private List<Log> onCreated(List<Log> logs) {
+        // Logs of the same day and activity are summed up first, so that a batch costs one update per rollup
+        final Map<RollupKey, long[]> deltas = new LinkedHashMap<>();
+
+        for (Log log : logs) {
+            final long[] delta = deltas.computeIfAbsent(new RollupKey(log), key -> new long[2]);
+            delta[0] += log.getDuration();
+            delta[1] += 1;
+        }
+
+        deltas.forEach((key, delta) -> dailyRollupRepository.increment(
+                key.accountId, key.activityId, key.day, delta[0], delta[1]
+        ));
+        logs.forEach(logTimeIndex::add);
+
+        return logs;
+    }
+
+    private void onDeleted(Log log) {
+        final RollupKey key = new RollupKey(log);
+        dailyRollupRepository.increment(key.accountId, key.activityId, key.day, -log.getDuration(), -1);
+        logTimeIndex.remove(log);
     }
 
     private long getStartTime(long duration) {
         final Calendar calendar = Calendar.getInstance();
         return calendar.getTimeInMillis() - duration;
     }
+
+    private static class RollupKey {
+
+        private final String accountId;
+        private final String activityId;
+        private final long day;
+
+        RollupKey(Log log) {
+            this.accountId = log.getAccountId();
+            this.activityId = log.getActivityId();
+            this.day = DailyRollup.dayOf(log.getStartTime());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            RollupKey key = (RollupKey) o;
+
+            if (day != key.day) return false;
+            if (!accountId.equals(key.accountId)) return false;
+            return activityId.equals(key.activityId);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = accountId.hashCode();
+            result = 31 * result + activityId.hashCode();
+            result = 31 * result + (int) (day ^ (day >>> 32));
+            return result;
+        }
+    }
 }
@@ -0,0 +1,508 @@
+package com.pdereg.timelogger.service;
+
+import com.pdereg.timelogger.domain.Log;
+import com.pdereg.timelogger.repository.LogFilter;
+import com.pdereg.timelogger.repository.LogStore;
+import com.pdereg.timelogger.repository.LogTotal;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * An in-memory index of log start times and running duration sums, kept per account and activity. Once an account is
+ * loaded, the total duration of its logs in any time range is computed with two binary searches per activity,
+ * regardless of how many logs the range contains.
+ * <p>
+ * Accounts are loaded from the repository on first use and kept up to date by {@link LogService}. When the index
+ * holds more logs than allowed, least recently used accounts are evicted.
+ * <p>
+ * The index is disabled by default and can be enabled with {@code time-logger.log-time-index.enabled}. Its size can be
+ * limited with {@code time-logger.log-time-index.max-entries}.
+ */
+@Component
+public class LogTimeIndex implements PublicMetrics {
+
+    private static final String PROPERTY_PREFIX = "time-logger.log-time-index.";
+    private static final String METRIC_PREFIX = "log-time-index.";
+
+    private static final long DEFAULT_MAX_ENTRIES = 1000000L;
+
+    private final LogStore logStore;
+    private final boolean enabled;
+    private final long maxEntries;
+
+    private final Map<String, AccountIndex> accounts = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final AtomicLong entryCount = new AtomicLong();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong loadCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    @Autowired
+    public LogTimeIndex(LogStore logStore, Environment environment) {
+        this(
+                logStore,
+                environment.getProperty(PROPERTY_PREFIX + "enabled", Boolean.class, false),
+                environment.getProperty(PROPERTY_PREFIX + "max-entries", Long.class, DEFAULT_MAX_ENTRIES)
+        );
+    }
+
+    public LogTimeIndex(LogStore logStore, boolean enabled, long maxEntries) {
+        this.logStore = logStore;
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * @return {@code true} if the index is enabled and should be used to compute totals
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Computes the total duration and number of logs of an account with provided {@code accountId} that started in
+     * provided time range. If the account is not indexed yet, its logs are loaded first, blocking the calling thread.
+     *
+     * @param accountId  ID of the user account associated with the logs
+     * @param activityId ID of the activity associated with the logs, or {@code null} to include all activities
+     * @param from       Lower bound (inclusive) of log's start time (as UNIX timestamp in milliseconds)
+     * @param to         Upper bound (exclusive) of log's start time (as UNIX timestamp in milliseconds)
+     * @return {@link LogTotal} instance
+     */
+    public LogTotal getTotal(String accountId, String activityId, long from, long to) {
+        return getAccountIndex(accountId).getTotal(activityId, from, to);
+    }
+
+    /**
+     * Adds provided {@code log} to the index, if its account is indexed. Adding the same log twice has no effect.
+     *
+     * @param log Newly saved {@link Log} instance
+     */
+    public void add(Log log) {
+        final AccountIndex accountIndex = findAccountIndex(log.getAccountId());
+
+        if (accountIndex != null && accountIndex.add(log)) {
+            entryCount.incrementAndGet();
+            evictIfFull();
+        }
+    }
+
+    /**
+     * Removes provided {@code log} from the index, if its account is indexed.
+     *
+     * @param log Deleted {@link Log} instance
+     */
+    public void remove(Log log) {
+        final AccountIndex accountIndex = findAccountIndex(log.getAccountId());
+
+        if (accountIndex != null && accountIndex.remove(log)) {
+            entryCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * Removes an account with provided {@code accountId} from the index, so that it is loaded again on next use.
+     *
+     * @param accountId ID of the user account
+     */
+    public void invalidate(String accountId) {
+        synchronized (accounts) {
+            final AccountIndex accountIndex = accounts.remove(accountId);
+
+            // An account that is still loading is not counted yet, and will not be once it is no longer indexed
+            if (accountIndex != null && accountIndex.isLoaded()) {
+                entryCount.addAndGet(-accountIndex.size());
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<Metric<?>> metrics() {
+        final List<Metric<?>> metrics = new ArrayList<>();
+
+        metrics.add(new Metric<>(METRIC_PREFIX + "accounts", getAccountCount()));
+        metrics.add(new Metric<>(METRIC_PREFIX + "entries", entryCount.get()));
+        metrics.add(new Metric<>(METRIC_PREFIX + "hits", hitCount.get()));
+        metrics.add(new Metric<>(METRIC_PREFIX + "loads", loadCount.get()));
+        metrics.add(new Metric<>(METRIC_PREFIX + "evictions", evictionCount.get()));
+
+        return metrics;
+    }
+
+    /**
+     * @return Number of indexed accounts
+     */
+    public int getAccountCount() {
+        synchronized (accounts) {
+            return accounts.size();
+        }
+    }
+
+    /**
+     * @return Number of indexed logs
+     */
+    public long getEntryCount() {
+        return entryCount.get();
+    }
+
+    /**
+     * @return Number of accounts loaded from the repository
+     */
+    public long getLoadCount() {
+        return loadCount.get();
+    }
+
+    /**
+     * @return Number of accounts evicted because the index was full
+     */
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    private AccountIndex findAccountIndex(String accountId) {
+        synchronized (accounts) {
+            return accounts.get(accountId);
+        }
+    }
+
+    private AccountIndex getAccountIndex(String accountId) {
+        while (true) {
+            final AccountIndex accountIndex;
+            final boolean load;
+
+            synchronized (accounts) {
+                final AccountIndex existingIndex = accounts.get(accountId);
+
+                load = existingIndex == null;
+                accountIndex = load ? new AccountIndex() : existingIndex;
+
+                if (load) {
+                    accounts.put(accountId, accountIndex);
+                }
+            }
+
+            if (load) {
+                load(accountId, accountIndex);
+                return accountIndex;
+            }
+
+            // Another thread is loading the account; if it fails, this thread takes over
+            if (accountIndex.awaitLoaded()) {
+                hitCount.incrementAndGet();
+                return accountIndex;
+            }
+        }
+    }
+
+    private void load(String accountId, AccountIndex accountIndex) {
+        loadCount.incrementAndGet();
+
+        final Map<String, Series> series = new HashMap<>();
+        try (Stream<Log> logs = logStore.streamAllByAccountId(accountId, new LogFilter(), null,
+                Integer.MAX_VALUE)) {
+
+            logs.forEach(log -> series.computeIfAbsent(log.getActivityId(), key -> new Series()).add(log));
+        } catch (RuntimeException e) {
+            synchronized (accounts) {
+                accounts.remove(accountId, accountIndex);
+            }
+
+            accountIndex.fail();
+            throw e;
+        }
+
+        synchronized (accounts) {
+            // Completed under the lock, so that an account is never seen loaded before its entries are counted
+            final int size = accountIndex.complete(series);
+
+            if (accounts.get(accountId) == accountIndex) {
+                entryCount.addAndGet(size);
+            }
+        }
+
+        evictIfFull();
+    }
+
+    private void evictIfFull() {
+        synchronized (accounts) {
+            final Iterator<AccountIndex> iterator = accounts.values().iterator();
+
+            // The most recently used account is never evicted, so that a single large account is still served
+            while (entryCount.get() > maxEntries && accounts.size() > 1 && iterator.hasNext()) {
+                final AccountIndex accountIndex = iterator.next();
+
+                if (accountIndex.isLoaded()) {
+                    iterator.remove();
+                    entryCount.addAndGet(-accountIndex.size());
+                    evictionCount.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * Indexed logs of a single account. Until the account is loaded, changes are queued and applied once loading
+     * completes; as adding and removing logs is idempotent, it does not matter whether the load already saw them.
+     */
+    private static class AccountIndex {
+
+        private final Map<String, Series> series = new HashMap<>();
+        private List<Change> pendingChanges = new ArrayList<>();
+        private boolean loaded;
+        private boolean failed;
+
+        synchronized boolean add(Log log) {
+            if (!loaded) {
+                pendingChanges.add(new Change(log, true));
+                return false;
+            }
+
+            return series.computeIfAbsent(log.getActivityId(), key -> new Series()).add(log);
+        }
+
+        synchronized boolean remove(Log log) {
+            if (!loaded) {
+                pendingChanges.add(new Change(log, false));
+                return false;
+            }
+
+            final Series activitySeries = series.get(log.getActivityId());
+            return activitySeries != null && activitySeries.remove(log);
+        }
+
+        synchronized int complete(Map<String, Series> loadedSeries) {
+            series.putAll(loadedSeries);
+            loaded = true;
+
+            pendingChanges.forEach(change -> {
+                if (change.added) {
+                    add(change.log);
+                } else {
+                    remove(change.log);
+                }
+            });
+            pendingChanges = null;
+
+            notifyAll();
+            return size();
+        }
+
+        synchronized void fail() {
+            failed = true;
+            notifyAll();
+        }
+
+        synchronized boolean awaitLoaded() {
+            boolean interrupted = false;
+
+            while (!loaded && !failed) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+
+            return loaded;
+        }
+
+        synchronized boolean isLoaded() {
+            return loaded;
+        }
+
+        synchronized int size() {
+            return series.values().stream().mapToInt(activitySeries -> activitySeries.size).sum();
+        }
+
+        synchronized LogTotal getTotal(String activityId, long from, long to) {
+            if (activityId != null) {
+                final Series activitySeries = series.get(activityId);
+                return activitySeries != null ? activitySeries.getTotal(from, to) : new LogTotal(0L, 0L);
+            }
+
+            long totalDuration = 0L;
+            long logCount = 0L;
+
+            for (Series activitySeries : series.values()) {
+                final LogTotal total = activitySeries.getTotal(from, to);
+                totalDuration += total.getTotalDuration();
+                logCount += total.getLogCount();
+            }
+
+            return new LogTotal(totalDuration, logCount);
+        }
+    }
+
+    private static class Change {
+
+        private final Log log;
+        private final boolean added;
+
+        Change(Log log, boolean added) {
+            this.log = log;
+            this.added = added;
+        }
+    }
+
+    /**
+     * Logs of a single activity, sorted by their start time. {@code prefixSums[i]} holds the total duration of the
+     * first {@code i} logs, so the total of any range is a difference of two prefix sums. Log IDs are kept as two
+     * primitive parts, only to make adding and removing logs idempotent.
+     */
+    private static class Series {
+
+        private static final int INITIAL_CAPACITY = 16;
+
+        private long[] startTimes = new long[INITIAL_CAPACITY];
+        private long[] prefixSums = new long[INITIAL_CAPACITY + 1];
+        private long[] idHighs = new long[INITIAL_CAPACITY];
+        private int[] idLows = new int[INITIAL_CAPACITY];
+        private int size;
+
+        boolean add(Log log) {
+            final long startTime = log.getStartTime();
+            final long idHigh = getIdHigh(log.getId());
+            final int idLow = getIdLow(log.getId());
+            final int position = upperBound(startTime);
+
+            for (int i = position - 1; i >= 0 && startTimes[i] == startTime; --i) {
+                if (idHighs[i] == idHigh && idLows[i] == idLow) {
+                    return false;
+                }
+            }
+
+            ensureCapacity(size + 1);
+
+            final int moved = size - position;
+            System.arraycopy(startTimes, position, startTimes, position + 1, moved);
+            System.arraycopy(idHighs, position, idHighs, position + 1, moved);
+            System.arraycopy(idLows, position, idLows, position + 1, moved);
+            System.arraycopy(prefixSums, position + 1, prefixSums, position + 2, moved);
+
+            final long duration = log.getDuration();
+            startTimes[position] = startTime;
+            idHighs[position] = idHigh;
+            idLows[position] = idLow;
+            prefixSums[position + 1] = prefixSums[position] + duration;
+
+            for (int i = position + 2; i <= size + 1; ++i) {
+                prefixSums[i] += duration;
+            }
+
+            ++size;
+            return true;
+        }
+
+        boolean remove(Log log) {
+            final long startTime = log.getStartTime();
+            final long idHigh = getIdHigh(log.getId());
+            final int idLow = getIdLow(log.getId());
+
+            int position = lowerBound(startTime);
+            while (position < size && startTimes[position] == startTime
+                    && (idHighs[position] != idHigh || idLows[position] != idLow)) {
+                ++position;
+            }
+
+            if (position == size || startTimes[position] != startTime) {
+                return false;
+            }
+
+            final long duration = prefixSums[position + 1] - prefixSums[position];
+            final int moved = size - position - 1;
+            System.arraycopy(startTimes, position + 1, startTimes, position, moved);
+            System.arraycopy(idHighs, position + 1, idHighs, position, moved);
+            System.arraycopy(idLows, position + 1, idLows, position, moved);
+            System.arraycopy(prefixSums, position + 2, prefixSums, position + 1, moved);
+
+            for (int i = position + 1; i < size; ++i) {
+                prefixSums[i] -= duration;
+            }
+
+            --size;
+            return true;
+        }
+
+        LogTotal getTotal(long from, long to) {
+            final int first = lowerBound(from);
+            final int last = Math.max(first, lowerBound(to));
+
+            return new LogTotal(prefixSums[last] - prefixSums[first], last - first);
+        }
+
+        /**
+         * @return Index of the first log that started at or after {@code startTime}
+         */
+        private int lowerBound(long startTime) {
+            int low = 0;
+            int high = size;
+
+            while (low < high) {
+                final int middle = (low + high) >>> 1;
+
+                if (startTimes[middle] < startTime) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+
+            return low;
+        }
+
+        /**
+         * @return Index of the first log that started after {@code startTime}
+         */
+        private int upperBound(long startTime) {
+            // Logs are usually added in order, so the end is checked before searching
+            if (size == 0 || startTimes[size - 1] <= startTime) {
+                return size;
+            }
+
+            return startTime == Long.MAX_VALUE ? size : lowerBound(startTime + 1);
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity <= startTimes.length) {
+                return;
+            }
+
+            final int newCapacity = Math.max(capacity, startTimes.length * 2);
+            startTimes = Arrays.copyOf(startTimes, newCapacity);
+            prefixSums = Arrays.copyOf(prefixSums, newCapacity + 1);
+            idHighs = Arrays.copyOf(idHighs, newCapacity);
+            idLows = Arrays.copyOf(idLows, newCapacity);
+        }
+
+        private static long getIdHigh(String id) {
+            return ObjectId.isValid(id) ? ByteBuffer.wrap(new ObjectId(id).toByteArray()).getLong() : 0L;
+        }
+
+        private static int getIdLow(String id) {
+            return ObjectId.isValid(id) ? ByteBuffer.wrap(new ObjectId(id).toByteArray()).getInt(8) : id.hashCode();
+        }
+    }
+}
@@ -0,0 +1,451 @@
+package com.pdereg.timelogger.service;
+
+import com.pdereg.timelogger.concurrent.BulkheadFullException;
+import com.pdereg.timelogger.domain.Log;
+import com.pdereg.timelogger.repository.LogStore;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Buffers new {@link Log} instances and saves them in groups with a single bulk insert, trading a few milliseconds of
+ * latency for far fewer round trips to the database under load. A group is flushed once it reaches the batch size or
+ * once the flush interval since its first log has passed, whichever comes first.
+ * <p>
+ * Group commit is disabled by default and can be enabled with {@code time-logger.log-ingestion.group-commit}. Batching
+ * can be tuned with {@code .flush-interval} (in milliseconds), {@code .batch-size} and {@code .queue-capacity}.
+ * <p>
+ * Without a journal, a log is acknowledged once the bulk insert that contains it succeeds. With a journal configured
+ * with {@code time-logger.log-ingestion.journal}, a log is acknowledged as soon as its group is forced to the journal
+ * file. Groups that could not be saved are retried with the next flush and replayed from the journal on startup.
+ * <p>
+ * Logs are passed to the listener set with {@link #setSavedLogsListener(Consumer)} once they are saved, including those
+ * replayed from the journal. Journaled logs are marked as applied once the listener returns, and only logs that are not
+ * marked are saved again and passed on when the journal is replayed, whether they made it to the database or not.
+ */
+@Component
+public class LogWriteBuffer implements PublicMetrics, InitializingBean, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(LogWriteBuffer.class);
+
+    private static final String PROPERTY_PREFIX = "time-logger.log-ingestion.";
+    private static final String METRIC_PREFIX = "log-ingestion.";
+    private static final String BULKHEAD_NAME = "log-ingestion";
+
+    private static final long DEFAULT_FLUSH_INTERVAL = 10L;
+    private static final int DEFAULT_BATCH_SIZE = 500;
+    private static final int DEFAULT_QUEUE_CAPACITY = 10000;
+    private static final long MAX_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(100L);
+
+    private final LogStore logStore;
+    private final boolean enabled;
+    private final long flushIntervalNanos;
+    private final int batchSize;
+    private final int queueCapacity;
+    private final Path journalPath;
+
+    private final BlockingQueue<PendingLog> queue;
+    private final List<Log> unsavedLogs = new ArrayList<>();
+    private final List<Log> replayedLogs = new ArrayList<>();
+
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicLong logCount = new AtomicLong();
+    private final AtomicLong failedBatchCount = new AtomicLong();
+
+    private LogJournal journal;
+    private Thread flusher;
+    private volatile boolean running;
+    private Consumer<List<Log>> savedLogsListener;
+
+    @Autowired
+    public LogWriteBuffer(LogStore logStore, Environment environment) {
+        this(
+                logStore,
+                environment.getProperty(PROPERTY_PREFIX + "group-commit", Boolean.class, false),
+                environment.getProperty(PROPERTY_PREFIX + "flush-interval", Long.class, DEFAULT_FLUSH_INTERVAL),
+                environment.getProperty(PROPERTY_PREFIX + "batch-size", Integer.class, DEFAULT_BATCH_SIZE),
+                environment.getProperty(PROPERTY_PREFIX + "queue-capacity", Integer.class, DEFAULT_QUEUE_CAPACITY),
+                getJournalPath(environment.getProperty(PROPERTY_PREFIX + "journal"))
+        );
+    }
+
+    public LogWriteBuffer(LogStore logStore, boolean enabled, long flushInterval, int batchSize,
+                          int queueCapacity, Path journalPath) {
+
+        this.logStore = logStore;
+        this.enabled = enabled;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushInterval);
+        this.batchSize = batchSize;
+        this.queueCapacity = queueCapacity;
+        this.journalPath = journalPath;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        if (!enabled) {
+            return;
+        }
+
+        if (journalPath != null) {
+            journal = new LogJournal(journalPath);
+            replayJournal();
+        }
+
+        running = true;
+        flusher = new Thread(this::runFlusher, BULKHEAD_NAME + "-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void destroy() throws Exception {
+        if (!running) {
+            return;
+        }
+
+        // The flusher drains the queue before it stops, so that no acknowledged log is left behind
+        running = false;
+        flusher.join();
+
+        // Logs submitted just before the flag was cleared might have been queued after the flusher stopped
+        final List<PendingLog> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            flush(remaining);
+        }
+
+        if (journal != null) {
+            if (retryUnsavedLogs()) {
+                truncateJournal();
+            }
+
+            journal.close();
+        }
+    }
+
+    /**
+     * Sets a listener to be passed logs saved by this buffer, on the thread that saved them. Logs replayed from the
+     * journal before a listener is set are passed to it right away.
+     *
+     * @param savedLogsListener Receives groups of saved {@link Log} instances
+     */
+    public void setSavedLogsListener(Consumer<List<Log>> savedLogsListener) {
+        final List<Log> logs;
+        synchronized (replayedLogs) {
+            this.savedLogsListener = savedLogsListener;
+            logs = new ArrayList<>(replayedLogs);
+            replayedLogs.clear();
+        }
+
+        if (!logs.isEmpty()) {
+            onSaved(logs);
+            markApplied(logs);
+        }
+    }
+
+    /**
+     * @return {@code true} if group commit is enabled and logs should be submitted to this buffer
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queues provided {@code log} to be saved with the next group.
+     *
+     * @param log New {@link Log} instance to save
+     * @return Saved {@link Log} instance, completed once the log is durable
+     * @throws BulkheadFullException If the queue is full or the buffer is not running
+     */
+    public CompletableFuture<Log> submit(Log log) {
+        final PendingLog pendingLog = new PendingLog(log.getId() != null ? log : assignId(log));
+        if (!running || !queue.offer(pendingLog)) {
+            throw new BulkheadFullException(BULKHEAD_NAME);
+        }
+
+        return pendingLog.result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<Metric<?>> metrics() {
+        final List<Metric<?>> metrics = new ArrayList<>();
+
+        metrics.add(new Metric<>(METRIC_PREFIX + "queue.size", queue.size()));
+        metrics.add(new Metric<>(METRIC_PREFIX + "batches", batchCount.get()));
+        metrics.add(new Metric<>(METRIC_PREFIX + "batches.failed", failedBatchCount.get()));
+        metrics.add(new Metric<>(METRIC_PREFIX + "logs", logCount.get()));
+
+        return metrics;
+    }
+
+    /**
+     * @return Number of flushed groups
+     */
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+
+    /**
+     * @return Number of logs in flushed groups
+     */
+    public long getLogCount() {
+        return logCount.get();
+    }
+
+    private void runFlusher() {
+        final List<PendingLog> batch = new ArrayList<>(batchSize);
+
+        while (running || !queue.isEmpty()) {
+            try {
+                collectBatch(batch);
+            } catch (InterruptedException e) {
+                // Stops waiting for more logs, but still flushes those that are already queued
+                running = false;
+                queue.drainTo(batch, batchSize - batch.size());
+            }
+
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void collectBatch(List<PendingLog> batch) throws InterruptedException {
+        final PendingLog first = poll(flushIntervalNanos);
+        if (first == null) {
+            return;
+        }
+
+        batch.add(first);
+        final long deadline = System.nanoTime() + flushIntervalNanos;
+
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+
+            final long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0) {
+                return;
+            }
+
+            final PendingLog next = poll(remaining);
+            if (next == null) {
+                return;
+            }
+
+            batch.add(next);
+        }
+    }
+
+    private PendingLog poll(long timeoutNanos) throws InterruptedException {
+        final long deadline = System.nanoTime() + timeoutNanos;
+
+        // Waits in short slices, so that a long flush interval does not delay shutdown
+        while (running) {
+            final long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return null;
+            }
+
+            final PendingLog pendingLog = queue.poll(Math.min(remaining, MAX_POLL_NANOS), TimeUnit.NANOSECONDS);
+            if (pendingLog != null) {
+                return pendingLog;
+            }
+        }
+
+        return queue.poll();
+    }
+
+    private void flush(List<PendingLog> batch) {
+        final List<Log> logs = batch.stream().map(pendingLog -> pendingLog.log).collect(Collectors.toList());
+
+        batchCount.incrementAndGet();
+        logCount.addAndGet(logs.size());
+
+        if (journal == null) {
+            flushWithoutJournal(batch, logs);
+        } else {
+            flushWithJournal(batch, logs);
+        }
+    }
+
+    private void flushWithoutJournal(List<PendingLog> batch, List<Log> logs) {
+        try {
+            logStore.insert(logs);
+        } catch (RuntimeException e) {
+            failedBatchCount.incrementAndGet();
+            batch.forEach(pendingLog -> pendingLog.result.completeExceptionally(e));
+            return;
+        }
+
+        onSaved(logs);
+        batch.forEach(pendingLog -> pendingLog.result.complete(pendingLog.log));
+    }
+
+    private void flushWithJournal(List<PendingLog> batch, List<Log> logs) {
+        // Logs from earlier groups may have been inserted partially, so they are retried with idempotent saves
+        final boolean retried = retryUnsavedLogs();
+
+        if (!retried && unsavedLogs.size() >= queueCapacity) {
+            final BulkheadFullException exception = new BulkheadFullException(BULKHEAD_NAME);
+
+            failedBatchCount.incrementAndGet();
+            batch.forEach(pendingLog -> pendingLog.result.completeExceptionally(exception));
+            return;
+        }
+
+        try {
+            journal.append(logs);
+        } catch (IOException | RuntimeException e) {
+            failedBatchCount.incrementAndGet();
+            batch.forEach(pendingLog -> pendingLog.result.completeExceptionally(e));
+            return;
+        }
+
+        batch.forEach(pendingLog -> pendingLog.result.complete(pendingLog.log));
+
+        try {
+            logStore.insert(logs);
+        } catch (RuntimeException e) {
+            logger.warn("Failed to save {} journaled logs, retrying with the next group", logs.size(), e);
+            failedBatchCount.incrementAndGet();
+            unsavedLogs.addAll(logs);
+            return;
+        }
+
+        onSaved(logs);
+        if (unsavedLogs.isEmpty()) {
+            truncateJournal();
+        } else {
+            markApplied(logs);
+        }
+    }
+
+    private boolean retryUnsavedLogs() {
+        if (unsavedLogs.isEmpty()) {
+            return true;
+        }
+
+        try {
+            logStore.save(unsavedLogs);
+        } catch (RuntimeException e) {
+            return false;
+        }
+
+        // Logs of a failed insert are passed on only now, even if some of them were inserted before it failed
+        final List<Log> logs = new ArrayList<>(unsavedLogs);
+        onSaved(logs);
+        markApplied(logs);
+        unsavedLogs.clear();
+        return true;
+    }
+
+    private void onSaved(List<Log> logs) {
+        final Consumer<List<Log>> listener;
+        synchronized (replayedLogs) {
+            listener = savedLogsListener;
+        }
+
+        if (listener == null) {
+            return;
+        }
+
+        try {
+            listener.accept(logs);
+        } catch (RuntimeException e) {
+            // The logs are saved either way, so a failing listener must not fail or retry them
+            logger.warn("Failed to process {} saved logs", logs.size(), e);
+        }
+    }
+
+    private void markApplied(List<Log> logs) {
+        if (journal == null) {
+            return;
+        }
+
+        try {
+            journal.markApplied(logs);
+        } catch (IOException e) {
+            // The logs are only passed to the listener once more if the journal is replayed before it is truncated
+            logger.warn("Failed to mark {} logs as applied in log journal", logs.size(), e);
+        }
+    }
+
+    private void truncateJournal() {
+        try {
+            journal.truncate();
+        } catch (IOException e) {
+            // Saved logs are replayed with idempotent saves, so a journal that keeps growing is only wasted space
+            logger.warn("Failed to truncate log journal", e);
+        }
+    }
+
+    private void replayJournal() throws IOException {
+        // Logs that were inserted, but not passed to the listener before the process died, are saved again harmlessly
+        final List<Log> logs = journal.readAll();
+
+        if (logs.isEmpty()) {
+            journal.truncate();
+        } else {
+            logger.info("Replaying {} journaled logs", logs.size());
+            logStore.save(logs);
+
+            // The logs stay in the journal until they are marked as applied, so they are replayed again if the process
+            // dies before the listener is set
+            synchronized (replayedLogs) {
+                replayedLogs.addAll(logs);
+            }
+        }
+    }
+
+    private static Log assignId(Log log) {
+        // IDs are assigned up front, so that journaled logs keep their IDs when replayed
+        final String id = new ObjectId().toHexString();
+        return new Log(id, log.getAccountId(), log.getActivityId(), log.getStartTime(), log.getDuration());
+    }
+
+    private static Path getJournalPath(String journal) {
+        return journal == null || journal.isEmpty() ? null : Paths.get(journal);
+    }
+
+    private static class PendingLog {
+
+        private final Log log;
+        private final CompletableFuture<Log> result = new CompletableFuture<>();
+
+        PendingLog(Log log) {
+            this.log = log;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.pdereg.timelogger.service.error;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when logs are to be migrated to the layout they are already in.
+ */
+@ResponseStatus(code = HttpStatus.BAD_REQUEST, reason = "Source and target layouts must differ")
+public class InvalidMigrationException extends RuntimeException {
+}
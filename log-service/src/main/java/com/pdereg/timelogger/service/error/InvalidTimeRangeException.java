@@ -0,0 +1,11 @@
+package com.pdereg.timelogger.service.error;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when the lower bound of a requested time range is after its upper bound.
+ */
+@ResponseStatus(code = HttpStatus.BAD_REQUEST, reason = "Invalid time range")
+public class InvalidTimeRangeException extends RuntimeException {
+}
@@ -0,0 +1,11 @@
+package com.pdereg.timelogger.service.error;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when logs are to be archived, but no archive directory is configured.
+ */
+@ResponseStatus(code = HttpStatus.CONFLICT, reason = "Log archive is not configured")
+public class LogArchiveDisabledException extends RuntimeException {
+}
@@ -0,0 +1,11 @@
+package com.pdereg.timelogger.service.error;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when logs are to be migrated from or to a layout that is not configured.
+ */
+@ResponseStatus(code = HttpStatus.CONFLICT, reason = "Log layout is not configured")
+public class LogLayoutDisabledException extends RuntimeException {
+}
@@ -0,0 +1,62 @@
+package com.pdereg.timelogger.web.web.rest;
+
+import com.pdereg.timelogger.domain.DailyRollup;
+import com.pdereg.timelogger.routing.RoutedRead;
+import com.pdereg.timelogger.security.annotations.AdminOrAccountOwnerRequired;
+import com.pdereg.timelogger.security.annotations.AdminRequired;
+import com.pdereg.timelogger.service.DailyRollupService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * REST controller for {@link DailyRollup} resources.
+ */
+@RestController
+@RequestMapping("/api")
+public class DailyRollupResource {
+
+    private final DailyRollupService dailyRollupService;
+
+    @Autowired
+    public DailyRollupResource(DailyRollupService dailyRollupService) {
+        this.dailyRollupService = dailyRollupService;
+    }
+
+    /**
+     * Fetches and returns per-day totals of time logged by an account with provided {@code username}. Each returned
+     * {@link DailyRollup} is a single precomputed document, so the cost of this call does not depend on the number of
+     * logs.
+     *
+     * @param username   Name of the account associated with the rollups to return
+     * @param from       Lower bound (inclusive) of the time range (as UNIX timestamp in milliseconds)
+     * @param to         Upper bound (exclusive) of the time range (as UNIX timestamp in milliseconds)
+     * @param activityId Optional ID of the activity associated with the rollups to return
+     * @return A list of {@link DailyRollup} instances, sorted by their day and activity ID
+     */
+    @GetMapping("/rollups/{username}")
+    @AdminOrAccountOwnerRequired
+    @RoutedRead("log-summaries")
+    public CompletableFuture<List<DailyRollup>> findAllByAccountId(@PathVariable String username,
+                                                                   @RequestParam long from,
+                                                                   @RequestParam long to,
+                                                                   @RequestParam(required = false) String activityId) {
+
+        return dailyRollupService.findAllByAccountId(username, from, to, activityId);
+    }
+
+    /**
+     * Starts rebuilding rollups of all accounts from existing logs in the background.
+     *
+     * @return Empty response with 202 status
+     */
+    @PostMapping("/rollups/rebuild")
+    @AdminRequired
+    public ResponseEntity<Void> rebuildAll() {
+        dailyRollupService.rebuildAll();
+        return ResponseEntity.accepted().build();
+    }
+}
@@ -0,0 +1,34 @@
+package com.pdereg.timelogger.web.web.rest;
+
+import com.pdereg.timelogger.security.annotations.AdminRequired;
+import com.pdereg.timelogger.service.LogArchiveService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * REST controller for archiving old logs.
+ */
+@RestController
+@RequestMapping("/api")
+public class LogArchiveResource {
+
+    private final LogArchiveService logArchiveService;
+
+    @Autowired
+    public LogArchiveResource(LogArchiveService logArchiveService) {
+        this.logArchiveService = logArchiveService;
+    }
+
+    /**
+     * Starts moving logs of old months from the database to the archive in the background.
+     *
+     * @return Empty response with 202 status
+     */
+    @PostMapping("/log-archive/run")
+    @AdminRequired
+    public ResponseEntity<Void> archive() {
+        logArchiveService.archive();
+        return ResponseEntity.accepted().build();
+    }
+}
@@ -0,0 +1,38 @@
+package com.pdereg.timelogger.web.web.rest;
+
+import com.pdereg.timelogger.repository.LogLayout;
+import com.pdereg.timelogger.security.annotations.AdminRequired;
+import com.pdereg.timelogger.service.LogMigrationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * REST controller for migrating logs between storage layouts.
+ */
+@RestController
+@RequestMapping("/api")
+public class LogMigrationResource {
+
+    private final LogMigrationService logMigrationService;
+
+    @Autowired
+    public LogMigrationResource(LogMigrationService logMigrationService) {
+        this.logMigrationService = logMigrationService;
+    }
+
+    /**
+     * Starts copying all logs from one layout to another in the background.
+     *
+     * @param from Layout to copy logs from ({@code DOCUMENT}, {@code BUCKETED}, {@code ENCODED}, {@code MAPPED} or
+     *             {@code SHARDED}). Mapped and sharded layouts can only be used once configured
+     * @param to   Layout to copy logs to
+     * @return Empty response with 202 status
+     */
+    @PostMapping("/log-storage/migrate")
+    @AdminRequired
+    public ResponseEntity<Void> migrate(@RequestParam LogLayout from, @RequestParam LogLayout to) {
+        logMigrationService.migrate(from, to);
+        return ResponseEntity.accepted().build();
+    }
+}
@@ -1,22 +1,44 @@
 package com.pdereg.timelogger.web.web.rest;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.pdereg.timelogger.domain.Log;
+import com.pdereg.timelogger.idempotency.Idempotent;
+import com.pdereg.timelogger.pagination.PageSizeResolver;
+import com.pdereg.timelogger.repository.LogFilter;
+import com.pdereg.timelogger.repository.LogPosition;
+import com.pdereg.timelogger.repository.LogSummary;
+import com.pdereg.timelogger.repository.LogTotal;
+import com.pdereg.timelogger.routing.RoutedRead;
 import com.pdereg.timelogger.security.annotations.AdminOrAccountOwnerRequired;
 import com.pdereg.timelogger.service.ActivityService;
 import com.pdereg.timelogger.service.LogService;
 import com.pdereg.timelogger.service.error.LogNotFoundException;
+import com.pdereg.timelogger.web.web.rest.model.BatchLogEntry;
+import com.pdereg.timelogger.web.web.rest.model.BatchLogResult;
+import com.pdereg.timelogger.web.web.rest.model.CreateLogBatchRequest;
 import com.pdereg.timelogger.web.web.rest.model.CreateLogRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * REST controller for {@link Log} resources.
@@ -27,11 +49,17 @@ public class LogResource {
 
     private final ActivityService activityService;
     private final LogService logService;
+    private final ObjectMapper objectMapper;
+    private final PageSizeResolver pageSizeResolver;
 
     @Autowired
-    public LogResource(ActivityService activityService, LogService logService) {
+    public LogResource(ActivityService activityService, LogService logService, ObjectMapper objectMapper,
+                       PageSizeResolver pageSizeResolver) {
+
         this.activityService = activityService;
         this.logService = logService;
+        this.objectMapper = objectMapper;
+        this.pageSizeResolver = pageSizeResolver;
     }
 
     /**
@@ -42,6 +70,7 @@ public class LogResource {
      * @return Newly created {@link Log} instance
      */
     @PostMapping("/logs")
+    @Idempotent("create-log")
     public CompletableFuture<HttpEntity<Log>> createLog(@RequestHeader("Authorization") String authorizationHeader,
                                                         @RequestBody @Valid CreateLogRequest request,
                                                         Principal principal) {
@@ -51,36 +80,142 @@ public class LogResource {
 
         return activityService
                 .getActivity(authorizationHeader, accountId, activityId)
-                .thenComposeAsync(unit -> logService.createLog(accountId, activityId, request.getDuration()))
+                .thenCompose(unit -> logService.createLog(accountId, activityId, request.getDuration()))
                 .thenApply(this::createLogResponse);
     }
 
     /**
-     * Fetches and returns all {@link Log} instances for an account with provided {@code username}.
+     * Creates many {@link Log} instances at once. Each distinct activity is validated only once, and all accepted
+     * entries are saved with a single bulk insert.
      *
-     * @param username Name of the account associated with the logs to return
-     * @return A list of all {@link Log} instances for an account with provided {@code username}
+     * @param authorizationHeader User's authentication token for whom to create new logs
+     * @param request             HTTP request body which contains entries for log creation
+     * @return A list of per-entry results, in the same order as the request entries
+     */
+    @PostMapping("/logs/batch")
+    public CompletableFuture<List<BatchLogResult>> createLogs(
+            @RequestHeader("Authorization") String authorizationHeader,
+            @RequestBody @Valid CreateLogBatchRequest request,
+            Principal principal) {
+
+        final String accountId = principal.getName();
+        final List<BatchLogEntry> entries = request.getEntries();
+        final Set<String> activityNames = entries.stream()
+                .map(BatchLogEntry::getActivityName)
+                .collect(Collectors.toSet());
+
+        return activityService
+                .findExistingActivityNames(authorizationHeader, accountId, activityNames)
+                .thenCompose(existingActivityNames -> createLogs(accountId, entries, existingActivityNames));
+    }
+
+    /**
+     * Streams a page of {@link Log} instances for an account with provided {@code username} that match provided
+     * {@code filter}. Logs are written to the response as they are read from the database, so memory use does not
+     * depend on the page size.
+     *
+     * @param username     Name of the account associated with the logs to return
+     * @param filter       Optional criteria (start time range, activity IDs and duration range) passed as query
+     *                     parameters
+     * @param continuation Token returned with the previous page, or {@code null} to fetch the first page
+     * @param size         Maximum number of logs to return. Capped at the configured maximum page size
+     * @return A page of matching {@link Log} instances, sorted by their start time
      */
     @GetMapping("/logs/{username}")
     @AdminOrAccountOwnerRequired
-    public CompletableFuture<List<Log>> findAllByAccountId(@PathVariable String username) {
-        return logService.findAllByAccountId(username);
+    @RoutedRead("log-listing")
+    public ResponseEntity<StreamingResponseBody> findAllByAccountId(@PathVariable String username,
+                                                                    @Valid LogFilter filter,
+                                                                    @RequestParam(required = false) String continuation,
+                                                                    @RequestParam(required = false) Integer size) {
+
+        return createStreamingResponse(username, filter, continuation, size);
+    }
+
+    /**
+     * Streams per-activity summaries (total duration, number of logs, first and last start time) of {@link Log}
+     * instances for an account with provided {@code username} that match provided {@code filter}. Summaries are
+     * computed by the database, so individual logs are never sent to the service. Served apart from
+     * {@code /logs/{username}/...}, so that it cannot be confused with logs of an activity.
+     *
+     * @param username Name of the account associated with the logs to summarize
+     * @param filter   Optional criteria (start time range, activity IDs and duration range) passed as query
+     *                 parameters
+     * @return A list of {@link LogSummary} instances, sorted by their activity ID
+     */
+    @GetMapping("/log-summaries/{username}")
+    @AdminOrAccountOwnerRequired
+    @RoutedRead("log-summaries")
+    public ResponseEntity<StreamingResponseBody> findSummariesByAccountId(@PathVariable String username,
+                                                                          @Valid LogFilter filter) {
+
+        final StreamingResponseBody body = outputStream -> {
+            try (Stream<LogSummary> stream = logService.streamSummariesByAccountId(username, filter);
+                 JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+
+                generator.writeStartArray();
+
+                final Iterator<LogSummary> iterator = stream.iterator();
+                while (iterator.hasNext()) {
+                    generator.writeObject(iterator.next());
+                }
+
+                generator.writeEndArray();
+            }
+        };
+
+        return ResponseEntity
+                .ok()
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .body(body);
+    }
+
+    /**
+     * Computes the total duration and number of {@link Log} instances for an account with provided {@code username}
+     * that started in provided time range. Served apart from {@code /logs/{username}/...}, so that it cannot be
+     * confused with logs of an activity.
+     *
+     * @param username   Name of the account associated with the logs
+     * @param from       Lower bound (inclusive) of log's start time (as UNIX timestamp in milliseconds)
+     * @param to         Upper bound (exclusive) of log's start time (as UNIX timestamp in milliseconds)
+     * @param activityId Optional ID of the activity associated with the logs
+     * @return {@link LogTotal} instance
+     */
+    @GetMapping("/log-totals/{username}")
+    @AdminOrAccountOwnerRequired
+    @RoutedRead("log-summaries")
+    public CompletableFuture<LogTotal> getTotal(@PathVariable String username,
+                                                @RequestParam long from,
+                                                @RequestParam long to,
+                                                @RequestParam(required = false) String activityId) {
+
+        return logService.getTotal(username, activityId, from, to);
     }
 
     /**
-     * Fetches and returns all {@link Log} instances for an account with provided {@code username} and
-     * {@code activityId}.
+     * Streams a page of {@link Log} instances for an account with provided {@code username} and {@code activityId}
+     * that match provided {@code filter}.
      *
-     * @param username   Name of the account associated with the logs to return
-     * @param activityId ID of the activity associated with the logs to return
-     * @return A list of all {@link Log} instances for an account with provided {@code username} and {@code activityId}
+     * @param username     Name of the account associated with the logs to return
+     * @param activityId   ID of the activity associated with the logs to return
+     * @param filter       Optional criteria (start time range and duration range) passed as query parameters
+     * @param continuation Token returned with the previous page, or {@code null} to fetch the first page
+     * @param size         Maximum number of logs to return. Capped at the configured maximum page size
+     * @return A page of matching {@link Log} instances, sorted by their start time
+     * @see LogResource#findAllByAccountId(String, LogFilter, String, Integer)
      */
     @GetMapping("/logs/{username}/{activityId}")
     @AdminOrAccountOwnerRequired
-    public CompletableFuture<List<Log>> findAllByAccountIdAndActivityName(@PathVariable String username,
-                                                                          @PathVariable String activityId) {
+    @RoutedRead("log-listing")
+    public ResponseEntity<StreamingResponseBody> findAllByAccountIdAndActivityName(
+            @PathVariable String username,
+            @PathVariable String activityId,
+            @Valid LogFilter filter,
+            @RequestParam(required = false) String continuation,
+            @RequestParam(required = false) Integer size) {
 
-        return logService.findAllByAccountIdAndActivityId(username, activityId);
+        filter.setActivityIds(Collections.singleton(activityId));
+        return createStreamingResponse(username, filter, continuation, size);
     }
 
     /**
@@ -97,14 +232,81 @@ public class LogResource {
     public CompletableFuture<Log> findOneById(@PathVariable String username, @PathVariable String activityId,
                                               @PathVariable String id) {
         return logService
-                .findAllByAccountIdAndActivityId(username, activityId)
-                .thenApply(logs -> logs.stream()
-                        .filter(log -> log.getId().equals(id))
-                        .findAny()
-                )
+                .findOneById(id, username, activityId)
                 .thenApply(log -> log.<LogNotFoundException>orElseThrow(LogNotFoundException::new));
     }
 
+    private CompletableFuture<List<BatchLogResult>> createLogs(String accountId, List<BatchLogEntry> entries,
+                                                               Set<String> existingActivityNames) {
+
+        final BatchLogResult[] results = new BatchLogResult[entries.size()];
+        final List<Integer> acceptedIndices = new ArrayList<>(entries.size());
+        final List<Log> acceptedLogs = new ArrayList<>(entries.size());
+
+        for (int i = 0; i < entries.size(); ++i) {
+            final BatchLogEntry entry = entries.get(i);
+
+            if (!existingActivityNames.contains(entry.getActivityName())) {
+                results[i] = BatchLogResult.failed(HttpStatus.NOT_FOUND, "Activity not found");
+                continue;
+            }
+
+            try {
+                final String activityId = entry.getActivityName();
+                acceptedLogs.add(new Log(accountId, activityId, entry.getStartTime(), entry.getDuration()));
+                acceptedIndices.add(i);
+            } catch (IllegalArgumentException e) {
+                results[i] = BatchLogResult.failed(HttpStatus.BAD_REQUEST, e.getMessage());
+            }
+        }
+
+        return logService
+                .createLogs(acceptedLogs)
+                .thenApply(logs -> {
+                    for (int i = 0; i < logs.size(); ++i) {
+                        results[acceptedIndices.get(i)] = BatchLogResult.created(logs.get(i));
+                    }
+
+                    return Arrays.asList(results);
+                });
+    }
+
+    private ResponseEntity<StreamingResponseBody> createStreamingResponse(String accountId, LogFilter filter,
+                                                                        String continuation, Integer size) {
+
+        final LogPosition position = continuation != null ? LogPosition.fromToken(continuation) : null;
+        final int pageSize = pageSizeResolver.resolve(size);
+
+        final StreamingResponseBody body = outputStream -> {
+            // One extra log is fetched to tell whether there is a next page
+            try (Stream<Log> stream = logService.streamAllByAccountId(accountId, filter, position, pageSize + 1);
+                 JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+
+                generator.writeStartObject();
+                generator.writeArrayFieldStart("content");
+
+                final Iterator<Log> iterator = stream.iterator();
+                Log last = null;
+                int count = 0;
+
+                while (count < pageSize && iterator.hasNext()) {
+                    last = iterator.next();
+                    generator.writeObject(last);
+                    ++count;
+                }
+
+                generator.writeEndArray();
+                generator.writeStringField("next", iterator.hasNext() ? LogPosition.of(last).toToken() : null);
+                generator.writeEndObject();
+            }
+        };
+
+        return ResponseEntity
+                .ok()
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .body(body);
+    }
+
     private HttpEntity<Log> createLogResponse(Log log) {
         final URI logUri = createLogUri(log);
 
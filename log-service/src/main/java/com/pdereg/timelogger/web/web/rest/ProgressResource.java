@@ -0,0 +1,88 @@
+package com.pdereg.timelogger.web.web.rest;
+
+import com.pdereg.timelogger.domain.DailyRollup;
+import com.pdereg.timelogger.network.model.Activity;
+import com.pdereg.timelogger.routing.RoutedRead;
+import com.pdereg.timelogger.security.annotations.AdminOrAccountOwnerRequired;
+import com.pdereg.timelogger.service.ActivityService;
+import com.pdereg.timelogger.service.DailyRollupService;
+import com.pdereg.timelogger.web.web.rest.model.ActivityProgress;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+/**
+ * REST controller for progress of activities scheduled on a given day.
+ */
+@RestController
+@RequestMapping("/api")
+public class ProgressResource {
+
+    private final ActivityService activityService;
+    private final DailyRollupService dailyRollupService;
+
+    @Autowired
+    public ProgressResource(ActivityService activityService, DailyRollupService dailyRollupService) {
+        this.activityService = activityService;
+        this.dailyRollupService = dailyRollupService;
+    }
+
+    /**
+     * Returns every activity of an account with provided {@code username} that is scheduled on provided {@code date},
+     * together with its required and logged duration. Logged durations are read from {@link DailyRollup} instances,
+     * so the cost of this call depends on the number of activities, not logs.
+     *
+     * @param authorizationHeader User's authentication token used to fetch activities
+     * @param username            Name of the account associated with the activities
+     * @param date                Day to check (in UTC, formatted as {@code yyyy-MM-dd}). Defaults to today
+     * @return A list of {@link ActivityProgress} instances, sorted by activity name
+     */
+    @GetMapping("/progress/{username}")
+    @AdminOrAccountOwnerRequired
+    @RoutedRead("log-summaries")
+    public CompletableFuture<List<ActivityProgress>> getProgress(
+            @RequestHeader("Authorization") String authorizationHeader,
+            @PathVariable String username,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+
+        final LocalDate day = date != null ? date : LocalDate.now(ZoneOffset.UTC);
+        final long from = day.atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+        final long to = from + DailyRollup.MILLIS_IN_A_DAY;
+
+        // Monday is the first element of activity weekdays
+        final int weekday = day.getDayOfWeek().getValue() - 1;
+
+        return activityService
+                .findAllByAccountId(authorizationHeader, username)
+                .thenCombine(
+                        dailyRollupService.findAllByAccountId(username, from, to, null),
+                        (activities, rollups) -> createProgress(activities, rollups, weekday)
+                );
+    }
+
+    private List<ActivityProgress> createProgress(List<Activity> activities, List<DailyRollup> rollups, int weekday) {
+        final Map<String, Long> loggedDurations = rollups.stream()
+                .collect(Collectors.toMap(DailyRollup::getActivityId, DailyRollup::getTotalDuration));
+
+        return activities.stream()
+                .filter(activity -> isScheduled(activity, weekday))
+                .map(activity -> new ActivityProgress(
+                        activity.getName(),
+                        activity.getRequiredDuration(),
+                        loggedDurations.getOrDefault(activity.getName(), 0L)
+                ))
+                .collect(Collectors.toList());
+    }
+
+    private boolean isScheduled(Activity activity, int weekday) {
+        final boolean[] weekdays = activity.getWeekdays();
+        return weekdays != null && weekday < weekdays.length && weekdays[weekday];
+    }
+}
@@ -0,0 +1,45 @@
+package com.pdereg.timelogger.web.web.rest.model;
+
+/**
+ * An HTTP response body element comparing time logged for a scheduled activity against its required duration.
+ */
+public class ActivityProgress {
+
+    private final String activityName;
+    private final long requiredDuration;
+    private final long loggedDuration;
+
+    public ActivityProgress(String activityName, long requiredDuration, long loggedDuration) {
+        this.activityName = activityName;
+        this.requiredDuration = requiredDuration;
+        this.loggedDuration = loggedDuration;
+    }
+
+    /**
+     * @return Name of the activity
+     */
+    public String getActivityName() {
+        return activityName;
+    }
+
+    /**
+     * @return Duration required on the day (in milliseconds)
+     */
+    public long getRequiredDuration() {
+        return requiredDuration;
+    }
+
+    /**
+     * @return Duration logged on the day (in milliseconds)
+     */
+    public long getLoggedDuration() {
+        return loggedDuration;
+    }
+
+    /**
+     * @return {@code true} if logged duration is at least the required duration
+     */
+    public boolean isCompleted() {
+        return loggedDuration >= requiredDuration;
+    }
+}
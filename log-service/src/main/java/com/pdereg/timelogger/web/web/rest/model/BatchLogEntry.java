@@ -0,0 +1,46 @@
+package com.pdereg.timelogger.web.web.rest.model;
+
+import com.pdereg.timelogger.domain.Log;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+/**
+ * A single entry of {@link CreateLogBatchRequest}. Unlike {@link CreateLogRequest}, the entry carries an explicit
+ * start time, so that logs recorded earlier can be synchronized.
+ */
+public class BatchLogEntry {
+
+    @NotNull
+    private String activityName;
+
+    @Min(Log.MIN_START_TIME)
+    private long startTime;
+
+    @Min(Log.MIN_DURATION)
+    private long duration;
+
+    public String getActivityName() {
+        return activityName;
+    }
+
+    public void setActivityName(String activityName) {
+        this.activityName = activityName;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(long startTime) {
+        this.startTime = startTime;
+    }
+
+    public long getDuration() {
+        return duration;
+    }
+
+    public void setDuration(long duration) {
+        this.duration = duration;
+    }
+}
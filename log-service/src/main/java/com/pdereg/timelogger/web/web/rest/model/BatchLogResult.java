@@ -0,0 +1,62 @@
+package com.pdereg.timelogger.web.web.rest.model;
+
+import com.pdereg.timelogger.domain.Log;
+import org.springframework.http.HttpStatus;
+
+/**
+ * An HTTP response body element describing the outcome of a single {@link BatchLogEntry}.
+ */
+public class BatchLogResult {
+
+    private final int status;
+    private final Log log;
+    private final String error;
+
+    private BatchLogResult(int status, Log log, String error) {
+        this.status = status;
+        this.log = log;
+        this.error = error;
+    }
+
+    /**
+     * Creates a result for an entry that was saved as provided {@code log}.
+     *
+     * @param log Newly created {@link Log} instance
+     * @return {@link BatchLogResult} instance
+     */
+    public static BatchLogResult created(Log log) {
+        return new BatchLogResult(HttpStatus.CREATED.value(), log, null);
+    }
+
+    /**
+     * Creates a result for an entry that was rejected.
+     *
+     * @param status HTTP status describing the reason of rejection
+     * @param error  Human readable reason of rejection
+     * @return {@link BatchLogResult} instance
+     */
+    public static BatchLogResult failed(HttpStatus status, String error) {
+        return new BatchLogResult(status.value(), null, error);
+    }
+
+    /**
+     * @return HTTP status code of the entry
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * @return Newly created {@link Log} instance, or {@code null} if the entry was rejected
+     */
+    public Log getLog() {
+        return log;
+    }
+
+    /**
+     * @return Reason of rejection, or {@code null} if the entry was saved
+     */
+    public String getError() {
+        return error;
+    }
+}
@@ -0,0 +1,27 @@
+package com.pdereg.timelogger.web.web.rest.model;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+/**
+ * An HTTP request body for batch log creation.
+ */
+public class CreateLogBatchRequest {
+
+    public static final int MAX_ENTRIES = 1000;
+
+    @NotNull
+    @Size(min = 1, max = MAX_ENTRIES)
+    @Valid
+    private List<BatchLogEntry> entries;
+
+    public List<BatchLogEntry> getEntries() {
+        return entries;
+    }
+
+    public void setEntries(List<BatchLogEntry> entries) {
+        this.entries = entries;
+    }
+}
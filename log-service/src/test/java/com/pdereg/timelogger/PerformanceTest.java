@@ -0,0 +1,9 @@
+package com.pdereg.timelogger;
+
+/**
+ * JUnit category of tests that load large amounts of data to measure memory use or storage size. Their results are
+ * only meaningful against a real MongoDB instance, so they are excluded from {@code test} and run with
+ * {@code performanceTest} instead.
+ */
+public interface PerformanceTest {
+}
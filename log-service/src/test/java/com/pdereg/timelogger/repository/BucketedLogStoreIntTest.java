@@ -0,0 +1,233 @@
+package com.pdereg.timelogger.repository;
+
+import com.pdereg.timelogger.Application;
+import com.pdereg.timelogger.config.CommonConfiguration;
+import com.pdereg.timelogger.domain.DailyRollup;
+import com.pdereg.timelogger.domain.Log;
+import com.pdereg.timelogger.domain.LogBucket;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.pdereg.timelogger.TestUtils.generateDuration;
+import static com.pdereg.timelogger.TestUtils.generateRandomString;
+import static com.pdereg.timelogger.TestUtils.generateStartTime;
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = Application.class)
+@TestPropertySource(properties = {CommonConfiguration.SECRET_ENV_KEY + "=test1234"})
+public class BucketedLogStoreIntTest {
+
+    private static final long DAY = DailyRollup.MILLIS_IN_A_DAY;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private BucketedLogStore bucketedLogStore;
+
+    @Autowired
+    private DocumentLogStore documentLogStore;
+
+    private String accountId;
+    private long duration;
+    private long today;
+
+    @Before
+    public void setUp() {
+        mongoTemplate.dropCollection(Log.class);
+        mongoTemplate.dropCollection(LogBucket.class);
+
+        accountId = generateRandomString(10);
+        duration = generateDuration();
+        today = DailyRollup.dayOf(generateStartTime(duration));
+    }
+
+    @After
+    public void tearDown() {
+        mongoTemplate.dropCollection(Log.class);
+        mongoTemplate.dropCollection(LogBucket.class);
+    }
+
+    @Test
+    public void insert_storesOneBucketPerAccountAndDay() {
+        bucketedLogStore.insert(Arrays.asList(
+                new Log(accountId, "activity1", today + 1000L, duration),
+                new Log(accountId, "activity2", today + 2000L, duration),
+                new Log(accountId, "activity1", today - DAY, duration),
+                new Log(generateRandomString(10), "activity1", today, duration)
+        ));
+
+        assertEquals(3, mongoTemplate.count(null, LogBucket.class));
+        assertEquals(4, mongoTemplate.findAll(LogBucket.class).stream().mapToInt(b -> b.getEntries().size()).sum());
+    }
+
+    @Test
+    public void insert_assignsIds() {
+        List<Log> logs = bucketedLogStore.insert(Collections.singletonList(
+                new Log(accountId, "activity", today, duration)
+        ));
+
+        assertNotNull(logs.get(0).getId());
+        assertEquals(logs.get(0), bucketedLogStore.findOne(logs.get(0).getId()).get());
+    }
+
+    @Test
+    public void save_doesNotDuplicateSavedLogs() {
+        List<Log> logs = bucketedLogStore.save(Arrays.asList(
+                new Log(accountId, "activity", today, duration),
+                new Log(accountId, "activity", today + 1000L, duration)
+        ));
+
+        bucketedLogStore.save(logs);
+        bucketedLogStore.save(logs.get(0));
+
+        assertEquals(logs, bucketedLogStore.findAllByAccountId(accountId));
+    }
+
+    @Test
+    public void streamAllByAccountId_returnsSameLogsAsDocumentLayout() {
+        insertIntoBothLayouts(createLogs());
+
+        List<LogFilter> filters = new ArrayList<>();
+        filters.add(new LogFilter());
+        filters.add(createFilter(today - 2 * DAY + 5000L, today - DAY + 3000L, null));
+        filters.add(createFilter(null, null, "activity1"));
+        filters.add(createFilter(today - DAY, null, "activity2"));
+
+        for (LogFilter filter : filters) {
+            assertEquals(streamAll(documentLogStore, filter), streamAll(bucketedLogStore, filter));
+        }
+    }
+
+    @Test
+    public void streamAllByAccountId_continuesFromPosition() {
+        List<Log> logs = insertIntoBothLayouts(createLogs());
+        List<Log> expected = streamAll(documentLogStore, new LogFilter());
+        LogPosition position = LogPosition.of(expected.get(expected.size() / 2));
+
+        try (Stream<Log> page = bucketedLogStore.streamAllByAccountId(accountId, new LogFilter(), position, 5)) {
+            int from = expected.size() / 2 + 1;
+            assertEquals(expected.subList(from, from + 5), page.collect(Collectors.toList()));
+        }
+
+        assertEquals(logs.size() - 1, expected.size());
+    }
+
+    @Test
+    public void streamAllOrderedByAccountId_groupsLogsByAccount() {
+        insertIntoBothLayouts(createLogs());
+
+        try (Stream<Log> documentLogs = documentLogStore.streamAllOrderedByAccountId();
+             Stream<Log> bucketedLogs = bucketedLogStore.streamAllOrderedByAccountId()) {
+
+            List<String> documentAccountIds = documentLogs.map(Log::getAccountId).collect(Collectors.toList());
+            List<String> bucketedAccountIds = bucketedLogs.map(Log::getAccountId).collect(Collectors.toList());
+
+            assertEquals(documentAccountIds, bucketedAccountIds);
+        }
+    }
+
+    @Test
+    public void streamSummariesByAccountId_returnsSameSummariesAsDocumentLayout() {
+        insertIntoBothLayouts(createLogs());
+
+        List<LogFilter> filters = Arrays.asList(
+                new LogFilter(),
+                createFilter(today - DAY, today + DAY, null),
+                createFilter(null, null, "activity2")
+        );
+
+        for (LogFilter filter : filters) {
+            assertEquals(summarize(documentLogStore, filter), summarize(bucketedLogStore, filter));
+        }
+    }
+
+    @Test
+    public void findOne_findsLogOfAccountAndActivity() {
+        Log log = bucketedLogStore.save(new Log(accountId, "activity", today, duration));
+
+        assertEquals(log, bucketedLogStore.findOne(log.getId(), accountId, "activity").get());
+        assertFalse(bucketedLogStore.findOne(log.getId(), accountId, "other").isPresent());
+        assertFalse(bucketedLogStore.findOne(log.getId(), generateRandomString(10), "activity").isPresent());
+        assertFalse(bucketedLogStore.findOne("malformed", accountId, "activity").isPresent());
+    }
+
+    @Test
+    public void findAndRemove_removesLogAndEmptyBucket() {
+        Log first = bucketedLogStore.save(new Log(accountId, "activity", today, duration));
+        Log second = bucketedLogStore.save(new Log(accountId, "activity", today + 1000L, duration));
+
+        assertEquals(first, bucketedLogStore.findAndRemove(first.getId(), accountId, "activity").get());
+        assertFalse(bucketedLogStore.findAndRemove(first.getId(), accountId, "activity").isPresent());
+        assertEquals(Collections.singletonList(second), bucketedLogStore.findAllByAccountId(accountId));
+        assertEquals(1, mongoTemplate.count(null, LogBucket.class));
+
+        bucketedLogStore.findAndRemove(second.getId(), accountId, "activity");
+        assertEquals(0, mongoTemplate.count(null, LogBucket.class));
+    }
+
+    private List<Log> createLogs() {
+        List<Log> logs = new ArrayList<>();
+
+        for (int i = 0; i < 30; ++i) {
+            long startTime = today - (i % 3) * DAY + (i / 3) * 1000L;
+            logs.add(new Log(accountId, "activity" + i % 2, startTime, duration + i * 1000L));
+        }
+
+        // Logs that start at the same time are ordered by their IDs
+        logs.add(new Log(accountId, "activity1", today, duration));
+        logs.add(new Log(generateRandomString(10), "activity1", today, duration));
+
+        return logs;
+    }
+
+    private List<Log> insertIntoBothLayouts(List<Log> logs) {
+        List<Log> savedLogs = documentLogStore.insert(logs);
+        bucketedLogStore.insert(savedLogs);
+
+        return savedLogs;
+    }
+
+    private LogFilter createFilter(Long from, Long to, String activityId) {
+        LogFilter filter = new LogFilter();
+        filter.setFrom(from);
+        filter.setTo(to);
+
+        if (activityId != null) {
+            filter.setActivityIds(Collections.singleton(activityId));
+        }
+
+        return filter;
+    }
+
+    private List<Log> streamAll(LogStore logStore, LogFilter filter) {
+        try (Stream<Log> logs = logStore.streamAllByAccountId(accountId, filter, null, Integer.MAX_VALUE)) {
+            return logs.collect(Collectors.toList());
+        }
+    }
+
+    private List<String> summarize(LogStore logStore, LogFilter filter) {
+        try (Stream<LogSummary> summaries = logStore.streamSummariesByAccountId(accountId, filter)) {
+            return summaries
+                    .map(summary -> summary.getActivityId() + ':' + summary.getTotalDuration() + ':'
+                            + summary.getLogCount() + ':' + summary.getFirstStartTime() + ':'
+                            + summary.getLastStartTime())
+                    .collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.pdereg.timelogger.repository;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ConsistentHashRingTest {
+
+    private static final int KEY_COUNT = 10000;
+    private static final int POINT_COUNT = 128;
+
+    @Test
+    public void get_spreadsKeysEvenly() {
+        List<String> nodes = Arrays.asList("a", "b", "c", "d");
+        ConsistentHashRing<String> ring = new ConsistentHashRing<>(nodes, nodes, POINT_COUNT);
+
+        Map<String, Integer> keyCounts = new HashMap<>();
+        for (int i = 0; i < KEY_COUNT; ++i) {
+            keyCounts.merge(ring.get("account-" + i), 1, Integer::sum);
+        }
+
+        assertEquals(nodes.size(), keyCounts.size());
+        keyCounts.values().forEach(count -> assertTrue(Math.abs(count - KEY_COUNT / 4) < KEY_COUNT / 10));
+    }
+
+    @Test
+    public void get_isStable() {
+        List<String> nodes = Arrays.asList("a", "b", "c");
+
+        ConsistentHashRing<String> first = new ConsistentHashRing<>(nodes, nodes, POINT_COUNT);
+        ConsistentHashRing<String> second = new ConsistentHashRing<>(nodes, nodes, POINT_COUNT);
+
+        for (int i = 0; i < KEY_COUNT; ++i) {
+            assertEquals(first.get("account-" + i), second.get("account-" + i));
+        }
+    }
+
+    @Test
+    public void get_movesOnlyKeysOfAddedNode() {
+        List<String> nodes = Arrays.asList("a", "b", "c");
+        List<String> moreNodes = Arrays.asList("a", "b", "c", "d");
+
+        ConsistentHashRing<String> ring = new ConsistentHashRing<>(nodes, nodes, POINT_COUNT);
+        ConsistentHashRing<String> largerRing = new ConsistentHashRing<>(moreNodes, moreNodes, POINT_COUNT);
+
+        int movedCount = 0;
+        for (int i = 0; i < KEY_COUNT; ++i) {
+            String node = ring.get("account-" + i);
+            String newNode = largerRing.get("account-" + i);
+
+            if (!node.equals(newNode)) {
+                assertEquals("d", newNode);
+                ++movedCount;
+            }
+        }
+
+        assertTrue(movedCount > KEY_COUNT / 8);
+        assertTrue(movedCount < KEY_COUNT / 3);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsEmptyNodes() {
+        new ConsistentHashRing<>(Collections.emptyList(), Collections.emptyList(), POINT_COUNT);
+    }
+}
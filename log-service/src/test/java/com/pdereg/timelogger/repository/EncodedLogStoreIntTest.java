@@ -0,0 +1,249 @@
+package com.pdereg.timelogger.repository;
+
+import com.pdereg.timelogger.Application;
+import com.pdereg.timelogger.config.CommonConfiguration;
+import com.pdereg.timelogger.domain.DailyRollup;
+import com.pdereg.timelogger.domain.Log;
+import com.pdereg.timelogger.domain.DictionaryEntry;
+import com.pdereg.timelogger.domain.EncodedLog;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static com.pdereg.timelogger.TestUtils.generateDuration;
+import static com.pdereg.timelogger.TestUtils.generateRandomString;
+import static com.pdereg.timelogger.TestUtils.generateStartTime;
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = Application.class)
+@TestPropertySource(properties = {CommonConfiguration.SECRET_ENV_KEY + "=test1234"})
+public class EncodedLogStoreIntTest {
+
+    private static final long DAY = DailyRollup.MILLIS_IN_A_DAY;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private EncodedLogStore encodedLogStore;
+
+    @Autowired
+    private LogDictionary logDictionary;
+
+    @Autowired
+    private DocumentLogStore documentLogStore;
+
+    private String accountId;
+    private long duration;
+    private long today;
+
+    @Before
+    public void setUp() {
+        mongoTemplate.dropCollection(Log.class);
+        mongoTemplate.dropCollection(EncodedLog.class);
+        mongoTemplate.dropCollection(DictionaryEntry.class);
+        logDictionary.invalidateAll();
+
+        accountId = generateRandomString(10);
+        duration = generateDuration();
+        today = DailyRollup.dayOf(generateStartTime(duration));
+    }
+
+    @After
+    public void tearDown() {
+        mongoTemplate.dropCollection(Log.class);
+        mongoTemplate.dropCollection(EncodedLog.class);
+        mongoTemplate.dropCollection(DictionaryEntry.class);
+        logDictionary.invalidateAll();
+    }
+
+    @Test
+    public void insert_storesCodesInsteadOfIds() {
+        List<Log> logs = encodedLogStore.insert(Collections.singletonList(
+                new Log(accountId, "activity", today, duration)
+        ));
+
+        EncodedLog encodedLog = mongoTemplate.findById(logs.get(0).getId(), EncodedLog.class);
+        assertEquals(accountId, logDictionary.decode(encodedLog.getAccountId()));
+        assertEquals("activity", logDictionary.decode(encodedLog.getActivityId()));
+        assertEquals(logs.get(0), encodedLogStore.findOne(logs.get(0).getId()).get());
+    }
+
+    @Test
+    public void save_doesNotDuplicateSavedLogs() {
+        List<Log> logs = encodedLogStore.save(Arrays.asList(
+                new Log(accountId, "activity", today, duration),
+                new Log(accountId, "activity", today + 1000L, duration)
+        ));
+
+        encodedLogStore.save(logs);
+        encodedLogStore.save(logs.get(0));
+
+        assertEquals(logs, encodedLogStore.findAllByAccountId(accountId));
+    }
+
+    @Test
+    public void streamAllByAccountId_returnsEmptyStreamIfAccountHasNoCode() {
+        encodedLogStore.insert(createLogs());
+
+        assertTrue(streamAll(encodedLogStore, generateRandomString(10), new LogFilter()).isEmpty());
+        assertFalse(logDictionary.findCode(generateRandomString(10)).isPresent());
+    }
+
+    @Test
+    public void streamAllByAccountId_returnsEmptyStreamIfActivityHasNoCode() {
+        encodedLogStore.insert(createLogs());
+
+        assertTrue(streamAll(encodedLogStore, accountId, createFilter(null, null, "unknown")).isEmpty());
+    }
+
+    @Test
+    public void streamAllByAccountId_returnsSameLogsAsDocumentLayout() {
+        insertIntoBothLayouts(createLogs());
+
+        List<LogFilter> filters = new ArrayList<>();
+        filters.add(new LogFilter());
+        filters.add(createFilter(today - 2 * DAY + 5000L, today - DAY + 3000L, null));
+        filters.add(createFilter(null, null, "activity1"));
+        filters.add(createFilter(today - DAY, null, "activity2"));
+
+        for (LogFilter filter : filters) {
+            assertEquals(streamAll(documentLogStore, filter), streamAll(encodedLogStore, filter));
+        }
+    }
+
+    @Test
+    public void streamAllByAccountId_continuesFromPosition() {
+        List<Log> logs = insertIntoBothLayouts(createLogs());
+        List<Log> expected = streamAll(documentLogStore, new LogFilter());
+        LogPosition position = LogPosition.of(expected.get(expected.size() / 2));
+
+        try (Stream<Log> page = encodedLogStore.streamAllByAccountId(accountId, new LogFilter(), position, 5)) {
+            int from = expected.size() / 2 + 1;
+            assertEquals(expected.subList(from, from + 5), page.collect(Collectors.toList()));
+        }
+
+        assertEquals(logs.size() - 1, expected.size());
+    }
+
+    @Test
+    public void streamAllOrderedByAccountId_groupsLogsByAccount() {
+        List<Log> logs = insertIntoBothLayouts(createLogs());
+
+        // Accounts are ordered by their codes rather than their IDs, but logs of each account are still contiguous
+        try (Stream<Log> encodedLogs = encodedLogStore.streamAllOrderedByAccountId()) {
+            List<String> accountIds = encodedLogs.map(Log::getAccountId).collect(Collectors.toList());
+            long accountChanges = IntStream.range(1, accountIds.size())
+                    .filter(i -> !accountIds.get(i).equals(accountIds.get(i - 1)))
+                    .count();
+
+            assertEquals(logs.size(), accountIds.size());
+            assertEquals(1L, accountChanges);
+        }
+    }
+
+    @Test
+    public void streamSummariesByAccountId_returnsSameSummariesAsDocumentLayout() {
+        insertIntoBothLayouts(createLogs());
+
+        List<LogFilter> filters = Arrays.asList(
+                new LogFilter(),
+                createFilter(today - DAY, today + DAY, null),
+                createFilter(null, null, "activity2")
+        );
+
+        for (LogFilter filter : filters) {
+            assertEquals(summarize(documentLogStore, filter), summarize(encodedLogStore, filter));
+        }
+    }
+
+    @Test
+    public void findOne_findsLogOfAccountAndActivity() {
+        Log log = encodedLogStore.save(new Log(accountId, "activity", today, duration));
+
+        assertEquals(log, encodedLogStore.findOne(log.getId(), accountId, "activity").get());
+        assertFalse(encodedLogStore.findOne(log.getId(), accountId, "other").isPresent());
+        assertFalse(encodedLogStore.findOne(log.getId(), generateRandomString(10), "activity").isPresent());
+        assertFalse(encodedLogStore.findOne("malformed", accountId, "activity").isPresent());
+    }
+
+    @Test
+    public void findAndRemove_removesLogOfAccountAndActivity() {
+        Log first = encodedLogStore.save(new Log(accountId, "activity", today, duration));
+        Log second = encodedLogStore.save(new Log(accountId, "activity", today + 1000L, duration));
+
+        assertFalse(encodedLogStore.findAndRemove(first.getId(), accountId, "other").isPresent());
+        assertEquals(first, encodedLogStore.findAndRemove(first.getId(), accountId, "activity").get());
+        assertFalse(encodedLogStore.findAndRemove(first.getId(), accountId, "activity").isPresent());
+        assertEquals(Collections.singletonList(second), encodedLogStore.findAllByAccountId(accountId));
+    }
+
+    private List<Log> createLogs() {
+        List<Log> logs = new ArrayList<>();
+
+        for (int i = 0; i < 30; ++i) {
+            long startTime = today - (i % 3) * DAY + (i / 3) * 1000L;
+            logs.add(new Log(accountId, "activity" + i % 2, startTime, duration + i * 1000L));
+        }
+
+        // Logs that start at the same time are ordered by their IDs
+        logs.add(new Log(accountId, "activity1", today, duration));
+        logs.add(new Log(generateRandomString(10), "activity1", today, duration));
+
+        return logs;
+    }
+
+    private List<Log> insertIntoBothLayouts(List<Log> logs) {
+        List<Log> savedLogs = documentLogStore.insert(logs);
+        encodedLogStore.insert(savedLogs);
+
+        return savedLogs;
+    }
+
+    private LogFilter createFilter(Long from, Long to, String activityId) {
+        LogFilter filter = new LogFilter();
+        filter.setFrom(from);
+        filter.setTo(to);
+
+        if (activityId != null) {
+            filter.setActivityIds(Collections.singleton(activityId));
+        }
+
+        return filter;
+    }
+
+    private List<Log> streamAll(LogStore logStore, LogFilter filter) {
+        return streamAll(logStore, accountId, filter);
+    }
+
+    private List<Log> streamAll(LogStore logStore, String accountId, LogFilter filter) {
+        try (Stream<Log> logs = logStore.streamAllByAccountId(accountId, filter, null, Integer.MAX_VALUE)) {
+            return logs.collect(Collectors.toList());
+        }
+    }
+
+    private List<String> summarize(LogStore logStore, LogFilter filter) {
+        try (Stream<LogSummary> summaries = logStore.streamSummariesByAccountId(accountId, filter)) {
+            return summaries
+                    .map(summary -> summary.getActivityId() + ':' + summary.getTotalDuration() + ':'
+                            + summary.getLogCount() + ':' + summary.getFirstStartTime() + ':'
+                            + summary.getLastStartTime())
+                    .collect(Collectors.toList());
+        }
+    }
+}
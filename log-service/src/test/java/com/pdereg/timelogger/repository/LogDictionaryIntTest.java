@@ -0,0 +1,113 @@
+package com.pdereg.timelogger.repository;
+
+import com.pdereg.timelogger.Application;
+import com.pdereg.timelogger.config.CommonConfiguration;
+import com.pdereg.timelogger.domain.DictionaryEntry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.pdereg.timelogger.TestUtils.generateRandomString;
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = Application.class)
+@TestPropertySource(properties = {CommonConfiguration.SECRET_ENV_KEY + "=test1234"})
+public class LogDictionaryIntTest {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private LogDictionary logDictionary;
+
+    @Before
+    public void setUp() {
+        mongoTemplate.dropCollection(DictionaryEntry.class);
+        logDictionary.invalidateAll();
+    }
+
+    @After
+    public void tearDown() {
+        mongoTemplate.dropCollection(DictionaryEntry.class);
+        logDictionary.invalidateAll();
+    }
+
+    @Test
+    public void encode_assignsStableCodes() {
+        int first = logDictionary.encode("first");
+        int second = logDictionary.encode("second");
+
+        assertNotEquals(first, second);
+        assertEquals(first, logDictionary.encode("first"));
+
+        logDictionary.invalidateAll();
+        assertEquals(second, logDictionary.encode("second"));
+        assertEquals(2, mongoTemplate.count(null, DictionaryEntry.class));
+    }
+
+    @Test
+    public void encode_assignsSingleCodeToConcurrentlyEncodedValue() {
+        List<CompletableFuture<Integer>> futures = IntStream.range(0, 8)
+                .mapToObj(i -> CompletableFuture.supplyAsync(() -> logDictionary.encode("value")))
+                .collect(Collectors.toList());
+
+        List<Integer> codes = futures.stream().map(CompletableFuture::join).distinct().collect(Collectors.toList());
+
+        assertEquals(1, codes.size());
+        assertEquals(1, mongoTemplate.count(null, DictionaryEntry.class));
+    }
+
+    @Test
+    public void decode_returnsEncodedValue() {
+        int code = logDictionary.encode("value");
+        logDictionary.invalidateAll();
+
+        assertEquals("value", logDictionary.decode(code));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void decode_throwsExceptionIfCodeIsUnknown() {
+        logDictionary.decode(12345);
+    }
+
+    @Test
+    public void findCode_doesNotAssignCode() {
+        String value = generateRandomString(10);
+
+        assertFalse(logDictionary.findCode(value).isPresent());
+        assertEquals(0, mongoTemplate.count(null, DictionaryEntry.class));
+    }
+
+    @Test
+    public void findCodes_skipsValuesWithoutCodes() {
+        int code = logDictionary.encode("known");
+
+        assertEquals(Collections.singletonList(code), logDictionary.findCodes(Arrays.asList("known", "unknown")));
+    }
+
+    @Test
+    public void findCode_servesCachedCodesFromMemory() {
+        int code = logDictionary.encode("value");
+        long missCount = logDictionary.getMissCount();
+        long hitCount = logDictionary.getHitCount();
+
+        assertEquals(code, (int) logDictionary.findCode("value").get());
+        assertEquals("value", logDictionary.decode(code));
+        assertEquals(missCount, logDictionary.getMissCount());
+        assertEquals(hitCount + 2, logDictionary.getHitCount());
+    }
+}
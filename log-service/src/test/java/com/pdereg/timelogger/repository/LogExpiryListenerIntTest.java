@@ -0,0 +1,102 @@
+package com.pdereg.timelogger.repository;
+
+import com.mongodb.DBObject;
+import com.pdereg.timelogger.Application;
+import com.pdereg.timelogger.config.CommonConfiguration;
+import com.pdereg.timelogger.domain.DailyRollup;
+import com.pdereg.timelogger.domain.Log;
+import org.bson.types.ObjectId;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.Collections;
+import java.util.Date;
+
+import static com.pdereg.timelogger.TestUtils.generateRandomString;
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = Application.class)
+@TestPropertySource(properties = {
+        CommonConfiguration.SECRET_ENV_KEY + "=test1234",
+        "time-logger.log-retention.mode=ttl",
+        "time-logger.log-retention.max-age=30",
+        "time-logger.log-retention.account-max-age=" + LogExpiryListenerIntTest.FOREVER_ACCOUNT_ID + ":0"
+})
+public class LogExpiryListenerIntTest {
+
+    static final String FOREVER_ACCOUNT_ID = "forever-retention-account";
+
+    private static final long DAY = DailyRollup.MILLIS_IN_A_DAY;
+    private static final long DURATION = 1000L * 60 * 30;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private LogStore logStore;
+
+    @Autowired
+    private LogExpiryListener logExpiryListener;
+
+    private String accountId;
+    private long startTime;
+
+    @Before
+    public void setUp() {
+        mongoTemplate.dropCollection(Log.class);
+        logExpiryListener.afterPropertiesSet();
+
+        accountId = generateRandomString(10);
+        startTime = DailyRollup.dayOf(System.currentTimeMillis()) - DAY;
+    }
+
+    @After
+    public void tearDown() {
+        mongoTemplate.dropCollection(Log.class);
+    }
+
+    @Test
+    public void save_setsExpiryDate() {
+        Log log = logStore.save(new Log(accountId, "activity", startTime, DURATION));
+
+        assertEquals(new Date(startTime + 30 * DAY), findDocument(log).get(LogExpiryListener.EXPIRE_AT_FIELD));
+    }
+
+    @Test
+    public void insert_setsExpiryDate() {
+        Log log = logStore.insert(Collections.singletonList(new Log(accountId, "activity", startTime, DURATION)))
+                .get(0);
+
+        assertEquals(new Date(startTime + 30 * DAY), findDocument(log).get(LogExpiryListener.EXPIRE_AT_FIELD));
+    }
+
+    @Test
+    public void save_keepsLogsOfAccountWithoutMaxAge() {
+        Log log = logStore.save(new Log(FOREVER_ACCOUNT_ID, "activity", startTime, DURATION));
+
+        assertFalse(findDocument(log).containsField(LogExpiryListener.EXPIRE_AT_FIELD));
+        assertEquals(log, logStore.findOne(log.getId()).get());
+    }
+
+    @Test
+    public void afterPropertiesSet_createsTtlIndex() {
+        assertTrue(mongoTemplate.indexOps(Log.class).getIndexInfo().stream()
+                .map(IndexInfo::getName)
+                .anyMatch(LogExpiryListener.EXPIRE_AT_INDEX::equals));
+    }
+
+    private DBObject findDocument(Log log) {
+        return mongoTemplate
+                .getCollection(mongoTemplate.getCollectionName(Log.class))
+                .findOne(new ObjectId(log.getId()));
+    }
+}
@@ -0,0 +1,156 @@
+package com.pdereg.timelogger.repository;
+
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.pdereg.timelogger.Application;
+import com.pdereg.timelogger.config.CommonConfiguration;
+import com.pdereg.timelogger.domain.Log;
+import org.bson.types.ObjectId;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.IndexOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.util.ClassTypeInformation;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static com.pdereg.timelogger.TestUtils.generateDuration;
+import static com.pdereg.timelogger.TestUtils.generateRandomString;
+import static com.pdereg.timelogger.TestUtils.generateStartTime;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = Application.class)
+@TestPropertySource(properties = {CommonConfiguration.SECRET_ENV_KEY + "=test1234"})
+public class LogRepositoryIntTest {
+
+    private static final String ACCOUNT_ID = "user";
+    private static final int LOG_COUNT = 1000;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MongoMappingContext mappingContext;
+
+    @Before
+    public void setUp() {
+        mongoTemplate.dropCollection(Log.class);
+        createIndexes();
+        insertLogs();
+    }
+
+    @After
+    public void tearDown() {
+        mongoTemplate.dropCollection(Log.class);
+    }
+
+    @Test
+    public void streamAllByAccountId_usesIndexForEveryFilterCombination() {
+        for (int combination = 0; combination < 16; ++combination) {
+            LogFilter filter = createFilter(combination);
+            LogPosition position = createPosition(combination);
+            DBObject winningPlan = explain(filter, position);
+
+            assertFalse("Collection scan for combination " + combination, containsStage(winningPlan, "COLLSCAN"));
+            assertTrue("No index scan for combination " + combination, containsStage(winningPlan, "IXSCAN"));
+        }
+    }
+
+    private LogFilter createFilter(int combination) {
+        long now = System.currentTimeMillis();
+        LogFilter filter = new LogFilter();
+
+        if ((combination & 0x01) != 0) {
+            filter.setFrom(now - 1000L * 60 * 60 * 24 * 7);
+            filter.setTo(now);
+        }
+        if ((combination & 0x02) != 0) {
+            filter.setActivityIds(new HashSet<>(Arrays.asList("activity1", "activity2")));
+        }
+        if ((combination & 0x04) != 0) {
+            filter.setMinDuration(Log.MIN_DURATION);
+            filter.setMaxDuration(Log.MIN_DURATION * 60);
+        }
+
+        return filter;
+    }
+
+    private LogPosition createPosition(int combination) {
+        if ((combination & 0x08) == 0) {
+            return null;
+        }
+
+        return new LogPosition(System.currentTimeMillis() - 1000L * 60 * 60 * 24, new ObjectId().toHexString());
+    }
+
+    private DBObject explain(LogFilter filter, LogPosition position) {
+        Query query = filter.toQuery(ACCOUNT_ID, position);
+        DBCollection collection = mongoTemplate.getCollection(mongoTemplate.getCollectionName(Log.class));
+
+        DBObject explanation = collection
+                .find(query.getQueryObject())
+                .sort(query.getSortObject())
+                .explain();
+
+        DBObject queryPlanner = (DBObject) explanation.get("queryPlanner");
+        return (DBObject) queryPlanner.get("winningPlan");
+    }
+
+    private boolean containsStage(DBObject plan, String stage) {
+        if (stage.equals(plan.get("stage"))) {
+            return true;
+        }
+
+        Object inputStage = plan.get("inputStage");
+        if (inputStage instanceof DBObject && containsStage((DBObject) inputStage, stage)) {
+            return true;
+        }
+
+        Object inputStages = plan.get("inputStages");
+        if (inputStages instanceof List) {
+            for (Object child : (List<?>) inputStages) {
+                if (containsStage((DBObject) child, stage)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private void createIndexes() {
+        // Dropping the collection also drops indexes that were created on application startup
+        MongoPersistentEntityIndexResolver indexResolver = new MongoPersistentEntityIndexResolver(mappingContext);
+        IndexOperations indexOperations = mongoTemplate.indexOps(Log.class);
+
+        indexResolver.resolveIndexFor(ClassTypeInformation.from(Log.class)).forEach(indexOperations::ensureIndex);
+    }
+
+    private void insertLogs() {
+        long duration = generateDuration();
+        long startTime = generateStartTime(duration);
+        List<Log> logs = new ArrayList<>(LOG_COUNT);
+
+        for (int i = 0; i < LOG_COUNT; ++i) {
+            String accountId = i % 2 == 0 ? ACCOUNT_ID : generateRandomString(10);
+            String activityId = "activity" + i % 5;
+            logs.add(new Log(accountId, activityId, startTime - i * duration, duration));
+        }
+
+        mongoTemplate.insert(logs, Log.class);
+    }
+}
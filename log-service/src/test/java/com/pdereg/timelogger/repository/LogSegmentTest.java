@@ -0,0 +1,142 @@
+package com.pdereg.timelogger.repository;
+
+import com.pdereg.timelogger.domain.Log;
+import org.bson.types.ObjectId;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class LogSegmentTest {
+
+    private static final String ACCOUNT_ID = "user";
+    private static final long START_TIME = 1500000000000L;
+    private static final long DURATION = 1000L * 60 * 15;
+    private static final int LOG_COUNT = 1000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private List<Log> logs;
+
+    @Before
+    public void setUp() {
+        logs = new ArrayList<>(LOG_COUNT);
+
+        for (int i = 0; i < LOG_COUNT; ++i) {
+            long duration = DURATION + i % 7 * 1000L;
+            logs.add(new Log(new ObjectId().toHexString(), ACCOUNT_ID, "activity" + i % 5, START_TIME + i * DURATION,
+                    duration));
+        }
+    }
+
+    @Test
+    public void readAll_returnsWrittenLogsSortedByPosition() throws IOException {
+        List<Log> shuffledLogs = new ArrayList<>(logs);
+        Collections.shuffle(shuffledLogs);
+
+        LogSegment segment = LogSegment.write(folder.getRoot().toPath().resolve("segment"), ACCOUNT_ID, shuffledLogs);
+
+        assertEquals(logs, segment.readAll());
+    }
+
+    @Test
+    public void open_readsHeader() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("segment");
+        LogSegment.write(path, ACCOUNT_ID, logs);
+
+        LogSegment segment = LogSegment.open(path);
+
+        assertEquals(ACCOUNT_ID, segment.getAccountId());
+        assertEquals(LOG_COUNT, segment.getLogCount());
+        assertEquals(START_TIME, segment.getFirstStartTime());
+        assertEquals(START_TIME + (LOG_COUNT - 1) * DURATION, segment.getLastStartTime());
+        assertEquals(logs, segment.readAll());
+    }
+
+    @Test
+    public void write_compressesLogs() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("segment");
+        LogSegment.write(path, ACCOUNT_ID, logs);
+
+        // Each log holds a 12-byte ID, so the remaining columns take only a few bytes per log
+        assertTrue(Files.size(path) < LOG_COUNT * 16);
+        assertFalse(Files.exists(path.resolveSibling("segment.tmp")));
+    }
+
+    @Test
+    public void overlaps_comparesTimeRangeWithStartTimes() throws IOException {
+        LogSegment segment = LogSegment.write(folder.getRoot().toPath().resolve("segment"), ACCOUNT_ID, logs);
+        long lastStartTime = segment.getLastStartTime();
+
+        assertTrue(segment.overlaps(null, null));
+        assertTrue(segment.overlaps(lastStartTime, null));
+        assertTrue(segment.overlaps(null, START_TIME + 1));
+        assertFalse(segment.overlaps(lastStartTime + 1, null));
+        assertFalse(segment.overlaps(null, START_TIME));
+    }
+
+    @Test
+    public void mayContain_comparesIdWithIdRange() throws IOException {
+        ObjectId before = new ObjectId(new Date(0L));
+        Path path = folder.getRoot().toPath().resolve("segment");
+        LogSegment.write(path, ACCOUNT_ID, logs);
+        ObjectId after = new ObjectId();
+
+        LogSegment segment = LogSegment.open(path);
+
+        for (Log log : logs) {
+            assertTrue(segment.mayContain(new ObjectId(log.getId())));
+        }
+        assertFalse(segment.mayContain(before));
+        assertFalse(segment.mayContain(after));
+    }
+
+    @Test
+    public void open_readsSegmentWithoutIdRange() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("segment");
+        LogSegment.write(path, ACCOUNT_ID, logs);
+        Files.write(path, removeIdRange(Files.readAllBytes(path)));
+
+        LogSegment segment = LogSegment.open(path);
+
+        assertEquals(LOG_COUNT, segment.getLogCount());
+        assertTrue(segment.mayContain(new ObjectId()));
+        assertEquals(logs, segment.readAll());
+    }
+
+    @Test(expected = IOException.class)
+    public void open_throwsExceptionIfFileIsNotSegment() throws IOException {
+        Path path = folder.newFile("segment").toPath();
+        Files.write(path, "not a segment".getBytes("UTF-8"));
+
+        LogSegment.open(path);
+    }
+
+    private static byte[] removeIdRange(byte[] segment) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(output);
+
+        // Writes the header of the first version, which ends after the start time range
+        int headerSize = 4 + 4 + 2 + ACCOUNT_ID.length() + 4 + 8 + 8;
+        data.writeInt(ByteBuffer.wrap(segment).getInt());
+        data.writeInt(1);
+        data.write(segment, 8, headerSize - 8);
+        data.write(segment, headerSize + 24, segment.length - headerSize - 24);
+
+        return output.toByteArray();
+    }
+}
@@ -0,0 +1,375 @@
+package com.pdereg.timelogger.repository;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCursor;
+import com.mongodb.MongoClient;
+import com.pdereg.timelogger.Application;
+import com.pdereg.timelogger.PerformanceTest;
+import com.pdereg.timelogger.config.CommonConfiguration;
+import com.pdereg.timelogger.domain.DailyRollup;
+import com.pdereg.timelogger.domain.DictionaryEntry;
+import com.pdereg.timelogger.domain.EncodedLog;
+import com.pdereg.timelogger.domain.Log;
+import com.pdereg.timelogger.domain.LogBucket;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.IndexOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.util.ClassTypeInformation;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.pdereg.timelogger.TestUtils.generateDuration;
+import static com.pdereg.timelogger.TestUtils.generateStartTime;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares storage and index sizes reported by {@code collStats}, and latency of reads and writes of the document,
+ * bucketed, encoded and mapped log layouts.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = Application.class)
+@TestPropertySource(properties = {CommonConfiguration.SECRET_ENV_KEY + "=test1234"})
+@Category(PerformanceTest.class)
+public class LogStoreBenchmarkIntTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(LogStoreBenchmarkIntTest.class);
+
+    private static final int ACCOUNT_COUNT = 10;
+    private static final int DAY_COUNT = 20;
+    private static final int LOGS_PER_DAY = 50;
+    private static final int ACTIVITY_COUNT = 5;
+    private static final int BATCH_SIZE = 100;
+    private static final int SINGLE_WRITE_COUNT = 200;
+    private static final int PAGE_SIZE = 100;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MongoClient mongoClient;
+
+    @Autowired
+    private MongoMappingContext mappingContext;
+
+    @Autowired
+    private DocumentLogStore documentLogStore;
+
+    @Autowired
+    private BucketedLogStore bucketedLogStore;
+
+    @Autowired
+    private EncodedLogStore encodedLogStore;
+
+    @Autowired
+    private LogDictionary logDictionary;
+
+    private long duration;
+    private long today;
+    private List<Log> logs;
+
+    @Before
+    public void setUp() {
+        mongoTemplate.dropCollection(Log.class);
+        mongoTemplate.dropCollection(LogBucket.class);
+        mongoTemplate.dropCollection(EncodedLog.class);
+        mongoTemplate.dropCollection(DictionaryEntry.class);
+        logDictionary.invalidateAll();
+        createIndexes(Log.class);
+        createIndexes(LogBucket.class);
+        createIndexes(EncodedLog.class);
+        createIndexes(DictionaryEntry.class);
+
+        duration = generateDuration();
+        today = DailyRollup.dayOf(generateStartTime(duration));
+        logs = createLogs();
+    }
+
+    @After
+    public void tearDown() {
+        mongoTemplate.dropCollection(Log.class);
+        mongoTemplate.dropCollection(LogBucket.class);
+        mongoTemplate.dropCollection(EncodedLog.class);
+        mongoTemplate.dropCollection(DictionaryEntry.class);
+        logDictionary.invalidateAll();
+    }
+
+    @Test
+    public void bucketedLayout_usesLessSpaceThanDocumentLayout() {
+        double documentWriteMillis = insert(documentLogStore);
+        double bucketedWriteMillis = insert(bucketedLogStore);
+
+        double documentSingleWriteMillis = saveOneByOne(documentLogStore);
+        double bucketedSingleWriteMillis = saveOneByOne(bucketedLogStore);
+
+        Storage documentStorage = measureStorage(Log.class);
+        Storage bucketedStorage = measureStorage(LogBucket.class);
+
+        double documentReadMillis = readAll(documentLogStore);
+        double bucketedReadMillis = readAll(bucketedLogStore);
+
+        double documentSummaryMillis = summarizeAll(documentLogStore);
+        double bucketedSummaryMillis = summarizeAll(bucketedLogStore);
+
+        logger.info("Document layout: {}, batch write {} ms/log, single write {} ms/log, page read {} ms, "
+                        + "summary {} ms", documentStorage, documentWriteMillis, documentSingleWriteMillis,
+                documentReadMillis, documentSummaryMillis);
+        logger.info("Bucketed layout: {}, batch write {} ms/log, single write {} ms/log, page read {} ms, "
+                        + "summary {} ms", bucketedStorage, bucketedWriteMillis, bucketedSingleWriteMillis,
+                bucketedReadMillis, bucketedSummaryMillis);
+
+        assertEquals(logs.size() + SINGLE_WRITE_COUNT, documentStorage.logCount);
+        assertEquals(ACCOUNT_COUNT * DAY_COUNT, bucketedStorage.documentCount);
+        assertTrue(bucketedStorage.storageSize < documentStorage.storageSize);
+        assertTrue(bucketedStorage.indexSize < documentStorage.indexSize);
+    }
+
+    @Test
+    public void encodedLayout_usesSmallerIndexesThanDocumentLayout() {
+        double documentWriteMillis = insert(documentLogStore);
+        double encodedWriteMillis = insert(encodedLogStore);
+
+        double documentReadMillis = readAll(documentLogStore);
+        double encodedReadMillis = readAll(encodedLogStore);
+
+        double documentSummaryMillis = summarizeAll(documentLogStore);
+        double encodedSummaryMillis = summarizeAll(encodedLogStore);
+
+        // The dictionary is part of the cost of the encoded layout
+        Storage documentStorage = measureStorage(Log.class);
+        Storage encodedStorage = measureStorage(EncodedLog.class).plus(measureStorage(DictionaryEntry.class));
+
+        logger.info("Document layout: {}, batch write {} ms/log, page read {} ms, summary {} ms", documentStorage,
+                documentWriteMillis, documentReadMillis, documentSummaryMillis);
+        logger.info("Encoded layout: {}, batch write {} ms/log, page read {} ms, summary {} ms", encodedStorage,
+                encodedWriteMillis, encodedReadMillis, encodedSummaryMillis);
+        logger.info("Encoded layout reduces storage by {}% and indexes by {}%",
+                reduction(documentStorage.storageSize, encodedStorage.storageSize),
+                reduction(documentStorage.indexSize, encodedStorage.indexSize));
+
+        assertEquals(ACCOUNT_COUNT + ACTIVITY_COUNT, mongoTemplate.count(null, DictionaryEntry.class));
+        assertTrue(encodedStorage.storageSize < documentStorage.storageSize);
+        assertTrue(encodedStorage.indexSize < documentStorage.indexSize);
+    }
+
+    @Test
+    public void mappedLayout_writesAndScansWithoutDatabase() throws IOException {
+        MappedLogStore mappedLogStore = new MappedLogStore(folder.getRoot().toPath(), 4, true);
+        mappedLogStore.open();
+
+        try {
+            double documentWriteMillis = insert(documentLogStore);
+            double mappedWriteMillis = insert(mappedLogStore);
+
+            double documentReadMillis = readAll(documentLogStore);
+            double mappedReadMillis = readAll(mappedLogStore);
+
+            double documentRangeMillis = readRanges(documentLogStore);
+            double mappedRangeMillis = readRanges(mappedLogStore);
+
+            logger.info("Document layout: batch write {} ms/log, page read {} ms, range read {} ms",
+                    documentWriteMillis, documentReadMillis, documentRangeMillis);
+            logger.info("Mapped layout: {} bytes of records, batch write {} ms/log, page read {} ms, range read {} ms",
+                    mappedLogStore.getSize(), mappedWriteMillis, mappedReadMillis, mappedRangeMillis);
+
+            assertEquals((long) logs.size() * MappedLogFile.RECORD_SIZE, mappedLogStore.getSize());
+            assertEquals(documentLogStore.findAllByAccountId("account0"),
+                    mappedLogStore.findAllByAccountId("account0"));
+        } finally {
+            mappedLogStore.close();
+        }
+    }
+
+    private double insert(LogStore logStore) {
+        long start = System.nanoTime();
+
+        for (int i = 0; i < logs.size(); i += BATCH_SIZE) {
+            logStore.insert(logs.subList(i, Math.min(i + BATCH_SIZE, logs.size())));
+        }
+
+        return toMillis(System.nanoTime() - start) / logs.size();
+    }
+
+    private double saveOneByOne(LogStore logStore) {
+        // Logs are added to the last day of the first account, so that every write goes to an existing bucket
+        long startTime = today - DailyRollup.MILLIS_IN_A_DAY + LOGS_PER_DAY * duration;
+        long start = System.nanoTime();
+
+        for (int i = 0; i < SINGLE_WRITE_COUNT; ++i) {
+            logStore.save(new Log("account0", "activity0", startTime + i * duration, duration));
+        }
+
+        return toMillis(System.nanoTime() - start) / SINGLE_WRITE_COUNT;
+    }
+
+    private double readAll(LogStore logStore) {
+        long start = System.nanoTime();
+        int pageCount = 0;
+
+        for (int account = 0; account < ACCOUNT_COUNT; ++account) {
+            LogPosition position = null;
+
+            do {
+                try (Stream<Log> page = logStore.streamAllByAccountId(
+                        "account" + account, new LogFilter(), position, PAGE_SIZE
+                )) {
+                    List<Log> pageLogs = page.collect(Collectors.toList());
+                    position = pageLogs.size() < PAGE_SIZE ? null : LogPosition.of(pageLogs.get(PAGE_SIZE - 1));
+                    ++pageCount;
+                }
+            } while (position != null);
+        }
+
+        return toMillis(System.nanoTime() - start) / pageCount;
+    }
+
+    private double readRanges(LogStore logStore) {
+        long start = System.nanoTime();
+        int rangeCount = 0;
+
+        // Reads every day of every account separately, as a report of a single day would
+        for (int account = 0; account < ACCOUNT_COUNT; ++account) {
+            for (int day = DAY_COUNT; day > 0; --day) {
+                LogFilter filter = new LogFilter();
+                filter.setFrom(today - day * DailyRollup.MILLIS_IN_A_DAY);
+                filter.setTo(today - (day - 1) * DailyRollup.MILLIS_IN_A_DAY);
+
+                try (Stream<Log> range = logStore.streamAllByAccountId(
+                        "account" + account, filter, null, Integer.MAX_VALUE
+                )) {
+                    assertEquals(LOGS_PER_DAY, range.count());
+                    ++rangeCount;
+                }
+            }
+        }
+
+        return toMillis(System.nanoTime() - start) / rangeCount;
+    }
+
+    private double summarizeAll(LogStore logStore) {
+        long start = System.nanoTime();
+
+        for (int account = 0; account < ACCOUNT_COUNT; ++account) {
+            try (Stream<LogSummary> summaries = logStore.streamSummariesByAccountId(
+                    "account" + account, new LogFilter()
+            )) {
+                assertEquals(ACTIVITY_COUNT, summaries.count());
+            }
+        }
+
+        return toMillis(System.nanoTime() - start) / ACCOUNT_COUNT;
+    }
+
+    private Storage measureStorage(Class<?> entityClass) {
+        String collectionName = mongoTemplate.getCollectionName(entityClass);
+
+        // Files of the storage engine only grow on a checkpoint, which fsync forces
+        mongoClient.getDatabase("admin").runCommand(new Document("fsync", 1));
+        Document stats = mongoClient.getDatabase(mongoTemplate.getDb().getName())
+                .runCommand(new Document("collStats", collectionName));
+
+        long logCount = 0L;
+        try (DBCursor cursor = mongoTemplate.getCollection(collectionName)
+                .find(new BasicDBObject(), new BasicDBObject(LogBucket.ENTRIES, 1))) {
+
+            while (cursor.hasNext()) {
+                Object entries = cursor.next().get(LogBucket.ENTRIES);
+                logCount += entries instanceof List ? ((List<?>) entries).size() : 1;
+            }
+        }
+
+        return new Storage(
+                ((Number) stats.get("count")).longValue(),
+                logCount,
+                ((Number) stats.get("storageSize")).longValue(),
+                ((Number) stats.get("totalIndexSize")).longValue()
+        );
+    }
+
+    private void createIndexes(Class<?> entityClass) {
+        // Dropping a collection also drops indexes that were created on application startup
+        MongoPersistentEntityIndexResolver indexResolver = new MongoPersistentEntityIndexResolver(mappingContext);
+        IndexOperations indexOperations = mongoTemplate.indexOps(entityClass);
+
+        indexResolver.resolveIndexFor(ClassTypeInformation.from(entityClass)).forEach(indexOperations::ensureIndex);
+    }
+
+    private List<Log> createLogs() {
+        List<Log> logs = new ArrayList<>(ACCOUNT_COUNT * DAY_COUNT * LOGS_PER_DAY);
+
+        // All layouts store the same logs, so IDs are assigned up front
+        for (int account = 0; account < ACCOUNT_COUNT; ++account) {
+            for (int day = DAY_COUNT; day > 0; --day) {
+                for (int i = 0; i < LOGS_PER_DAY; ++i) {
+                    long startTime = today - day * DailyRollup.MILLIS_IN_A_DAY + i * duration;
+                    String id = new ObjectId().toHexString();
+                    logs.add(new Log(id, "account" + account, "activity" + i % ACTIVITY_COUNT, startTime, duration));
+                }
+            }
+        }
+
+        return logs;
+    }
+
+    private static long reduction(long before, long after) {
+        return Math.round(100.0 * (before - after) / before);
+    }
+
+    private static double toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos) / 1000.0;
+    }
+
+    private static class Storage {
+
+        private final long documentCount;
+        private final long logCount;
+        private final long storageSize;
+        private final long indexSize;
+
+        Storage(long documentCount, long logCount, long storageSize, long indexSize) {
+            this.documentCount = documentCount;
+            this.logCount = logCount;
+            this.storageSize = storageSize;
+            this.indexSize = indexSize;
+        }
+
+        Storage plus(Storage other) {
+            return new Storage(
+                    documentCount + other.documentCount,
+                    logCount,
+                    storageSize + other.storageSize,
+                    indexSize + other.indexSize
+            );
+        }
+
+        @Override
+        public String toString() {
+            return documentCount + " documents, " + logCount + " logs, " + storageSize + " bytes of storage, "
+                    + indexSize + " bytes of indexes";
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.pdereg.timelogger.repository;
+
+import com.pdereg.timelogger.Application;
+import com.pdereg.timelogger.config.CommonConfiguration;
+import com.pdereg.timelogger.domain.DictionaryEntry;
+import com.pdereg.timelogger.domain.EncodedLog;
+import com.pdereg.timelogger.domain.Log;
+import com.pdereg.timelogger.domain.LogBucket;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.pdereg.timelogger.TestUtils.generateDuration;
+import static com.pdereg.timelogger.TestUtils.generateRandomString;
+import static com.pdereg.timelogger.TestUtils.generateStartTime;
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = Application.class)
+@TestPropertySource(properties = {
+        CommonConfiguration.SECRET_ENV_KEY + "=test1234",
+        LogStoreRegistry.LAYOUT_PROPERTY + "=document"
+})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class LogStoreRegistryIntTest {
+
+    private static final String BUCKET_COLLECTION = "logBucket";
+
+    @Autowired
+    private ConfigurableApplicationContext applicationContext;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MongoMappingContext mappingContext;
+
+    @Autowired
+    private LogStoreRegistry logStoreRegistry;
+
+    @After
+    public void tearDown() {
+        mongoTemplate.dropCollection(BUCKET_COLLECTION);
+    }
+
+    @Test
+    public void getActive_createsOnlyStoreOfLayoutInUse() {
+        assertEquals(LogLayout.DOCUMENT, logStoreRegistry.getActive().getLayout());
+
+        assertTrue(applicationContext.getBeanFactory().containsSingleton("documentLogStore"));
+        assertFalse(applicationContext.getBeanFactory().containsSingleton("bucketedLogStore"));
+        assertFalse(applicationContext.getBeanFactory().containsSingleton("encodedLogStore"));
+        assertFalse(applicationContext.getBeanFactory().containsSingleton("mappedLogStore"));
+        assertFalse(applicationContext.getBeanFactory().containsSingleton("shardedLogStore"));
+        assertFalse(applicationContext.getBeanFactory().containsSingleton("logDictionary"));
+
+        assertTrue(mappingContext.hasPersistentEntityFor(Log.class));
+        assertFalse(mappingContext.hasPersistentEntityFor(LogBucket.class));
+        assertFalse(mappingContext.hasPersistentEntityFor(EncodedLog.class));
+        assertFalse(mappingContext.hasPersistentEntityFor(DictionaryEntry.class));
+    }
+
+    @Test
+    public void get_createsIndexesOfLayoutOnFirstUse() {
+        mongoTemplate.dropCollection(BUCKET_COLLECTION);
+
+        long duration = generateDuration();
+        logStoreRegistry.get(LogLayout.BUCKETED)
+                .save(new Log(generateRandomString(10), "activity", generateStartTime(duration), duration));
+
+        assertEquals(BUCKET_COLLECTION, mongoTemplate.getCollectionName(LogBucket.class));
+        List<Object> indexNames = mongoTemplate.getCollection(BUCKET_COLLECTION).getIndexInfo().stream()
+                .map(index -> index.get("name"))
+                .collect(Collectors.toList());
+        assertTrue(indexNames.contains("account_day_index"));
+    }
+}
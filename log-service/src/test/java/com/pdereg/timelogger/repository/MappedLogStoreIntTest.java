@@ -0,0 +1,137 @@
+package com.pdereg.timelogger.repository;
+
+import com.pdereg.timelogger.Application;
+import com.pdereg.timelogger.config.CommonConfiguration;
+import com.pdereg.timelogger.domain.DailyRollup;
+import com.pdereg.timelogger.domain.Log;
+import com.pdereg.timelogger.service.LogService;
+import com.pdereg.timelogger.service.error.LogNotFoundException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.pdereg.timelogger.TestUtils.generateDuration;
+import static com.pdereg.timelogger.TestUtils.generateRandomString;
+import static com.pdereg.timelogger.TestUtils.generateStartTime;
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = Application.class)
+@TestPropertySource(properties = {
+        CommonConfiguration.SECRET_ENV_KEY + "=test1234",
+        LogStoreRegistry.LAYOUT_PROPERTY + "=mapped",
+        "time-logger.log-storage.mapped.directory=" + MappedLogStoreIntTest.DIRECTORY,
+        "time-logger.log-storage.mapped.shards=4"
+})
+public class MappedLogStoreIntTest {
+
+    static final String DIRECTORY = "build/mapped-log-store-test";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MappedLogStore mappedLogStore;
+
+    @Autowired
+    private LogService logService;
+
+    private String accountId;
+    private String activityId;
+    private long duration;
+
+    @Before
+    public void setUp() throws IOException {
+        mappedLogStore.close();
+        FileSystemUtils.deleteRecursively(new File(DIRECTORY));
+        mappedLogStore.open();
+        mongoTemplate.dropCollection(Log.class);
+        mongoTemplate.dropCollection(DailyRollup.class);
+
+        accountId = generateRandomString(10);
+        activityId = generateRandomString(10);
+        duration = generateDuration();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mappedLogStore.close();
+        FileSystemUtils.deleteRecursively(new File(DIRECTORY));
+        mappedLogStore.open();
+        mongoTemplate.dropCollection(Log.class);
+        mongoTemplate.dropCollection(DailyRollup.class);
+    }
+
+    @Test
+    public void createLog_keepsLogOutOfDatabase() throws Exception {
+        Log log = logService.createLog(accountId, activityId, duration).get();
+
+        assertEquals(log, logService.findOneById(log.getId()).get().get());
+        assertEquals(log, logService.findOneById(log.getId(), accountId, activityId).get().get());
+        assertEquals(0L, mongoTemplate.count(null, Log.class));
+    }
+
+    @Test
+    public void streamAllByAccountId_returnsLogsFollowingPosition() throws Exception {
+        long startTime = generateStartTime(duration);
+        List<Log> logs = logService.createLogs(Arrays.asList(
+                new Log(accountId, activityId, startTime - 2 * duration, duration),
+                new Log(accountId, activityId, startTime - duration, duration),
+                new Log(accountId, activityId, startTime, duration)
+        )).get();
+
+        try (Stream<Log> page = logService.streamAllByAccountId(accountId, new LogFilter(), LogPosition.of(logs.get(0)),
+                1)) {
+            assertEquals(logs.subList(1, 2), page.collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    public void streamSummariesByAccountId_summarizesLogsPerActivity() throws Exception {
+        long startTime = generateStartTime(duration);
+        logService.createLogs(Arrays.asList(
+                new Log(accountId, "activity1", startTime, duration),
+                new Log(accountId, "activity1", startTime - 10 * duration, duration),
+                new Log(accountId, "activity2", startTime - 5 * duration, duration)
+        )).get();
+
+        try (Stream<LogSummary> stream = logService.streamSummariesByAccountId(accountId, new LogFilter())) {
+            List<LogSummary> summaries = stream.collect(Collectors.toList());
+
+            assertEquals(2, summaries.size());
+            assertEquals(2, summaries.get(0).getLogCount());
+            assertEquals(startTime - 10 * duration, summaries.get(0).getFirstStartTime());
+        }
+    }
+
+    @Test
+    public void deleteLog_removesLogIfAccountAndActivityMatch() throws Exception {
+        Log log = logService.createLog(accountId, activityId, duration).get();
+
+        try {
+            logService.deleteLog(log.getId(), generateRandomString(10), activityId).get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof LogNotFoundException);
+        }
+
+        logService.deleteLog(log.getId(), accountId, activityId).get();
+
+        assertFalse(logService.findOneById(log.getId()).get().isPresent());
+    }
+}
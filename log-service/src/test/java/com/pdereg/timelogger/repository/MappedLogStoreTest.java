@@ -0,0 +1,195 @@
+package com.pdereg.timelogger.repository;
+
+import com.pdereg.timelogger.domain.Log;
+import org.bson.types.ObjectId;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class MappedLogStoreTest {
+
+    private static final long START_TIME = 1500000000000L;
+    private static final long DURATION = 1000L * 60 * 15;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path directory;
+    private MappedLogStore logStore;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = folder.getRoot().toPath();
+        logStore = new MappedLogStore(directory, 4, true);
+        logStore.open();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        logStore.close();
+    }
+
+    @Test
+    public void insert_assignsIds() {
+        List<Log> logs = logStore.insert(createLogs("account", 3));
+
+        assertTrue(logs.stream().allMatch(log -> ObjectId.isValid(log.getId())));
+        assertEquals(logs.get(1), logStore.findOne(logs.get(1).getId()).get());
+    }
+
+    @Test
+    public void save_doesNotDuplicateSavedLogs() {
+        List<Log> logs = logStore.save(createLogs("account", 3));
+        logStore.save(logs);
+        logStore.save(logs.get(0));
+
+        assertEquals(logs, logStore.findAllByAccountId("account"));
+    }
+
+    @Test
+    public void streamAllByAccountId_returnsLogsInRangeSortedByPosition() {
+        logStore.insert(createLogs("account", 10));
+        logStore.insert(createLogs("otherAccount", 10));
+        logStore.insert(Collections.singletonList(new Log("account", "activity0", START_TIME + 3 * DURATION,
+                DURATION)));
+
+        LogFilter filter = new LogFilter();
+        filter.setFrom(START_TIME + 2 * DURATION);
+        filter.setTo(START_TIME + 6 * DURATION);
+        filter.setActivityIds(Collections.singleton("activity0"));
+
+        try (Stream<Log> page = logStore.streamAllByAccountId("account", filter, null, Integer.MAX_VALUE)) {
+            List<Log> pageLogs = page.collect(Collectors.toList());
+            List<Log> expected = logStore.findAllByAccountId("account").stream()
+                    .filter(filter::matches)
+                    .collect(Collectors.toList());
+
+            assertEquals(3, pageLogs.size());
+            assertEquals(expected, pageLogs);
+        }
+    }
+
+    @Test
+    public void streamAllByAccountId_continuesFromPosition() {
+        List<Log> logs = logStore.insert(createLogs("account", 10));
+
+        try (Stream<Log> page = logStore.streamAllByAccountId("account", new LogFilter(), LogPosition.of(logs.get(3)),
+                4)) {
+            assertEquals(logs.subList(4, 8), page.collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    public void streamSummariesByAccountId_summarizesLogsPerActivity() {
+        logStore.insert(createLogs("account", 10));
+
+        try (Stream<LogSummary> summaries = logStore.streamSummariesByAccountId("account", new LogFilter())) {
+            List<LogSummary> summaryList = summaries.collect(Collectors.toList());
+
+            assertEquals(Arrays.asList("activity0", "activity1"), summaryList.stream()
+                    .map(LogSummary::getActivityId)
+                    .collect(Collectors.toList()));
+            assertEquals(5, summaryList.get(0).getLogCount());
+            assertEquals(5 * DURATION, summaryList.get(1).getTotalDuration());
+            assertEquals(START_TIME + DURATION, summaryList.get(1).getFirstStartTime());
+        }
+    }
+
+    @Test
+    public void findAndRemove_removesLogOfAccountAndActivity() {
+        Log log = logStore.insert(createLogs("account", 1)).get(0);
+
+        assertFalse(logStore.findAndRemove(log.getId(), "otherAccount", log.getActivityId()).isPresent());
+        assertEquals(log, logStore.findAndRemove(log.getId(), "account", log.getActivityId()).get());
+        assertFalse(logStore.findOne(log.getId()).isPresent());
+        assertTrue(logStore.findAllByAccountId("account").isEmpty());
+    }
+
+    @Test
+    public void removeOldestByAccountId_removesLimitedNumberOfExpiredLogs() {
+        List<Log> logs = logStore.insert(createLogs("account", 10));
+
+        assertEquals(3L, logStore.removeOldestByAccountId("account", START_TIME + 5 * DURATION, 3));
+        assertEquals(2L, logStore.removeOldestByAccountId("account", START_TIME + 5 * DURATION, 3));
+        assertEquals(0L, logStore.removeOldestByAccountId("account", START_TIME + 5 * DURATION, 3));
+        assertEquals(logs.subList(5, 10), logStore.findAllByAccountId("account"));
+    }
+
+    @Test
+    public void open_recoversLogsWrittenBeforeClose() throws IOException {
+        List<Log> logs = new ArrayList<>(logStore.insert(createLogs("account", 10)));
+        logStore.insert(createLogs("otherAccount", 5));
+        logStore.removeAll(logs.subList(0, 2));
+
+        logStore.close();
+        logStore = new MappedLogStore(directory, 4, true);
+        logStore.open();
+
+        assertEquals(logs.subList(2, 10), logStore.findAllByAccountId("account"));
+        assertEquals(Arrays.asList("account", "otherAccount"), logStore.findAllAccountIds());
+        assertEquals(logs.get(5), logStore.findOne(logs.get(5).getId()).get());
+    }
+
+    @Test
+    public void open_discardsTornRecordAtTail() throws IOException {
+        List<Log> logs = logStore.insert(createLogs("account", 3));
+        long size = logStore.getSize();
+        logStore.close();
+
+        // Damages the checksum of the last record, as if the process died while writing it
+        Path shard = directory.resolve("shard-" + Math.floorMod("account".hashCode(), 4) + ".log");
+        try (FileChannel channel = FileChannel.open(shard, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{1, 2, 3, 4}), 8 + size - 4);
+        }
+
+        logStore = new MappedLogStore(directory, 4, true);
+        logStore.open();
+
+        assertEquals(logs.subList(0, 2), logStore.findAllByAccountId("account"));
+
+        Log newLog = logStore.insert(createLogs("account", 1)).get(0);
+        assertEquals(newLog, logStore.findOne(newLog.getId()).get());
+    }
+
+    @Test
+    public void open_readsShardsWrittenWithDifferentShardCount() throws IOException {
+        List<Log> logs = new ArrayList<>();
+        for (int account = 0; account < 10; ++account) {
+            logs.addAll(logStore.insert(createLogs("account" + account, 2)));
+        }
+
+        logStore.close();
+        logStore = new MappedLogStore(directory, 2, true);
+        logStore.open();
+
+        for (Log log : logs) {
+            assertEquals(log, logStore.findOne(log.getId()).get());
+        }
+    }
+
+    private static List<Log> createLogs(String accountId, int count) {
+        List<Log> logs = new ArrayList<>(count);
+
+        for (int i = 0; i < count; ++i) {
+            logs.add(new Log(accountId, "activity" + i % 2, START_TIME + i * DURATION, DURATION));
+        }
+
+        return logs;
+    }
+}
@@ -0,0 +1,190 @@
+package com.pdereg.timelogger.repository;
+
+import com.pdereg.timelogger.Application;
+import com.pdereg.timelogger.concurrent.BulkheadRegistry;
+import com.pdereg.timelogger.config.CommonConfiguration;
+import com.pdereg.timelogger.domain.Log;
+import org.bson.types.ObjectId;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.pdereg.timelogger.TestUtils.generateDuration;
+import static com.pdereg.timelogger.TestUtils.generateRandomString;
+import static com.pdereg.timelogger.TestUtils.generateStartTime;
+import static org.junit.Assert.*;
+
+/**
+ * Shards are separate databases of the embedded server, which stand in for separate hosts.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = Application.class)
+@TestPropertySource(properties = {CommonConfiguration.SECRET_ENV_KEY + "=test1234"})
+public class ShardedLogStoreIntTest {
+
+    private static final int SHARD_COUNT = 3;
+    private static final int ACCOUNT_COUNT = 12;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private BulkheadRegistry bulkheadRegistry;
+
+    private final Map<String, MongoTemplate> shardTemplates = new LinkedHashMap<>();
+    private ShardedLogStore shardedLogStore;
+
+    @Before
+    public void setUp() {
+        Map<String, LogStore> shards = new LinkedHashMap<>();
+
+        for (int i = 0; i < SHARD_COUNT; ++i) {
+            String name = "log-shard-" + i;
+            MongoTemplate shardTemplate = new MongoTemplate(mongoTemplate.getDb().getMongo(), name);
+            shardTemplate.dropCollection(Log.class);
+
+            shardTemplates.put(name, shardTemplate);
+            shards.put(name, ShardedLogStore.createShard(shardTemplate));
+        }
+
+        shardedLogStore = new ShardedLogStore(shards, bulkheadRegistry.executor("log-shards"));
+    }
+
+    @After
+    public void tearDown() {
+        shardTemplates.values().forEach(shardTemplate -> shardTemplate.dropCollection(Log.class));
+    }
+
+    @Test
+    public void insert_keepsLogsOfAccountOnSingleShard() {
+        List<String> accountIds = generateAccountIds();
+        List<Log> logs = shardedLogStore.insert(createLogs(accountIds, 3));
+
+        assertEquals(accountIds.size() * 3, logs.size());
+        assertTrue(logs.stream().allMatch(log -> log.getId() != null));
+
+        for (String accountId : accountIds) {
+            String shardName = shardedLogStore.getShardName(accountId);
+
+            shardTemplates.forEach((name, shardTemplate) -> {
+                long logCount = shardTemplate.findAll(Log.class).stream()
+                        .filter(log -> log.getAccountId().equals(accountId))
+                        .count();
+
+                assertEquals(name.equals(shardName) ? 3L : 0L, logCount);
+            });
+
+            assertEquals(3, shardedLogStore.findAllByAccountId(accountId).size());
+        }
+    }
+
+    @Test
+    public void insert_spreadsAccountsOverShards() {
+        shardedLogStore.insert(createLogs(generateAccountIds(), 1));
+
+        long usedShardCount = shardTemplates.values().stream()
+                .filter(shardTemplate -> shardTemplate.count(null, Log.class) > 0L)
+                .count();
+
+        assertTrue(usedShardCount > 1L);
+    }
+
+    @Test
+    public void save_keepsOrderOfLogs() {
+        List<Log> logs = createLogs(generateAccountIds(), 2);
+        List<Log> savedLogs = shardedLogStore.save(logs);
+
+        for (int i = 0; i < logs.size(); ++i) {
+            assertEquals(logs.get(i).getAccountId(), savedLogs.get(i).getAccountId());
+            assertEquals(logs.get(i).getStartTime(), savedLogs.get(i).getStartTime());
+        }
+    }
+
+    @Test
+    public void findOne_queriesAllShards() {
+        List<Log> logs = shardedLogStore.insert(createLogs(generateAccountIds(), 1));
+
+        for (Log log : logs) {
+            assertEquals(log, shardedLogStore.findOne(log.getId()).get());
+            assertEquals(log, shardedLogStore.findOne(log.getId(), log.getAccountId(), log.getActivityId()).get());
+        }
+
+        assertFalse(shardedLogStore.findOne(new ObjectId().toHexString()).isPresent());
+    }
+
+    @Test
+    public void findAllAccountIds_mergesShards() {
+        List<String> accountIds = generateAccountIds();
+        shardedLogStore.insert(createLogs(accountIds, 2));
+
+        assertEquals(accountIds.stream().sorted().collect(Collectors.toList()), shardedLogStore.findAllAccountIds());
+    }
+
+    @Test
+    public void streamAllOrderedByAccountId_returnsLogsOfAllShards() {
+        List<String> accountIds = generateAccountIds();
+        List<Log> logs = shardedLogStore.insert(createLogs(accountIds, 2));
+
+        try (Stream<Log> streamedLogs = shardedLogStore.streamAllOrderedByAccountId()) {
+            List<Log> allLogs = streamedLogs.collect(Collectors.toList());
+
+            assertEquals(logs.size(), allLogs.size());
+            assertTrue(allLogs.containsAll(logs));
+        }
+    }
+
+    @Test
+    public void removeAll_removesLogsFromAllShards() {
+        List<Log> logs = shardedLogStore.insert(createLogs(generateAccountIds(), 2));
+        shardedLogStore.removeAll(logs.subList(0, logs.size() / 2));
+
+        long logCount = shardTemplates.values().stream()
+                .mapToLong(shardTemplate -> shardTemplate.count(null, Log.class))
+                .sum();
+
+        assertEquals(logs.size() - logs.size() / 2, logCount);
+    }
+
+    @Test
+    public void findAndRemove_removesFromShardOfAccount() {
+        Log log = shardedLogStore.insert(createLogs(generateAccountIds(), 1)).get(0);
+
+        assertTrue(shardedLogStore.findAndRemove(log.getId(), log.getAccountId(), log.getActivityId()).isPresent());
+        assertFalse(shardedLogStore.findOne(log.getId()).isPresent());
+    }
+
+    private static List<String> generateAccountIds() {
+        List<String> accountIds = new ArrayList<>();
+        for (int i = 0; i < ACCOUNT_COUNT; ++i) {
+            accountIds.add(generateRandomString(10));
+        }
+
+        return accountIds;
+    }
+
+    private static List<Log> createLogs(List<String> accountIds, int logsPerAccount) {
+        List<Log> logs = new ArrayList<>();
+
+        for (String accountId : accountIds) {
+            for (int i = 0; i < logsPerAccount; ++i) {
+                long duration = generateDuration();
+                logs.add(new Log(accountId, generateRandomString(10), generateStartTime(duration), duration));
+            }
+        }
+
+        return logs;
+    }
+}
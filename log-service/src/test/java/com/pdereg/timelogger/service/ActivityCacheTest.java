@@ -0,0 +1,203 @@
+package com.pdereg.timelogger.service;
+
+import com.pdereg.timelogger.network.model.Activity;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ActivityCacheTest {
+
+    private static final String ACCOUNT_ID = "user";
+    private static final String NAME = "activity";
+
+    private static final int MAX_SIZE = 2;
+    private static final long TTL = 1000L;
+    private static final long NEGATIVE_TTL = 100L;
+    private static final long STALE_TTL = 5000L;
+
+    private MutableClock clock;
+    private ActivityCache activityCache;
+    private AtomicInteger loadCount;
+
+    @Before
+    public void setUp() {
+        clock = new MutableClock();
+        activityCache = new ActivityCache(MAX_SIZE, TTL, NEGATIVE_TTL, STALE_TTL, clock);
+        loadCount = new AtomicInteger();
+    }
+
+    @Test
+    public void get_returnsCachedActivityWithoutLoading() throws Exception {
+        Activity activity = createActivity(NAME);
+
+        activityCache.get(ACCOUNT_ID, NAME, () -> load(activity)).get();
+        Optional<Activity> cached = activityCache.get(ACCOUNT_ID, NAME, () -> load(activity)).get();
+
+        assertEquals(Optional.of(activity), cached);
+        assertEquals(1, loadCount.get());
+        assertEquals(1L, activityCache.getHitCount());
+        assertEquals(1L, activityCache.getMissCount());
+    }
+
+    @Test
+    public void get_cachesMissingActivityForNegativeTtl() throws Exception {
+        activityCache.get(ACCOUNT_ID, NAME, () -> load(null)).get();
+        activityCache.get(ACCOUNT_ID, NAME, () -> load(null)).get();
+        assertEquals(1, loadCount.get());
+
+        clock.advance(NEGATIVE_TTL);
+        activityCache.get(ACCOUNT_ID, NAME, () -> load(null)).get();
+        assertEquals(2, loadCount.get());
+    }
+
+    @Test
+    public void get_returnsStaleActivityWhileRefreshing() throws Exception {
+        Activity activity = createActivity(NAME);
+        activityCache.get(ACCOUNT_ID, NAME, () -> load(activity)).get();
+
+        clock.advance(TTL);
+        CompletableFuture<Optional<Activity>> refresh = new CompletableFuture<>();
+        Optional<Activity> stale = activityCache.get(ACCOUNT_ID, NAME, () -> refresh).get();
+
+        assertEquals(Optional.of(activity), stale);
+        assertEquals(1L, activityCache.getStaleHitCount());
+        assertFalse(refresh.isDone());
+    }
+
+    @Test
+    public void get_returnsStaleActivityIfRefreshFails() throws Exception {
+        Activity activity = createActivity(NAME);
+        activityCache.get(ACCOUNT_ID, NAME, () -> load(activity)).get();
+
+        clock.advance(TTL + STALE_TTL);
+        Optional<Activity> stale = activityCache.get(ACCOUNT_ID, NAME, this::fail).get();
+
+        assertEquals(Optional.of(activity), stale);
+    }
+
+    @Test(expected = ExecutionException.class)
+    public void get_throwsExceptionIfLoadFailsAndActivityIsNotCached() throws Exception {
+        activityCache.get(ACCOUNT_ID, NAME, this::fail).get();
+    }
+
+    @Test
+    public void get_loadsAgainAfterLoaderThrows() throws Exception {
+        Activity activity = createActivity(NAME);
+
+        CompletableFuture<Optional<Activity>> rejected = activityCache.get(ACCOUNT_ID, NAME, this::reject);
+        Optional<Activity> loaded = activityCache.get(ACCOUNT_ID, NAME, () -> load(activity)).get(1, TimeUnit.SECONDS);
+
+        assertTrue(rejected.isCompletedExceptionally());
+        assertEquals(Optional.of(activity), loaded);
+    }
+
+    @Test
+    public void get_returnsStaleActivityIfLoaderThrows() throws Exception {
+        Activity activity = createActivity(NAME);
+        activityCache.get(ACCOUNT_ID, NAME, () -> load(activity)).get();
+
+        clock.advance(TTL);
+        Optional<Activity> stale = activityCache.get(ACCOUNT_ID, NAME, this::reject).get();
+        clock.advance(STALE_TTL);
+        Optional<Activity> expired = activityCache.get(ACCOUNT_ID, NAME, this::reject).get();
+
+        assertEquals(Optional.of(activity), stale);
+        assertEquals(Optional.of(activity), expired);
+    }
+
+    @Test
+    public void get_evictsLeastRecentlyUsedActivity() throws Exception {
+        activityCache.get(ACCOUNT_ID, "activity1", () -> load(createActivity("activity1"))).get();
+        activityCache.get(ACCOUNT_ID, "activity2", () -> load(createActivity("activity2"))).get();
+        activityCache.get(ACCOUNT_ID, "activity1", () -> load(createActivity("activity1"))).get();
+        activityCache.get(ACCOUNT_ID, "activity3", () -> load(createActivity("activity3"))).get();
+
+        assertEquals(MAX_SIZE, activityCache.getSize());
+        assertEquals(1L, activityCache.getEvictionCount());
+
+        activityCache.get(ACCOUNT_ID, "activity1", () -> load(createActivity("activity1"))).get();
+        assertEquals(3, loadCount.get());
+    }
+
+    @Test
+    public void get_coalescesConcurrentLoads() throws Exception {
+        CompletableFuture<Optional<Activity>> load = new CompletableFuture<>();
+
+        CompletableFuture<Optional<Activity>> first = activityCache.get(ACCOUNT_ID, NAME, () -> {
+            loadCount.incrementAndGet();
+            return load;
+        });
+        CompletableFuture<Optional<Activity>> second = activityCache.get(ACCOUNT_ID, NAME, () -> {
+            loadCount.incrementAndGet();
+            return load;
+        });
+
+        load.complete(Optional.empty());
+
+        assertEquals(Optional.empty(), first.get());
+        assertEquals(Optional.empty(), second.get());
+        assertEquals(1, loadCount.get());
+    }
+
+    private CompletableFuture<Optional<Activity>> load(Activity activity) {
+        loadCount.incrementAndGet();
+        return CompletableFuture.completedFuture(Optional.ofNullable(activity));
+    }
+
+    private CompletableFuture<Optional<Activity>> fail() {
+        CompletableFuture<Optional<Activity>> future = new CompletableFuture<>();
+        future.completeExceptionally(new RuntimeException());
+        return future;
+    }
+
+    private CompletableFuture<Optional<Activity>> reject() {
+        throw new IllegalStateException();
+    }
+
+    private Activity createActivity(String name) {
+        Activity activity = new Activity();
+        activity.setAccountId(ACCOUNT_ID);
+        activity.setName(name);
+        return activity;
+    }
+
+    private static class MutableClock extends Clock {
+
+        private long millis;
+
+        void advance(long millis) {
+            this.millis += millis;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+    }
+}
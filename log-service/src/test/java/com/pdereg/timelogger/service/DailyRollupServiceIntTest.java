@@ -0,0 +1,183 @@
+package com.pdereg.timelogger.service;
+
+import com.pdereg.timelogger.Application;
+import com.pdereg.timelogger.config.CommonConfiguration;
+import com.pdereg.timelogger.domain.DailyRollup;
+import com.pdereg.timelogger.domain.Log;
+import com.pdereg.timelogger.concurrent.BulkheadRegistry;
+import com.pdereg.timelogger.repository.DailyRollupRepository;
+import com.pdereg.timelogger.repository.LogRetentionPolicy;
+import com.pdereg.timelogger.repository.LogStore;
+import com.pdereg.timelogger.service.error.InvalidTimeRangeException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.pdereg.timelogger.TestUtils.generateDuration;
+import static com.pdereg.timelogger.TestUtils.generateRandomString;
+import static com.pdereg.timelogger.TestUtils.generateStartTime;
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = Application.class)
+@TestPropertySource(properties = {CommonConfiguration.SECRET_ENV_KEY + "=test1234"})
+public class DailyRollupServiceIntTest {
+
+    private static final long DAY = DailyRollup.MILLIS_IN_A_DAY;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private DailyRollupRepository dailyRollupRepository;
+
+    @Autowired
+    private DailyRollupService dailyRollupService;
+
+    @Autowired
+    private LogStore logStore;
+
+    @Autowired
+    private BulkheadRegistry bulkheadRegistry;
+
+    private String accountId;
+    private long today;
+
+    @Before
+    public void setUp() {
+        mongoTemplate.dropCollection(Log.class);
+        mongoTemplate.dropCollection(DailyRollup.class);
+
+        accountId = generateRandomString(10);
+        today = DailyRollup.dayOf(generateStartTime(generateDuration()));
+    }
+
+    @After
+    public void tearDown() {
+        mongoTemplate.dropCollection(Log.class);
+        mongoTemplate.dropCollection(DailyRollup.class);
+    }
+
+    @Test
+    public void findAllByAccountId_returnsRollupsOfDaysInRange() throws Exception {
+        dailyRollupRepository.increment(accountId, "activity", today - 2 * DAY, 1000L, 1L);
+        dailyRollupRepository.increment(accountId, "activity", today - DAY, 2000L, 1L);
+        dailyRollupRepository.increment(accountId, "activity", today, 3000L, 1L);
+        dailyRollupRepository.increment(generateRandomString(10), "activity", today - DAY, 4000L, 1L);
+
+        List<DailyRollup> rollups = dailyRollupService
+                .findAllByAccountId(accountId, today - DAY + 1, today, null)
+                .get();
+
+        assertEquals(1, rollups.size());
+        assertEquals(today - DAY, rollups.get(0).getDay());
+        assertEquals(2000L, rollups.get(0).getTotalDuration());
+    }
+
+    @Test
+    public void findAllByAccountId_filtersByActivity() throws Exception {
+        dailyRollupRepository.increment(accountId, "activity1", today, 1000L, 1L);
+        dailyRollupRepository.increment(accountId, "activity2", today, 2000L, 1L);
+
+        List<DailyRollup> rollups = dailyRollupService
+                .findAllByAccountId(accountId, today, today + DAY, "activity2")
+                .get();
+
+        assertEquals(1, rollups.size());
+        assertEquals("activity2", rollups.get(0).getActivityId());
+    }
+
+    @Test(expected = InvalidTimeRangeException.class)
+    public void findAllByAccountId_throwsExceptionIfRangeIsInvalid() {
+        dailyRollupService.findAllByAccountId(accountId, today + DAY, today, null);
+    }
+
+    @Test
+    public void rebuildAll_recomputesRollupsFromLogs() throws Exception {
+        String otherAccountId = generateRandomString(10);
+        long duration = generateDuration();
+
+        mongoTemplate.insert(Arrays.asList(
+                new Log(accountId, "activity", today, duration),
+                new Log(accountId, "activity", today + duration, duration),
+                new Log(accountId, "activity", today - DAY, duration),
+                new Log(otherAccountId, "activity", today, duration)
+        ), Log.class);
+        dailyRollupRepository.increment(accountId, "activity", today, 42L, 42L);
+
+        assertTrue(dailyRollupService.rebuildAll().get());
+
+        List<DailyRollup> rollups = dailyRollupService
+                .findAllByAccountId(accountId, today - DAY, today + DAY, null)
+                .get();
+        assertEquals(Arrays.asList(
+                new DailyRollup(accountId, "activity", today - DAY, duration, 1L),
+                new DailyRollup(accountId, "activity", today, 2 * duration, 2L)
+        ), rollups);
+
+        List<DailyRollup> otherRollups = dailyRollupService
+                .findAllByAccountId(otherAccountId, today, today + DAY, null)
+                .get();
+        assertEquals(1, otherRollups.size());
+    }
+
+    @Test
+    public void rebuildAll_removesRollupsLeftWithoutLogs() throws Exception {
+        long duration = generateDuration();
+
+        mongoTemplate.insert(new Log(accountId, "activity", today, duration));
+        dailyRollupRepository.increment(accountId, "activity", today, duration, 1L);
+        dailyRollupRepository.increment(accountId, "deleted", today, 42L, 1L);
+
+        assertTrue(dailyRollupService.rebuildAll().get());
+
+        List<DailyRollup> rollups = dailyRollupService
+                .findAllByAccountId(accountId, today, today + DAY, null)
+                .get();
+        assertEquals(Collections.singletonList(
+                new DailyRollup(accountId, "activity", today, duration, 1L)
+        ), rollups);
+    }
+
+    @Test
+    public void rebuildAll_keepsRollupsOfDaysThatMayHaveExpiredLogs() throws Exception {
+        LogRetentionPolicy logRetentionPolicy = new LogRetentionPolicy(LogRetentionPolicy.Mode.PURGE, 30L,
+                Collections.emptyMap());
+        DailyRollupService retainingDailyRollupService = new DailyRollupService(logStore, dailyRollupRepository,
+                logRetentionPolicy, bulkheadRegistry);
+
+        long expiringDay = DailyRollup.dayOf(System.currentTimeMillis() - 30 * DAY);
+        long duration = generateDuration();
+
+        mongoTemplate.insert(Arrays.asList(
+                new Log(accountId, "activity", expiringDay + DAY - 1, duration),
+                new Log(accountId, "activity", expiringDay - DAY, duration),
+                new Log(accountId, "activity", today, duration)
+        ), Log.class);
+        dailyRollupRepository.increment(accountId, "activity", expiringDay - 10 * DAY, 1000L, 1L);
+        dailyRollupRepository.increment(accountId, "activity", expiringDay, 5000L, 5L);
+        dailyRollupRepository.increment(accountId, "activity", today, 42L, 42L);
+
+        assertTrue(retainingDailyRollupService.rebuildAll().get());
+
+        List<DailyRollup> rollups = dailyRollupService
+                .findAllByAccountId(accountId, expiringDay - 10 * DAY, today + DAY, null)
+                .get();
+        assertEquals(Arrays.asList(
+                new DailyRollup(accountId, "activity", expiringDay - 10 * DAY, 1000L, 1L),
+                new DailyRollup(accountId, "activity", expiringDay - DAY, duration, 1L),
+                new DailyRollup(accountId, "activity", expiringDay, 5000L, 5L),
+                new DailyRollup(accountId, "activity", today, duration, 1L)
+        ), rollups);
+    }
+}
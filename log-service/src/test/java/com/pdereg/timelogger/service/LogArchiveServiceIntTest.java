@@ -0,0 +1,231 @@
+package com.pdereg.timelogger.service;
+
+import com.pdereg.timelogger.Application;
+import com.pdereg.timelogger.config.CommonConfiguration;
+import com.pdereg.timelogger.domain.DailyRollup;
+import com.pdereg.timelogger.domain.Log;
+import com.pdereg.timelogger.repository.LogArchive;
+import com.pdereg.timelogger.repository.LogFilter;
+import com.pdereg.timelogger.repository.LogPosition;
+import com.pdereg.timelogger.repository.LogRepository;
+import com.pdereg.timelogger.repository.LogStore;
+import com.pdereg.timelogger.repository.LogSummary;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.pdereg.timelogger.TestUtils.generateRandomString;
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = Application.class)
+@TestPropertySource(properties = {
+        CommonConfiguration.SECRET_ENV_KEY + "=test1234",
+        "time-logger.log-archive.directory=" + LogArchiveServiceIntTest.DIRECTORY,
+        "time-logger.log-archive.max-age=30"
+})
+public class LogArchiveServiceIntTest {
+
+    static final String DIRECTORY = "build/log-archive-test";
+
+    private static final long DAY = DailyRollup.MILLIS_IN_A_DAY;
+    private static final long DURATION = 1000L * 60 * 30;
+    private static final int LOGS_PER_DAY = 4;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private LogRepository logRepository;
+
+    @Autowired
+    private LogStore logStore;
+
+    @Autowired
+    private LogArchive logArchive;
+
+    @Autowired
+    private LogService logService;
+
+    @Autowired
+    private LogArchiveService logArchiveService;
+
+    private String accountId;
+    private long archiveBefore;
+
+    @Before
+    public void setUp() throws IOException {
+        mongoTemplate.dropCollection(Log.class);
+        FileSystemUtils.deleteRecursively(new File(DIRECTORY));
+        logArchive.load();
+
+        accountId = generateRandomString(10);
+        archiveBefore = LogArchive.monthOf(System.currentTimeMillis() - 30 * DAY);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mongoTemplate.dropCollection(Log.class);
+        FileSystemUtils.deleteRecursively(new File(DIRECTORY));
+        logArchive.load();
+    }
+
+    @Test
+    public void archive_movesOldMonthsToArchive() throws Exception {
+        List<Log> logs = logRepository.save(createLogs(accountId));
+        long archivedCount = logs.stream().filter(log -> log.getStartTime() < archiveBefore).count();
+
+        assertEquals(archivedCount, (long) logArchiveService.archive().get());
+        assertEquals(logs.size() - archivedCount, logRepository.count());
+        assertEquals(archiveBefore, logArchive.getArchivedUntil(accountId));
+        assertTrue(archivedCount > 0);
+    }
+
+    @Test
+    public void archive_keepsArchivedLogsReadable() throws Exception {
+        List<Log> logs = sort(logRepository.save(createLogs(accountId)));
+        List<String> summaries = summarize(new LogFilter());
+        Log archivedLog = logs.get(0);
+
+        logArchiveService.archive().get();
+
+        assertEquals(logs, logService.findAllByAccountId(accountId).get());
+        assertEquals(summaries, summarize(new LogFilter()));
+        assertEquals(archivedLog, logService.findOneById(archivedLog.getId()).get().get());
+        assertEquals(archivedLog, logService
+                .findOneById(archivedLog.getId(), accountId, archivedLog.getActivityId())
+                .get()
+                .get());
+    }
+
+    @Test
+    public void archive_readsOnlySegmentsThatMayHoldLookedUpLog() throws Exception {
+        List<Log> logs = sort(logRepository.save(createLogs(accountId)));
+        Log archivedLog = logs.get(0);
+
+        logArchiveService.archive().get();
+
+        long readCount = logArchive.getReadCount();
+        assertEquals(archivedLog, logService.findOneById(archivedLog.getId()).get().get());
+        assertEquals(archivedLog, logService
+                .findOneById(archivedLog.getId(), accountId, archivedLog.getActivityId())
+                .get()
+                .get());
+        assertEquals(readCount + 2, logArchive.getReadCount());
+    }
+
+    @Test
+    public void archive_keepsPaginationAcrossTiers() throws Exception {
+        List<Log> logs = sort(logRepository.save(createLogs(accountId)));
+        int firstRecent = (int) logs.stream().filter(log -> log.getStartTime() < archiveBefore).count();
+
+        logArchiveService.archive().get();
+
+        LogPosition position = LogPosition.of(logs.get(firstRecent - 3));
+        try (Stream<Log> page = logService.streamAllByAccountId(accountId, new LogFilter(), position, 5)) {
+            assertEquals(logs.subList(firstRecent - 2, firstRecent + 3), page.collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    public void archive_filtersArchivedLogs() throws Exception {
+        List<Log> logs = sort(logRepository.save(createLogs(accountId)));
+        LogFilter filter = new LogFilter();
+        filter.setFrom(archiveBefore - 10 * DAY);
+        filter.setTo(archiveBefore + 10 * DAY);
+        filter.setActivityIds(Collections.singleton("activity1"));
+        List<String> summaries = summarize(filter);
+
+        logArchiveService.archive().get();
+
+        List<Log> expected = logs.stream().filter(filter::matches).collect(Collectors.toList());
+        try (Stream<Log> page = logService.streamAllByAccountId(accountId, filter, null, Integer.MAX_VALUE)) {
+            assertEquals(expected, page.collect(Collectors.toList()));
+        }
+        assertEquals(summaries, summarize(filter));
+    }
+
+    @Test
+    public void archive_archivesLogsAddedToArchivedMonthAgain() throws Exception {
+        List<Log> logs = new ArrayList<>(logRepository.save(createLogs(accountId)));
+        logArchiveService.archive().get();
+
+        Log lateLog = logService.createLogs(Collections.singletonList(
+                new Log(accountId, "activity0", archiveBefore - 5 * DAY + 1000L, DURATION)
+        )).get().get(0);
+        logs.add(lateLog);
+
+        assertEquals(sort(logs), logService.findAllByAccountId(accountId).get());
+        assertEquals(1L, (long) logArchiveService.archive().get());
+        assertEquals(sort(logs), logService.findAllByAccountId(accountId).get());
+    }
+
+    @Test
+    public void streamAllOrderedByAccountId_groupsArchivedAndRecentLogsByAccount() throws Exception {
+        String otherAccountId = generateRandomString(10);
+        List<Log> logs = new ArrayList<>(logRepository.save(createLogs(accountId)));
+        logs.addAll(logRepository.save(Collections.singletonList(
+                new Log(otherAccountId, "activity0", archiveBefore - 40 * DAY, DURATION)
+        )));
+
+        logArchiveService.archive().get();
+
+        try (Stream<Log> archivedLogs = logStore.streamAllOrderedByAccountId()) {
+            List<Log> orderedLogs = archivedLogs.collect(Collectors.toList());
+            List<String> accountIds = orderedLogs.stream()
+                    .map(Log::getAccountId)
+                    .distinct()
+                    .collect(Collectors.toList());
+
+            assertEquals(logs.size(), orderedLogs.size());
+            assertEquals(Arrays.asList(accountId, otherAccountId), accountIds);
+            assertEquals(sort(logs.subList(0, logs.size() - 1)), orderedLogs.subList(0, logs.size() - 1));
+        }
+    }
+
+    private List<Log> createLogs(String accountId) {
+        List<Log> logs = new ArrayList<>();
+
+        // Logs span three archived months and the recent ones
+        for (long day = archiveBefore - 80 * DAY; day < archiveBefore + 20 * DAY; day += DAY) {
+            for (int i = 0; i < LOGS_PER_DAY; ++i) {
+                logs.add(new Log(accountId, "activity" + i % 2, day + i * 2 * DURATION, DURATION + i * 1000L));
+            }
+        }
+
+        return logs;
+    }
+
+    private List<String> summarize(LogFilter filter) {
+        try (Stream<LogSummary> summaries = logService.streamSummariesByAccountId(accountId, filter)) {
+            return summaries
+                    .map(summary -> summary.getActivityId() + ':' + summary.getTotalDuration() + ':'
+                            + summary.getLogCount() + ':' + summary.getFirstStartTime() + ':'
+                            + summary.getLastStartTime())
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static List<Log> sort(List<Log> logs) {
+        List<Log> sortedLogs = new ArrayList<>(logs);
+        sortedLogs.sort(LogPosition.ORDER);
+
+        return sortedLogs;
+    }
+}
@@ -0,0 +1,131 @@
+package com.pdereg.timelogger.service;
+
+import com.pdereg.timelogger.Application;
+import com.pdereg.timelogger.config.CommonConfiguration;
+import com.pdereg.timelogger.domain.Log;
+import com.pdereg.timelogger.repository.LogRepository;
+import com.pdereg.timelogger.repository.LogStore;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static com.pdereg.timelogger.TestUtils.generateDuration;
+import static com.pdereg.timelogger.TestUtils.generateRandomString;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares throughput and latency of saving each log on its own against saving logs in groups with
+ * {@link LogWriteBuffer}.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = Application.class)
+@TestPropertySource(properties = {CommonConfiguration.SECRET_ENV_KEY + "=test1234"})
+public class LogIngestionBenchmarkIntTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(LogIngestionBenchmarkIntTest.class);
+
+    private static final String ACCOUNT_ID = "user";
+    private static final int LOG_COUNT = 1000;
+    private static final long FLUSH_INTERVAL = 5L;
+    private static final int BATCH_SIZE = 500;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private LogRepository logRepository;
+
+    @Autowired
+    private LogStore logStore;
+
+    @Autowired
+    private LogService logService;
+
+    private LogWriteBuffer logWriteBuffer;
+
+    @Before
+    public void setUp() throws Exception {
+        mongoTemplate.dropCollection(Log.class);
+
+        logWriteBuffer = new LogWriteBuffer(logStore, true, FLUSH_INTERVAL, BATCH_SIZE, LOG_COUNT, null);
+        logWriteBuffer.afterPropertiesSet();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        logWriteBuffer.destroy();
+        mongoTemplate.dropCollection(Log.class);
+    }
+
+    @Test
+    public void groupCommit_savesAllLogs() throws Exception {
+        String activityId = generateRandomString(10);
+
+        Result direct = measure(log -> logService.createLog(ACCOUNT_ID, activityId, log.getDuration()));
+        Result buffered = measure(logWriteBuffer::submit);
+
+        logger.info("Ingestion of {} logs, per-document: {}", LOG_COUNT, direct);
+        logger.info("Ingestion of {} logs, group commit: {}", LOG_COUNT, buffered);
+        assertEquals(2 * LOG_COUNT, logRepository.count());
+    }
+
+    private Result measure(Function<Log, CompletableFuture<Log>> save) throws Exception {
+        long duration = generateDuration();
+        List<CompletableFuture<Long>> latencies = new ArrayList<>(LOG_COUNT);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < LOG_COUNT; ++i) {
+            Log log = new Log(ACCOUNT_ID, generateRandomString(10), System.currentTimeMillis() - duration, duration);
+            long submittedAt = System.nanoTime();
+
+            latencies.add(save.apply(log).thenApply(savedLog -> System.nanoTime() - submittedAt));
+        }
+
+        List<Long> sortedLatencies = new ArrayList<>(LOG_COUNT);
+        for (CompletableFuture<Long> latency : latencies) {
+            sortedLatencies.add(latency.get(30, TimeUnit.SECONDS));
+        }
+        long elapsed = System.nanoTime() - start;
+
+        Collections.sort(sortedLatencies);
+        return new Result(elapsed, sortedLatencies);
+    }
+
+    private static class Result {
+
+        private final double logsPerSecond;
+        private final double p50Millis;
+        private final double p99Millis;
+
+        Result(long elapsedNanos, List<Long> sortedLatencies) {
+            this.logsPerSecond = sortedLatencies.size() * 1e9 / elapsedNanos;
+            this.p50Millis = percentile(sortedLatencies, 0.50);
+            this.p99Millis = percentile(sortedLatencies, 0.99);
+        }
+
+        private static double percentile(List<Long> sortedLatencies, double percentile) {
+            int index = (int) Math.ceil(percentile * sortedLatencies.size()) - 1;
+            return TimeUnit.NANOSECONDS.toMicros(sortedLatencies.get(index)) / 1000.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.0f logs/s, p50 %.2f ms, p99 %.2f ms", logsPerSecond, p50Millis, p99Millis);
+        }
+    }
+}
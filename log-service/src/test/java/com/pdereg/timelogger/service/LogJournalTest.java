@@ -0,0 +1,161 @@
+package com.pdereg.timelogger.service;
+
+import com.pdereg.timelogger.domain.Log;
+import org.bson.types.ObjectId;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.pdereg.timelogger.TestUtils.generateDuration;
+import static com.pdereg.timelogger.TestUtils.generateRandomString;
+import static com.pdereg.timelogger.TestUtils.generateStartTime;
+import static org.junit.Assert.*;
+
+public class LogJournalTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Path path;
+    private LogJournal journal;
+
+    @Before
+    public void setUp() throws IOException {
+        path = temporaryFolder.newFile().toPath();
+        journal = new LogJournal(path);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        journal.close();
+    }
+
+    @Test
+    public void readAll_returnsAppendedLogsInOrder() throws IOException {
+        List<Log> logs = Arrays.asList(createLog(), createLog(), createLog());
+
+        journal.append(logs.subList(0, 2));
+        journal.append(logs.subList(2, 3));
+
+        assertEquals(logs, journal.readAll());
+    }
+
+    @Test
+    public void readAll_returnsLogsAppendedBeforeReopening() throws IOException {
+        List<Log> logs = Collections.singletonList(createLog());
+
+        journal.append(logs);
+        journal.close();
+        journal = new LogJournal(path);
+
+        assertEquals(logs, journal.readAll());
+    }
+
+    @Test
+    public void readAll_ignoresPartiallyWrittenRecord() throws IOException {
+        List<Log> logs = Collections.singletonList(createLog());
+        journal.append(logs);
+        journal.append(Collections.singletonList(createLog()));
+        journal.close();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 4);
+        }
+        journal = new LogJournal(path);
+
+        assertEquals(logs, journal.readAll());
+    }
+
+    @Test
+    public void readAll_discardsFramesFromFirstCorruptOne() throws IOException {
+        Log first = createLog();
+        Log appended = createLog();
+        journal.append(Collections.singletonList(first));
+        long corruptFrameOffset = Files.size(path);
+        journal.append(Arrays.asList(createLog(), createLog()));
+        journal.append(Collections.singletonList(createLog()));
+        journal.close();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{42}), corruptFrameOffset + 10);
+        }
+        journal = new LogJournal(path);
+
+        assertEquals(Collections.singletonList(first), journal.readAll());
+
+        journal.append(Collections.singletonList(appended));
+        assertEquals(Arrays.asList(first, appended), journal.readAll());
+    }
+
+    @Test
+    public void readAll_discardsFrameOfInvalidLength() throws IOException {
+        List<Log> logs = Collections.singletonList(createLog());
+        journal.append(logs);
+        long invalidFrameOffset = Files.size(path);
+        journal.close();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            ByteBuffer frame = ByteBuffer.allocate(12).putInt(-1).putInt(0).putInt(0);
+            frame.flip();
+            channel.write(frame, invalidFrameOffset);
+        }
+        journal = new LogJournal(path);
+
+        assertEquals(logs, journal.readAll());
+        assertEquals(invalidFrameOffset, Files.size(path));
+    }
+
+    @Test
+    public void readAll_skipsLogsMarkedAsApplied() throws IOException {
+        List<Log> logs = Arrays.asList(createLog(), createLog(), createLog());
+
+        journal.append(logs.subList(0, 1));
+        journal.append(logs.subList(1, 3));
+        journal.markApplied(logs.subList(1, 3));
+        journal.close();
+        journal = new LogJournal(path);
+
+        assertEquals(logs.subList(0, 1), journal.readAll());
+    }
+
+    @Test
+    public void truncate_removesAllLogs() throws IOException {
+        journal.append(Arrays.asList(createLog(), createLog()));
+
+        journal.truncate();
+
+        assertTrue(journal.readAll().isEmpty());
+    }
+
+    @Test
+    public void append_appendsAfterRead() throws IOException {
+        Log first = createLog();
+        Log second = createLog();
+
+        journal.append(Collections.singletonList(first));
+        journal.readAll();
+        journal.append(Collections.singletonList(second));
+
+        assertEquals(Arrays.asList(first, second), journal.readAll());
+    }
+
+    private static Log createLog() {
+        long duration = generateDuration();
+        long startTime = generateStartTime(duration);
+
+        return new Log(new ObjectId().toHexString(), generateRandomString(10), generateRandomString(10), startTime,
+                duration);
+    }
+}
@@ -0,0 +1,125 @@
+package com.pdereg.timelogger.service;
+
+import com.pdereg.timelogger.Application;
+import com.pdereg.timelogger.config.CommonConfiguration;
+import com.pdereg.timelogger.domain.Log;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static com.pdereg.timelogger.TestUtils.generateDuration;
+import static com.pdereg.timelogger.TestUtils.generateRandomString;
+import static com.pdereg.timelogger.TestUtils.generateStartTime;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares latency of fetching a single log by scanning all logs of its activity against a direct indexed lookup.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = Application.class)
+@TestPropertySource(properties = {CommonConfiguration.SECRET_ENV_KEY + "=test1234"})
+public class LogLookupBenchmarkIntTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(LogLookupBenchmarkIntTest.class);
+
+    private static final String ACCOUNT_ID = "user";
+    private static final int LOG_COUNT = 10_000;
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int MEASURED_ITERATIONS = 20;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private LogService logService;
+
+    private final Random random = new Random();
+
+    private String activityId;
+    private List<Log> logs;
+
+    @Before
+    public void setUp() {
+        mongoTemplate.dropCollection(Log.class);
+        insertLogs();
+    }
+
+    @After
+    public void tearDown() {
+        mongoTemplate.dropCollection(Log.class);
+    }
+
+    @Test
+    public void findOneById_isFasterThanScanningAllLogsOfActivity() throws Exception {
+        measure(this::findByScan, WARMUP_ITERATIONS);
+        measure(this::findByIndex, WARMUP_ITERATIONS);
+
+        double scanMillis = measure(this::findByScan, MEASURED_ITERATIONS);
+        double indexMillis = measure(this::findByIndex, MEASURED_ITERATIONS);
+
+        logger.info("Log lookup at {} logs per activity: scan {} ms, indexed {} ms", LOG_COUNT, scanMillis,
+                indexMillis);
+        assertTrue(indexMillis < scanMillis);
+    }
+
+    private Optional<Log> findByScan(String id) throws Exception {
+        return logService.findAllByAccountIdAndActivityId(ACCOUNT_ID, activityId).get().stream()
+                .filter(log -> log.getId().equals(id))
+                .findAny();
+    }
+
+    private Optional<Log> findByIndex(String id) throws Exception {
+        return logService.findOneById(id, ACCOUNT_ID, activityId).get();
+    }
+
+    /**
+     * @return Mean latency of a single lookup (in milliseconds)
+     */
+    private double measure(Lookup lookup, int iterations) throws Exception {
+        long totalNanos = 0L;
+
+        for (int i = 0; i < iterations; ++i) {
+            String id = logs.get(random.nextInt(logs.size())).getId();
+
+            long start = System.nanoTime();
+            Optional<Log> log = lookup.find(id);
+            totalNanos += System.nanoTime() - start;
+
+            assertTrue(log.isPresent());
+        }
+
+        return TimeUnit.NANOSECONDS.toMicros(totalNanos) / 1000.0 / iterations;
+    }
+
+    private void insertLogs() {
+        long duration = generateDuration();
+        long startTime = generateStartTime(duration);
+        activityId = generateRandomString(10);
+        logs = new ArrayList<>(LOG_COUNT);
+
+        for (int i = 0; i < LOG_COUNT; ++i) {
+            logs.add(new Log(ACCOUNT_ID, activityId, startTime - i * duration, duration));
+        }
+
+        mongoTemplate.insert(logs, Log.class);
+    }
+
+    private interface Lookup {
+
+        Optional<Log> find(String id) throws Exception;
+    }
+}
@@ -0,0 +1,135 @@
+package com.pdereg.timelogger.service;
+
+import com.pdereg.timelogger.Application;
+import com.pdereg.timelogger.config.CommonConfiguration;
+import com.pdereg.timelogger.domain.EncodedLog;
+import com.pdereg.timelogger.domain.Log;
+import com.pdereg.timelogger.domain.LogBucket;
+import com.pdereg.timelogger.repository.BucketedLogStore;
+import com.pdereg.timelogger.repository.DocumentLogStore;
+import com.pdereg.timelogger.repository.EncodedLogStore;
+import com.pdereg.timelogger.repository.LogLayout;
+import com.pdereg.timelogger.service.error.InvalidMigrationException;
+import com.pdereg.timelogger.service.error.LogLayoutDisabledException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.pdereg.timelogger.TestUtils.generateDuration;
+import static com.pdereg.timelogger.TestUtils.generateRandomString;
+import static com.pdereg.timelogger.TestUtils.generateStartTime;
+import static org.junit.Assert.assertEquals;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = Application.class)
+@TestPropertySource(properties = {CommonConfiguration.SECRET_ENV_KEY + "=test1234"})
+public class LogMigrationServiceIntTest {
+
+    private static final int LOG_COUNT = 2500;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private DocumentLogStore documentLogStore;
+
+    @Autowired
+    private BucketedLogStore bucketedLogStore;
+
+    @Autowired
+    private EncodedLogStore encodedLogStore;
+
+    @Autowired
+    private LogMigrationService logMigrationService;
+
+    private String accountId;
+
+    @Before
+    public void setUp() {
+        mongoTemplate.dropCollection(Log.class);
+        mongoTemplate.dropCollection(LogBucket.class);
+        mongoTemplate.dropCollection(EncodedLog.class);
+
+        accountId = generateRandomString(10);
+    }
+
+    @After
+    public void tearDown() {
+        mongoTemplate.dropCollection(Log.class);
+        mongoTemplate.dropCollection(LogBucket.class);
+        mongoTemplate.dropCollection(EncodedLog.class);
+    }
+
+    @Test
+    public void migrate_copiesAllLogsToBucketedLayout() throws Exception {
+        List<Log> logs = documentLogStore.insert(createLogs());
+
+        assertEquals(LOG_COUNT, (long) logMigrationService.migrate(LogLayout.DOCUMENT, LogLayout.BUCKETED).get());
+        assertEquals(logs, bucketedLogStore.findAllByAccountId(accountId));
+    }
+
+    @Test
+    public void migrate_copiesAllLogsToDocumentLayout() throws Exception {
+        List<Log> logs = bucketedLogStore.insert(createLogs());
+
+        assertEquals(LOG_COUNT, (long) logMigrationService.migrate(LogLayout.BUCKETED, LogLayout.DOCUMENT).get());
+        assertEquals(logs, documentLogStore.findAllByAccountId(accountId));
+    }
+
+    @Test
+    public void migrate_copiesAllLogsToEncodedLayout() throws Exception {
+        List<Log> logs = documentLogStore.insert(createLogs());
+
+        assertEquals(LOG_COUNT, (long) logMigrationService.migrate(LogLayout.DOCUMENT, LogLayout.ENCODED).get());
+        assertEquals(logs, encodedLogStore.findAllByAccountId(accountId));
+    }
+
+    @Test(expected = InvalidMigrationException.class)
+    public void migrate_throwsExceptionIfLayoutsAreSame() {
+        logMigrationService.migrate(LogLayout.ENCODED, LogLayout.ENCODED);
+    }
+
+    @Test(expected = LogLayoutDisabledException.class)
+    public void migrate_throwsExceptionIfTargetLayoutIsNotConfigured() {
+        logMigrationService.migrate(LogLayout.DOCUMENT, LogLayout.MAPPED);
+    }
+
+    @Test(expected = LogLayoutDisabledException.class)
+    public void migrate_throwsExceptionIfSourceLayoutIsNotConfigured() {
+        logMigrationService.migrate(LogLayout.SHARDED, LogLayout.DOCUMENT);
+    }
+
+    @Test
+    public void migrate_doesNotDuplicateMigratedLogs() throws Exception {
+        List<Log> logs = new ArrayList<>(documentLogStore.insert(createLogs()));
+        logMigrationService.migrate(LogLayout.DOCUMENT, LogLayout.BUCKETED).get();
+
+        long duration = generateDuration();
+        logs.add(documentLogStore.save(new Log(accountId, "activity", generateStartTime(duration), duration)));
+        logMigrationService.migrate(LogLayout.DOCUMENT, LogLayout.BUCKETED).get();
+
+        assertEquals(logs, bucketedLogStore.findAllByAccountId(accountId));
+    }
+
+    private List<Log> createLogs() {
+        long duration = generateDuration();
+        long startTime = generateStartTime(duration) - LOG_COUNT * duration;
+        List<Log> logs = new ArrayList<>(LOG_COUNT);
+
+        for (int i = 0; i < LOG_COUNT; ++i) {
+            logs.add(new Log(accountId, "activity" + i % 3, startTime + i * duration, duration));
+        }
+
+        return Collections.unmodifiableList(logs);
+    }
+}
@@ -0,0 +1,266 @@
+package com.pdereg.timelogger.service;
+
+import com.pdereg.timelogger.Application;
+import com.pdereg.timelogger.config.CommonConfiguration;
+import com.pdereg.timelogger.domain.DailyRollup;
+import com.pdereg.timelogger.domain.DictionaryEntry;
+import com.pdereg.timelogger.domain.EncodedLog;
+import com.pdereg.timelogger.domain.Log;
+import com.pdereg.timelogger.domain.LogBucket;
+import com.pdereg.timelogger.repository.LogArchive;
+import com.pdereg.timelogger.repository.LogDictionary;
+import com.pdereg.timelogger.repository.LogLayout;
+import com.pdereg.timelogger.repository.LogRetentionPolicy;
+import com.pdereg.timelogger.repository.LogStore;
+import com.pdereg.timelogger.repository.LogStoreRegistry;
+import com.pdereg.timelogger.repository.TieredLogStore;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.pdereg.timelogger.TestUtils.generateRandomString;
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = Application.class)
+@TestPropertySource(properties = {
+        CommonConfiguration.SECRET_ENV_KEY + "=test1234",
+        "time-logger.log-retention.mode=purge",
+        "time-logger.log-retention.max-age=30",
+        "time-logger.log-retention.account-max-age=" + LogRetentionServiceIntTest.SHORT_ACCOUNT_ID + ":10,"
+                + LogRetentionServiceIntTest.FOREVER_ACCOUNT_ID + ":0",
+        "time-logger.log-retention.interval=0",
+        "time-logger.log-retention.batch-size=7",
+        "time-logger.log-retention.rate=0"
+})
+public class LogRetentionServiceIntTest {
+
+    static final String SHORT_ACCOUNT_ID = "short-retention-account";
+    static final String FOREVER_ACCOUNT_ID = "forever-retention-account";
+
+    private static final long DAY = DailyRollup.MILLIS_IN_A_DAY;
+    private static final long DURATION = 1000L * 60 * 30;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private LogStore logStore;
+
+    @Autowired
+    private LogStoreRegistry logStoreRegistry;
+
+    @Autowired
+    private LogDictionary logDictionary;
+
+    @Autowired
+    private LogRetentionPolicy logRetentionPolicy;
+
+    @Autowired
+    private LogTimeIndex logTimeIndex;
+
+    @Autowired
+    private LogRetentionService logRetentionService;
+
+    private String accountId;
+    private long today;
+
+    @Before
+    public void setUp() {
+        dropCollections();
+
+        accountId = generateRandomString(10);
+        today = DailyRollup.dayOf(System.currentTimeMillis());
+    }
+
+    @After
+    public void tearDown() {
+        dropCollections();
+    }
+
+    @Test
+    public void purge_deletesExpiredLogsOnly() {
+        List<Log> logs = logStore.insert(createLogs(accountId, 60));
+
+        assertEquals(countOlderThan(logs, 30), logRetentionService.purge());
+        assertEquals(countYoungerThan(logs, 30), logStore.findAllByAccountId(accountId).size());
+    }
+
+    @Test
+    public void purge_deletesExpiredLogsInBatches() {
+        List<Log> logs = logStore.insert(createLogs(accountId, 60));
+        long purgedLogCount = logRetentionService.getPurgedLogCount();
+        long runCount = logRetentionService.getRunCount();
+
+        logRetentionService.purge();
+
+        assertTrue(countOlderThan(logs, 30) > 7);
+        assertEquals(countOlderThan(logs, 30), logRetentionService.getPurgedLogCount() - purgedLogCount);
+        assertEquals(runCount + 1, logRetentionService.getRunCount());
+    }
+
+    @Test
+    public void purge_appliesAccountMaxAge() {
+        List<Log> logs = logStore.insert(createLogs(SHORT_ACCOUNT_ID, 60));
+        List<Log> foreverLogs = logStore.insert(createLogs(FOREVER_ACCOUNT_ID, 60));
+
+        assertEquals(countOlderThan(logs, 10), logRetentionService.purge());
+        assertEquals(countYoungerThan(logs, 10), logStore.findAllByAccountId(SHORT_ACCOUNT_ID).size());
+        assertEquals(foreverLogs.size(), logStore.findAllByAccountId(FOREVER_ACCOUNT_ID).size());
+    }
+
+    @Test
+    public void purge_invalidatesTimeIndexOfPurgedAccountsOnly() {
+        LogTimeIndex enabledLogTimeIndex = new LogTimeIndex(logStore, true, 1000L);
+        List<Log> logs = logStore.insert(createLogs(SHORT_ACCOUNT_ID, 60));
+        List<Log> foreverLogs = logStore.insert(createLogs(FOREVER_ACCOUNT_ID, 60));
+        enabledLogTimeIndex.getTotal(SHORT_ACCOUNT_ID, null, 0L, 0L);
+        enabledLogTimeIndex.getTotal(FOREVER_ACCOUNT_ID, null, 0L, 0L);
+
+        new LogRetentionService(logStore, logRetentionPolicy, enabledLogTimeIndex, 0L, 7, 0L).purge();
+
+        assertEquals(1, enabledLogTimeIndex.getAccountCount());
+        assertEquals(foreverLogs.size(), enabledLogTimeIndex.getEntryCount());
+        assertEquals(countYoungerThan(logs, 10), enabledLogTimeIndex
+                .getTotal(SHORT_ACCOUNT_ID, null, 0L, Long.MAX_VALUE)
+                .getLogCount());
+        assertEquals(3L, enabledLogTimeIndex.getLoadCount());
+    }
+
+    @Test
+    public void purge_deletesExpiredLogsInBucketedLayout() {
+        assertPurgesExpiredLogs(logStoreRegistry.get(LogLayout.BUCKETED));
+    }
+
+    @Test
+    public void purge_deletesExpiredLogsInEncodedLayout() {
+        assertPurgesExpiredLogs(logStoreRegistry.get(LogLayout.ENCODED));
+    }
+
+    @Test
+    public void purge_deletesExpiredArchivedSegments() throws Exception {
+        LogArchive logArchive = new LogArchive(temporaryFolder.getRoot().toPath());
+        LogStore tieredLogStore = new TieredLogStore(logStoreRegistry.get(LogLayout.DOCUMENT), logArchive);
+
+        // Logs expire in the middle of the month before last, so that one of its logs expired and the other did not
+        long now = System.currentTimeMillis();
+        long month = LogArchive.monthOf(LogArchive.monthOf(LogArchive.monthOf(now) - 1L) - 1L);
+        long previousMonth = LogArchive.monthOf(month - 1L);
+        long maxAge = (now - month) / DAY - 15L;
+
+        List<Log> expiredLogs = tieredLogStore.insert(Arrays.asList(
+                new Log(accountId, "activity0", previousMonth + DAY / 4, DURATION),
+                new Log(accountId, "activity1", previousMonth + 10 * DAY + DAY / 4, DURATION)
+        ));
+        List<Log> mixedLogs = tieredLogStore.insert(Arrays.asList(
+                new Log(accountId, "activity0", month + DAY + DAY / 4, DURATION),
+                new Log(accountId, "activity1", month + 25 * DAY + DAY / 4, DURATION)
+        ));
+        List<Log> recentLogs = tieredLogStore.insert(Collections.singletonList(
+                new Log(accountId, "activity0", today - DAY + DAY / 4, DURATION)
+        ));
+
+        logArchive.write(accountId, expiredLogs);
+        logArchive.write(accountId, mixedLogs);
+        tieredLogStore.removeAll(expiredLogs);
+        tieredLogStore.removeAll(mixedLogs);
+
+        LogRetentionPolicy policy = new LogRetentionPolicy(LogRetentionPolicy.Mode.PURGE, maxAge,
+                Collections.emptyMap());
+        LogRetentionService service = new LogRetentionService(tieredLogStore, policy, logTimeIndex, 0L, 7, 0L);
+
+        List<Log> expected = new ArrayList<>(mixedLogs);
+        expected.addAll(recentLogs);
+
+        assertEquals(expiredLogs.size(), service.purge());
+        assertEquals(expected, tieredLogStore.findAllByAccountId(accountId));
+        assertEquals(mixedLogs.size(), logArchive.metrics().stream()
+                .filter(metric -> metric.getName().equals("log-archive.logs"))
+                .findFirst()
+                .get()
+                .getValue()
+                .intValue());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void afterPropertiesSet_throwsExceptionIfTtlModeIsUsedWithTimeIndex() {
+        LogRetentionPolicy ttlPolicy = new LogRetentionPolicy(LogRetentionPolicy.Mode.TTL, 30L,
+                Collections.emptyMap());
+        LogTimeIndex enabledLogTimeIndex = new LogTimeIndex(logStore, true, 1000L);
+
+        new LogRetentionService(logStore, ttlPolicy, enabledLogTimeIndex, 0L, 7, 0L).afterPropertiesSet();
+    }
+
+    @Test
+    public void findAllAccountIds_returnsAccountsInAllLayouts() {
+        String otherAccountId = generateRandomString(10);
+
+        for (LogLayout layout : Arrays.asList(LogLayout.DOCUMENT, LogLayout.BUCKETED, LogLayout.ENCODED)) {
+            LogStore layoutLogStore = logStoreRegistry.get(layout);
+            layoutLogStore.insert(createLogs(accountId, 2));
+            layoutLogStore.insert(createLogs(otherAccountId, 2));
+
+            List<String> expected = new ArrayList<>();
+            Collections.addAll(expected, accountId, otherAccountId);
+            Collections.sort(expected);
+
+            assertEquals(expected, layoutLogStore.findAllAccountIds());
+        }
+    }
+
+    private void assertPurgesExpiredLogs(LogStore layoutLogStore) {
+        List<Log> logs = layoutLogStore.insert(createLogs(accountId, 60));
+
+        assertEquals(countOlderThan(logs, 30), createService(layoutLogStore).purge());
+        assertEquals(countYoungerThan(logs, 30), layoutLogStore.findAllByAccountId(accountId).size());
+    }
+
+    private LogRetentionService createService(LogStore layoutLogStore) {
+        return new LogRetentionService(layoutLogStore, logRetentionPolicy, logTimeIndex, 0L, 7, 0L);
+    }
+
+    private List<Log> createLogs(String accountId, int days) {
+        List<Log> logs = new ArrayList<>();
+
+        // Logs start in the middle of each day, so that no log is close to the expiry time of any age
+        for (long day = today - days * DAY; day < today; day += DAY) {
+            for (int i = 0; i < 3; ++i) {
+                logs.add(new Log(accountId, "activity" + i, day + DAY / 2 + i * DURATION - DAY / 4, DURATION));
+            }
+        }
+
+        return logs;
+    }
+
+    private long countOlderThan(List<Log> logs, int days) {
+        return logs.stream().filter(log -> log.getStartTime() < System.currentTimeMillis() - days * DAY).count();
+    }
+
+    private long countYoungerThan(List<Log> logs, int days) {
+        return logs.size() - countOlderThan(logs, days);
+    }
+
+    private void dropCollections() {
+        mongoTemplate.dropCollection(Log.class);
+        mongoTemplate.dropCollection(LogBucket.class);
+        mongoTemplate.dropCollection(EncodedLog.class);
+        mongoTemplate.dropCollection(DictionaryEntry.class);
+        logDictionary.invalidateAll();
+    }
+}
@@ -2,8 +2,16 @@ package com.pdereg.timelogger.service;
 
 import com.pdereg.timelogger.Application;
 import com.pdereg.timelogger.config.CommonConfiguration;
+import com.pdereg.timelogger.domain.DailyRollup;
 import com.pdereg.timelogger.domain.Log;
-import com.pdereg.timelogger.repository.LogRepository;
+import com.pdereg.timelogger.repository.DailyRollupRepository;
+import com.pdereg.timelogger.repository.LogFilter;
+import com.pdereg.timelogger.repository.LogPosition;
+import com.pdereg.timelogger.repository.LogStore;
+import com.pdereg.timelogger.repository.LogSummary;
+import com.pdereg.timelogger.repository.LogTotal;
+import com.pdereg.timelogger.service.error.InvalidTimeRangeException;
+import com.pdereg.timelogger.service.error.LogNotFoundException;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -14,12 +22,19 @@ import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit4.SpringRunner;
 
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static com.pdereg.timelogger.TestUtils.generateDuration;
 import static com.pdereg.timelogger.TestUtils.generateRandomString;
+import static com.pdereg.timelogger.TestUtils.generateStartTime;
 import static org.junit.Assert.*;
 
 @RunWith(SpringRunner.class)
@@ -31,18 +46,30 @@ public class LogServiceIntTest {
     private MongoTemplate mongoTemplate;
 
     @Autowired
-    private LogRepository logRepository;
+    private LogStore logStore;
+
+    @Autowired
+    private DailyRollupRepository dailyRollupRepository;
 
     @Autowired
     private LogService logService;
 
     @Before
-    public void setUp() {
-        mongoTemplate.dropCollection(Log.class);
+    public void setUp() throws Exception {
+        removeAllLogs();
+        mongoTemplate.dropCollection(DailyRollup.class);
     }
 
     @After
-    public void tearDown() {
+    public void tearDown() throws Exception {
+        removeAllLogs();
+        mongoTemplate.dropCollection(DailyRollup.class);
+    }
+
+    /**
+     * Removes all logs from the store in use, which subclasses may lay out differently.
+     */
+    protected void removeAllLogs() throws Exception {
         mongoTemplate.dropCollection(Log.class);
     }
 
@@ -53,7 +80,7 @@ public class LogServiceIntTest {
         long duration = generateDuration();
 
         Log newLog = logService.createLog(accountId, activityId, duration).get();
-        Log fetchedLog = logRepository.findOne(newLog.getId());
+        Log fetchedLog = logStore.findOne(newLog.getId()).orElse(null);
 
         assertNotNull(fetchedLog);
         assertEquals(newLog, fetchedLog);
@@ -74,6 +101,24 @@ public class LogServiceIntTest {
         assertTrue(Math.abs(startTime - expectedStartTime) < 1000L);
     }
 
+    @Test
+    public void createLogs_savesAllLogsInRepository() throws Exception {
+        String accountId = generateRandomString(10);
+        String activityId = generateRandomString(10);
+        long duration = generateDuration();
+        long startTime = generateStartTime(duration);
+
+        List<Log> logs = logService.createLogs(Arrays.asList(
+                new Log(accountId, activityId, startTime, duration),
+                new Log(accountId, activityId, startTime - duration, duration)
+        )).get();
+
+        assertEquals(2, logs.size());
+        assertEquals(startTime, logs.get(0).getStartTime());
+        assertEquals(startTime - duration, logs.get(1).getStartTime());
+        assertEquals(new HashSet<>(logs), new HashSet<>(logStore.findAllByAccountId(accountId)));
+    }
+
     @Test
     public void findAllByAccountId_returnsAllLogsByAccountIdFromRepository() throws Exception {
         String accountId = generateRandomString(10);
@@ -100,6 +145,61 @@ public class LogServiceIntTest {
         assertEquals(fetchedLogs, logs);
     }
 
+    @Test
+    public void streamAllByAccountId_returnsOnlyLogsMatchingFilter() throws Exception {
+        String accountId = generateRandomString(10);
+        String activityId = generateRandomString(10);
+        String otherActivityId = generateRandomString(10);
+        long duration = generateDuration();
+
+        Log log = logService.createLog(accountId, activityId, duration).get();
+        logService.createLog(accountId, otherActivityId, duration).get();
+
+        LogFilter filter = new LogFilter();
+        filter.setFrom(log.getStartTime());
+        filter.setTo(log.getStartTime() + 1);
+        filter.setActivityIds(Collections.singleton(activityId));
+
+        try (Stream<Log> logs = logService.streamAllByAccountId(accountId, filter, null, 10)) {
+            assertEquals(Collections.singletonList(log), logs.collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    public void streamAllByAccountId_returnsLogsSortedByStartTime() throws Exception {
+        String accountId = generateRandomString(10);
+        String activityId = generateRandomString(10);
+        long duration = generateDuration();
+
+        long startTime = generateStartTime(duration);
+        logStore.save(new Log(accountId, activityId, startTime, duration));
+        logStore.save(new Log(accountId, activityId, startTime - duration, duration));
+
+        try (Stream<Log> logs = logService.streamAllByAccountId(accountId, new LogFilter(), null, 10)) {
+            List<Long> startTimes = logs.map(Log::getStartTime).collect(Collectors.toList());
+            assertEquals(Arrays.asList(startTime - duration, startTime), startTimes);
+        }
+    }
+
+    @Test
+    public void streamAllByAccountId_returnsLogsFollowingPosition() throws Exception {
+        String accountId = generateRandomString(10);
+        String activityId = generateRandomString(10);
+        long duration = generateDuration();
+
+        long startTime = generateStartTime(duration);
+        Log log1 = logStore.save(new Log(accountId, activityId, startTime, duration));
+        Log log2 = logStore.save(new Log(accountId, activityId, startTime, duration));
+        Log log3 = logStore.save(new Log(accountId, activityId, startTime + duration, duration));
+
+        try (Stream<Log> logs = logService.streamAllByAccountId(accountId, new LogFilter(), LogPosition.of(log1), 1)) {
+            assertEquals(Collections.singletonList(log2), logs.collect(Collectors.toList()));
+        }
+        try (Stream<Log> logs = logService.streamAllByAccountId(accountId, new LogFilter(), LogPosition.of(log2), 10)) {
+            assertEquals(Collections.singletonList(log3), logs.collect(Collectors.toList()));
+        }
+    }
+
     @Test
     public void findOneById_returnsCorrectLogIfExists() throws Exception {
         String accountId = generateRandomString(10);
@@ -113,6 +213,32 @@ public class LogServiceIntTest {
         assertEquals(log, fetchedLog.get());
     }
 
+    @Test
+    public void findOneById_returnsLogIfAccountAndActivityMatch() throws Exception {
+        String accountId = generateRandomString(10);
+        String activityId = generateRandomString(10);
+        long duration = generateDuration();
+
+        Log log = logService.createLog(accountId, activityId, duration).get();
+        Optional<Log> fetchedLog = logService.findOneById(log.getId(), accountId, activityId).get();
+
+        assertTrue(fetchedLog.isPresent());
+        assertEquals(log, fetchedLog.get());
+    }
+
+    @Test
+    public void findOneById_returnsEmptyIfAccountOrActivityDoesNotMatch() throws Exception {
+        String accountId = generateRandomString(10);
+        String activityId = generateRandomString(10);
+        long duration = generateDuration();
+
+        Log log = logService.createLog(accountId, activityId, duration).get();
+        String otherId = generateRandomString(10);
+
+        assertFalse(logService.findOneById(log.getId(), otherId, activityId).get().isPresent());
+        assertFalse(logService.findOneById(log.getId(), accountId, otherId).get().isPresent());
+    }
+
     @Test
     public void deleteLog_removesLogFromRepository() throws Exception {
         String accountId = generateRandomString(10);
@@ -121,7 +247,7 @@ public class LogServiceIntTest {
         Log log = logService.createLog(accountId, activityId, duration).get();
 
         logService.deleteLog(log.getId()).get();
-        Log fetchedLog = logRepository.findOne(log.getId());
+        Log fetchedLog = logStore.findOne(log.getId()).orElse(null);
 
         assertNull(fetchedLog);
     }
@@ -131,4 +257,164 @@ public class LogServiceIntTest {
         String id = generateRandomString(10);
         logService.deleteLog(id).get();
     }
+
+    @Test
+    public void deleteLog_removesLogIfAccountAndActivityMatch() throws Exception {
+        String accountId = generateRandomString(10);
+        String activityId = generateRandomString(10);
+        long duration = generateDuration();
+        Log log = logService.createLog(accountId, activityId, duration).get();
+
+        logService.deleteLog(log.getId(), accountId, activityId).get();
+        Log fetchedLog = logStore.findOne(log.getId()).orElse(null);
+
+        assertNull(fetchedLog);
+    }
+
+    @Test
+    public void deleteLog_keepsLogIfAccountDoesNotMatch() throws Exception {
+        String accountId = generateRandomString(10);
+        String activityId = generateRandomString(10);
+        long duration = generateDuration();
+        Log log = logService.createLog(accountId, activityId, duration).get();
+
+        try {
+            logService.deleteLog(log.getId(), generateRandomString(10), activityId).get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof LogNotFoundException);
+        }
+
+        assertTrue(logStore.findOne(log.getId()).isPresent());
+    }
+
+    @Test
+    public void streamSummariesByAccountId_summarizesLogsPerActivity() throws Exception {
+        String accountId = generateRandomString(10);
+        long duration = generateDuration();
+        long startTime = generateStartTime(duration);
+
+        logStore.save(Arrays.asList(
+                new Log(accountId, "activity1", startTime, duration),
+                new Log(accountId, "activity1", startTime - 10 * duration, 2 * duration),
+                new Log(accountId, "activity2", startTime - 5 * duration, duration),
+                new Log(generateRandomString(10), "activity1", startTime, duration)
+        ));
+
+        try (Stream<LogSummary> stream = logService.streamSummariesByAccountId(accountId, new LogFilter())) {
+            List<LogSummary> summaries = stream.collect(Collectors.toList());
+
+            assertEquals(2, summaries.size());
+            assertEquals("activity1", summaries.get(0).getActivityId());
+            assertEquals(3 * duration, summaries.get(0).getTotalDuration());
+            assertEquals(2L, summaries.get(0).getLogCount());
+            assertEquals(startTime - 10 * duration, summaries.get(0).getFirstStartTime());
+            assertEquals(startTime, summaries.get(0).getLastStartTime());
+            assertEquals("activity2", summaries.get(1).getActivityId());
+            assertEquals(1L, summaries.get(1).getLogCount());
+        }
+    }
+
+    @Test
+    public void streamSummariesByAccountId_summarizesOnlyLogsInRange() throws Exception {
+        String accountId = generateRandomString(10);
+        long duration = generateDuration();
+        long startTime = generateStartTime(duration);
+
+        logStore.save(Arrays.asList(
+                new Log(accountId, "activity1", startTime, duration),
+                new Log(accountId, "activity1", startTime - 10 * duration, duration)
+        ));
+
+        LogFilter filter = new LogFilter();
+        filter.setFrom(startTime - duration);
+        filter.setTo(startTime + 1);
+
+        try (Stream<LogSummary> stream = logService.streamSummariesByAccountId(accountId, filter)) {
+            List<LogSummary> summaries = stream.collect(Collectors.toList());
+
+            assertEquals(1, summaries.size());
+            assertEquals(1L, summaries.get(0).getLogCount());
+            assertEquals(startTime, summaries.get(0).getFirstStartTime());
+        }
+    }
+
+    @Test
+    public void getTotal_sumsLogsInRange() throws Exception {
+        String accountId = generateRandomString(10);
+        long duration = generateDuration();
+        long startTime = generateStartTime(duration);
+
+        logStore.save(Arrays.asList(
+                new Log(accountId, "activity1", startTime, duration),
+                new Log(accountId, "activity2", startTime - duration, 2 * duration),
+                new Log(accountId, "activity1", startTime - 10 * duration, duration)
+        ));
+
+        assertEquals(new LogTotal(3 * duration, 2L),
+                logService.getTotal(accountId, null, startTime - duration, startTime + 1).get());
+        assertEquals(new LogTotal(duration, 1L),
+                logService.getTotal(accountId, "activity1", startTime - duration, startTime + 1).get());
+    }
+
+    @Test(expected = InvalidTimeRangeException.class)
+    public void getTotal_throwsExceptionIfRangeIsInvalid() {
+        logService.getTotal(generateRandomString(10), null, 1L, 0L);
+    }
+
+    @Test
+    public void createLog_addsLogToDailyRollup() throws Exception {
+        String accountId = generateRandomString(10);
+        String activityId = generateRandomString(10);
+        long duration = generateDuration();
+
+        logService.createLog(accountId, activityId, duration).get();
+        Log log = logService.createLog(accountId, activityId, duration).get();
+
+        DailyRollup rollup = findDailyRollup(log);
+        assertEquals(2 * duration, rollup.getTotalDuration());
+        assertEquals(2L, rollup.getLogCount());
+    }
+
+    @Test
+    public void createLogs_addsLogsToDailyRollups() throws Exception {
+        String accountId = generateRandomString(10);
+        long duration = generateDuration();
+        long startTime = DailyRollup.dayOf(generateStartTime(duration));
+        Log first = new Log(accountId, "activity1", startTime, duration);
+        Log second = new Log(accountId, "activity1", startTime + duration, duration);
+        Log third = new Log(accountId, "activity2", startTime - DailyRollup.MILLIS_IN_A_DAY, duration);
+
+        logService.createLogs(Arrays.asList(first, second, third)).get();
+
+        assertEquals(2L, findDailyRollup(first).getLogCount());
+        assertEquals(2 * duration, findDailyRollup(first).getTotalDuration());
+        assertEquals(1L, findDailyRollup(third).getLogCount());
+        assertEquals(2L, dailyRollupRepository.count());
+    }
+
+    @Test
+    public void deleteLog_removesLogFromDailyRollup() throws Exception {
+        String accountId = generateRandomString(10);
+        String activityId = generateRandomString(10);
+        long duration = generateDuration();
+        logService.createLog(accountId, activityId, duration).get();
+        Log log = logService.createLog(accountId, activityId, duration).get();
+
+        logService.deleteLog(log.getId(), accountId, activityId).get();
+
+        DailyRollup rollup = findDailyRollup(log);
+        assertEquals(duration, rollup.getTotalDuration());
+        assertEquals(1L, rollup.getLogCount());
+    }
+
+    private DailyRollup findDailyRollup(Log log) {
+        long day = DailyRollup.dayOf(log.getStartTime());
+        List<DailyRollup> rollups = dailyRollupRepository.findAllByAccountId(
+                log.getAccountId(), day, day + 1, log.getActivityId()
+        );
+
+        assertEquals(1, rollups.size());
+        return rollups.get(0);
+    }
 }
@@ -0,0 +1,34 @@
+package com.pdereg.timelogger.service;
+
+import com.pdereg.timelogger.repository.LogStoreRegistry;
+import com.pdereg.timelogger.repository.MappedLogStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.File;
+
+/**
+ * Runs {@link LogServiceIntTest} against logs stored in the mapped layout.
+ */
+@TestPropertySource(properties = {
+        LogStoreRegistry.LAYOUT_PROPERTY + "=mapped",
+        "time-logger.log-storage.mapped.directory=" + LogServiceMappedLayoutIntTest.DIRECTORY,
+        "time-logger.log-storage.mapped.shards=4"
+})
+public class LogServiceMappedLayoutIntTest extends LogServiceIntTest {
+
+    static final String DIRECTORY = "build/log-service-mapped-layout-test";
+
+    @Autowired
+    private MappedLogStore mappedLogStore;
+
+    @Override
+    protected void removeAllLogs() throws Exception {
+        super.removeAllLogs();
+
+        mappedLogStore.close();
+        FileSystemUtils.deleteRecursively(new File(DIRECTORY));
+        mappedLogStore.open();
+    }
+}
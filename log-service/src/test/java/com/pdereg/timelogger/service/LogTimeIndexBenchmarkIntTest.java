@@ -0,0 +1,132 @@
+package com.pdereg.timelogger.service;
+
+import com.pdereg.timelogger.Application;
+import com.pdereg.timelogger.config.CommonConfiguration;
+import com.pdereg.timelogger.domain.Log;
+import com.pdereg.timelogger.repository.LogStore;
+import com.pdereg.timelogger.repository.LogTotal;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static com.pdereg.timelogger.TestUtils.generateDuration;
+import static com.pdereg.timelogger.TestUtils.generateStartTime;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares latency of computing totals of many overlapping time ranges with the database aggregation against
+ * {@link LogTimeIndex}.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = Application.class)
+@TestPropertySource(properties = {CommonConfiguration.SECRET_ENV_KEY + "=test1234"})
+public class LogTimeIndexBenchmarkIntTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(LogTimeIndexBenchmarkIntTest.class);
+
+    private static final String ACCOUNT_ID = "user";
+    private static final int LOG_COUNT = 10_000;
+    private static final int ACTIVITY_COUNT = 10;
+    private static final int RANGE_COUNT = 100;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private LogStore logStore;
+
+    @Autowired
+    private LogService logService;
+
+    private final Random random = new Random();
+
+    private LogTimeIndex logTimeIndex;
+    private long firstStartTime;
+    private long lastStartTime;
+
+    @Before
+    public void setUp() {
+        mongoTemplate.dropCollection(Log.class);
+        insertLogs();
+
+        logTimeIndex = new LogTimeIndex(logStore, true, LOG_COUNT);
+    }
+
+    @After
+    public void tearDown() {
+        mongoTemplate.dropCollection(Log.class);
+    }
+
+    @Test
+    public void getTotal_isFasterWithIndexThanWithAggregation() throws Exception {
+        List<long[]> ranges = createRanges();
+
+        // The first lookup loads the account, which is measured separately
+        long loadStart = System.nanoTime();
+        logTimeIndex.getTotal(ACCOUNT_ID, null, firstStartTime, firstStartTime);
+        double loadMillis = toMillis(System.nanoTime() - loadStart);
+
+        long aggregationStart = System.nanoTime();
+        List<LogTotal> aggregatedTotals = new ArrayList<>(RANGE_COUNT);
+        for (long[] range : ranges) {
+            aggregatedTotals.add(logService.getTotal(ACCOUNT_ID, null, range[0], range[1]).get());
+        }
+        double aggregationMillis = toMillis(System.nanoTime() - aggregationStart) / RANGE_COUNT;
+
+        long indexStart = System.nanoTime();
+        List<LogTotal> indexedTotals = new ArrayList<>(RANGE_COUNT);
+        for (long[] range : ranges) {
+            indexedTotals.add(logTimeIndex.getTotal(ACCOUNT_ID, null, range[0], range[1]));
+        }
+        double indexMillis = toMillis(System.nanoTime() - indexStart) / RANGE_COUNT;
+
+        logger.info("Range totals over {} logs: aggregation {} ms, index {} ms (after loading in {} ms)", LOG_COUNT,
+                aggregationMillis, indexMillis, loadMillis);
+        assertEquals(aggregatedTotals, indexedTotals);
+        assertTrue(indexMillis < aggregationMillis);
+    }
+
+    private List<long[]> createRanges() {
+        List<long[]> ranges = new ArrayList<>(RANGE_COUNT);
+        long span = lastStartTime - firstStartTime + 1;
+
+        for (int i = 0; i < RANGE_COUNT; ++i) {
+            long from = firstStartTime + (long) (random.nextDouble() * span);
+            long to = from + (long) (random.nextDouble() * (lastStartTime + 1 - from));
+            ranges.add(new long[]{from, to});
+        }
+
+        return ranges;
+    }
+
+    private void insertLogs() {
+        long duration = generateDuration();
+        lastStartTime = generateStartTime(duration);
+        firstStartTime = lastStartTime - (LOG_COUNT - 1) * duration;
+        List<Log> logs = new ArrayList<>(LOG_COUNT);
+
+        for (int i = 0; i < LOG_COUNT; ++i) {
+            logs.add(new Log(ACCOUNT_ID, "activity" + i % ACTIVITY_COUNT, lastStartTime - i * duration, duration));
+        }
+
+        mongoTemplate.insert(logs, Log.class);
+    }
+
+    private static double toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos) / 1000.0;
+    }
+}
@@ -0,0 +1,171 @@
+package com.pdereg.timelogger.service;
+
+import com.pdereg.timelogger.domain.Log;
+import com.pdereg.timelogger.repository.LogFilter;
+import com.pdereg.timelogger.repository.LogPosition;
+import com.pdereg.timelogger.repository.LogStore;
+import com.pdereg.timelogger.repository.LogTotal;
+import org.bson.types.ObjectId;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class LogTimeIndexTest {
+
+    private static final String ACCOUNT_ID = "user";
+    private static final long DURATION = Log.MIN_DURATION;
+    private static final long START_TIME = 1000L * 60 * 60 * 24 * 1000;
+
+    private LogStore logStore;
+    private List<Log> logs;
+    private LogTimeIndex logTimeIndex;
+
+    @Before
+    public void setUp() {
+        logStore = mock(LogStore.class);
+        logs = new ArrayList<>();
+        logTimeIndex = new LogTimeIndex(logStore, true, 1000L);
+
+        when(logStore.streamAllByAccountId(anyString(), any(LogFilter.class), any(LogPosition.class), anyInt()))
+                .thenAnswer(invocation -> logs.stream()
+                        .filter(log -> log.getAccountId().equals(invocation.getArguments()[0]))
+                        .sorted(Comparator.comparingLong(Log::getStartTime)));
+    }
+
+    @Test
+    public void getTotal_sumsLogsInRange() {
+        for (int i = 0; i < 10; ++i) {
+            logs.add(createLog(ACCOUNT_ID, "activity", START_TIME + i * DURATION));
+        }
+
+        assertEquals(new LogTotal(10 * DURATION, 10L), getTotal(null, START_TIME, START_TIME + 10 * DURATION));
+        assertEquals(new LogTotal(3 * DURATION, 3L), getTotal(null, START_TIME + 2 * DURATION,
+                START_TIME + 5 * DURATION));
+        assertEquals(new LogTotal(0L, 0L), getTotal(null, START_TIME + 20 * DURATION, START_TIME + 30 * DURATION));
+    }
+
+    @Test
+    public void getTotal_filtersByActivity() {
+        logs.add(createLog(ACCOUNT_ID, "activity1", START_TIME));
+        logs.add(createLog(ACCOUNT_ID, "activity2", START_TIME + DURATION));
+        logs.add(createLog(ACCOUNT_ID, "activity2", START_TIME + 2 * DURATION));
+
+        assertEquals(new LogTotal(DURATION, 1L), getTotal("activity1", START_TIME, START_TIME + 10 * DURATION));
+        assertEquals(new LogTotal(2 * DURATION, 2L), getTotal("activity2", START_TIME, START_TIME + 10 * DURATION));
+        assertEquals(new LogTotal(0L, 0L), getTotal("activity3", START_TIME, START_TIME + 10 * DURATION));
+    }
+
+    @Test
+    public void add_updatesLoadedAccount() {
+        logs.add(createLog(ACCOUNT_ID, "activity", START_TIME + 2 * DURATION));
+        getTotal(null, START_TIME, START_TIME);
+
+        logTimeIndex.add(createLog(ACCOUNT_ID, "activity", START_TIME));
+        logTimeIndex.add(createLog(ACCOUNT_ID, "activity", START_TIME + 5 * DURATION));
+
+        assertEquals(new LogTotal(3 * DURATION, 3L), getTotal(null, START_TIME, START_TIME + 10 * DURATION));
+        assertEquals(new LogTotal(DURATION, 1L), getTotal(null, START_TIME + DURATION, START_TIME + 3 * DURATION));
+        assertEquals(3L, logTimeIndex.getEntryCount());
+    }
+
+    @Test
+    public void add_ignoresLogThatIsAlreadyIndexed() {
+        Log log = createLog(ACCOUNT_ID, "activity", START_TIME);
+        logs.add(log);
+        getTotal(null, START_TIME, START_TIME);
+
+        logTimeIndex.add(log);
+
+        assertEquals(new LogTotal(DURATION, 1L), getTotal(null, START_TIME, START_TIME + DURATION));
+    }
+
+    @Test
+    public void add_ignoresAccountThatIsNotLoaded() {
+        logTimeIndex.add(createLog(ACCOUNT_ID, "activity", START_TIME));
+
+        assertEquals(0, logTimeIndex.getAccountCount());
+    }
+
+    @Test
+    public void remove_updatesLoadedAccount() {
+        Log first = createLog(ACCOUNT_ID, "activity", START_TIME);
+        Log second = createLog(ACCOUNT_ID, "activity", START_TIME);
+        Log third = createLog(ACCOUNT_ID, "activity", START_TIME + DURATION);
+        logs.add(first);
+        logs.add(second);
+        logs.add(third);
+        getTotal(null, START_TIME, START_TIME);
+
+        logTimeIndex.remove(second);
+        logTimeIndex.remove(second);
+
+        assertEquals(new LogTotal(2 * DURATION, 2L), getTotal(null, START_TIME, START_TIME + 2 * DURATION));
+        assertEquals(new LogTotal(DURATION, 1L), getTotal(null, START_TIME + DURATION, START_TIME + 2 * DURATION));
+    }
+
+    @Test
+    public void getTotal_loadsAccountOnlyOnce() {
+        logs.add(createLog(ACCOUNT_ID, "activity", START_TIME));
+
+        getTotal(null, START_TIME, START_TIME + DURATION);
+        getTotal(null, START_TIME, START_TIME + DURATION);
+
+        assertEquals(1L, logTimeIndex.getLoadCount());
+    }
+
+    @Test
+    public void getTotal_evictsLeastRecentlyUsedAccountsWhenFull() {
+        logTimeIndex = new LogTimeIndex(logStore, true, 10L);
+
+        for (int i = 0; i < 8; ++i) {
+            logs.add(createLog("account1", "activity", START_TIME + i * DURATION));
+            logs.add(createLog("account2", "activity", START_TIME + i * DURATION));
+        }
+
+        logTimeIndex.getTotal("account1", null, START_TIME, START_TIME);
+        logTimeIndex.getTotal("account2", null, START_TIME, START_TIME);
+
+        assertEquals(1, logTimeIndex.getAccountCount());
+        assertEquals(1L, logTimeIndex.getEvictionCount());
+        assertEquals(8L, logTimeIndex.getEntryCount());
+        assertEquals(new LogTotal(8 * DURATION, 8L),
+                logTimeIndex.getTotal("account2", null, START_TIME, START_TIME + 8 * DURATION));
+        assertEquals(2L, logTimeIndex.getLoadCount());
+    }
+
+    @Test
+    public void invalidate_removesOnlyProvidedAccount() {
+        for (int i = 0; i < 3; ++i) {
+            logs.add(createLog("account1", "activity", START_TIME + i * DURATION));
+            logs.add(createLog("account2", "activity", START_TIME + i * DURATION));
+        }
+        logTimeIndex.getTotal("account1", null, START_TIME, START_TIME);
+        logTimeIndex.getTotal("account2", null, START_TIME, START_TIME);
+
+        logTimeIndex.invalidate("account1");
+
+        assertEquals(1, logTimeIndex.getAccountCount());
+        assertEquals(3L, logTimeIndex.getEntryCount());
+        assertEquals(new LogTotal(3 * DURATION, 3L),
+                logTimeIndex.getTotal("account1", null, START_TIME, START_TIME + 3 * DURATION));
+        assertEquals(3L, logTimeIndex.getLoadCount());
+    }
+
+    private LogTotal getTotal(String activityId, long from, long to) {
+        return logTimeIndex.getTotal(ACCOUNT_ID, activityId, from, to);
+    }
+
+    private static Log createLog(String accountId, String activityId, long startTime) {
+        return new Log(new ObjectId().toHexString(), accountId, activityId, startTime, DURATION);
+    }
+}
@@ -0,0 +1,225 @@
+package com.pdereg.timelogger.service;
+
+import com.pdereg.timelogger.Application;
+import com.pdereg.timelogger.concurrent.BulkheadFullException;
+import com.pdereg.timelogger.config.CommonConfiguration;
+import com.pdereg.timelogger.domain.Log;
+import com.pdereg.timelogger.repository.LogRepository;
+import com.pdereg.timelogger.repository.LogStore;
+import org.bson.types.ObjectId;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.pdereg.timelogger.TestUtils.generateDuration;
+import static com.pdereg.timelogger.TestUtils.generateRandomString;
+import static com.pdereg.timelogger.TestUtils.generateStartTime;
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = Application.class)
+@TestPropertySource(properties = {CommonConfiguration.SECRET_ENV_KEY + "=test1234"})
+public class LogWriteBufferIntTest {
+
+    private static final long LONG_FLUSH_INTERVAL = 60 * 1000L;
+    private static final int LARGE_BATCH_SIZE = 1000;
+    private static final int QUEUE_CAPACITY = 100;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private LogRepository logRepository;
+
+    @Autowired
+    private LogStore logStore;
+
+    private LogWriteBuffer logWriteBuffer;
+
+    @Before
+    public void setUp() {
+        mongoTemplate.dropCollection(Log.class);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (logWriteBuffer != null) {
+            logWriteBuffer.destroy();
+        }
+
+        mongoTemplate.dropCollection(Log.class);
+    }
+
+    @Test
+    public void submit_flushesOnceBatchIsFull() throws Exception {
+        logWriteBuffer = startBuffer(LONG_FLUSH_INTERVAL, 10, null);
+
+        List<Log> logs = submitAll(10);
+
+        assertEquals(10, logRepository.count());
+        assertEquals(1L, logWriteBuffer.getBatchCount());
+        for (Log log : logs) {
+            assertNotNull(logRepository.findOne(log.getId()));
+        }
+    }
+
+    @Test
+    public void submit_flushesOnceIntervalPasses() throws Exception {
+        logWriteBuffer = startBuffer(50L, LARGE_BATCH_SIZE, null);
+
+        submitAll(3);
+
+        assertEquals(3, logRepository.count());
+        assertEquals(1L, logWriteBuffer.getBatchCount());
+        assertEquals(3L, logWriteBuffer.getLogCount());
+    }
+
+    @Test
+    public void submit_savesJournaledLogs() throws Exception {
+        Path journalPath = temporaryFolder.newFile().toPath();
+        logWriteBuffer = startBuffer(10L, LARGE_BATCH_SIZE, journalPath);
+
+        List<Log> logs = submitAll(5);
+        logWriteBuffer.destroy();
+
+        for (Log log : logs) {
+            assertNotNull(logRepository.findOne(log.getId()));
+        }
+    }
+
+    @Test
+    public void afterPropertiesSet_replaysJournal() throws Exception {
+        Path journalPath = temporaryFolder.newFile().toPath();
+        List<Log> journaledLogs = Arrays.asList(createLog(new ObjectId().toHexString()),
+                createLog(new ObjectId().toHexString()));
+
+        try (LogJournal journal = new LogJournal(journalPath)) {
+            journal.append(journaledLogs);
+        }
+        logWriteBuffer = startBuffer(10L, LARGE_BATCH_SIZE, journalPath);
+
+        assertEquals(2, logRepository.count());
+        for (Log log : journaledLogs) {
+            assertEquals(log, logRepository.findOne(log.getId()));
+        }
+    }
+
+    @Test
+    public void setSavedLogsListener_passesReplayedLogsNotMarkedAsApplied() throws Exception {
+        Path journalPath = temporaryFolder.newFile().toPath();
+        Log appliedLog = logStore.save(createLog(new ObjectId().toHexString()));
+        Log savedLog = logStore.save(createLog(new ObjectId().toHexString()));
+        Log unsavedLog = createLog(new ObjectId().toHexString());
+
+        try (LogJournal journal = new LogJournal(journalPath)) {
+            journal.append(Collections.singletonList(appliedLog));
+            journal.append(Arrays.asList(savedLog, unsavedLog));
+            journal.markApplied(Collections.singletonList(appliedLog));
+        }
+        logWriteBuffer = startBuffer(10L, LARGE_BATCH_SIZE, journalPath);
+
+        List<Log> passedLogs = new ArrayList<>();
+        logWriteBuffer.setSavedLogsListener(passedLogs::addAll);
+
+        assertEquals(Arrays.asList(savedLog, unsavedLog), passedLogs);
+        assertEquals(unsavedLog, logRepository.findOne(unsavedLog.getId()));
+        try (LogJournal journal = new LogJournal(journalPath)) {
+            assertTrue(journal.readAll().isEmpty());
+        }
+    }
+
+    @Test
+    public void afterPropertiesSet_keepsReplayedLogsInJournalUntilApplied() throws Exception {
+        Path journalPath = temporaryFolder.newFile().toPath();
+        List<Log> journaledLogs = Collections.singletonList(createLog(new ObjectId().toHexString()));
+
+        try (LogJournal journal = new LogJournal(journalPath)) {
+            journal.append(journaledLogs);
+        }
+        logWriteBuffer = startBuffer(10L, LARGE_BATCH_SIZE, journalPath);
+
+        try (LogJournal journal = new LogJournal(journalPath)) {
+            assertEquals(journaledLogs, journal.readAll());
+        }
+    }
+
+    @Test
+    public void submit_passesSavedLogsToListener() throws Exception {
+        logWriteBuffer = startBuffer(LONG_FLUSH_INTERVAL, 3, null);
+        List<Log> passedLogs = Collections.synchronizedList(new ArrayList<>());
+        logWriteBuffer.setSavedLogsListener(passedLogs::addAll);
+
+        List<Log> logs = submitAll(3);
+
+        assertEquals(logs, passedLogs);
+    }
+
+    @Test
+    public void destroy_flushesQueuedLogs() throws Exception {
+        logWriteBuffer = startBuffer(LONG_FLUSH_INTERVAL, LARGE_BATCH_SIZE, null);
+
+        CompletableFuture<Log> result = logWriteBuffer.submit(createLog(null));
+        logWriteBuffer.destroy();
+
+        Log log = result.get(1, TimeUnit.SECONDS);
+        assertNotNull(logRepository.findOne(log.getId()));
+    }
+
+    @Test(expected = BulkheadFullException.class)
+    public void submit_throwsExceptionIfBufferIsNotRunning() {
+        logWriteBuffer = new LogWriteBuffer(logStore, false, 10L, LARGE_BATCH_SIZE, QUEUE_CAPACITY, null);
+
+        logWriteBuffer.submit(createLog(null));
+    }
+
+    private LogWriteBuffer startBuffer(long flushInterval, int batchSize, Path journalPath) throws Exception {
+        LogWriteBuffer buffer = new LogWriteBuffer(
+                logStore, true, flushInterval, batchSize, QUEUE_CAPACITY, journalPath
+        );
+        buffer.afterPropertiesSet();
+
+        return buffer;
+    }
+
+    private List<Log> submitAll(int count) throws Exception {
+        List<CompletableFuture<Log>> results = new ArrayList<>(count);
+        for (int i = 0; i < count; ++i) {
+            results.add(logWriteBuffer.submit(createLog(null)));
+        }
+
+        List<Log> logs = new ArrayList<>(count);
+        for (CompletableFuture<Log> result : results) {
+            Log log = result.get(5, TimeUnit.SECONDS);
+            assertNotNull(log.getId());
+            logs.add(log);
+        }
+
+        return logs;
+    }
+
+    private static Log createLog(String id) {
+        long duration = generateDuration();
+        long startTime = generateStartTime(duration);
+
+        return new Log(id, generateRandomString(10), generateRandomString(10), startTime, duration);
+    }
+}
@@ -0,0 +1,126 @@
+package com.pdereg.timelogger.web.rest;
+
+import com.pdereg.timelogger.config.CommonConfiguration;
+import com.pdereg.timelogger.domain.DailyRollup;
+import com.pdereg.timelogger.repository.DailyRollupRepository;
+import com.pdereg.timelogger.security.Authorities;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import static com.pdereg.timelogger.TestUtils.generateDuration;
+import static com.pdereg.timelogger.TestUtils.generateStartTime;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@WebAppConfiguration
+@SpringBootTest
+@TestPropertySource(properties = {CommonConfiguration.SECRET_ENV_KEY + "=test1234"})
+public class DailyRollupResourceIntTest {
+
+    private static final String ACCOUNT_ID = "user";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private DailyRollupRepository dailyRollupRepository;
+
+    private MockMvc dailyRollupRestMockMvc;
+    private long today;
+
+    @Before
+    public void setUp() {
+        mongoTemplate.dropCollection(DailyRollup.class);
+        today = DailyRollup.dayOf(generateStartTime(generateDuration()));
+
+        this.dailyRollupRestMockMvc = MockMvcBuilders
+                .webAppContextSetup(webApplicationContext)
+                .apply(springSecurity())
+                .build();
+    }
+
+    @After
+    public void tearDown() {
+        mongoTemplate.dropCollection(DailyRollup.class);
+    }
+
+    @Test
+    @WithMockUser(username = ACCOUNT_ID, authorities = Authorities.USER)
+    public void findAllByAccountId_returnsRollupsOfDaysInRange() throws Exception {
+        dailyRollupRepository.increment(ACCOUNT_ID, "activity", today - DailyRollup.MILLIS_IN_A_DAY, 1000L, 1L);
+        dailyRollupRepository.increment(ACCOUNT_ID, "activity", today, 2000L, 2L);
+
+        MvcResult result = dailyRollupRestMockMvc.perform(
+                get("/api/rollups/" + ACCOUNT_ID)
+                        .param("from", String.valueOf(today))
+                        .param("to", String.valueOf(today + DailyRollup.MILLIS_IN_A_DAY))
+                        .accept(MediaType.APPLICATION_JSON))
+                .andReturn();
+
+        dailyRollupRestMockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].day").value(today))
+                .andExpect(jsonPath("$[0].totalDuration").value(2000))
+                .andExpect(jsonPath("$[0].logCount").value(2));
+    }
+
+    @Test
+    @WithMockUser(username = ACCOUNT_ID, authorities = Authorities.USER)
+    public void findAllByAccountId_returnsBadRequestIfRangeIsInvalid() throws Exception {
+        dailyRollupRestMockMvc.perform(
+                get("/api/rollups/" + ACCOUNT_ID)
+                        .param("from", String.valueOf(today + 1))
+                        .param("to", String.valueOf(today))
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser(username = "other", authorities = Authorities.USER)
+    public void findAllByAccountId_returnsForbiddenIfNotOwner() throws Exception {
+        dailyRollupRestMockMvc.perform(
+                get("/api/rollups/" + ACCOUNT_ID)
+                        .param("from", String.valueOf(today))
+                        .param("to", String.valueOf(today))
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    @WithMockUser(username = ACCOUNT_ID, authorities = Authorities.USER)
+    public void rebuildAll_returnsForbiddenIfNotAdmin() throws Exception {
+        dailyRollupRestMockMvc.perform(post("/api/rollups/rebuild"))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    @WithMockUser(username = ACCOUNT_ID, authorities = {Authorities.USER, Authorities.ADMIN})
+    public void rebuildAll_returnsAcceptedIfAdmin() throws Exception {
+        dailyRollupRestMockMvc.perform(post("/api/rollups/rebuild"))
+                .andExpect(status().isAccepted());
+    }
+}
@@ -0,0 +1,56 @@
+package com.pdereg.timelogger.web.rest;
+
+import com.pdereg.timelogger.config.CommonConfiguration;
+import com.pdereg.timelogger.security.Authorities;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@WebAppConfiguration
+@SpringBootTest
+@TestPropertySource(properties = {CommonConfiguration.SECRET_ENV_KEY + "=test1234"})
+public class LogArchiveResourceIntTest {
+
+    private static final String ACCOUNT_ID = "user";
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    private MockMvc logArchiveRestMockMvc;
+
+    @Before
+    public void setUp() {
+        this.logArchiveRestMockMvc = MockMvcBuilders
+                .webAppContextSetup(webApplicationContext)
+                .apply(springSecurity())
+                .build();
+    }
+
+    @Test
+    @WithMockUser(username = ACCOUNT_ID, authorities = Authorities.USER)
+    public void archive_returnsForbiddenIfNotAdmin() throws Exception {
+        logArchiveRestMockMvc.perform(post("/api/log-archive/run"))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    @WithMockUser(username = ACCOUNT_ID, authorities = {Authorities.USER, Authorities.ADMIN})
+    public void archive_returnsConflictIfArchiveIsNotConfigured() throws Exception {
+        logArchiveRestMockMvc.perform(post("/api/log-archive/run"))
+                .andExpect(status().isConflict());
+    }
+}
@@ -0,0 +1,153 @@
+package com.pdereg.timelogger.web.rest;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.pdereg.timelogger.config.CommonConfiguration;
+import com.pdereg.timelogger.domain.Log;
+import com.pdereg.timelogger.network.model.Activity;
+import com.pdereg.timelogger.security.Authorities;
+import com.pdereg.timelogger.service.ActivityCache;
+import com.pdereg.timelogger.web.web.rest.model.CreateLogRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.Arrays;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static com.pdereg.timelogger.TestUtils.*;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+/**
+ * Measures the effect of {@link ActivityCache} on {@code createLog} latency with a slow activity-service.
+ */
+@RunWith(SpringRunner.class)
+@WebAppConfiguration
+@SpringBootTest
+@TestPropertySource(properties = {CommonConfiguration.SECRET_ENV_KEY + "=test1234"})
+public class LogCreationLatencyIntTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(LogCreationLatencyIntTest.class);
+
+    private static final String ACCOUNT_ID = "user";
+    private static final int ACTIVITY_SERVICE_DELAY = 200;
+    private static final int REQUEST_COUNT = 50;
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(wireMockConfig().bindAddress("localhost").port(8083));
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private ActivityCache activityCache;
+
+    private MockMvc logRestMockMvc;
+    private String activityId;
+
+    @Before
+    public void setUp() {
+        mongoTemplate.dropCollection(Log.class);
+        activityCache.invalidateAll();
+
+        logRestMockMvc = MockMvcBuilders
+                .webAppContextSetup(webApplicationContext)
+                .apply(springSecurity())
+                .build();
+
+        activityId = generateRandomString(10);
+        mockSlowActivityService();
+    }
+
+    @After
+    public void tearDown() {
+        mongoTemplate.dropCollection(Log.class);
+        activityCache.invalidateAll();
+    }
+
+    @Test
+    @WithMockUser(username = ACCOUNT_ID, authorities = Authorities.USER)
+    public void createLog_p99LatencyDropsBelowActivityServiceDelayWithCache() throws Exception {
+        long uncachedP99 = measureP99Millis(true);
+
+        // Primes the cache, so that measured requests do not include the first miss
+        createLog();
+        long cachedP99 = measureP99Millis(false);
+
+        logger.info("createLog p99 with {} ms activity-service delay: uncached {} ms, cached {} ms",
+                ACTIVITY_SERVICE_DELAY, uncachedP99, cachedP99);
+
+        assertTrue(uncachedP99 >= ACTIVITY_SERVICE_DELAY);
+        assertTrue(cachedP99 < ACTIVITY_SERVICE_DELAY);
+    }
+
+    private long measureP99Millis(boolean invalidateCache) throws Exception {
+        long[] latencies = new long[REQUEST_COUNT];
+
+        for (int i = 0; i < REQUEST_COUNT; ++i) {
+            if (invalidateCache) {
+                activityCache.invalidateAll();
+            }
+
+            long start = System.nanoTime();
+            createLog();
+            latencies[i] = (System.nanoTime() - start) / 1_000_000;
+        }
+
+        Arrays.sort(latencies);
+        return latencies[(int) Math.ceil(REQUEST_COUNT * 0.99) - 1];
+    }
+
+    private void createLog() throws Exception {
+        CreateLogRequest createLogRequest = new CreateLogRequest();
+        createLogRequest.setActivityName(activityId);
+        createLogRequest.setDuration(generateDuration());
+
+        MvcResult result = logRestMockMvc.perform(
+                post("/api/logs")
+                        .header("Authorization", generateRandomAuthHeader())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(toJson(createLogRequest)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Fails the measurement if the log was not created
+        assertTrue(result.getAsyncResult() instanceof ResponseEntity);
+    }
+
+    private void mockSlowActivityService() {
+        Activity activity = new Activity();
+        activity.setAccountId(ACCOUNT_ID);
+        activity.setName(activityId);
+
+        stubFor(get(urlEqualTo("/api/activities/" + ACCOUNT_ID + "/" + activityId))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withFixedDelay(ACTIVITY_SERVICE_DELAY)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(toJson(activity))));
+    }
+}
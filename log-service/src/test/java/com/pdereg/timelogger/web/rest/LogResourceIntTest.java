@@ -1,12 +1,20 @@
 package com.pdereg.timelogger.web.rest;
 
 import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.jayway.jsonpath.JsonPath;
 import com.pdereg.timelogger.config.CommonConfiguration;
 import com.pdereg.timelogger.domain.Log;
+import com.pdereg.timelogger.idempotency.IdempotencyAspect;
+import com.pdereg.timelogger.idempotency.IdempotencyStore;
+import com.pdereg.timelogger.idempotency.IdempotentResponse;
 import com.pdereg.timelogger.network.model.Activity;
+import com.pdereg.timelogger.repository.LogStore;
 import com.pdereg.timelogger.security.Authorities;
+import com.pdereg.timelogger.service.ActivityCache;
 import com.pdereg.timelogger.service.ActivityService;
 import com.pdereg.timelogger.service.LogService;
+import com.pdereg.timelogger.web.web.rest.model.BatchLogEntry;
+import com.pdereg.timelogger.web.web.rest.model.CreateLogBatchRequest;
 import com.pdereg.timelogger.web.web.rest.model.CreateLogRequest;
 import org.junit.After;
 import org.junit.Before;
@@ -24,14 +32,19 @@ import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 
+import java.util.Arrays;
+import java.util.List;
+
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
 import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
 import static com.pdereg.timelogger.TestUtils.*;
 import static org.hamcrest.Matchers.*;
 import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertEquals;
 import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
@@ -50,25 +63,45 @@ public class LogResourceIntTest {
     @Autowired
     private MongoTemplate mongoTemplate;
 
+    @Autowired
+    private LogStore logStore;
+
     @Autowired
     private WebApplicationContext webApplicationContext;
 
+    @Autowired
+    private ActivityCache activityCache;
+
     @Autowired
     private ActivityService activityService;
 
     @Autowired
     private LogService logService;
 
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+
     private MockMvc logRestMockMvc;
 
     @Before
-    public void setUp() {
-        mongoTemplate.dropCollection(Log.class);
+    public void setUp() throws Exception {
+        removeAllLogs();
+        mongoTemplate.dropCollection(IdempotentResponse.class);
+        activityCache.invalidateAll();
+        idempotencyStore.invalidateAll();
         initializeMockMvc();
     }
 
     @After
-    public void tearDown() {
+    public void tearDown() throws Exception {
+        removeAllLogs();
+        mongoTemplate.dropCollection(IdempotentResponse.class);
+    }
+
+    /**
+     * Removes all logs from the store in use, which subclasses may lay out differently.
+     */
+    protected void removeAllLogs() throws Exception {
         mongoTemplate.dropCollection(Log.class);
     }
 
@@ -129,6 +162,162 @@ public class LogResourceIntTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    @WithMockUser(username = "user", authorities = Authorities.USER)
+    public void createLog_replaysResponseForRepeatedIdempotencyKey() throws Exception {
+        String activityId = generateRandomString(10);
+        byte[] requestBody = createLogRequest(activityId, generateDuration());
+        String idempotencyKey = generateRandomString(20);
+
+        mockActivityService("user", activityId, 200);
+
+        MvcResult firstResult = logRestMockMvc.perform(createLogWithIdempotencyKey(requestBody, idempotencyKey))
+                .andReturn();
+        MvcResult firstResponse = logRestMockMvc.perform(asyncDispatch(firstResult))
+                .andExpect(status().isCreated())
+                .andExpect(header().doesNotExist(IdempotencyAspect.REPLAYED_HEADER))
+                .andReturn();
+
+        idempotencyStore.invalidateAll();
+
+        MvcResult secondResult = logRestMockMvc.perform(createLogWithIdempotencyKey(requestBody, idempotencyKey))
+                .andReturn();
+        logRestMockMvc.perform(asyncDispatch(secondResult))
+                .andExpect(status().isCreated())
+                .andExpect(header().string(IdempotencyAspect.REPLAYED_HEADER, "true"))
+                .andExpect(header().string(HttpHeaders.LOCATION,
+                        firstResponse.getResponse().getHeader(HttpHeaders.LOCATION)))
+                .andExpect(jsonPath("$.id").value(getId(firstResponse)));
+
+        MvcResult thirdResult = logRestMockMvc.perform(createLogWithIdempotencyKey(requestBody, idempotencyKey))
+                .andReturn();
+        logRestMockMvc.perform(asyncDispatch(thirdResult))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.id").value(getId(firstResponse)));
+
+        assertEquals(1, logStore.findAllByAccountId("user").size());
+    }
+
+    @Test
+    @WithMockUser(username = "user", authorities = Authorities.USER)
+    public void createLog_createsLogForEveryIdempotencyKey() throws Exception {
+        String activityId = generateRandomString(10);
+        byte[] requestBody = createLogRequest(activityId, generateDuration());
+
+        mockActivityService("user", activityId, 200);
+
+        for (int i = 0; i < 2; ++i) {
+            String idempotencyKey = generateRandomString(20);
+            MvcResult result = logRestMockMvc.perform(createLogWithIdempotencyKey(requestBody, idempotencyKey))
+                    .andReturn();
+            logRestMockMvc.perform(asyncDispatch(result)).andExpect(status().isCreated());
+        }
+
+        assertEquals(2, logStore.findAllByAccountId("user").size());
+    }
+
+    @Test
+    @WithMockUser(username = "user", authorities = Authorities.USER)
+    public void createLog_waitsForRequestInProgressWithSameIdempotencyKey() throws Exception {
+        String activityId = generateRandomString(10);
+        byte[] requestBody = createLogRequest(activityId, generateDuration());
+        String idempotencyKey = generateRandomString(20);
+
+        stubFor(com.github.tomakehurst.wiremock.client.WireMock.get(urlMatching("/api/activities/.*"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(toJson(createActivity("user", activityId)))
+                        .withFixedDelay(500)));
+
+        MvcResult firstResult = logRestMockMvc.perform(createLogWithIdempotencyKey(requestBody, idempotencyKey))
+                .andReturn();
+        MvcResult secondResult = logRestMockMvc.perform(createLogWithIdempotencyKey(requestBody, idempotencyKey))
+                .andReturn();
+
+        MvcResult firstResponse = logRestMockMvc.perform(asyncDispatch(firstResult))
+                .andExpect(status().isCreated())
+                .andReturn();
+        logRestMockMvc.perform(asyncDispatch(secondResult))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.id").value(getId(firstResponse)));
+
+        assertEquals(1, logStore.findAllByAccountId("user").size());
+    }
+
+    @Test
+    @WithMockUser(username = "user", authorities = Authorities.USER)
+    public void createLog_doesNotStoreFailedResponses() throws Exception {
+        String activityId = generateRandomString(10);
+        byte[] requestBody = createLogRequest(activityId, generateDuration());
+        String idempotencyKey = generateRandomString(20);
+
+        mockActivityService("user", activityId, 404);
+
+        MvcResult firstResult = logRestMockMvc.perform(createLogWithIdempotencyKey(requestBody, idempotencyKey))
+                .andReturn();
+        logRestMockMvc.perform(asyncDispatch(firstResult)).andExpect(status().is4xxClientError());
+
+        activityCache.invalidateAll();
+        mockActivityService("user", activityId, 200);
+
+        MvcResult secondResult = logRestMockMvc.perform(createLogWithIdempotencyKey(requestBody, idempotencyKey))
+                .andReturn();
+        logRestMockMvc.perform(asyncDispatch(secondResult))
+                .andExpect(status().isCreated())
+                .andExpect(header().doesNotExist(IdempotencyAspect.REPLAYED_HEADER));
+    }
+
+    @Test
+    @WithMockUser(username = "user", authorities = Authorities.USER)
+    public void createLogs_returnsResultForEveryEntry() throws Exception {
+        String accountId = "user";
+        String activityId = generateRandomString(10);
+        String missingActivityId = generateRandomString(10);
+        long duration = generateDuration();
+        long startTime = generateStartTime(duration);
+
+        mockActivity(accountId, activityId, 200);
+        mockActivity(accountId, missingActivityId, 404);
+
+        byte[] requestBody = createLogBatchRequest(
+                createBatchLogEntry(activityId, startTime, duration),
+                createBatchLogEntry(missingActivityId, startTime, duration),
+                createBatchLogEntry(activityId, startTime, 1000L * 60 * 60 * 24 + 1),
+                createBatchLogEntry(activityId, startTime - duration, duration)
+        );
+
+        MvcResult result = logRestMockMvc.perform(
+                post("/api/logs/batch")
+                        .header("Authorization", generateRandomAuthHeader())
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(requestBody))
+                .andReturn();
+
+        logRestMockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].status", contains(201, 404, 400, 201)))
+                .andExpect(jsonPath("$[0].log.startTime").value(startTime))
+                .andExpect(jsonPath("$[3].log.startTime").value(startTime - duration))
+                .andExpect(jsonPath("$[1].log", nullValue()));
+
+        assertEquals(2, logStore.findAllByAccountId("user").size());
+        verify(1, getRequestedFor(urlEqualTo("/api/activities/" + accountId + "/" + activityId)));
+    }
+
+    @Test
+    @WithMockUser(username = "user", authorities = Authorities.USER)
+    public void createLogs_returnsClientErrorIfBatchIsEmpty() throws Exception {
+        logRestMockMvc.perform(
+                post("/api/logs/batch")
+                        .header("Authorization", generateRandomAuthHeader())
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(createLogBatchRequest()))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     @WithMockUser(username = "user", authorities = Authorities.USER)
     public void findAllByAccountId_returnsOkIfAllCorrect() throws Exception {
@@ -139,13 +328,106 @@ public class LogResourceIntTest {
 
         MvcResult result = logRestMockMvc.perform(
                 get("/api/logs/{username}", accountId))
+                .andExpect(request().asyncStarted())
                 .andReturn();
 
-        logRestMockMvc.perform(asyncDispatch(result))
-                .andExpect(status().isOk())
-                .andExpect(jsonPath("$", hasSize(1)))
-                .andExpect(jsonPath("$[0].accountId", equalTo(accountId)))
-                .andExpect(jsonPath("$[0].activityId", equalTo(activityId)));
+        awaitStreamedResponse(result);
+
+        status().isOk().match(result);
+        jsonPath("$.content", hasSize(1)).match(result);
+        jsonPath("$.content[0].accountId", equalTo(accountId)).match(result);
+        jsonPath("$.content[0].activityId", equalTo(activityId)).match(result);
+    }
+
+    @Test
+    @WithMockUser(username = "user", authorities = Authorities.USER)
+    public void findAllByAccountId_returnsOnlyLogsMatchingFilter() throws Exception {
+        String accountId = "user";
+        String activityId = generateRandomString(10);
+        String otherActivityId = generateRandomString(10);
+        long duration = generateDuration();
+
+        Log log = createLog(accountId, activityId, duration);
+        createLog(accountId, otherActivityId, duration);
+
+        MvcResult result = logRestMockMvc.perform(
+                get("/api/logs/{username}", accountId)
+                        .param("from", String.valueOf(log.getStartTime()))
+                        .param("to", String.valueOf(log.getStartTime() + 1))
+                        .param("activityIds", activityId)
+                        .param("minDuration", String.valueOf(duration))
+                        .param("maxDuration", String.valueOf(duration)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        awaitStreamedResponse(result);
+
+        status().isOk().match(result);
+        jsonPath("$.content", hasSize(1)).match(result);
+        jsonPath("$.content[0].id", equalTo(log.getId())).match(result);
+    }
+
+    @Test
+    @WithMockUser(username = "user", authorities = Authorities.USER)
+    public void findAllByAccountId_returnsPagesOfRequestedSize() throws Exception {
+        String accountId = "user";
+        String activityId = generateRandomString(10);
+        long duration = generateDuration();
+        long startTime = generateStartTime(duration);
+
+        // Two logs share a start time, so that the next page has to be resolved by ID
+        List<Log> logs = logStore.insert(Arrays.asList(
+                new Log(accountId, activityId, startTime - duration, duration),
+                new Log(accountId, activityId, startTime, duration),
+                new Log(accountId, activityId, startTime, duration)
+        ));
+        Log log1 = logs.get(0);
+        Log log2 = logs.get(1);
+        Log log3 = logs.get(2);
+
+        MvcResult firstResult = logRestMockMvc.perform(
+                get("/api/logs/{username}", accountId)
+                        .param("size", "2"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        awaitStreamedResponse(firstResult);
+
+        status().isOk().match(firstResult);
+        jsonPath("$.content[*].id", contains(log1.getId(), log2.getId())).match(firstResult);
+        jsonPath("$.next", notNullValue()).match(firstResult);
+
+        String next = JsonPath.read(firstResult.getResponse().getContentAsString(), "$.next");
+        MvcResult secondResult = logRestMockMvc.perform(
+                get("/api/logs/{username}", accountId)
+                        .param("size", "2")
+                        .param("continuation", next))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        awaitStreamedResponse(secondResult);
+
+        status().isOk().match(secondResult);
+        jsonPath("$.content[*].id", contains(log3.getId())).match(secondResult);
+        jsonPath("$.next", nullValue()).match(secondResult);
+    }
+
+    @Test
+    @WithMockUser(username = "user", authorities = Authorities.USER)
+    public void findAllByAccountId_returnsClientErrorIfContinuationTokenIsMalformed() throws Exception {
+        logRestMockMvc.perform(
+                get("/api/logs/{username}", "user")
+                        .param("continuation", "%%%"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser(username = "user", authorities = Authorities.USER)
+    public void findAllByAccountId_returnsClientErrorForInvalidFilter() throws Exception {
+        logRestMockMvc.perform(
+                get("/api/logs/{username}", "user")
+                        .param("from", "-1"))
+                .andExpect(status().isBadRequest());
     }
 
     @Test
@@ -174,13 +456,15 @@ public class LogResourceIntTest {
 
         MvcResult result = logRestMockMvc.perform(
                 get("/api/logs/{username}/{activityId}", accountId, activityId))
+                .andExpect(request().asyncStarted())
                 .andReturn();
 
-        logRestMockMvc.perform(asyncDispatch(result))
-                .andExpect(status().isOk())
-                .andExpect(jsonPath("$", hasSize(1)))
-                .andExpect(jsonPath("$[0].accountId", equalTo(accountId)))
-                .andExpect(jsonPath("$[0].activityId", equalTo(activityId)));
+        awaitStreamedResponse(result);
+
+        status().isOk().match(result);
+        jsonPath("$.content", hasSize(1)).match(result);
+        jsonPath("$.content[0].accountId", equalTo(accountId)).match(result);
+        jsonPath("$.content[0].activityId", equalTo(activityId)).match(result);
     }
 
     @Test
@@ -247,6 +531,88 @@ public class LogResourceIntTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    @WithMockUser(username = "user", authorities = Authorities.USER)
+    public void findSummariesByAccountId_returnsSummaryPerActivity() throws Exception {
+        String accountId = "user";
+        String activityId = generateRandomString(10);
+        long duration = generateDuration();
+        createLog(accountId, activityId, duration);
+        createLog(accountId, activityId, duration);
+
+        MvcResult result = logRestMockMvc.perform(
+                get("/api/log-summaries/{username}", accountId))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        awaitStreamedResponse(result);
+
+        status().isOk().match(result);
+        jsonPath("$", hasSize(1)).match(result);
+        jsonPath("$[0].activityId", equalTo(activityId)).match(result);
+        jsonPath("$[0].logCount", equalTo(2)).match(result);
+        jsonPath("$[0].totalDuration", equalTo((int) (2 * duration))).match(result);
+    }
+
+    @Test
+    @WithMockUser(username = "other", authorities = Authorities.USER)
+    public void findSummariesByAccountId_returnsForbiddenIfNotOwner() throws Exception {
+        logRestMockMvc.perform(
+                get("/api/log-summaries/{username}", "user"))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    @WithMockUser(username = "user", authorities = Authorities.USER)
+    public void getTotal_returnsTotalOfLogsInRange() throws Exception {
+        String accountId = "user";
+        String activityId = generateRandomString(10);
+        long duration = generateDuration();
+        Log log = createLog(accountId, activityId, duration);
+        createLog(accountId, generateRandomString(10), duration);
+
+        MvcResult result = logRestMockMvc.perform(
+                get("/api/log-totals/{username}", accountId)
+                        .param("from", String.valueOf(log.getStartTime()))
+                        .param("to", String.valueOf(log.getStartTime() + 1))
+                        .param("activityId", activityId))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        logRestMockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.logCount", equalTo(1)))
+                .andExpect(jsonPath("$.totalDuration", equalTo((int) duration)));
+    }
+
+    @Test
+    @WithMockUser(username = "other", authorities = Authorities.USER)
+    public void getTotal_returnsForbiddenIfNotOwner() throws Exception {
+        logRestMockMvc.perform(
+                get("/api/log-totals/{username}", "user")
+                        .param("from", "0")
+                        .param("to", "1"))
+                .andExpect(status().isForbidden());
+    }
+
+    private void awaitStreamedResponse(MvcResult result) {
+        // Streamed bodies are written to the original response, which is not carried over to an async dispatch
+        result.getAsyncResult();
+    }
+
+    private MockHttpServletRequestBuilder createLogWithIdempotencyKey(byte[] requestBody, String idempotencyKey) {
+        return post("/api/logs")
+                .header("Authorization", generateRandomAuthHeader())
+                .header(IdempotencyAspect.IDEMPOTENCY_KEY_HEADER, idempotencyKey)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(requestBody);
+    }
+
+    private static String getId(MvcResult result) throws Exception {
+        return JsonPath.read(result.getResponse().getContentAsString(), "$.id");
+    }
+
     private void mockActivityService(String accountId, String activityName, int status) {
         Activity activity = createActivity(accountId, activityName);
         byte[] body = toJson(activity);
@@ -258,6 +624,18 @@ public class LogResourceIntTest {
                         .withBody(body)));
     }
 
+    private void mockActivity(String accountId, String activityName, int status) {
+        Activity activity = createActivity(accountId, activityName);
+        byte[] body = toJson(activity);
+
+        stubFor(com.github.tomakehurst.wiremock.client.WireMock.get(
+                urlEqualTo("/api/activities/" + accountId + "/" + activityName))
+                .willReturn(aResponse()
+                        .withStatus(status)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(body)));
+    }
+
     private Activity createActivity(String accountId, String activityName) {
         Activity activity = new Activity();
         activity.setAccountId(accountId);
@@ -272,6 +650,20 @@ public class LogResourceIntTest {
         return toJson(createLogRequest);
     }
 
+    private BatchLogEntry createBatchLogEntry(String activityName, long startTime, long duration) {
+        BatchLogEntry entry = new BatchLogEntry();
+        entry.setActivityName(activityName);
+        entry.setStartTime(startTime);
+        entry.setDuration(duration);
+        return entry;
+    }
+
+    private byte[] createLogBatchRequest(BatchLogEntry... entries) {
+        CreateLogBatchRequest createLogBatchRequest = new CreateLogBatchRequest();
+        createLogBatchRequest.setEntries(Arrays.asList(entries));
+        return toJson(createLogBatchRequest);
+    }
+
     private Log createLog(String accountId, String activityId, long duration) throws Exception {
         return logService.createLog(accountId, activityId, duration).get();
     }
@@ -0,0 +1,34 @@
+package com.pdereg.timelogger.web.rest;
+
+import com.pdereg.timelogger.repository.LogStoreRegistry;
+import com.pdereg.timelogger.repository.MappedLogStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.File;
+
+/**
+ * Runs {@link LogResourceIntTest} against logs stored in the mapped layout.
+ */
+@TestPropertySource(properties = {
+        LogStoreRegistry.LAYOUT_PROPERTY + "=mapped",
+        "time-logger.log-storage.mapped.directory=" + LogResourceMappedLayoutIntTest.DIRECTORY,
+        "time-logger.log-storage.mapped.shards=4"
+})
+public class LogResourceMappedLayoutIntTest extends LogResourceIntTest {
+
+    static final String DIRECTORY = "build/log-resource-mapped-layout-test";
+
+    @Autowired
+    private MappedLogStore mappedLogStore;
+
+    @Override
+    protected void removeAllLogs() throws Exception {
+        super.removeAllLogs();
+
+        mappedLogStore.close();
+        FileSystemUtils.deleteRecursively(new File(DIRECTORY));
+        mappedLogStore.open();
+    }
+}
@@ -0,0 +1,137 @@
+package com.pdereg.timelogger.web.rest;
+
+import com.pdereg.timelogger.PerformanceTest;
+import com.pdereg.timelogger.config.CommonConfiguration;
+import com.pdereg.timelogger.domain.Log;
+import com.pdereg.timelogger.repository.LogFilter;
+import com.pdereg.timelogger.security.Authorities;
+import com.pdereg.timelogger.web.web.rest.LogResource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.pdereg.timelogger.TestUtils.generateDuration;
+import static com.pdereg.timelogger.TestUtils.generateRandomString;
+import static com.pdereg.timelogger.TestUtils.generateStartTime;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(SpringRunner.class)
+@WebAppConfiguration
+@SpringBootTest
+@TestPropertySource(properties = {
+        CommonConfiguration.SECRET_ENV_KEY + "=test1234",
+        "time-logger.pagination.max-page-size=" + LogStreamingIntTest.LOG_COUNT
+})
+@Category(PerformanceTest.class)
+public class LogStreamingIntTest {
+
+    private static final String ACCOUNT_ID = "user";
+    static final int LOG_COUNT = 1_000_000;
+    private static final int INSERT_BATCH_SIZE = 10_000;
+    private static final int SAMPLE_INTERVAL = 100_000;
+    private static final long MAX_HEAP_GROWTH = 32L * 1024 * 1024;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private LogResource logResource;
+
+    @Before
+    public void setUp() {
+        mongoTemplate.dropCollection(Log.class);
+        insertLogs();
+    }
+
+    @After
+    public void tearDown() {
+        mongoTemplate.dropCollection(Log.class);
+    }
+
+    @Test
+    @WithMockUser(username = ACCOUNT_ID, authorities = Authorities.USER)
+    public void findAllByAccountId_streamsLogsInConstantMemory() throws Exception {
+        long baseline = measureUsedHeap();
+
+        StreamingResponseBody body = logResource
+                .findAllByAccountId(ACCOUNT_ID, new LogFilter(), null, LOG_COUNT)
+                .getBody();
+        HeapSamplingOutputStream outputStream = new HeapSamplingOutputStream();
+        body.writeTo(outputStream);
+
+        assertEquals(LOG_COUNT, outputStream.objectCount);
+        assertEquals(LOG_COUNT / SAMPLE_INTERVAL, outputStream.sampleCount);
+        assertTrue(
+                "Heap grew by " + (outputStream.maxUsedHeap - baseline) + " bytes",
+                outputStream.maxUsedHeap - baseline < MAX_HEAP_GROWTH
+        );
+    }
+
+    private void insertLogs() {
+        long duration = generateDuration();
+        long startTime = generateStartTime(duration);
+        String activityId = generateRandomString(10);
+
+        for (int i = 0; i < LOG_COUNT; i += INSERT_BATCH_SIZE) {
+            List<Log> batch = new ArrayList<>(INSERT_BATCH_SIZE);
+            for (int j = 0; j < INSERT_BATCH_SIZE; ++j) {
+                batch.add(new Log(ACCOUNT_ID, activityId, startTime, duration));
+            }
+
+            mongoTemplate.insert(batch, Log.class);
+        }
+    }
+
+    private static long measureUsedHeap() {
+        System.gc();
+
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Discards written bytes, counting logs (objects directly inside the {@code content} array of the page) and
+     * sampling heap use every {@code SAMPLE_INTERVAL} logs.
+     */
+    private static class HeapSamplingOutputStream extends OutputStream {
+
+        private int depth;
+        private int objectCount;
+        private int sampleCount;
+        private long maxUsedHeap;
+
+        @Override
+        public void write(int b) {
+            if (b == '{') {
+                // The page itself is the only object at depth 0, and logs do not nest objects
+                if (depth++ == 1) {
+                    onObjectStarted();
+                }
+            } else if (b == '}') {
+                --depth;
+            }
+        }
+
+        private void onObjectStarted() {
+            if (++objectCount % SAMPLE_INTERVAL == 0) {
+                ++sampleCount;
+                maxUsedHeap = Math.max(maxUsedHeap, measureUsedHeap());
+            }
+        }
+    }
+}
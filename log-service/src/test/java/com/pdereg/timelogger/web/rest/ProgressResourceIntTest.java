@@ -0,0 +1,161 @@
+package com.pdereg.timelogger.web.rest;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.pdereg.timelogger.config.CommonConfiguration;
+import com.pdereg.timelogger.domain.DailyRollup;
+import com.pdereg.timelogger.network.model.Activity;
+import com.pdereg.timelogger.network.model.ActivityPage;
+import com.pdereg.timelogger.repository.DailyRollupRepository;
+import com.pdereg.timelogger.security.Authorities;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static com.pdereg.timelogger.TestUtils.generateRandomAuthHeader;
+import static com.pdereg.timelogger.TestUtils.toJson;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@WebAppConfiguration
+@SpringBootTest
+@TestPropertySource(properties = {CommonConfiguration.SECRET_ENV_KEY + "=test1234"})
+public class ProgressResourceIntTest {
+
+    private static final String ACCOUNT_ID = "user";
+    private static final LocalDate DATE = LocalDate.of(2017, 3, 6);
+    private static final long REQUIRED_DURATION = 60000L;
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(wireMockConfig().bindAddress("localhost").port(8083));
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private DailyRollupRepository dailyRollupRepository;
+
+    private MockMvc progressRestMockMvc;
+    private long day;
+
+    @Before
+    public void setUp() {
+        mongoTemplate.dropCollection(DailyRollup.class);
+        day = DATE.atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+
+        this.progressRestMockMvc = MockMvcBuilders
+                .webAppContextSetup(webApplicationContext)
+                .apply(springSecurity())
+                .build();
+    }
+
+    @After
+    public void tearDown() {
+        mongoTemplate.dropCollection(DailyRollup.class);
+    }
+
+    @Test
+    @WithMockUser(username = ACCOUNT_ID, authorities = Authorities.USER)
+    public void getProgress_returnsLoggedDurationOfScheduledActivities() throws Exception {
+        // 2017-03-06 is a Monday
+        mockActivityPage(null, null, createActivity("running", true), createActivity("swimming", false));
+        dailyRollupRepository.increment(ACCOUNT_ID, "running", day, REQUIRED_DURATION / 2, 1L);
+        dailyRollupRepository.increment(ACCOUNT_ID, "running", day - DailyRollup.MILLIS_IN_A_DAY, 1000L, 1L);
+        dailyRollupRepository.increment(ACCOUNT_ID, "swimming", day, 1000L, 1L);
+
+        MvcResult result = progressRestMockMvc.perform(
+                org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get("/api/progress/" + ACCOUNT_ID)
+                        .header("Authorization", generateRandomAuthHeader())
+                        .param("date", DATE.toString())
+                        .accept(MediaType.APPLICATION_JSON))
+                .andReturn();
+
+        progressRestMockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].activityName").value("running"))
+                .andExpect(jsonPath("$[0].requiredDuration").value(REQUIRED_DURATION))
+                .andExpect(jsonPath("$[0].loggedDuration").value(REQUIRED_DURATION / 2))
+                .andExpect(jsonPath("$[0].completed").value(false));
+    }
+
+    @Test
+    @WithMockUser(username = ACCOUNT_ID, authorities = Authorities.USER)
+    public void getProgress_fetchesAllPagesOfActivities() throws Exception {
+        mockActivityPage(null, "page2", createActivity("running", true));
+        mockActivityPage("page2", null, createActivity("swimming", true));
+        dailyRollupRepository.increment(ACCOUNT_ID, "swimming", day, REQUIRED_DURATION, 1L);
+
+        MvcResult result = progressRestMockMvc.perform(
+                org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get("/api/progress/" + ACCOUNT_ID)
+                        .header("Authorization", generateRandomAuthHeader())
+                        .param("date", DATE.toString())
+                        .accept(MediaType.APPLICATION_JSON))
+                .andReturn();
+
+        progressRestMockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].loggedDuration").value(0))
+                .andExpect(jsonPath("$[1].activityName").value("swimming"))
+                .andExpect(jsonPath("$[1].completed").value(true));
+    }
+
+    @Test
+    @WithMockUser(username = "other", authorities = Authorities.USER)
+    public void getProgress_returnsForbiddenIfNotOwner() throws Exception {
+        progressRestMockMvc.perform(
+                org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get("/api/progress/" + ACCOUNT_ID)
+                        .header("Authorization", generateRandomAuthHeader())
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isForbidden());
+    }
+
+    private void mockActivityPage(String continuation, String next, Activity... activities) {
+        ActivityPage page = new ActivityPage();
+        page.setContent(Arrays.asList(activities));
+        page.setNext(next);
+
+        stubFor(get(urlPathEqualTo("/api/activities/" + ACCOUNT_ID))
+                .withQueryParam("continuation", continuation != null ? equalTo(continuation) : absent())
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(toJson(page))));
+    }
+
+    private Activity createActivity(String name, boolean onMondays) {
+        Activity activity = new Activity();
+        activity.setAccountId(ACCOUNT_ID);
+        activity.setName(name);
+        activity.setRequiredDuration(REQUIRED_DURATION);
+        activity.setWeekdays(new boolean[]{onMondays, false, false, false, false, false, false});
+        return activity;
+    }
+}
@@ -0,0 +1,107 @@
+package com.pdereg.timelogger.web.rest;
+
+import com.pdereg.timelogger.config.CommonConfiguration;
+import com.pdereg.timelogger.domain.Log;
+import com.pdereg.timelogger.routing.ReadRouter;
+import com.pdereg.timelogger.security.Authorities;
+import com.pdereg.timelogger.service.LogService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import static com.pdereg.timelogger.TestUtils.generateDuration;
+import static com.pdereg.timelogger.TestUtils.generateRandomString;
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@WebAppConfiguration
+@SpringBootTest
+@TestPropertySource(properties = {
+        CommonConfiguration.SECRET_ENV_KEY + "=test1234",
+        "time-logger.read-routing.log-listing.read-preference=secondaryPreferred",
+        "time-logger.read-routing.log-listing.max-staleness=0"
+})
+public class ReadRoutingIntTest {
+
+    private static final String SECONDARY_PREFERRED = "secondaryPreferred";
+    private static final String PRIMARY = "primary";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private LogService logService;
+
+    @Autowired
+    private ReadRouter readRouter;
+
+    private MockMvc logRestMockMvc;
+
+    @Before
+    public void setUp() {
+        mongoTemplate.dropCollection(Log.class);
+
+        logRestMockMvc = MockMvcBuilders
+                .webAppContextSetup(webApplicationContext)
+                .apply(springSecurity())
+                .build();
+    }
+
+    @After
+    public void tearDown() {
+        mongoTemplate.dropCollection(Log.class);
+    }
+
+    @Test
+    @WithMockUser(username = "user", authorities = Authorities.USER)
+    public void findAllByAccountId_readsFromConfiguredTarget() throws Exception {
+        logService.createLog("user", generateRandomString(10), generateDuration()).get();
+        long secondaryCount = readRouter.getOperationCount(SECONDARY_PREFERRED);
+
+        MvcResult result = logRestMockMvc.perform(get("/api/logs/{username}", "user")).andReturn();
+        result.getAsyncResult();
+
+        status().isOk().match(result);
+        jsonPath("$.content", hasSize(1)).match(result);
+        assertTrue(readRouter.getOperationCount(SECONDARY_PREFERRED) > secondaryCount);
+    }
+
+    @Test
+    @WithMockUser(username = "user", authorities = Authorities.USER)
+    public void findOneById_readsFromPrimary() throws Exception {
+        String activityId = generateRandomString(10);
+        Log log = logService.createLog("user", activityId, generateDuration()).get();
+        long secondaryCount = readRouter.getOperationCount(SECONDARY_PREFERRED);
+        long primaryCount = readRouter.getOperationCount(PRIMARY);
+
+        MvcResult result = logRestMockMvc.perform(
+                get("/api/logs/{username}/{activityId}/{id}", "user", activityId, log.getId()))
+                .andReturn();
+
+        logRestMockMvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+        assertEquals(secondaryCount, readRouter.getOperationCount(SECONDARY_PREFERRED));
+        assertTrue(readRouter.getOperationCount(PRIMARY) > primaryCount);
+    }
+}